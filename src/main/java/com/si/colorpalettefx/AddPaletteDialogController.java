@@ -1,24 +1,40 @@
 package com.si.colorpalettefx;
 
+import com.si.colorpalettefx.color.ColorNamer;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.diff.PaletteDiff;
 import com.si.colorpalettefx.model.ColorPalette;
 import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ColorPicker;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
+import javafx.scene.input.Clipboard;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 /**
  * Controller for the Add/Edit Palette dialog.
+ * <p>
+ * The dialog edits its own list of swatches: updated swatches are replaced instead of changed in
+ * place, so the edited palette stays untouched until the dialog is saved. Loading, pasting and
+ * removing swatches change the list in a single operation, which keeps the dialog responsive for
+ * palettes with tens of thousands of colors.
  */
 public class AddPaletteDialogController {
     @FXML
@@ -27,12 +43,18 @@ public class AddPaletteDialogController {
     @FXML
     private TextField paletteName;
 
+    @FXML
+    private TextField tagsField;
+
     @FXML
     private ColorPicker colorPicker;
 
     @FXML
     private TextField colorName;
 
+    @FXML
+    private TextField filterField;
+
     @FXML
     private ListView<NamedColor> colorList;
 
@@ -42,8 +64,120 @@ public class AddPaletteDialogController {
     @FXML
     private Button removeColorButton;
 
-    // Track the currently selected color index for editing
-    private int selectedColorIndex = -1;
+    @FXML
+    private Label statusLabel;
+
+    // All colors of the dialog, and the view of them matching the filter
+    private final ObservableList<NamedColor> namedColors = FXCollections.observableArrayList();
+    private final FilteredList<NamedColor> filteredColors = new FilteredList<>(namedColors);
+
+    // The colors the dialog was opened with, and whether they have been changed since
+    private List<NamedColor> originalColors = List.of();
+    private String originalName = "";
+    private List<String> originalTags = List.of();
+    private boolean colorsEdited;
+
+    // Track the currently selected color for editing
+    private NamedColor selectedColor;
+
+    /**
+     * The result of editing a palette: its new name and tags, and the swatches that differ from
+     * the ones the dialog was opened with. Unchanged swatches are not part of the edit.
+     */
+    public static final class PaletteEdit {
+        private final String name;
+        private final boolean renamed;
+        private final List<String> tags;
+        private final boolean retagged;
+        private final int colorCount;
+        private final PaletteDiff diff;
+        private final List<NamedColor> newColors;
+
+        private PaletteEdit(String name, boolean renamed, List<String> tags, boolean retagged,
+                            int colorCount, PaletteDiff diff, List<NamedColor> newColors) {
+            this.name = name;
+            this.renamed = renamed;
+            this.tags = tags;
+            this.retagged = retagged;
+            this.colorCount = colorCount;
+            this.diff = diff;
+            this.newColors = newColors;
+        }
+
+        /**
+         * Returns the palette name entered in the dialog.
+         *
+         * @return the palette name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns whether the palette name was changed.
+         *
+         * @return true if the name differs from the original name
+         */
+        public boolean isRenamed() {
+            return renamed;
+        }
+
+        /**
+         * Returns the tags entered in the dialog.
+         *
+         * @return the tags, unmodifiable
+         */
+        public List<String> getTags() {
+            return tags;
+        }
+
+        /**
+         * Returns whether the tags were changed.
+         *
+         * @return true if the tags differ from the original tags
+         */
+        public boolean isRetagged() {
+            return retagged;
+        }
+
+        /**
+         * Returns the number of colors of the palette after editing.
+         *
+         * @return the color count
+         */
+        public int getColorCount() {
+            return colorCount;
+        }
+
+        /**
+         * Returns the added, removed and changed swatches.
+         *
+         * @return the differences to the original colors
+         */
+        public PaletteDiff getDiff() {
+            return diff;
+        }
+
+        /**
+         * Returns the new swatch of a change: the added swatch, or the swatch that replaces a
+         * changed one.
+         *
+         * @param changeIndex the index of the change in {@link PaletteDiff#getChanges()}
+         * @return the named color, or null for a removed swatch
+         */
+        public NamedColor getNewColor(int changeIndex) {
+            return newColors.get(changeIndex);
+        }
+
+        /**
+         * Returns whether neither the name, the tags nor the colors were changed.
+         *
+         * @return true if there is nothing to apply
+         */
+        public boolean isEmpty() {
+            return !renamed && !retagged && diff.isEmpty();
+        }
+    }
 
     /**
      * Initializes the controller.
@@ -53,6 +187,9 @@ public class AddPaletteDialogController {
         // Set default color
         colorPicker.setValue(Color.RED);
 
+        colorList.setItems(filteredColors);
+        colorList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
         // Set up the cell factory for the color list
         colorList.setCellFactory(param -> new ListCell<NamedColor>() {
             private final StackPane colorRect = new StackPane();
@@ -71,38 +208,44 @@ public class AddPaletteDialogController {
                     setGraphic(null);
                 } else {
                     // Set the color of the rectangle
-                    colorRect.setStyle("-fx-background-color: #" + toHexString(item.getColor()) + ";");
+                    colorRect.setBackground(SwatchStyles.background(item.getColor()));
                     setGraphic(colorRect);
 
                     // Set the text to the color name
                     setText(item.getName());
                 }
             }
-
-            private String toHexString(Color color) {
-                return String.format("%02X%02X%02X",
-                    (int) (color.getRed() * 255),
-                    (int) (color.getGreen() * 255),
-                    (int) (color.getBlue() * 255));
-            }
         });
 
         // Add a selection listener to the color list
         colorList.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue != null) {
+            if (newValue != null && colorList.getSelectionModel().getSelectedIndices().size() == 1) {
                 // Update the color picker and name field with the selected color's values
                 colorPicker.setValue(newValue.getColor());
                 colorName.setText(newValue.getName());
 
-                // Update the button text and store the selected index
-                selectedColorIndex = colorList.getSelectionModel().getSelectedIndex();
+                // Update the button text and store the selected color
+                selectedColor = newValue;
                 addColorButton.setText("Update Color");
             } else {
-                // Reset to add mode if nothing is selected
-                selectedColorIndex = -1;
+                // Reset to add mode if nothing or several colors are selected
+                selectedColor = null;
                 addColorButton.setText("Add Color");
             }
         });
+
+        // Only show the colors whose name or hex code contains the filter text
+        filterField.textProperty().addListener((observable, oldValue, newValue) -> {
+            String filter = newValue.trim().toLowerCase(Locale.ROOT);
+            if (filter.isEmpty()) {
+                filteredColors.setPredicate(null);
+            } else {
+                filteredColors.setPredicate(namedColor -> matches(namedColor, filter));
+            }
+            updateStatus();
+        });
+
+        updateStatus();
     }
 
     /**
@@ -111,34 +254,29 @@ public class AddPaletteDialogController {
      */
     @FXML
     protected void onAddColorButtonClick() {
-        Color selectedColor = colorPicker.getValue();
+        Color color = colorPicker.getValue();
         String name = colorName.getText().trim();
 
-        // If no name is provided, use the hex code as the name
+        // If no name is provided, use the closest named color as the name
         if (name.isEmpty()) {
-            name = String.format("#%02X%02X%02X",
-                (int) (selectedColor.getRed() * 255),
-                (int) (selectedColor.getGreen() * 255),
-                (int) (selectedColor.getBlue() * 255));
+            name = ColorNamer.getDefault().name(color);
         }
 
-        if (selectedColorIndex >= 0) {
-            // Update existing color
-            NamedColor namedColor = colorList.getItems().get(selectedColorIndex);
-            namedColor.setColor(selectedColor);
-            namedColor.setName(name);
-
-            // Refresh the list view
-            colorList.refresh();
+        int index = selectedColor != null ? namedColors.indexOf(selectedColor) : -1;
+        if (index >= 0) {
+            // Replace the existing color, so the edited palette is not changed before saving
+            namedColors.set(index, new NamedColor(color, name));
 
             // Reset selection and button text
             colorList.getSelectionModel().clearSelection();
-            selectedColorIndex = -1;
+            selectedColor = null;
             addColorButton.setText("Add Color");
         } else {
             // Add new color
-            colorList.getItems().add(new NamedColor(selectedColor, name));
+            namedColors.add(new NamedColor(color, name));
         }
+        colorsEdited = true;
+        updateStatus();
 
         // Clear the color name field for the next color
         colorName.clear();
@@ -146,18 +284,79 @@ public class AddPaletteDialogController {
 
     /**
      * Handles the "Remove Selected" button click.
-     * Removes the selected color from the list.
+     * Removes the selected colors from the list.
      */
     @FXML
     protected void onRemoveColorButtonClick() {
-        int selectedIndex = colorList.getSelectionModel().getSelectedIndex();
-        if (selectedIndex >= 0) {
-            colorList.getItems().remove(selectedIndex);
+        List<Integer> selectedIndices = colorList.getSelectionModel().getSelectedIndices();
+        if (selectedIndices.isEmpty()) {
+            return;
+        }
 
-            // Reset selection state and button text
-            selectedColorIndex = -1;
-            addColorButton.setText("Add Color");
-            colorName.clear();
+        // Map the filtered indices back to the full list, then remove everything in one change
+        BitSet removed = new BitSet(namedColors.size());
+        for (int index : selectedIndices) {
+            if (index >= 0) {
+                removed.set(filteredColors.getSourceIndex(index));
+            }
+        }
+        List<NamedColor> remaining = new ArrayList<>(namedColors.size() - removed.cardinality());
+        for (int i = 0; i < namedColors.size(); i++) {
+            if (!removed.get(i)) {
+                remaining.add(namedColors.get(i));
+            }
+        }
+        colorList.getSelectionModel().clearSelection();
+        namedColors.setAll(remaining);
+        colorsEdited = true;
+
+        // Reset selection state and button text
+        selectedColor = null;
+        addColorButton.setText("Add Color");
+        colorName.clear();
+        updateStatus();
+    }
+
+    /**
+     * Handles the "Paste Colors" button click.
+     * Adds all colors from the clipboard text, one per line. A line holds a color such as
+     * {@code #FF8800}, optionally followed by a name; lines without a valid color are skipped.
+     */
+    @FXML
+    protected void onPasteColorsButtonClick() {
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text == null || text.isBlank()) {
+            statusLabel.setText("The clipboard does not contain any text.");
+            return;
+        }
+
+        List<NamedColor> pasted = new ArrayList<>();
+        int skippedCount = 0;
+        for (String line : text.split("\\R")) {
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            // The first word is the color, the rest of the line its name
+            int separator = indexOfWhitespace(line);
+            String colorText = separator < 0 ? line : line.substring(0, separator);
+            String name = separator < 0 ? "" : line.substring(separator).strip();
+            try {
+                Color color = Color.web(colorText);
+                pasted.add(new NamedColor(color, name.isEmpty() ? ColorNamer.getDefault().name(color) : name));
+            } catch (IllegalArgumentException e) {
+                skippedCount++;
+            }
+        }
+
+        if (!pasted.isEmpty()) {
+            namedColors.addAll(pasted);
+            colorsEdited = true;
+        }
+        updateStatus();
+        if (skippedCount > 0) {
+            statusLabel.setText(statusLabel.getText() + " (" + skippedCount + " invalid lines skipped)");
         }
     }
 
@@ -167,7 +366,7 @@ public class AddPaletteDialogController {
      * @return a pair containing the palette name and list of colors
      */
     public Pair<String, List<NamedColor>> getResult() {
-        return new Pair<>(paletteName.getText(), new ArrayList<>(colorList.getItems()));
+        return new Pair<>(paletteName.getText(), new ArrayList<>(namedColors));
     }
 
     /**
@@ -176,9 +375,10 @@ public class AddPaletteDialogController {
      * @return a pair containing the palette name and list of colors
      */
     public Pair<String, List<Color>> getResultAsColors() {
-        List<Color> colors = colorList.getItems().stream()
-                .map(NamedColor::getColor)
-                .collect(Collectors.toList());
+        List<Color> colors = new ArrayList<>(namedColors.size());
+        for (NamedColor namedColor : namedColors) {
+            colors.add(namedColor.getColor());
+        }
         return new Pair<>(paletteName.getText(), colors);
     }
 
@@ -188,7 +388,32 @@ public class AddPaletteDialogController {
      * @return a pair containing the palette name and list of named colors
      */
     public Pair<String, List<NamedColor>> getResultAsNamedColors() {
-        return new Pair<>(paletteName.getText(), new ArrayList<>(colorList.getItems()));
+        return new Pair<>(paletteName.getText(), new ArrayList<>(namedColors));
+    }
+
+    /**
+     * Gets the changes made in the dialog to the palette it was opened with. The differences
+     * are only computed when the colors were actually edited, and only the added and changed
+     * swatches are copied.
+     *
+     * @return the palette edit
+     */
+    public PaletteEdit getEdit() {
+        String name = paletteName.getText();
+        PaletteDiff diff = colorsEdited
+                ? PaletteDiff.compute(originalColors, namedColors)
+                : PaletteDiff.compute(List.of(), List.of());
+        List<PaletteDiff.Change> changes = diff.getChanges();
+        NamedColor[] newColors = new NamedColor[changes.size()];
+        for (int i = 0; i < newColors.length; i++) {
+            int newIndex = changes.get(i).getNewIndex();
+            if (newIndex >= 0) {
+                newColors[i] = namedColors.get(newIndex);
+            }
+        }
+        List<String> tags = getTags();
+        return new PaletteEdit(name, !originalName.equals(name), tags, !originalTags.equals(tags),
+                namedColors.size(), diff, Arrays.asList(newColors));
     }
 
     /**
@@ -225,16 +450,39 @@ public class AddPaletteDialogController {
      */
     public void setPaletteName(String name) {
         paletteName.setText(name);
+        originalName = name;
     }
 
     /**
-     * Sets the colors in the color list.
+     * Gets the tags entered in the dialog.
+     *
+     * @return the tags, unmodifiable
+     */
+    public List<String> getTags() {
+        return ColorPalette.normalizeTags(Arrays.asList(tagsField.getText().split(",")));
+    }
+
+    /**
+     * Sets the tags, shown separated by commas.
+     *
+     * @param tags the tags to set
+     */
+    public void setTags(List<String> tags) {
+        originalTags = ColorPalette.normalizeTags(tags);
+        tagsField.setText(String.join(", ", originalTags));
+    }
+
+    /**
+     * Sets the colors in the color list. The colors are the baseline {@link #getEdit()}
+     * compares against.
      * 
      * @param namedColors the list of named colors to set
      */
     public void setNamedColors(List<NamedColor> namedColors) {
-        colorList.getItems().clear();
-        colorList.getItems().addAll(namedColors);
+        originalColors = new ArrayList<>(namedColors);
+        this.namedColors.setAll(originalColors);
+        colorsEdited = false;
+        updateStatus();
     }
 
     /**
@@ -243,14 +491,52 @@ public class AddPaletteDialogController {
      * @param colors the list of colors to set
      */
     public void setColors(List<Color> colors) {
-        colorList.getItems().clear();
+        List<NamedColor> named = new ArrayList<>(colors.size());
         for (Color color : colors) {
-            // Default the color name to its hex code
-            String colorName = String.format("#%02X%02X%02X",
-                (int) (color.getRed() * 255),
-                (int) (color.getGreen() * 255),
-                (int) (color.getBlue() * 255));
-            colorList.getItems().add(new NamedColor(color, colorName));
+            // Default the color name to the closest named color
+            named.add(new NamedColor(color, ColorNamer.getDefault().name(color)));
+        }
+        setNamedColors(named);
+    }
+
+    /**
+     * Shows the number of colors, and how many of them match the filter.
+     */
+    private void updateStatus() {
+        if (filteredColors.getPredicate() == null) {
+            statusLabel.setText(namedColors.size() + " colors");
+        } else {
+            statusLabel.setText(filteredColors.size() + " of " + namedColors.size() + " colors");
+        }
+    }
+
+    /**
+     * Checks whether the name or hex code of a color contains the filter text.
+     *
+     * @param namedColor the color
+     * @param filter the lower-case filter text
+     * @return true if the color matches
+     */
+    private static boolean matches(NamedColor namedColor, String filter) {
+        String name = namedColor.getName();
+        if (name != null && name.toLowerCase(Locale.ROOT).contains(filter)) {
+            return true;
+        }
+        return PackedColors.toHex(namedColor.getColor()).toLowerCase(Locale.ROOT).contains(filter);
+    }
+
+    /**
+     * Finds the first whitespace character of a line.
+     *
+     * @param line the line
+     * @return the index of the whitespace, or -1 if there is none
+     */
+    private static int indexOfWhitespace(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (Character.isWhitespace(line.charAt(i))) {
+                return i;
+            }
         }
+        return -1;
     }
 }
@@ -0,0 +1,273 @@
+package com.si.colorpalettefx;
+
+import com.si.colorpalettefx.color.PaletteAdjuster;
+import com.si.colorpalettefx.color.PaletteAdjuster.Adjustment;
+import com.si.colorpalettefx.color.PaletteAdjuster.ColorSpace;
+import javafx.animation.AnimationTimer;
+import javafx.fxml.FXML;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.GridPane;
+import javafx.util.StringConverter;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Controller for the Adjust Colors dialog.
+ * <p>
+ * Slider changes only bump a version number and start an animation timer. The timer starts at
+ * most one recompute per pulse, and only when the previous one has finished, on a background
+ * thread that adjusts the packed colors and renders the preview pixels. The finished preview is
+ * published through an atomic reference and copied into the preview image on the next pulse, so
+ * dragging a slider stays smooth even for very large palettes. Once the preview is up to date
+ * the timer stops, so an idle dialog costs nothing per frame.
+ */
+public class AdjustPaletteDialogController {
+    // Maximum width and height of the preview image
+    private static final int PREVIEW_SIZE = 480;
+
+    @FXML
+    private GridPane dialogContent;
+
+    @FXML
+    private ChoiceBox<ColorSpace> colorSpaceChoiceBox;
+
+    @FXML
+    private Slider hueSlider;
+
+    @FXML
+    private Slider saturationSlider;
+
+    @FXML
+    private Slider lightnessSlider;
+
+    @FXML
+    private Label hueLabel;
+
+    @FXML
+    private Label saturationLabel;
+
+    @FXML
+    private Label lightnessLabel;
+
+    @FXML
+    private ImageView previewView;
+
+    private final AtomicReference<Preview> finishedPreview = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "palette-adjust");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AnimationTimer previewTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            updatePreview();
+        }
+    };
+
+    private int[] colors = new int[0];
+    private WritableImage previewImage;
+    private PreviewLayout layout;
+
+    // Version of the slider values, and the version of the last started recompute
+    private long version;
+    private long startedVersion = -1;
+    private boolean computing;
+
+    /**
+     * A rendered preview.
+     */
+    private static final class Preview {
+        private final int[] pixels;
+
+        Preview(int[] pixels) {
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * The arrangement of colors in the preview: one square cell per shown color. Palettes with
+     * more colors than preview pixels are sampled evenly.
+     */
+    private static final class PreviewLayout {
+        private final int shownCount;
+        private final int columns;
+        private final int cellSize;
+        private final int width;
+        private final int height;
+
+        PreviewLayout(int colorCount) {
+            shownCount = Math.min(colorCount, PREVIEW_SIZE * PREVIEW_SIZE);
+            columns = Math.max(1, (int) Math.ceil(Math.sqrt(shownCount)));
+            int rows = Math.max(1, (shownCount + columns - 1) / columns);
+            cellSize = Math.max(1, PREVIEW_SIZE / columns);
+            width = columns * cellSize;
+            height = rows * cellSize;
+        }
+    }
+
+    /**
+     * Initializes the controller.
+     */
+    @FXML
+    public void initialize() {
+        colorSpaceChoiceBox.getItems().setAll(ColorSpace.values());
+        colorSpaceChoiceBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(ColorSpace colorSpace) {
+                return colorSpace == null ? "" : colorSpace.getDisplayName();
+            }
+
+            @Override
+            public ColorSpace fromString(String string) {
+                return null;
+            }
+        });
+        colorSpaceChoiceBox.setValue(ColorSpace.OKLAB);
+
+        colorSpaceChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> invalidatePreview());
+        hueSlider.valueProperty().addListener((observable, oldValue, newValue) -> onSliderChanged());
+        saturationSlider.valueProperty().addListener((observable, oldValue, newValue) -> onSliderChanged());
+        lightnessSlider.valueProperty().addListener((observable, oldValue, newValue) -> onSliderChanged());
+        updateLabels();
+    }
+
+    /**
+     * Sets the colors to adjust and starts the live preview.
+     *
+     * @param colors the packed colors of the palette
+     */
+    public void setColors(int[] colors) {
+        this.colors = colors.clone();
+        layout = new PreviewLayout(colors.length);
+        previewImage = new WritableImage(layout.width, layout.height);
+        previewView.setImage(previewImage);
+        invalidatePreview();
+    }
+
+    /**
+     * Gets the adjustment chosen with the sliders.
+     *
+     * @return the current adjustment
+     */
+    public Adjustment getAdjustment() {
+        return new Adjustment(colorSpaceChoiceBox.getValue(), hueSlider.getValue(),
+                saturationSlider.getValue() / 100, lightnessSlider.getValue() / 100);
+    }
+
+    /**
+     * Gets the colors with the current adjustment applied.
+     *
+     * @return the adjusted packed colors
+     */
+    public int[] getAdjustedColors() {
+        return PaletteAdjuster.adjust(colors, getAdjustment());
+    }
+
+    /**
+     * Stops the live preview and its background thread. Must be called when the dialog closes.
+     */
+    public void dispose() {
+        previewTimer.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the root node of the dialog.
+     *
+     * @return the root GridPane
+     */
+    public GridPane getDialogContent() {
+        return dialogContent;
+    }
+
+    /**
+     * Marks the preview outdated and updates the value labels.
+     */
+    private void onSliderChanged() {
+        invalidatePreview();
+        updateLabels();
+    }
+
+    /**
+     * Marks the preview outdated and makes sure the timer runs to recompute it.
+     */
+    private void invalidatePreview() {
+        version++;
+        previewTimer.start();
+    }
+
+    /**
+     * Shows the slider values next to the sliders.
+     */
+    private void updateLabels() {
+        hueLabel.setText(String.format("%+.0f°", hueSlider.getValue()));
+        saturationLabel.setText(String.format("%+.0f%%", saturationSlider.getValue()));
+        lightnessLabel.setText(String.format("%+.0f%%", lightnessSlider.getValue()));
+    }
+
+    /**
+     * Called on every pulse while the timer runs: shows a finished preview, starts a recompute
+     * if the sliders changed and no recompute is running, and stops the timer once the shown
+     * preview is up to date.
+     */
+    private void updatePreview() {
+        Preview preview = finishedPreview.getAndSet(null);
+        if (preview != null) {
+            computing = false;
+            if (preview.pixels != null) {
+                previewImage.getPixelWriter().setPixels(0, 0, layout.width, layout.height,
+                        PixelFormat.getIntArgbInstance(), preview.pixels, 0, layout.width);
+            }
+        }
+
+        if (!computing && startedVersion != version) {
+            startedVersion = version;
+            computing = true;
+            Adjustment adjustment = getAdjustment();
+            int[] source = colors;
+            PreviewLayout previewLayout = layout;
+            executor.execute(() -> {
+                try {
+                    finishedPreview.set(new Preview(render(PaletteAdjuster.adjust(source, adjustment), previewLayout)));
+                } catch (RuntimeException e) {
+                    finishedPreview.set(new Preview(null));
+                    throw e;
+                }
+            });
+        }
+
+        if (!computing && startedVersion == version) {
+            previewTimer.stop();
+        }
+    }
+
+    /**
+     * Renders the preview pixels of adjusted colors.
+     *
+     * @param adjusted the adjusted packed colors
+     * @param layout the preview layout
+     * @return the pixels, row by row
+     */
+    private static int[] render(int[] adjusted, PreviewLayout layout) {
+        int[] pixels = new int[layout.width * layout.height];
+        for (int cell = 0; cell < layout.shownCount; cell++) {
+            int color = adjusted[(int) ((long) cell * adjusted.length / layout.shownCount)];
+            int x = (cell % layout.columns) * layout.cellSize;
+            int y = (cell / layout.columns) * layout.cellSize;
+            for (int row = y; row < y + layout.cellSize; row++) {
+                int offset = row * layout.width + x;
+                Arrays.fill(pixels, offset, offset + layout.cellSize, color);
+            }
+        }
+        return pixels;
+    }
+}
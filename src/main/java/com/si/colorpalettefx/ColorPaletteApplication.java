@@ -2,11 +2,15 @@ package com.si.colorpalettefx;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
@@ -14,58 +18,206 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
 import java.awt.Taskbar;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.io.InputStream;
 
 public class ColorPaletteApplication extends Application {
+    /**
+     * System property enabling fast-start mode: the window is shown first and the main view is
+     * loaded in the background.
+     */
+    public static final String FAST_START_PROPERTY = "colorpalettefx.fastStart";
+
+    /**
+     * System property enabling the startup timing report on standard output.
+     */
+    public static final String STARTUP_TIMING_PROPERTY = "colorpalettefx.startupTiming";
+
+    /**
+     * System property for the class-data-sharing training run: the application warms up its
+     * dialogs and exits as soon as the main view has been displayed.
+     */
+    public static final String TRAINING_RUN_PROPERTY = "colorpalettefx.trainingRun";
+
+    private final StartupTimer startupTimer = new StartupTimer();
+
+    // Overlay with frame rate, pulse and scene-graph statistics
+    private final PerformanceHud performanceHud = new PerformanceHud();
+
+    // Controller of the main view, set once the view has been loaded
+    private ColorPaletteController controller;
+
     // Store initial mouse position for window dragging
     private double xOffset = 0;
     private double yOffset = 0;
 
+    // The application icon, decoded once and shared by the stage, titlebar and dock
+    private Image appIcon;
+
+    @Override
+    public void init() {
+        startupTimer.mark("init");
+
+        // Decode the icon on the launcher thread while the toolkit starts up
+        try (InputStream iconStream = getClass().getResourceAsStream("/images/appicon.png")) {
+            appIcon = new Image(iconStream);
+        } catch (IOException e) {
+            System.err.println("Error loading application icon: " + e.getMessage());
+        }
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
+        startupTimer.mark("start");
+
         // Set stage style to undecorated
         stage.initStyle(StageStyle.UNDECORATED);
 
-        // Load the main content
-        FXMLLoader fxmlLoader = new FXMLLoader(ColorPaletteApplication.class.getResource("color-palette-view.fxml"));
-        BorderPane mainContent = fxmlLoader.load();
-
         // Create custom titlebar
         HBox titleBar = createTitleBar(stage);
 
         // Create root container
         BorderPane root = new BorderPane();
         root.setTop(titleBar);
-        root.setCenter(mainContent);
 
-        Scene scene = new Scene(root, 800, 600);
+        // Layer the performance overlay on top of the window content
+        StackPane layers = new StackPane(root, performanceHud.getNode());
+
+        Scene scene = new Scene(layers, 800, 600);
         stage.setScene(scene);
+        performanceHud.install(scene);
 
         // Set application icon for the window
-        Image appIcon = new Image(getClass().getResourceAsStream("/images/appicon.png"));
-        stage.getIcons().add(appIcon);
+        if (appIcon != null) {
+            stage.getIcons().add(appIcon);
+        }
+
+        // Record the first pulse after the window has been shown
+        Runnable firstFrameListener = new Runnable() {
+            @Override
+            public void run() {
+                startupTimer.mark("firstFrame");
+                scene.removePostLayoutPulseListener(this);
+            }
+        };
+        scene.addPostLayoutPulseListener(firstFrameListener);
+
+        if (Boolean.getBoolean(FAST_START_PROPERTY) || Boolean.getBoolean(TRAINING_RUN_PROPERTY)) {
+            // Show the window right away and load the main content in the background
+            ProgressIndicator placeholder = new ProgressIndicator();
+            placeholder.setMaxSize(48, 48);
+            root.setCenter(placeholder);
+
+            Task<Parent> loadTask = new Task<>() {
+                @Override
+                protected Parent call() throws IOException {
+                    return loadMainContent();
+                }
+            };
+            loadTask.setOnSucceeded(event -> showMainContent(root, loadTask.getValue()));
+            loadTask.setOnFailed(event -> {
+                System.err.println("Error loading main view: " + loadTask.getException().getMessage());
+                Platform.exit();
+            });
+
+            Thread loadThread = new Thread(loadTask, "main-view-loader");
+            loadThread.setDaemon(true);
+            loadThread.start();
+        } else {
+            showMainContent(root, loadMainContent());
+        }
+
+        stage.show();
+        startupTimer.mark("shown");
+
+        // The dock icon needs the AWT toolkit, so set it up after the window is on screen
+        Platform.runLater(this::setDockIcon);
+    }
 
-        // Set dock icon for macOS
-        if (System.getProperty("os.name").toLowerCase().contains("mac") && Taskbar.isTaskbarSupported()) {
+    /**
+     * Loads the main content from its FXML file. Safe to call from a background thread, as
+     * long as the result is only attached to the scene on the JavaFX application thread.
+     *
+     * @return the root of the main content
+     * @throws IOException if the FXML file cannot be loaded
+     */
+    private Parent loadMainContent() throws IOException {
+        FXMLLoader fxmlLoader = new FXMLLoader(ColorPaletteApplication.class.getResource("color-palette-view.fxml"));
+        Parent mainContent = fxmlLoader.load();
+        controller = fxmlLoader.getController();
+        startupTimer.mark("fxmlLoaded");
+        return mainContent;
+    }
+
+    /**
+     * Attaches the main content to the window and reports the startup timing once it has
+     * been laid out.
+     *
+     * @param root the root container of the window
+     * @param mainContent the loaded main content
+     */
+    private void showMainContent(BorderPane root, Parent mainContent) {
+        root.setCenter(mainContent);
+        performanceHud.setTabPane(controller.getPaletteTabPane());
+
+        Scene scene = root.getScene();
+        Runnable contentListener = new Runnable() {
+            @Override
+            public void run() {
+                startupTimer.mark("contentReady");
+                scene.removePostLayoutPulseListener(this);
+                Platform.runLater(ColorPaletteApplication.this::onStartupComplete);
+            }
+        };
+        scene.addPostLayoutPulseListener(contentListener);
+    }
+
+    /**
+     * Called once the main content has been displayed. Reports the startup timing if enabled
+     * and finishes a training run.
+     */
+    private void onStartupComplete() {
+        boolean trainingRun = Boolean.getBoolean(TRAINING_RUN_PROPERTY);
+        if (trainingRun || Boolean.getBoolean(FAST_START_PROPERTY) || Boolean.getBoolean(STARTUP_TIMING_PROPERTY)) {
+            System.out.println(startupTimer.report());
+        }
+
+        if (trainingRun) {
+            // Load the dialogs once so their classes end up in the class-data-sharing archive
             try {
+                new FXMLLoader(getClass().getResource("add-palette-dialog.fxml")).load();
+                new FXMLLoader(getClass().getResource("import-palette-dialog.fxml")).load();
+            } catch (IOException e) {
+                System.err.println("Error warming up dialogs: " + e.getMessage());
+            }
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Sets the dock icon on macOS, reusing the already decoded application icon.
+     */
+    private void setDockIcon() {
+        if (appIcon == null || !System.getProperty("os.name").toLowerCase().contains("mac")) {
+            return;
+        }
+
+        try {
+            if (Taskbar.isTaskbarSupported()) {
                 Taskbar taskbar = Taskbar.getTaskbar();
                 if (taskbar.isSupported(Taskbar.Feature.ICON_IMAGE)) {
-                    BufferedImage bufferedImage = ImageIO.read(getClass().getResourceAsStream("/images/appicon.png"));
-                    taskbar.setIconImage(bufferedImage);
+                    taskbar.setIconImage(SwingFXUtils.fromFXImage(appIcon, null));
                 }
-            } catch (Exception e) {
-                System.err.println("Error setting macOS dock icon: " + e.getMessage());
             }
+        } catch (Exception e) {
+            System.err.println("Error setting macOS dock icon: " + e.getMessage());
         }
-
-        stage.show();
     }
 
     /**
@@ -81,7 +233,6 @@ public class ColorPaletteApplication extends Application {
         titleBar.setPadding(new Insets(0, 10, 0, 10));
 
         // App icon
-        Image appIcon = new Image(getClass().getResourceAsStream("/images/appicon.png"));
         ImageView appIconView = new ImageView(appIcon);
         appIconView.setFitWidth(64);
         appIconView.setFitHeight(64);
@@ -135,6 +286,16 @@ public class ColorPaletteApplication extends Application {
         return titleBar;
     }
 
+    /**
+     * Stops the background services of the application.
+     */
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -1,37 +1,170 @@
 package com.si.colorpalettefx;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.si.colorpalettefx.AddPaletteDialogController.PaletteEdit;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.color.PrintGamut;
+import com.si.colorpalettefx.color.RampGenerator;
+import com.si.colorpalettefx.color.VisionSimulator;
+import com.si.colorpalettefx.color.VisionSimulator.ConfusablePair;
+import com.si.colorpalettefx.color.VisionSimulator.Deficiency;
+import com.si.colorpalettefx.diff.DuplicateFinder;
+import com.si.colorpalettefx.diff.DuplicateFinder.DuplicateGroup;
+import com.si.colorpalettefx.diff.PaletteDiff;
+import com.si.colorpalettefx.diff.PaletteMerge;
+import com.si.colorpalettefx.export.PaletteArchive;
+import com.si.colorpalettefx.export.PaletteExporter;
+import com.si.colorpalettefx.export.PaletteFormat;
+import com.si.colorpalettefx.export.SwatchSheetRenderer;
+import com.si.colorpalettefx.importer.ImportReport;
+import com.si.colorpalettefx.importer.PaletteImporter;
+import com.si.colorpalettefx.importer.SourceFormat;
+import com.si.colorpalettefx.library.PaletteLibrary;
+import com.si.colorpalettefx.metrics.Metrics;
+import com.si.colorpalettefx.metrics.PaletteEditEvent;
+import com.si.colorpalettefx.metrics.PaletteLoadEvent;
+import com.si.colorpalettefx.metrics.PaletteRenderEvent;
+import com.si.colorpalettefx.metrics.PaletteSaveEvent;
+import com.si.colorpalettefx.metrics.TextImportEvent;
 import com.si.colorpalettefx.model.ColorPalette;
 import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.repository.PaletteRepository;
+import com.si.colorpalettefx.search.PaletteSearchIndex;
+import com.si.colorpalettefx.search.PaletteSimilarityIndex;
+import com.si.colorpalettefx.search.PaletteSimilarityIndex.SimilarPalette;
+import com.si.colorpalettefx.search.SearchHit;
+import com.si.colorpalettefx.server.PaletteServer;
 import javafx.application.Platform;
+import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Pair;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class ColorPaletteController {
+    // Maximum number of search results shown while typing
+    private static final int MAX_SEARCH_HITS = 50;
+
+    // Number of palettes listed by "Find Similar Palettes", and colors shown per listed palette
+    private static final int MAX_SIMILAR_PALETTES = 20;
+    private static final int SIMILAR_PREVIEW_COLORS = 16;
+
+    // Edits changing more than this share of a palette's swatches rebuild its tab instead of patching it
+    private static final double MAX_PATCHED_CHANGE_SHARE = 0.25;
+
     @FXML
     private TabPane paletteTabPane;
 
+    @FXML
+    private TextField searchField;
+
+    @FXML
+    private ListView<SearchHit> searchResultsList;
+
+    @FXML
+    private CheckMenuItem servePalettesMenuItem;
+
+    @FXML
+    private VBox toastBox;
+
+    // Non-modal confirmations, e.g. of clipboard copies
+    private ToastQueue toastQueue;
+
     private List<ColorPalette> colorPalettes = new ArrayList<>();
 
+    // Index over palette names, color names and hex codes, updated as palettes change
+    private final PaletteSearchIndex searchIndex = new PaletteSearchIndex();
+
+    // The tab showing each palette
+    private final Map<ColorPalette, Tab> paletteTabs = new IdentityHashMap<>();
+
+    // Tabs of added palettes not yet in the tab pane, inserted together on the next pulse, and
+    // the tab to select afterwards
+    private final List<Tab> pendingTabs = new ArrayList<>();
+    private Tab pendingSelection;
+    private Scene pulseListenerScene;
+
+    // The swatch last jumped to from the search results
+    private TitledPane highlightedSwatch;
+
+    // The last saved or loaded version of every palette by name, the base for merging loads
+    private final Map<String, ColorPalette> mergeBases = new HashMap<>();
+
+    // The color vision deficiency simulated in the palette tabs
+    private Deficiency visionDeficiency = Deficiency.NONE;
+
+    // The palettes shared with other windows and background tasks, and the copies of this
+    // window's palettes last committed to it
+    private final PaletteRepository paletteRepository = PaletteRepository.getDefault();
+    private Map<ColorPalette, PaletteData> committedPalettes = new IdentityHashMap<>();
+    private boolean commitPending;
+
+    // The local HTTP server
+    private final PaletteServer paletteServer = new PaletteServer(paletteRepository);
+
+    // The palette library opened from the File menu, or null
+    private PaletteLibrary paletteLibrary;
+
+    // Opens, writes and closes palette libraries in order, off the FX thread
+    private final ExecutorService libraryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "palette-library");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The swatches of a palette tab, kept as the tab's user data so that edits can patch them.
+     */
+    private static final class TabSwatches {
+        private final GridPane gridPane;
+        private final List<TitledPane> swatches;
+        private final SwatchSelection selection;
+        private final ContextMenu contextMenu;
+
+        TabSwatches(GridPane gridPane, List<TitledPane> swatches, SwatchSelection selection, ContextMenu contextMenu) {
+            this.gridPane = gridPane;
+            this.swatches = swatches;
+            this.selection = selection;
+            this.contextMenu = contextMenu;
+        }
+    }
+
     /**
      * Initializes the controller.
      */
@@ -39,6 +172,43 @@ public class ColorPaletteController {
     public void initialize() {
         // Initialize the tab pane
         paletteTabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        toastQueue = new ToastQueue(toastBox);
+
+        // Start indexing the shared palettes, so that similarity queries find them
+        PaletteSimilarityIndex.getDefault();
+
+        // Read or build the print gamut in the background, so that showing the first palette
+        // does not build it on the FX thread
+        Thread.ofPlatform().name("print-gamut").daemon().start(PrintGamut::getDefault);
+
+        // Search as you type, and let the arrow keys move between the field and the results
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> updateSearchResults(newValue));
+        searchField.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DOWN && searchResultsList.isVisible()) {
+                searchResultsList.requestFocus();
+                searchResultsList.getSelectionModel().selectFirst();
+            } else if (event.getCode() == KeyCode.ESCAPE) {
+                searchField.clear();
+            }
+        });
+        searchResultsList.setOnMouseClicked(event -> jumpToSearchHit(searchResultsList.getSelectionModel().getSelectedItem()));
+        searchResultsList.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                jumpToSearchHit(searchResultsList.getSelectionModel().getSelectedItem());
+            } else if (event.getCode() == KeyCode.ESCAPE) {
+                searchField.requestFocus();
+                searchField.clear();
+            }
+        });
+    }
+
+    /**
+     * Returns the tab pane showing the palettes.
+     *
+     * @return the palette tab pane
+     */
+    public TabPane getPaletteTabPane() {
+        return paletteTabPane;
     }
 
     /**
@@ -86,6 +256,7 @@ public class ColorPaletteController {
 
                 if (name != null && !name.trim().isEmpty() && !colors.isEmpty()) {
                     ColorPalette palette = new ColorPalette(name, colors);
+                    palette.setTags(controller.getTags());
                     addPalette(palette);
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Invalid Input", 
@@ -106,6 +277,10 @@ public class ColorPaletteController {
      * @param palette the color palette to add
      */
     private void addPalette(ColorPalette palette) {
+        long startNanos = System.nanoTime();
+        PaletteRenderEvent renderEvent = new PaletteRenderEvent();
+        renderEvent.begin();
+
         colorPalettes.add(palette);
 
         // Create a new tab for the palette
@@ -120,88 +295,564 @@ public class ColorPaletteController {
         List<ColorPalette.NamedColor> namedColors = palette.getNamedColors();
         int numCols = (int) Math.ceil(Math.sqrt(namedColors.size())); // Calculate grid dimensions
 
+        // Simulate the selected color vision deficiency, if any
+        int[] packedColors = toPackedColors(namedColors);
+        int[] displayedColors = VisionSimulator.simulate(visionDeficiency, packedColors);
+
+        // Look up the print values of the actual colors, not the simulated ones
+        PrintGamut.Conversion printColors = PrintGamut.getDefault().convert(packedColors);
+
+        // One selection and one context menu shared by all swatches of the palette
+        List<TitledPane> swatches = new ArrayList<>(namedColors.size());
+        SwatchSelection selection = new SwatchSelection(swatches);
+        TabSwatches tabSwatches = new TabSwatches(gridPane, swatches, selection,
+                createSwatchContextMenu(palette, selection));
         for (int i = 0; i < namedColors.size(); i++) {
-            ColorPalette.NamedColor namedColor = namedColors.get(i);
-            Color color = namedColor.getColor();
-            String colorName = namedColor.getName();
-
-            // Create a square for each color
-            StackPane colorSquare = new StackPane();
-            colorSquare.setStyle("-fx-background-color: #" + toHexString(color) + "; -fx-border-color: lightgrey; -fx-border-width: 5px;");
-            colorSquare.setPrefSize(128, 128);
-
-            // Add a tooltip showing the RGB values as hex string
-            Tooltip tooltip = new Tooltip(
-                String.format("RGB: #%s", toHexString(color))
-            );
-            Tooltip.install(colorSquare, tooltip);
-
-            // Create a titled pane with the color name as the title
-            TitledPane titledPane = new TitledPane(colorName, colorSquare);
-            titledPane.setCollapsible(false);
-
-            // Add hover effect to the titled pane
-            titledPane.setOnMouseEntered(event -> {
-                titledPane.setStyle("-fx-background-color: #e4ade6; -fx-effect: dropshadow(three-pass-box, rgba(183,1,1,0.6), 8, 0, 1, 1);");
-            });
+            TitledPane swatch = createSwatch(namedColors.get(i), displayedColors[i], printColors, i, tabSwatches);
+            swatches.add(swatch);
+            gridPane.add(swatch, i % numCols, i / numCols);
+        }
+        tab.setUserData(tabSwatches);
 
-            titledPane.setOnMouseExited(event -> {
-                titledPane.setStyle("-fx-background-color: transparent;");
-            });
+        // Add the grid to a scroll pane in case there are many colors
+        ScrollPane scrollPane = new ScrollPane(gridPane);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setFitToHeight(true);
 
-            // Create context menu for right-click
-            ContextMenu contextMenu = new ContextMenu();
+        tab.setContent(scrollPane);
+        paletteTabs.put(palette, tab);
+        queueTab(tab);
+
+        // Make the palette searchable; open results are refreshed with the pending tabs
+        searchIndex.add(palette);
+        scheduleCommit();
+
+        renderEvent.end();
+        renderEvent.palette = palette.getName();
+        renderEvent.swatchCount = namedColors.size();
+        // The scroll pane and grid, plus a titled pane and a square per swatch
+        renderEvent.nodeCount = 2 + 2 * namedColors.size();
+        recordRender(renderEvent, System.nanoTime() - startNanos);
+    }
 
-            // Add menu items for copying RGB and name
-            MenuItem copyRgbItem = new MenuItem("Copy RGB Value");
-            copyRgbItem.setOnAction(event -> {
-                String rgbValue = "#" + toHexString(color);
-                copyToClipboard(rgbValue);
-                showAlert(Alert.AlertType.INFORMATION, "Copied", "RGB Value Copied", 
-                        "RGB value " + rgbValue + " has been copied to clipboard.");
-            });
+    /**
+     * Creates the titled pane showing one swatch of a palette tab.
+     *
+     * @param namedColor the color and its name
+     * @param displayedColor the packed color to show, with the color vision simulation applied
+     * @param printColors the print conversion the swatch's actual color is part of
+     * @param printIndex the index of the color in the print conversion
+     * @param tabSwatches the swatches of the tab
+     * @return the swatch
+     */
+    private TitledPane createSwatch(NamedColor namedColor, int displayedColor, PrintGamut.Conversion printColors,
+                                    int printIndex, TabSwatches tabSwatches) {
+        // Create a square for the color
+        StackPane colorSquare = new StackPane();
+        colorSquare.setBackground(SwatchStyles.background(displayedColor));
+        colorSquare.setBorder(SwatchStyles.SWATCH_BORDER);
+        colorSquare.setPrefSize(128, 128);
+
+        // Add a tooltip showing the RGB values as hex string and the CMYK values for print,
+        // naming the printing condition so approximate values are not mistaken for a proof
+        Tooltip tooltip = new Tooltip(
+            String.format("RGB: %s\nCMYK: %s\n(%s)%s", PackedColors.toHex(namedColor.getColor()), printColors.format(printIndex),
+                    PrintGamut.getDefault().getDescription(),
+                    printColors.isOutOfGamut(printIndex) ? "\nOutside the print gamut" : "")
+        );
+        Tooltip.install(colorSquare, tooltip);
+
+        // Create a titled pane with the color name as the title
+        TitledPane titledPane = new TitledPane(namedColor.getName(), colorSquare);
+        titledPane.setCollapsible(false);
+
+        // The hover effect is provided by the stylesheet's :hover rule for this style class
+        titledPane.getStyleClass().add(SwatchStyles.SWATCH_STYLE_CLASS);
+        titledPane.pseudoClassStateChanged(SwatchStyles.OUT_OF_GAMUT, printColors.isOutOfGamut(printIndex));
+
+        // Select on click, and show the context menu for the selection on right-click. Edits
+        // insert and remove swatches, so the index is looked up at click time.
+        SwatchSelection selection = tabSwatches.selection;
+        ContextMenu contextMenu = tabSwatches.contextMenu;
+        colorSquare.setOnMouseClicked(event -> {
+            int index = tabSwatches.swatches.indexOf(titledPane);
+            if (event.getButton() == MouseButton.PRIMARY) {
+                selection.click(index, event.isShortcutDown(), event.isShiftDown());
+            } else if (event.getButton() == MouseButton.SECONDARY) {
+                if (!selection.isSelected(index)) {
+                    selection.click(index, false, false);
+                }
+                // The single-value copy items act on this swatch, which need not be the anchor
+                contextMenu.setUserData(index);
+                contextMenu.show(colorSquare, event.getScreenX(), event.getScreenY());
+            }
+        });
+        return titledPane;
+    }
 
-            MenuItem copyNameItem = new MenuItem("Copy Color Name");
-            copyNameItem.setOnAction(event -> {
-                copyToClipboard(colorName);
-                showAlert(Alert.AlertType.INFORMATION, "Copied", "Color Name Copied", 
-                        "Color name \"" + colorName + "\" has been copied to clipboard.");
-            });
+    /**
+     * Measures the CSS and layout pass of the next pulse and then records the render of a palette.
+     *
+     * @param renderEvent the render event, ended but not yet committed
+     * @param buildNanos the time it took to build the nodes of the palette
+     */
+    private void recordRender(PaletteRenderEvent renderEvent, long buildNanos) {
+        Scene scene = paletteTabPane.getScene();
+        if (scene == null) {
+            // Not shown yet, so there is no layout pass to measure
+            renderEvent.commit();
+            Metrics.record(Metrics.PALETTE_RENDER, buildNanos, renderEvent.nodeCount);
+            return;
+        }
 
-            contextMenu.getItems().addAll(copyRgbItem, copyNameItem);
+        long[] layoutStart = new long[1];
+        scene.addPreLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                layoutStart[0] = System.nanoTime();
+                scene.removePreLayoutPulseListener(this);
+            }
+        });
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                renderEvent.layoutNanos = System.nanoTime() - layoutStart[0];
+                renderEvent.commit();
+                Metrics.record(Metrics.PALETTE_RENDER, buildNanos + renderEvent.layoutNanos, renderEvent.nodeCount);
+                scene.removePostLayoutPulseListener(this);
+            }
+        });
+    }
 
-            // Add context menu to the color square
-            colorSquare.setOnMouseClicked(event -> {
-                if (event.getButton() == MouseButton.SECONDARY) {
-                    contextMenu.show(colorSquare, event.getScreenX(), event.getScreenY());
-                }
-            });
+    /**
+     * Handles pressing Enter in the search field.
+     * Jumps to the first search result.
+     */
+    @FXML
+    protected void onSearchFieldAction() {
+        if (!searchResultsList.getItems().isEmpty()) {
+            jumpToSearchHit(searchResultsList.getItems().get(0));
+        }
+    }
+
+    /**
+     * Searches the palettes and shows the results below the search field.
+     *
+     * @param query the search text
+     */
+    private void updateSearchResults(String query) {
+        long startNanos = System.nanoTime();
+        List<SearchHit> hits = searchIndex.search(query, MAX_SEARCH_HITS);
+        Metrics.record(Metrics.PALETTE_SEARCH, System.nanoTime() - startNanos, hits.size());
+
+        searchResultsList.getItems().setAll(hits);
+        setSearchResultsVisible(!hits.isEmpty());
+    }
+
+    /**
+     * Shows or hides the search results list.
+     *
+     * @param visible whether the list should be shown
+     */
+    private void setSearchResultsVisible(boolean visible) {
+        searchResultsList.setVisible(visible);
+        searchResultsList.setManaged(visible);
+    }
 
-            // Add the titled pane to the grid
-            gridPane.add(titledPane, i % numCols, i / numCols);
+    /**
+     * Queues the tab of an added palette. Queued tabs are inserted into the tab pane right before
+     * the next layout pass with a single change, and the last one is selected, so that adding
+     * thousands of palettes costs one layout and one selection change instead of one per palette.
+     *
+     * @param tab the tab to add
+     */
+    private void queueTab(Tab tab) {
+        pendingTabs.add(tab);
+        pendingSelection = tab;
+
+        Scene scene = paletteTabPane.getScene();
+        if (scene == null) {
+            Platform.runLater(this::flushPendingTabs);
+            return;
+        }
+        if (pulseListenerScene != scene) {
+            // Registered once and left in place; it returns at once while nothing is queued
+            scene.addPreLayoutPulseListener(this::flushPendingTabs);
+            pulseListenerScene = scene;
         }
+        Platform.requestNextPulse();
+    }
 
-        // Add the grid to a scroll pane in case there are many colors
-        ScrollPane scrollPane = new ScrollPane(gridPane);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setFitToHeight(true);
+    /**
+     * Inserts the queued tabs into the tab pane, selects the last one and refreshes open search
+     * results. Called before every layout pass, and by code that needs the tab pane to be up
+     * to date.
+     */
+    private void flushPendingTabs() {
+        if (pendingTabs.isEmpty()) {
+            return;
+        }
+        paletteTabPane.getTabs().addAll(pendingTabs);
+        pendingTabs.clear();
+        if (pendingSelection != null) {
+            paletteTabPane.getSelectionModel().select(pendingSelection);
+            pendingSelection = null;
+        }
 
-        tab.setContent(scrollPane);
-        paletteTabPane.getTabs().add(tab);
+        if (searchResultsList.isVisible()) {
+            updateSearchResults(searchField.getText());
+        }
+    }
+
+    /**
+     * Selects the tab of a search hit and, for color hits, scrolls to and highlights the swatch.
+     *
+     * @param hit the search hit, may be null
+     */
+    private void jumpToSearchHit(SearchHit hit) {
+        if (hit == null) {
+            return;
+        }
+
+        Tab tab = paletteTabs.get(hit.getPalette());
+        if (tab == null) {
+            return;
+        }
+        flushPendingTabs();
         paletteTabPane.getSelectionModel().select(tab);
+        setSearchResultsVisible(false);
+
+        if (highlightedSwatch != null) {
+            highlightedSwatch.pseudoClassStateChanged(SwatchStyles.SEARCH_MATCH, false);
+            highlightedSwatch = null;
+        }
+
+        // The grid holds one titled pane per color, in palette order
+        ScrollPane scrollPane = (ScrollPane) tab.getContent();
+        GridPane gridPane = (GridPane) scrollPane.getContent();
+        if (hit.isPaletteHit() || hit.getColorIndex() >= gridPane.getChildren().size()) {
+            return;
+        }
+
+        TitledPane swatch = (TitledPane) gridPane.getChildren().get(hit.getColorIndex());
+        swatch.pseudoClassStateChanged(SwatchStyles.SEARCH_MATCH, true);
+        highlightedSwatch = swatch;
+        scrollIntoView(scrollPane, swatch);
+    }
+
+    /**
+     * Scrolls a scroll pane so that the given node of its content is visible.
+     *
+     * @param scrollPane the scroll pane
+     * @param node a node of the scroll pane's content
+     */
+    private void scrollIntoView(ScrollPane scrollPane, Node node) {
+        // Make sure the newly selected tab has been laid out before measuring
+        scrollPane.applyCss();
+        scrollPane.layout();
+
+        Bounds contentBounds = scrollPane.getContent().getLayoutBounds();
+        Bounds viewportBounds = scrollPane.getViewportBounds();
+        Bounds nodeBounds = node.getBoundsInParent();
+
+        double scrollableWidth = contentBounds.getWidth() - viewportBounds.getWidth();
+        if (scrollableWidth > 0) {
+            scrollPane.setHvalue(Math.min(1, nodeBounds.getMinX() / scrollableWidth));
+        }
+        double scrollableHeight = contentBounds.getHeight() - viewportBounds.getHeight();
+        if (scrollableHeight > 0) {
+            scrollPane.setVvalue(Math.min(1, nodeBounds.getMinY() / scrollableHeight));
+        }
+    }
+
+    /**
+     * Handles a click on one of the "Color Vision" menu items.
+     * Switches all palette tabs to the simulation of the chosen color vision deficiency.
+     *
+     * @param event the action event of the radio menu item
+     */
+    @FXML
+    protected void onVisionMenuItemClick(ActionEvent event) {
+        MenuItem menuItem = (MenuItem) event.getSource();
+        visionDeficiency = Deficiency.valueOf((String) menuItem.getUserData());
+
+        for (Map.Entry<ColorPalette, Tab> entry : paletteTabs.entrySet()) {
+            applyVisionSimulation(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Creates the context menu shared by the swatches of a palette. Copying a single value acts
+     * on the right-clicked swatch, whose index is the menu's user data, and the bulk operations
+     * on all selected swatches.
+     *
+     * @param palette the palette
+     * @param selection the swatch selection of the palette's tab
+     * @return the context menu
+     */
+    private ContextMenu createSwatchContextMenu(ColorPalette palette, SwatchSelection selection) {
+        ContextMenu contextMenu = new ContextMenu();
+
+        MenuItem copyRgbItem = new MenuItem("Copy RGB Value");
+        copyRgbItem.setOnAction(event -> {
+            NamedColor namedColor = palette.getNamedColors().get((Integer) contextMenu.getUserData());
+            String rgbValue = PackedColors.toHex(namedColor.getColor());
+            copyToClipboard(rgbValue);
+            toastQueue.show("Copied " + rgbValue);
+        });
+
+        MenuItem copyCmykItem = new MenuItem("Copy CMYK Value");
+        copyCmykItem.setOnAction(event -> {
+            float[] cmyk = new float[4];
+            int color = PackedColors.toArgb(palette.getNamedColors().get((Integer) contextMenu.getUserData()).getColor());
+            PrintGamut printGamut = PrintGamut.getDefault();
+            printGamut.toCmyk(color, cmyk, 0);
+            String cmykValue = PrintGamut.formatCmyk(cmyk, 0) + (printGamut.isApproximate() ? " (approximate)" : "");
+            copyToClipboard(cmykValue);
+            toastQueue.show("Copied " + cmykValue);
+        });
+
+        MenuItem copyNameItem = new MenuItem("Copy Color Name");
+        copyNameItem.setOnAction(event -> {
+            String colorName = palette.getNamedColors().get((Integer) contextMenu.getUserData()).getName();
+            copyToClipboard(colorName);
+            toastQueue.show("Copied \"" + colorName + "\"");
+        });
+
+        MenuItem selectAllItem = new MenuItem("Select All");
+        selectAllItem.setOnAction(event -> selection.selectAll());
+
+        Menu copySelectedMenu = new Menu("Copy Selected As");
+        for (PaletteFormat format : List.of(PaletteFormat.HEX, PaletteFormat.CSS, PaletteFormat.JSON)) {
+            MenuItem formatItem = new MenuItem(format.getDisplayName());
+            formatItem.setOnAction(event -> copySelection(palette, selection, format));
+            copySelectedMenu.getItems().add(formatItem);
+        }
+
+        Menu moveSelectedMenu = new Menu("Move Selected To");
+
+        MenuItem deleteSelectedItem = new MenuItem("Delete Selected");
+        deleteSelectedItem.setOnAction(event -> deleteSelection(palette, selection));
+
+        contextMenu.getItems().addAll(copyRgbItem, copyCmykItem, copyNameItem, new SeparatorMenuItem(),
+                selectAllItem, copySelectedMenu, moveSelectedMenu, deleteSelectedItem);
+
+        // The other palettes may have changed since the menu was created
+        contextMenu.setOnShowing(event -> {
+            moveSelectedMenu.getItems().clear();
+            for (ColorPalette target : colorPalettes) {
+                if (target != palette) {
+                    MenuItem targetItem = new MenuItem(target.getName());
+                    targetItem.setOnAction(moveEvent -> moveSelection(palette, selection, target));
+                    moveSelectedMenu.getItems().add(targetItem);
+                }
+            }
+            moveSelectedMenu.setDisable(moveSelectedMenu.getItems().isEmpty());
+        });
+        return contextMenu;
+    }
+
+    /**
+     * Copies the selected swatches of a palette to the clipboard.
+     *
+     * @param palette the palette
+     * @param selection the swatch selection of the palette's tab
+     * @param format the format to copy the swatches in
+     */
+    private void copySelection(ColorPalette palette, SwatchSelection selection, PaletteFormat format) {
+        List<NamedColor> namedColors = palette.getNamedColors();
+        int[] indices = selection.getSelectedIndices();
+        int[] colors = new int[indices.length];
+        String[] colorNames = new String[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            colors[i] = PackedColors.toArgb(namedColors.get(indices[i]).getColor());
+            colorNames[i] = namedColors.get(indices[i]).getName();
+        }
+
+        copyToClipboard(PaletteExporter.export(format, List.of(new PaletteData(palette.getName(), colors, colorNames))));
+        toastQueue.show("Copied " + indices.length + " colors as " + format.getDisplayName());
+    }
+
+    /**
+     * Deletes the selected swatches of a palette.
+     *
+     * @param palette the palette
+     * @param selection the swatch selection of the palette's tab
+     */
+    private void deleteSelection(ColorPalette palette, SwatchSelection selection) {
+        List<NamedColor> remaining = new ArrayList<>();
+        List<NamedColor> namedColors = palette.getNamedColors();
+        for (int i = 0; i < namedColors.size(); i++) {
+            if (!selection.isSelected(i)) {
+                remaining.add(namedColors.get(i));
+            }
+        }
+
+        if (remaining.isEmpty()) {
+            toastQueue.show("A palette must keep at least one color");
+            return;
+        }
+        replacePaletteColors(palette, remaining);
+        toastQueue.show("Deleted " + (namedColors.size() - remaining.size()) + " colors from " + palette.getName());
+    }
+
+    /**
+     * Moves the selected swatches of a palette to the end of another palette.
+     *
+     * @param palette the palette
+     * @param selection the swatch selection of the palette's tab
+     * @param target the palette to move the swatches to
+     */
+    private void moveSelection(ColorPalette palette, SwatchSelection selection, ColorPalette target) {
+        List<NamedColor> remaining = new ArrayList<>();
+        List<NamedColor> targetColors = target.getNamedColors();
+        List<NamedColor> namedColors = palette.getNamedColors();
+        for (int i = 0; i < namedColors.size(); i++) {
+            (selection.isSelected(i) ? targetColors : remaining).add(namedColors.get(i));
+        }
+
+        if (remaining.isEmpty()) {
+            toastQueue.show("A palette must keep at least one color");
+            return;
+        }
+        replacePaletteColors(target, targetColors);
+        replacePaletteColors(palette, remaining);
+        toastQueue.show("Moved " + (namedColors.size() - remaining.size()) + " colors to " + target.getName());
+    }
+
+    /**
+     * Handles the "Check Confusable Colors" menu item click.
+     * Lists the colors of the selected palette that become indistinguishable with the simulated
+     * color vision deficiency, or with any deficiency if none is simulated.
+     */
+    @FXML
+    protected void onConfusableColorsMenuItemClick() {
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null) {
+            showAlert(Alert.AlertType.WARNING, "No Palette Selected", 
+                    "No Palette Selected", 
+                    "Please select a palette to check.");
+            return;
+        }
+
+        List<NamedColor> namedColors = selectedPalette.getNamedColors();
+        int[] colors = toPackedColors(namedColors);
+        List<Deficiency> deficiencies = visionDeficiency == Deficiency.NONE
+                ? List.of(Deficiency.PROTANOPIA, Deficiency.DEUTERANOPIA, Deficiency.TRITANOPIA)
+                : List.of(visionDeficiency);
+
+        StringBuilder report = new StringBuilder();
+        int pairCount = 0;
+        for (Deficiency deficiency : deficiencies) {
+            List<ConfusablePair> pairs = VisionSimulator.findConfusablePairs(deficiency, colors,
+                    VisionSimulator.DEFAULT_CONFUSION_THRESHOLD, 1000);
+            pairCount += pairs.size();
+
+            report.append(deficiency.getDisplayName()).append(": ").append(pairs.size()).append(" pairs\n");
+            for (ConfusablePair pair : pairs) {
+                NamedColor first = namedColors.get(pair.getFirst());
+                NamedColor second = namedColors.get(pair.getSecond());
+                report.append("  ").append(first.getName()).append(" (").append(PackedColors.toHex(colors[pair.getFirst()]))
+                        .append(") / ").append(second.getName()).append(" (").append(PackedColors.toHex(colors[pair.getSecond()]))
+                        .append(")\n");
+            }
+        }
+
+        TextArea reportArea = new TextArea(report.toString());
+        reportArea.setEditable(false);
+        reportArea.setPrefRowCount(16);
+
+        Alert alert = new Alert(pairCount == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Confusable Colors");
+        alert.setHeaderText(pairCount == 0
+                ? "All colors of '" + selectedPalette.getName() + "' remain distinguishable."
+                : pairCount + " color pairs of '" + selectedPalette.getName() + "' become hard to tell apart.");
+        alert.getDialogPane().setContent(reportArea);
+        alert.showAndWait();
+    }
+
+    /**
+     * Handles the "Preview Image with Palette" menu item click.
+     * Opens a dialog that shows an image drawn with the colors of a palette only, starting with
+     * the selected palette.
+     */
+    @FXML
+    protected void onRecolorImageMenuItemClick() {
+        List<PaletteData> palettes = new ArrayList<>(colorPalettes.size());
+        PaletteData selected = null;
+        ColorPalette selectedPalette = getSelectedPalette();
+        for (ColorPalette palette : colorPalettes) {
+            if (palette.getNamedColors().isEmpty()) {
+                continue;
+            }
+            PaletteData data = PaletteData.of(palette);
+            palettes.add(data);
+            if (palette == selectedPalette) {
+                selected = data;
+            }
+        }
+        if (palettes.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "No Colors", 
+                    "No Palette With Colors", 
+                    "Please add colors to a palette to preview an image with it.");
+            return;
+        }
+
+        try {
+            // Load the FXML file
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("recolor-image-dialog.fxml"));
+            GridPane dialogContent = fxmlLoader.load();
+
+            // Get the controller and start the live preview
+            RecolorImageDialogController controller = fxmlLoader.getController();
+            controller.setPalettes(palettes, selected);
+
+            // Create the dialog
+            Dialog<Void> dialog = new Dialog<>();
+            dialog.setTitle("Preview Image with Palette");
+            dialog.setHeaderText("Open an image to see it drawn with the colors of a palette");
+            dialog.setResizable(true);
+            dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+            dialog.getDialogPane().setContent(dialogContent);
+            dialog.setOnHidden(event -> controller.dispose());
+            dialog.showAndWait();
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.ERROR, "Dialog Error", 
+                    "Error Loading Dialog", 
+                    "An error occurred while loading the dialog: " + e.getMessage());
+        }
     }
 
     /**
-     * Converts a JavaFX Color to a hex string.
+     * Updates the swatches of a palette tab to show the simulated color vision deficiency.
      *
-     * @param color the color to convert
-     * @return the hex string representation of the color
+     * @param palette the palette shown in the tab
+     * @param tab the tab
      */
-    private String toHexString(Color color) {
-        return String.format("%02X%02X%02X",
-            (int) (color.getRed() * 255),
-            (int) (color.getGreen() * 255),
-            (int) (color.getBlue() * 255));
+    private void applyVisionSimulation(ColorPalette palette, Tab tab) {
+        int[] displayedColors = VisionSimulator.simulate(visionDeficiency, toPackedColors(palette.getNamedColors()));
+
+        // The grid holds one titled pane per color, in palette order
+        GridPane gridPane = (GridPane) ((ScrollPane) tab.getContent()).getContent();
+        int count = Math.min(displayedColors.length, gridPane.getChildren().size());
+        for (int i = 0; i < count; i++) {
+            TitledPane swatch = (TitledPane) gridPane.getChildren().get(i);
+            ((Region) swatch.getContent()).setBackground(SwatchStyles.background(displayedColors[i]));
+        }
+    }
+
+    /**
+     * Packs the colors of a list of named colors.
+     *
+     * @param namedColors the named colors
+     * @return the packed ARGB colors, in the same order
+     */
+    private static int[] toPackedColors(List<NamedColor> namedColors) {
+        int[] colors = new int[namedColors.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = PackedColors.toArgb(namedColors.get(i).getColor());
+        }
+        return colors;
     }
 
     /**
@@ -219,8 +870,9 @@ public class ColorPaletteController {
 
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Color Palettes");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("JSON Files", "*.json"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON Files", "*.json"),
+                new FileChooser.ExtensionFilter("Compressed Palette Archives", "*." + PaletteArchive.EXTENSION));
 
         // Get the window from any control in the scene
         Stage stage = (Stage) paletteTabPane.getScene().getWindow();
@@ -228,9 +880,33 @@ public class ColorPaletteController {
 
         if (file != null) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.enable(SerializationFeature.INDENT_OUTPUT);
-                mapper.writeValue(file, colorPalettes);
+                long startNanos = System.nanoTime();
+                PaletteSaveEvent saveEvent = new PaletteSaveEvent();
+                saveEvent.begin();
+
+                if (isArchiveFile(file)) {
+                    List<PaletteData> palettes = new ArrayList<>(colorPalettes.size());
+                    for (ColorPalette palette : colorPalettes) {
+                        palettes.add(PaletteData.of(palette));
+                    }
+                    PaletteArchive.write(file.toPath(), palettes);
+                } else {
+                    ObjectMapper mapper = new ObjectMapper();
+                    mapper.enable(SerializationFeature.INDENT_OUTPUT);
+                    mapper.writeValue(file, colorPalettes);
+                }
+
+                for (ColorPalette palette : colorPalettes) {
+                    mergeBases.put(palette.getName(), new ColorPalette(palette));
+                }
+
+                saveEvent.end();
+                saveEvent.file = file.getPath();
+                saveEvent.bytes = file.length();
+                saveEvent.paletteCount = colorPalettes.size();
+                saveEvent.commit();
+                Metrics.record(Metrics.PALETTE_SAVE, System.nanoTime() - startNanos, colorPalettes.size());
+
                 showAlert(Alert.AlertType.INFORMATION, "Save Successful", 
                         "Palettes Saved", 
                         "Color palettes were successfully saved to " + file.getName());
@@ -244,14 +920,16 @@ public class ColorPaletteController {
 
     /**
      * Handles the "Load Palettes" menu item click.
-     * Opens a file chooser dialog to load color palettes from a JSON file.
+     * Opens a file chooser dialog to load color palettes from a file in any supported format,
+     * merging palettes that are already open.
      */
     @FXML
     protected void onLoadPalettesMenuItemClick() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Load Color Palettes");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("JSON Files", "*.json"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Palette Files", "*.json", "*.txt", "*." + PaletteArchive.EXTENSION),
+                new FileChooser.ExtensionFilter("All Files", "*.*"));
 
         // Get the window from any control in the scene
         Stage stage = (Stage) paletteTabPane.getScene().getWindow();
@@ -259,27 +937,78 @@ public class ColorPaletteController {
 
         if (file != null) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                List<ColorPalette> loadedPalettes = mapper.readValue(file, 
-                        new TypeReference<List<ColorPalette>>() {});
+                long startNanos = System.nanoTime();
+                PaletteLoadEvent loadEvent = new PaletteLoadEvent();
+                loadEvent.begin();
+
+                ImportReport report = PaletteImporter.importFile(file.toPath());
+                List<ColorPalette> loadedPalettes = new ArrayList<>(report.getPalettes().size());
+                for (PaletteData data : report.getPalettes()) {
+                    loadedPalettes.add(data.toColorPalette());
+                }
+                boolean legacy = report.getPaletteCount(SourceFormat.LEGACY_JSON) > 0;
 
-                if (loadedPalettes != null && !loadedPalettes.isEmpty()) {
+                if (!loadedPalettes.isEmpty()) {
+                    int addedCount = 0;
+                    int mergedCount = 0;
+                    int conflictCount = 0;
+                    StringBuilder mergeReport = new StringBuilder();
                     for (ColorPalette palette : loadedPalettes) {
                         // Check if a palette with this name already exists
-                        boolean exists = colorPalettes.stream()
-                                .anyMatch(p -> p.getName().equals(palette.getName()));
+                        ColorPalette existing = colorPalettes.stream()
+                                .filter(p -> p.getName().equals(palette.getName()))
+                                .findFirst()
+                                .orElse(null);
 
-                        if (!exists) {
+                        if (existing == null) {
                             addPalette(palette);
+                            addedCount++;
+                        } else {
+                            // Merge the incoming changes into the existing palette
+                            ColorPalette base = mergeBases.get(palette.getName());
+                            PaletteMerge merge = base != null
+                                    ? PaletteMerge.threeWay(base, existing, palette)
+                                    : PaletteMerge.twoWay(existing, palette);
+
+                            if (merge.isChanged() || merge.getConflictCount() > 0) {
+                                List<NamedColor> mergedColors = merge.getMergedColors();
+                                PaletteDiff diff = PaletteDiff.compute(existing.getNamedColors(), mergedColors);
+                                mergeReport.append("\n").append(palette.getName()).append(": ")
+                                        .append(diff.getAddedCount()).append(" added, ")
+                                        .append(diff.getRemovedCount()).append(" removed, ")
+                                        .append(diff.getChangedCount()).append(" changed");
+                                if (merge.getConflictCount() > 0) {
+                                    mergeReport.append(", ").append(merge.getConflictCount())
+                                            .append(" conflicts kept local");
+                                }
+
+                                if (merge.isChanged()) {
+                                    replacePaletteColors(existing, mergedColors);
+                                    mergedCount++;
+                                }
+                                conflictCount += merge.getConflictCount();
+                            }
                         }
+                        mergeBases.put(palette.getName(), new ColorPalette(palette));
+                    }
+                    recordLoad(loadEvent, startNanos, file, legacy, loadedPalettes.size(), addedCount + mergedCount);
+
+                    String summary = addedCount + " palettes added, " + mergedCount + " palettes merged";
+                    if (conflictCount > 0) {
+                        summary += ", " + conflictCount + " conflicting changes kept the local version";
                     }
-                    showAlert(Alert.AlertType.INFORMATION, "Load Successful", 
-                            "Palettes Loaded", 
-                            "Color palettes were successfully loaded from " + file.getName());
+                    showImportReport(conflictCount > 0 || !report.getProblems().isEmpty()
+                                    ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION,
+                            "Load Successful", "Palettes Loaded",
+                            "Color palettes were loaded from " + file.getName() + " (" + report.getFormatSummary() + ").\n"
+                                    + summary + "." + mergeReport,
+                            report);
                 } else {
-                    showAlert(Alert.AlertType.WARNING, "No Palettes", 
+                    recordLoad(loadEvent, startNanos, file, legacy, 0, 0);
+                    showImportReport(Alert.AlertType.WARNING, "No Palettes", 
                             "No Palettes Found", 
-                            "No color palettes were found in the selected file.");
+                            "No color palettes were found in the selected file.",
+                            report);
                 }
             } catch (IOException e) {
                 showAlert(Alert.AlertType.ERROR, "Load Error", 
@@ -290,145 +1019,249 @@ public class ColorPaletteController {
     }
 
     /**
-     * Shows an alert dialog with the given parameters.
+     * Shows the outcome of an import, listing the problems found in the file if there are any.
      *
-     * @param type the type of alert
+     * @param alertType the type of the alert
      * @param title the title of the alert
      * @param header the header text of the alert
      * @param content the content text of the alert
+     * @param report the import report
      */
-    private void showAlert(Alert.AlertType type, String title, String header, String content) {
-        Alert alert = new Alert(type);
+    private void showImportReport(Alert.AlertType alertType, String title, String header, String content,
+                                  ImportReport report) {
+        if (report.getProblems().isEmpty()) {
+            showAlert(alertType, title, header, content);
+            return;
+        }
+
+        StringBuilder problems = new StringBuilder();
+        for (ImportReport.Problem problem : report.getProblems()) {
+            problems.append(problem).append("\n");
+        }
+        TextArea problemsArea = new TextArea(problems.toString());
+        problemsArea.setEditable(false);
+        problemsArea.setPrefRowCount(10);
+
+        Alert alert = new Alert(alertType);
         alert.setTitle(title);
         alert.setHeaderText(header);
-        alert.setContentText(content);
+        alert.getDialogPane().setContent(new VBox(10, new Label(content
+                + "\n" + report.getProblems().size() + " problems were found:"), problemsArea));
         alert.showAndWait();
     }
 
     /**
-     * Copies the given text to the system clipboard.
+     * Checks whether a file is a compressed palette archive, by its extension.
      *
-     * @param text the text to copy to the clipboard
+     * @param file the file
+     * @return true for palette archives
      */
-    private void copyToClipboard(String text) {
-        final Clipboard clipboard = Clipboard.getSystemClipboard();
-        final ClipboardContent content = new ClipboardContent();
-        content.putString(text);
-        clipboard.setContent(content);
+    private static boolean isArchiveFile(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith("." + PaletteArchive.EXTENSION);
     }
 
     /**
-     * Handles the "Load Legacy Palette" menu item click.
-     * Opens a file chooser dialog to load color palettes from a legacy JSON file format.
+     * Replaces the colors of a palette and recreates its tab at the same position.
+     *
+     * @param palette the palette
+     * @param namedColors the new colors of the palette
      */
-    @FXML
-    protected void onLoadLegacyPalettesMenuItemClick() {
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Load Legacy Color Palettes");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("JSON Files", "*.json"));
-
-        // Get the window from any control in the scene
-        Stage stage = (Stage) paletteTabPane.getScene().getWindow();
-        File file = fileChooser.showOpenDialog(stage);
+    private void replacePaletteColors(ColorPalette palette, List<NamedColor> namedColors) {
+        flushPendingTabs();
+        Tab oldTab = paletteTabs.remove(palette);
+        int tabIndex = paletteTabPane.getTabs().indexOf(oldTab);
+        int paletteIndex = colorPalettes.indexOf(palette);
+        paletteTabPane.getTabs().remove(oldTab);
+        searchIndex.remove(palette);
+        colorPalettes.remove(palette);
+        palette.setNamedColors(namedColors);
+        addPalette(palette);
+        flushPendingTabs();
+
+        // Move the palette and its new tab back to where they were
+        colorPalettes.remove(palette);
+        colorPalettes.add(paletteIndex, palette);
+        Tab newTab = paletteTabs.get(palette);
+        paletteTabPane.getTabs().remove(newTab);
+        paletteTabPane.getTabs().add(tabIndex, newTab);
+        paletteTabPane.getSelectionModel().select(newTab);
+    }
 
-        if (file != null) {
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                // Create a custom class to handle the legacy format
-                List<LegacyColorPalette> loadedPalettes = mapper.readValue(file, 
-                        new TypeReference<List<LegacyColorPalette>>() {});
+    /**
+     * Applies the swatch changes of an edit to a palette and patches its tab and the search index:
+     * only the added and changed swatches get new nodes and index entries, removed ones are
+     * dropped, and the others only move to their new grid cells. Edits changing a large share of the swatches rebuild the tab instead.
+     *
+     * @param palette the edited palette
+     * @param edit the edit, whose differences are relative to the current colors of the palette
+     */
+    private void applyColorChanges(ColorPalette palette, PaletteEdit edit) {
+        flushPendingTabs();
+        List<PaletteDiff.Change> changes = edit.getDiff().getChanges();
+        Tab tab = paletteTabs.get(palette);
+        TabSwatches tabSwatches = tab != null ? (TabSwatches) tab.getUserData() : null;
+        boolean patch = tabSwatches != null && changes.size() <= MAX_PATCHED_CHANGE_SHARE * edit.getColorCount();
+        int oldColumns = (int) Math.ceil(Math.sqrt(palette.size()));
+        if (patch) {
+            // Selected indices would shift with the inserted and removed swatches
+            tabSwatches.selection.reset();
+        }
 
-                if (loadedPalettes != null && !loadedPalettes.isEmpty()) {
-                    for (LegacyColorPalette legacyPalette : loadedPalettes) {
-                        // Convert legacy palette to new format
-                        ColorPalette palette = legacyPalette.toColorPalette();
-
-                        // Check if a palette with this name already exists
-                        boolean exists = colorPalettes.stream()
-                                .anyMatch(p -> p.getName().equals(palette.getName()));
-
-                        if (!exists) {
-                            addPalette(palette);
-                        }
+        // Apply runs of consecutive changes of one type at once; the shift maps old indices to
+        // current ones after the removals and insertions so far
+        int shift = 0;
+        int start = 0;
+        while (start < changes.size()) {
+            PaletteDiff.Change first = changes.get(start);
+            int end = start + 1;
+            while (end < changes.size() && continuesRun(first, changes.get(end), end - start)) {
+                end++;
+            }
+            int count = end - start;
+
+            if (first.getType() == PaletteDiff.ChangeType.REMOVED) {
+                int from = first.getOldIndex() + shift;
+                palette.removeNamedColors(from, from + count);
+                if (patch) {
+                    searchIndex.removeColors(palette, from, from + count);
+                    tabSwatches.swatches.subList(from, from + count).clear();
+                    tabSwatches.gridPane.getChildren().remove(from, from + count);
+                }
+                shift -= count;
+            } else {
+                int from = first.getNewIndex();
+                List<NamedColor> runColors = new ArrayList<>(count);
+                for (int i = start; i < end; i++) {
+                    runColors.add(edit.getNewColor(i));
+                }
+                List<TitledPane> created = patch ? createSwatches(runColors, tabSwatches) : List.of();
+
+                if (first.getType() == PaletteDiff.ChangeType.ADDED) {
+                    palette.addNamedColors(from, runColors);
+                    if (patch) {
+                        searchIndex.addColors(palette, from, runColors);
+                        tabSwatches.swatches.addAll(from, created);
+                        tabSwatches.gridPane.getChildren().addAll(from, created);
                     }
-                    showAlert(Alert.AlertType.INFORMATION, "Load Successful", 
-                            "Legacy Palettes Loaded", 
-                            "Legacy color palettes were successfully loaded from " + file.getName());
+                    shift += count;
                 } else {
-                    showAlert(Alert.AlertType.WARNING, "No Palettes", 
-                            "No Palettes Found", 
-                            "No color palettes were found in the selected file.");
+                    for (int i = 0; i < count; i++) {
+                        palette.setNamedColor(from + i, runColors.get(i));
+                        if (patch) {
+                            searchIndex.setColor(palette, from + i, runColors.get(i));
+                            tabSwatches.swatches.set(from + i, created.get(i));
+                            tabSwatches.gridPane.getChildren().set(from + i, created.get(i));
+                        }
+                    }
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
-                showAlert(Alert.AlertType.ERROR, "Load Error", 
-                        "Error Loading Legacy Palettes", 
-                        "An error occurred while loading the legacy palettes: " + e.getMessage());
             }
+            start = end;
         }
-    }
-
-    /**
-     * A helper class to deserialize the legacy color palette format.
-     */
-    private static class LegacyColorPalette {
-        private String name;
-        private List<String> colors;
-        private List<String> colorHexCodes;
 
-        // Default constructor for Jackson
-        public LegacyColorPalette() {
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public void setName(String name) {
-            this.name = name;
+        if (!patch) {
+            replacePaletteColors(palette, palette.getNamedColors());
+            return;
         }
 
-        public List<String> getColors() {
-            return colors;
+        // Move the swatches from the first change on to their cells; all of them if the column
+        // count changed with the palette size
+        List<TitledPane> swatches = tabSwatches.swatches;
+        int numCols = (int) Math.ceil(Math.sqrt(swatches.size()));
+        int firstMoved = changes.isEmpty() || numCols != oldColumns
+                ? 0
+                : Math.max(changes.get(0).getOldIndex(), changes.get(0).getNewIndex());
+        for (int i = firstMoved; i < swatches.size(); i++) {
+            GridPane.setConstraints(swatches.get(i), i % numCols, i / numCols);
         }
 
-        public void setColors(List<String> colors) {
-            this.colors = colors;
-        }
+        scheduleCommit();
+        paletteTabPane.getSelectionModel().select(tab);
+    }
 
-        public List<String> getColorHexCodes() {
-            return colorHexCodes;
+    /**
+     * Returns whether a change continues a run of changes of the same type at consecutive
+     * indices.
+     *
+     * @param first the first change of the run
+     * @param change the change to check
+     * @param offset the position of the change in the run
+     * @return true if the change belongs to the run
+     */
+    private static boolean continuesRun(PaletteDiff.Change first, PaletteDiff.Change change, int offset) {
+        if (change.getType() != first.getType()) {
+            return false;
         }
+        return first.getType() == PaletteDiff.ChangeType.REMOVED
+                ? change.getOldIndex() == first.getOldIndex() + offset
+                : change.getNewIndex() == first.getNewIndex() + offset;
+    }
 
-        public void setColorHexCodes(List<String> colorHexCodes) {
-            this.colorHexCodes = colorHexCodes;
+    /**
+     * Creates the swatches of new colors of a palette tab, not yet placed in its grid.
+     *
+     * @param namedColors the new colors
+     * @param tabSwatches the swatches of the tab
+     * @return the swatches, in the same order
+     */
+    private List<TitledPane> createSwatches(List<NamedColor> namedColors, TabSwatches tabSwatches) {
+        int[] packedColors = toPackedColors(namedColors);
+        int[] displayedColors = VisionSimulator.simulate(visionDeficiency, packedColors);
+        PrintGamut.Conversion printColors = PrintGamut.getDefault().convert(packedColors);
+        List<TitledPane> swatches = new ArrayList<>(namedColors.size());
+        for (int i = 0; i < namedColors.size(); i++) {
+            swatches.add(createSwatch(namedColors.get(i), displayedColors[i], printColors, i, tabSwatches));
         }
+        return swatches;
+    }
 
-        /**
-         * Converts this legacy palette to the new ColorPalette format.
-         * 
-         * @return a new ColorPalette with the same name and colors
-         */
-        public ColorPalette toColorPalette() {
-            List<Color> colorList = new ArrayList<>();
+    /**
+     * Records the load of a palette file.
+     *
+     * @param loadEvent the load event, begun when loading started
+     * @param startNanos the time loading started
+     * @param file the loaded file
+     * @param legacy whether the file was in the legacy format
+     * @param paletteCount the number of palettes read from the file
+     * @param addedCount the number of palettes that were added
+     */
+    private void recordLoad(PaletteLoadEvent loadEvent, long startNanos, File file, boolean legacy,
+                            int paletteCount, int addedCount) {
+        loadEvent.end();
+        loadEvent.file = file.getPath();
+        loadEvent.legacy = legacy;
+        loadEvent.bytes = file.length();
+        loadEvent.paletteCount = paletteCount;
+        loadEvent.addedCount = addedCount;
+        loadEvent.commit();
+        Metrics.record(Metrics.PALETTE_LOAD, System.nanoTime() - startNanos, paletteCount);
+    }
 
-            // Use colors if available, otherwise use colorHexCodes
-            List<String> hexColors = (colors != null && !colors.isEmpty()) ? colors : colorHexCodes;
+    /**
+     * Shows an alert dialog with the given parameters.
+     *
+     * @param type the type of alert
+     * @param title the title of the alert
+     * @param header the header text of the alert
+     * @param content the content text of the alert
+     */
+    private void showAlert(Alert.AlertType type, String title, String header, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
 
-            if (hexColors != null) {
-                for (String hexColor : hexColors) {
-                    try {
-                        Color color = Color.web(hexColor);
-                        colorList.add(color);
-                    } catch (IllegalArgumentException e) {
-                        // Skip invalid colors
-                        System.err.println("Invalid color format: " + hexColor);
-                    }
-                }
-            }
-            return new ColorPalette(name, colorList);
-        }
+    /**
+     * Copies the given text to the system clipboard.
+     *
+     * @param text the text to copy to the clipboard
+     */
+    private void copyToClipboard(String text) {
+        final Clipboard clipboard = Clipboard.getSystemClipboard();
+        final ClipboardContent content = new ClipboardContent();
+        content.putString(text);
+        clipboard.setContent(content);
     }
 
     /**
@@ -446,37 +1279,15 @@ public class ColorPaletteController {
      */
     @FXML
     protected void onEditPaletteMenuItemClick() {
-        // Get the currently selected tab
-        Tab selectedTab = paletteTabPane.getSelectionModel().getSelectedItem();
-        if (selectedTab == null) {
+        // Get the palette of the selected tab, including tabs still queued for this pulse
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null) {
             showAlert(Alert.AlertType.WARNING, "No Palette Selected", 
                     "No Palette Selected", 
                     "Please select a palette to edit.");
             return;
         }
-
-        // Find the palette with the same name as the selected tab
-        String paletteName = selectedTab.getText();
-        ColorPalette selectedPalette = null;
-        int selectedPaletteIndex = -1;
-
-        for (int i = 0; i < colorPalettes.size(); i++) {
-            if (colorPalettes.get(i).getName().equals(paletteName)) {
-                selectedPalette = colorPalettes.get(i);
-                selectedPaletteIndex = i;
-                break;
-            }
-        }
-
-        if (selectedPalette == null) {
-            showAlert(Alert.AlertType.ERROR, "Palette Not Found", 
-                    "Palette Not Found", 
-                    "The selected palette could not be found.");
-            return;
-        }
-
-        // Store the index for later use
-        final int paletteIndex = selectedPaletteIndex;
+        Tab selectedTab = paletteTabs.get(selectedPalette);
 
         try {
             // Load the FXML file
@@ -488,10 +1299,11 @@ public class ColorPaletteController {
 
             // Set the palette data in the controller
             controller.setPaletteName(selectedPalette.getName());
+            controller.setTags(selectedPalette.getTags());
             controller.setNamedColors(selectedPalette.getNamedColors());
 
             // Create the dialog
-            Dialog<Pair<String, List<Color>>> dialog = new Dialog<>();
+            Dialog<PaletteEdit> dialog = new Dialog<>();
             dialog.setTitle("Edit Color Palette");
             dialog.setHeaderText("Edit the color palette");
 
@@ -505,10 +1317,10 @@ public class ColorPaletteController {
             // Request focus on the palette name field by default
             Platform.runLater(controller.getPaletteNameField()::requestFocus);
 
-            // Convert the result to a palette when the save button is clicked
+            // Convert the result to the changes made when the save button is clicked
             dialog.setResultConverter(dialogButton -> {
                 if (dialogButton == saveButtonType) {
-                    return controller.getResultAsColors();
+                    return controller.getEdit();
                 }
                 return null;
             });
@@ -518,14 +1330,17 @@ public class ColorPaletteController {
             final Tab tabCopy = selectedTab;
 
             // Show the dialog and process the result
-            Optional<Pair<String, List<Color>>> result = dialog.showAndWait();
-            result.ifPresent(nameColors -> {
-                String name = nameColors.getKey();
-                List<Color> colors = nameColors.getValue();
+            Optional<PaletteEdit> result = dialog.showAndWait();
+            result.ifPresent(edit -> {
+                String name = edit.getName();
+
+                if (name != null && !name.trim().isEmpty() && edit.getColorCount() > 0) {
+                    if (edit.isEmpty()) {
+                        return;
+                    }
 
-                if (name != null && !name.trim().isEmpty() && !colors.isEmpty()) {
                     // Check if the name has changed and if it conflicts with an existing palette
-                    if (!name.equals(paletteCopy.getName())) {
+                    if (edit.isRenamed()) {
                         boolean nameExists = colorPalettes.stream()
                                 .anyMatch(p -> p.getName().equals(name) && p != paletteCopy);
 
@@ -537,26 +1352,44 @@ public class ColorPaletteController {
                         }
                     }
 
-                    // Update the palette
-                    paletteCopy.setName(name);
-
-                    // Get the named colors from the controller
-                    List<NamedColor> namedColors = controller.getColorList().getItems();
+                    long startNanos = System.nanoTime();
+                    PaletteEditEvent editEvent = new PaletteEditEvent();
+                    editEvent.begin();
+                    editEvent.colorCountBefore = paletteCopy.size();
 
-                    // Update the palette with the named colors
-                    paletteCopy.setNamedColors(namedColors);
+                    if (edit.isRenamed()) {
+                        // Keep the merge base of a renamed palette
+                        ColorPalette mergeBase = mergeBases.remove(paletteCopy.getName());
+                        if (mergeBase != null) {
+                            mergeBases.put(name, mergeBase);
+                        }
 
-                    // Update the tab
-                    tabCopy.setText(name);
+                        paletteCopy.setName(name);
+                        searchIndex.rename(paletteCopy);
+                        tabCopy.setText(name);
+                    }
+                    paletteCopy.setTags(edit.getTags());
+
+                    PaletteDiff diff = edit.getDiff();
+                    if (diff.isEmpty()) {
+                        // Only the name or tags changed, so the swatches can stay as they are
+                        scheduleCommit();
+                    } else {
+                        applyColorChanges(paletteCopy, edit);
+                    }
 
-                    // Recreate the tab content
-                    paletteTabPane.getTabs().remove(tabCopy);
-                    colorPalettes.remove(paletteIndex);
-                    addPalette(paletteCopy);
+                    editEvent.end();
+                    editEvent.palette = name;
+                    editEvent.colorCountAfter = paletteCopy.size();
+                    editEvent.commit();
+                    Metrics.record(Metrics.PALETTE_EDIT, System.nanoTime() - startNanos, diff.getChanges().size());
 
                     showAlert(Alert.AlertType.INFORMATION, "Edit Successful", 
                             "Palette Updated", 
-                            "Color palette '" + name + "' was successfully updated.");
+                            "Color palette '" + name + "' was successfully updated: "
+                                    + diff.getAddedCount() + " colors added, "
+                                    + diff.getRemovedCount() + " removed and "
+                                    + diff.getChangedCount() + " changed.");
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Invalid Input", 
                             "Invalid Palette", 
@@ -570,6 +1403,643 @@ public class ColorPaletteController {
         }
     }
 
+    /**
+     * Handles the "Generate Tonal Ramps" menu item click.
+     * Adds a ramp palette with the standard shades for every color of the selected palette.
+     */
+    @FXML
+    protected void onGenerateRampsMenuItemClick() {
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null) {
+            showAlert(Alert.AlertType.WARNING, "No Palette Selected", 
+                    "No Palette Selected", 
+                    "Please select a palette to generate tonal ramps for.");
+            return;
+        }
+
+        List<ColorPalette> ramps = RampGenerator.generateRamps(List.of(selectedPalette), RampGenerator.STANDARD_SHADES);
+        int addedCount = addGeneratedPalettes(ramps);
+
+        showAlert(Alert.AlertType.INFORMATION, "Ramps Generated", 
+                "Tonal Ramps Generated", 
+                addedCount + " tonal ramps were generated from '" + selectedPalette.getName() + "'.");
+    }
+
+    /**
+     * Handles the "Generate Gradient" menu item click.
+     * Asks for a number of steps and adds a gradient palette through the colors of the selected palette.
+     */
+    @FXML
+    protected void onGenerateGradientMenuItemClick() {
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null || selectedPalette.size() == 0) {
+            showAlert(Alert.AlertType.WARNING, "No Palette Selected", 
+                    "No Palette Selected", 
+                    "Please select a palette with at least one color to generate a gradient from.");
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog("10");
+        dialog.setTitle("Generate Gradient");
+        dialog.setHeaderText("Generate a gradient through the colors of '" + selectedPalette.getName() + "'");
+        dialog.setContentText("Number of colors:");
+
+        Optional<String> result = dialog.showAndWait();
+        result.ifPresent(stepsText -> {
+            int steps;
+            try {
+                steps = Integer.parseInt(stepsText.trim());
+            } catch (NumberFormatException e) {
+                steps = -1;
+            }
+            if (steps < 2 || steps > 10000) {
+                showAlert(Alert.AlertType.ERROR, "Invalid Input", 
+                        "Invalid Number of Colors", 
+                        "The number of colors must be between 2 and 10000.");
+                return;
+            }
+
+            ColorPalette gradient = RampGenerator.generateGradient(selectedPalette, steps);
+            if (addGeneratedPalettes(List.of(gradient)) == 0) {
+                showAlert(Alert.AlertType.ERROR, "Duplicate Name", 
+                        "Palette Name Already Exists", 
+                        "A palette with the name '" + gradient.getName() + "' already exists.");
+            }
+        });
+    }
+
+    /**
+     * Adds generated palettes, skipping those whose name is already taken.
+     *
+     * @param palettes the generated palettes
+     * @return the number of palettes that were added
+     */
+    private int addGeneratedPalettes(List<ColorPalette> palettes) {
+        int addedCount = 0;
+        for (ColorPalette palette : palettes) {
+            boolean exists = colorPalettes.stream()
+                    .anyMatch(p -> p.getName().equals(palette.getName()));
+
+            if (!exists) {
+                addPalette(palette);
+                addedCount++;
+            }
+        }
+        return addedCount;
+    }
+
+    /**
+     * Handles the "Adjust Colors" menu item click.
+     * Opens a dialog to shift the hue, saturation and lightness of the whole selected palette.
+     */
+    @FXML
+    protected void onAdjustPaletteMenuItemClick() {
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null) {
+            showAlert(Alert.AlertType.WARNING, "No Palette Selected", 
+                    "No Palette Selected", 
+                    "Please select a palette to adjust.");
+            return;
+        }
+
+        try {
+            // Load the FXML file
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("adjust-palette-dialog.fxml"));
+            GridPane dialogContent = fxmlLoader.load();
+
+            // Get the controller and start the live preview
+            AdjustPaletteDialogController controller = fxmlLoader.getController();
+            List<NamedColor> namedColors = selectedPalette.getNamedColors();
+            controller.setColors(toPackedColors(namedColors));
+
+            // Create the dialog
+            Dialog<int[]> dialog = new Dialog<>();
+            dialog.setTitle("Adjust Colors");
+            dialog.setHeaderText("Adjust all colors of '" + selectedPalette.getName() + "'");
+
+            // Set the button types
+            ButtonType applyButtonType = new ButtonType("Apply", ButtonBar.ButtonData.OK_DONE);
+            dialog.getDialogPane().getButtonTypes().addAll(applyButtonType, ButtonType.CANCEL);
+
+            // Set the content
+            dialog.getDialogPane().setContent(dialogContent);
+            dialog.setOnHidden(event -> controller.dispose());
+
+            // Convert the result to the adjusted colors when the apply button is clicked
+            dialog.setResultConverter(dialogButton -> {
+                if (dialogButton == applyButtonType) {
+                    return controller.getAdjustedColors();
+                }
+                return null;
+            });
+
+            // Show the dialog and process the result
+            Optional<int[]> result = dialog.showAndWait();
+            result.ifPresent(adjustedColors -> {
+                long startNanos = System.nanoTime();
+                List<NamedColor> adjustedNamedColors = new ArrayList<>(adjustedColors.length);
+                for (int i = 0; i < adjustedColors.length; i++) {
+                    adjustedNamedColors.add(new NamedColor(PackedColors.toColor(adjustedColors[i]), namedColors.get(i).getName()));
+                }
+                replacePaletteColors(selectedPalette, adjustedNamedColors);
+                Metrics.record(Metrics.PALETTE_EDIT, System.nanoTime() - startNanos, adjustedColors.length);
+                toastQueue.show("Adjusted " + adjustedColors.length + " colors of " + selectedPalette.getName());
+            });
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.ERROR, "Dialog Error", 
+                    "Error Loading Dialog", 
+                    "An error occurred while loading the dialog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the "Find Duplicate Palettes" menu item click.
+     * Lists the palettes with identical or reordered colors, regardless of their names, and
+     * offers to remove the identical copies.
+     */
+    @FXML
+    protected void onFindDuplicatesMenuItemClick() {
+        List<DuplicateGroup> groups = DuplicateFinder.findDuplicates(colorPalettes);
+        if (groups.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "No Duplicates", 
+                    "No Duplicate Palettes", 
+                    "All " + colorPalettes.size() + " palettes have different colors.");
+            return;
+        }
+
+        StringBuilder report = new StringBuilder();
+        int removableCount = 0;
+        for (DuplicateGroup group : groups) {
+            List<ColorPalette> palettes = group.getPalettes();
+            report.append(group.isReordered() ? "Same colors, different order: " : "Identical: ");
+            for (int i = 0; i < palettes.size(); i++) {
+                report.append(i == 0 ? "" : ", ").append(palettes.get(i).getName());
+            }
+            report.append("\n");
+            if (!group.isReordered()) {
+                removableCount += palettes.size() - 1;
+            }
+        }
+
+        TextArea reportArea = new TextArea(report.toString());
+        reportArea.setEditable(false);
+        reportArea.setPrefRowCount(16);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Duplicate Palettes");
+        alert.setHeaderText(groups.size() + " groups of palettes share their colors.");
+        alert.getDialogPane().setContent(reportArea);
+
+        ButtonType removeButtonType = new ButtonType("Remove " + removableCount + " Identical Copies",
+                ButtonBar.ButtonData.OTHER);
+        if (removableCount > 0) {
+            alert.getButtonTypes().add(0, removeButtonType);
+        }
+
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == removeButtonType) {
+            // Keep the first palette of every identical group
+            for (DuplicateGroup group : groups) {
+                if (!group.isReordered()) {
+                    List<ColorPalette> palettes = group.getPalettes();
+                    for (int i = 1; i < palettes.size(); i++) {
+                        removePalette(palettes.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles the "Find Similar Palettes" menu item click.
+     * Lists the palettes of all windows whose colors are closest to those of the selected
+     * palette, and shows or opens the chosen one.
+     */
+    @FXML
+    protected void onFindSimilarMenuItemClick() {
+        ColorPalette selectedPalette = getSelectedPalette();
+        if (selectedPalette == null) {
+            showAlert(Alert.AlertType.WARNING, "No Palette Selected",
+                    "No Palette Selected",
+                    "Please select a palette to compare.");
+            return;
+        }
+
+        // The shared copy of the selected palette is not a result of its own
+        PaletteData committedCopy = committedPalettes.get(selectedPalette);
+        List<SimilarPalette> similar = new ArrayList<>(PaletteSimilarityIndex.getDefault()
+                .findSimilar(toPackedColors(selectedPalette.getNamedColors()), MAX_SIMILAR_PALETTES + 1));
+        similar.removeIf(result -> result.getPalette() == committedCopy);
+        if (similar.size() > MAX_SIMILAR_PALETTES) {
+            similar.subList(MAX_SIMILAR_PALETTES, similar.size()).clear();
+        }
+        if (similar.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "No Similar Palettes",
+                    "No Similar Palettes",
+                    "No other palette has colors similar to '" + selectedPalette.getName() + "'.");
+            return;
+        }
+
+        ListView<SimilarPalette> resultsList = new ListView<>();
+        resultsList.getItems().setAll(similar);
+        resultsList.setPrefSize(480, 360);
+        resultsList.setCellFactory(listView -> new ListCell<>() {
+            @Override
+            protected void updateItem(SimilarPalette result, boolean empty) {
+                super.updateItem(result, empty);
+                if (empty || result == null) {
+                    setText(null);
+                    setGraphic(null);
+                    return;
+                }
+
+                // A strip of the palette's first colors
+                PaletteData palette = result.getPalette();
+                HBox strip = new HBox();
+                for (int i = 0; i < Math.min(palette.size(), SIMILAR_PREVIEW_COLORS); i++) {
+                    Region swatch = new Region();
+                    swatch.setPrefSize(14, 14);
+                    swatch.setBackground(SwatchStyles.background(palette.getColor(i)));
+                    strip.getChildren().add(swatch);
+                }
+                setText(String.format("%s  (distance %.3f)", palette.getName(), result.getDistance()));
+                setGraphic(strip);
+            }
+        });
+        resultsList.getSelectionModel().selectFirst();
+
+        Dialog<SimilarPalette> dialog = new Dialog<>();
+        dialog.setTitle("Similar Palettes");
+        dialog.setHeaderText("Palettes with colors closest to '" + selectedPalette.getName() + "'");
+        ButtonType showButtonType = new ButtonType("Show Palette", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(showButtonType, ButtonType.CLOSE);
+        dialog.getDialogPane().setContent(resultsList);
+        dialog.setResultConverter(dialogButton -> dialogButton == showButtonType
+                ? resultsList.getSelectionModel().getSelectedItem()
+                : null);
+
+        dialog.showAndWait().ifPresent(result -> {
+            // Show the palette if it belongs to this window, otherwise open a copy of it
+            PaletteData data = result.getPalette();
+            for (Map.Entry<ColorPalette, PaletteData> entry : committedPalettes.entrySet()) {
+                Tab tab = paletteTabs.get(entry.getKey());
+                if (entry.getValue() == data && tab != null) {
+                    flushPendingTabs();
+                    paletteTabPane.getSelectionModel().select(tab);
+                    return;
+                }
+            }
+            addPalette(data.toColorPalette());
+        });
+    }
+
+    /**
+     * Removes a palette and its tab.
+     *
+     * @param palette the palette to remove
+     */
+    private void removePalette(ColorPalette palette) {
+        Tab tab = paletteTabs.remove(palette);
+        if (pendingTabs.remove(tab) && pendingSelection == tab) {
+            pendingSelection = pendingTabs.isEmpty() ? null : pendingTabs.get(pendingTabs.size() - 1);
+        }
+        paletteTabPane.getTabs().remove(tab);
+        searchIndex.remove(palette);
+        colorPalettes.remove(palette);
+        mergeBases.remove(palette.getName());
+        scheduleCommit();
+    }
+
+    /**
+     * Handles the "Open Library" menu item click.
+     * Opens or creates a palette library in a directory on the library thread, after the
+     * previous library has been closed, and shows it.
+     */
+    @FXML
+    protected void onOpenLibraryMenuItemClick() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Open Palette Library");
+        File directory = directoryChooser.showDialog(paletteTabPane.getScene().getWindow());
+        if (directory == null) {
+            return;
+        }
+
+        closeLibrary();
+        libraryExecutor.execute(() -> {
+            try {
+                PaletteLibrary library = PaletteLibrary.open(directory.toPath());
+                Platform.runLater(() -> {
+                    // Another library may have been opened meanwhile
+                    closeLibrary();
+                    paletteLibrary = library;
+                    onBrowseLibraryMenuItemClick();
+                });
+            } catch (IOException e) {
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Library Error", 
+                        "Error Opening Library", 
+                        "The palette library could not be opened: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Handles the "Browse Library" menu item click.
+     * Shows the palettes of the open library page by page, and opens the chosen ones as tabs.
+     */
+    @FXML
+    protected void onBrowseLibraryMenuItemClick() {
+        if (paletteLibrary == null) {
+            onOpenLibraryMenuItemClick();
+            return;
+        }
+
+        try {
+            // Load the FXML file
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("library-dialog.fxml"));
+            VBox dialogContent = fxmlLoader.load();
+
+            // Get the controller
+            LibraryDialogController controller = fxmlLoader.getController();
+            controller.setLibrary(paletteLibrary);
+
+            // Create the dialog
+            Dialog<List<PaletteData>> dialog = new Dialog<>();
+            dialog.setTitle("Palette Library");
+            dialog.setHeaderText("Browse the palette library (" + paletteLibrary.size() + " palettes)");
+
+            // Set the button types
+            ButtonType openSelectedButtonType = new ButtonType("Open Selected", ButtonBar.ButtonData.OK_DONE);
+            ButtonType openPageButtonType = new ButtonType("Open Page", ButtonBar.ButtonData.OTHER);
+            dialog.getDialogPane().getButtonTypes().addAll(openSelectedButtonType, openPageButtonType, ButtonType.CLOSE);
+
+            // Set the content
+            dialog.getDialogPane().setContent(dialogContent);
+
+            // Request focus on the query field by default
+            Platform.runLater(controller.getQueryField()::requestFocus);
+
+            // Convert the result to the palettes to open
+            dialog.setResultConverter(dialogButton -> {
+                if (dialogButton == openSelectedButtonType) {
+                    return controller.getSelectedPalettes();
+                } else if (dialogButton == openPageButtonType) {
+                    return controller.getPagePalettes();
+                }
+                return null;
+            });
+
+            Optional<List<PaletteData>> result = dialog.showAndWait();
+            controller.dispose();
+            result.ifPresent(palettes -> {
+                int openedCount = 0;
+                for (PaletteData data : palettes) {
+                    boolean open = colorPalettes.stream().anyMatch(p -> p.getName().equals(data.getName()));
+                    if (!open) {
+                        addPalette(data.toColorPalette());
+                        openedCount++;
+                    }
+                }
+                if (openedCount < palettes.size()) {
+                    toastQueue.show("Opened " + openedCount + " palettes, " + (palettes.size() - openedCount) + " were already open");
+                }
+            });
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.ERROR, "Dialog Error", 
+                    "Error Loading Dialog", 
+                    "An error occurred while loading the dialog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the "Add Palettes to Library" menu item click.
+     * Stores all open palettes in the library on the library thread, replacing library palettes
+     * with the same names.
+     */
+    @FXML
+    protected void onAddToLibraryMenuItemClick() {
+        if (paletteLibrary == null) {
+            showAlert(Alert.AlertType.WARNING, "No Library", 
+                    "No Library Open", 
+                    "Please open a palette library first.");
+            return;
+        }
+
+        // Write immutable copies, so the palettes can be edited meanwhile
+        List<PaletteData> palettes = new ArrayList<>(colorPalettes.size());
+        for (ColorPalette palette : colorPalettes) {
+            palettes.add(PaletteData.of(palette));
+        }
+        PaletteLibrary library = paletteLibrary;
+        libraryExecutor.execute(() -> {
+            try {
+                library.putAll(palettes);
+                Platform.runLater(() -> toastQueue.show("Added " + palettes.size() + " palettes to the library"));
+            } catch (IOException e) {
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Library Error", 
+                        "Error Writing Library", 
+                        "The palettes could not be added to the library: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Handles the "Export Swatch Sheets" menu item click.
+     * Writes a PNG and an SVG swatch sheet of every open palette into a chosen directory, on a
+     * background thread.
+     */
+    @FXML
+    protected void onExportSwatchSheetsMenuItemClick() {
+        if (colorPalettes.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "No Palettes", 
+                    "No Palettes to Export", 
+                    "Please add at least one color palette before exporting swatch sheets.");
+            return;
+        }
+
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Export Swatch Sheets");
+        File directory = directoryChooser.showDialog(paletteTabPane.getScene().getWindow());
+        if (directory == null) {
+            return;
+        }
+
+        // Render from immutable copies, so the palettes can be edited meanwhile
+        List<PaletteData> palettes = new ArrayList<>(colorPalettes.size());
+        for (ColorPalette palette : colorPalettes) {
+            palettes.add(PaletteData.of(palette));
+        }
+        toastQueue.show("Exporting " + palettes.size() + " swatch sheets...");
+        Thread.ofPlatform().name("swatch-sheets").daemon().start(() -> {
+            try {
+                List<Path> files = SwatchSheetRenderer.writeSheets(palettes, directory.toPath(),
+                        EnumSet.allOf(SwatchSheetRenderer.SheetFormat.class));
+                Platform.runLater(() -> toastQueue.show("Wrote " + files.size() + " swatch sheets to " + directory.getName()));
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Export Error", 
+                        "Error Exporting Swatch Sheets", 
+                        "An error occurred while writing the swatch sheets: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Closes the open palette library, if any, on the library thread after its pending writes.
+     * Closing flushes the library and may compact it, so failures are reported.
+     */
+    private void closeLibrary() {
+        if (paletteLibrary == null) {
+            return;
+        }
+        PaletteLibrary library = paletteLibrary;
+        paletteLibrary = null;
+        libraryExecutor.execute(() -> {
+            try {
+                library.close();
+            } catch (IOException e) {
+                Platform.runLater(() -> showLibraryCloseError(e));
+            }
+        });
+    }
+
+    /**
+     * Reports that closing the palette library failed.
+     *
+     * @param e the error thrown while flushing or compacting the library
+     */
+    private void showLibraryCloseError(IOException e) {
+        showAlert(Alert.AlertType.ERROR, "Library Error", 
+                "Error Closing Library", 
+                "The palette library could not be written completely: " + e.getMessage());
+    }
+
+    /**
+     * Handles the "Serve Palettes on Localhost" menu item click.
+     * Starts or stops the local HTTP server publishing the palettes.
+     */
+    @FXML
+    protected void onServePalettesMenuItemClick() {
+        if (!servePalettesMenuItem.isSelected()) {
+            paletteServer.stop();
+            return;
+        }
+
+        try {
+            paletteServer.start();
+            showAlert(Alert.AlertType.INFORMATION, "Server Started", 
+                    "Serving Palettes", 
+                    "The palettes are available at " + paletteServer.getUrl()
+                            + "\nAdd ?format=css, txt or hex for other formats, or /<name> for a single palette.");
+        } catch (IOException e) {
+            servePalettesMenuItem.setSelected(false);
+            showAlert(Alert.AlertType.ERROR, "Server Error", 
+                    "Error Starting Server", 
+                    "The palette server could not be started: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background services of the controller.
+     */
+    public void shutdown() {
+        paletteServer.stop();
+
+        // Finish the pending library writes, then close the library here, where a failure can
+        // still be reported before the application exits
+        PaletteLibrary library = paletteLibrary;
+        paletteLibrary = null;
+        libraryExecutor.shutdown();
+        try {
+            libraryExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (library != null) {
+            try {
+                library.close();
+            } catch (IOException e) {
+                showLibraryCloseError(e);
+            }
+        }
+
+        // Withdraw this window's palettes from the shared repository
+        commitPalettes(List.of());
+    }
+
+    /**
+     * Commits the palettes to the repository once the current event has been handled, so that
+     * a batch of changes becomes visible to other readers as one version.
+     */
+    private void scheduleCommit() {
+        if (!commitPending) {
+            commitPending = true;
+            Platform.runLater(this::commitPalettes);
+        }
+    }
+
+    /**
+     * Commits the palettes of this window to the repository.
+     */
+    private void commitPalettes() {
+        commitPending = false;
+        commitPalettes(colorPalettes);
+    }
+
+    /**
+     * Commits immutable copies of this window's palettes to the repository, reusing the copies
+     * of palettes that did not change since the last commit. The palettes of other windows are
+     * left untouched, and this window's palettes keep their slots in the repository.
+     *
+     * @param palettes the palettes of this window, in display order
+     */
+    private void commitPalettes(List<ColorPalette> palettes) {
+        List<PaletteData> current = new ArrayList<>(palettes.size());
+        Map<ColorPalette, PaletteData> committed = new IdentityHashMap<>();
+        for (ColorPalette palette : palettes) {
+            PaletteData data = committedPalettes.get(palette);
+            if (data == null || data.getFingerprint() != palette.getFingerprint()
+                    || !Objects.equals(data.getName(), palette.getName())
+                    || !data.getTags().equals(palette.getTags())) {
+                data = PaletteData.of(palette);
+            }
+            committed.put(palette, data);
+            current.add(data);
+        }
+
+        Set<PaletteData> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+        previous.addAll(committedPalettes.values());
+        paletteRepository.update(shared -> {
+            // Fill the slots of the previous copies in display order, then append the rest
+            int next = 0;
+            for (int i = 0; i < shared.size(); i++) {
+                if (previous.contains(shared.get(i))) {
+                    if (next < current.size()) {
+                        shared.set(i, current.get(next++));
+                    } else {
+                        shared.remove(i--);
+                    }
+                }
+            }
+            shared.addAll(current.subList(next, current.size()));
+        });
+        committedPalettes = committed;
+    }
+
+    /**
+     * Returns the palette shown in the selected tab.
+     *
+     * @return the selected palette, or null if no palette is selected
+     */
+    private ColorPalette getSelectedPalette() {
+        flushPendingTabs();
+        Tab selectedTab = paletteTabPane.getSelectionModel().getSelectedItem();
+        for (Map.Entry<ColorPalette, Tab> entry : paletteTabs.entrySet()) {
+            if (entry.getValue() == selectedTab) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
     /**
      * Handles the "Import Palette" menu item click.
      * Opens a dialog with a text area to import a palette from text.
@@ -610,9 +2080,14 @@ public class ColorPaletteController {
             // Show the dialog and process the result
             Optional<String> result = dialog.showAndWait();
             result.ifPresent(paletteText -> {
+                long startNanos = System.nanoTime();
+                TextImportEvent importEvent = new TextImportEvent();
+                importEvent.begin();
+
                 try {
                     // Parse the palette text
                     String[] lines = paletteText.trim().split("\\n");
+                    importEvent.lineCount = lines.length;
 
                     if (lines.length < 2) {
                         showAlert(Alert.AlertType.ERROR, "Invalid Input", 
@@ -635,6 +2110,7 @@ public class ColorPaletteController {
                             Color color = Color.web(colorHex);
                             colors.add(color);
                         } catch (IllegalArgumentException e) {
+                            importEvent.errorCount++;
                             showAlert(Alert.AlertType.ERROR, "Invalid Color", 
                                     "Invalid Color Format", 
                                     "Color '" + colorHex + "' is not a valid hex color. Format should be #RRGGBB.");
@@ -663,15 +2139,21 @@ public class ColorPaletteController {
                     // Create and add the palette
                     ColorPalette palette = new ColorPalette(name, colors);
                     addPalette(palette);
+                    importEvent.colorCount = colors.size();
 
                     showAlert(Alert.AlertType.INFORMATION, "Import Successful", 
                             "Palette Imported", 
                             "Color palette '" + name + "' was successfully imported with " + colors.size() + " colors.");
 
                 } catch (Exception e) {
+                    importEvent.errorCount++;
                     showAlert(Alert.AlertType.ERROR, "Import Error", 
                             "Error Importing Palette", 
                             "An error occurred while importing the palette: " + e.getMessage());
+                } finally {
+                    importEvent.end();
+                    importEvent.commit();
+                    Metrics.record(Metrics.TEXT_IMPORT, System.nanoTime() - startNanos, importEvent.lineCount);
                 }
             });
         } catch (IOException e) {
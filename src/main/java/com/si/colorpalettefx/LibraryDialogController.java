@@ -0,0 +1,221 @@
+package com.si.colorpalettefx;
+
+import com.si.colorpalettefx.library.PaletteLibrary;
+import com.si.colorpalettefx.library.PaletteLibrary.Page;
+import com.si.colorpalettefx.library.PaletteLibrary.Query;
+import com.si.colorpalettefx.model.PaletteData;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Controller for the Browse Library dialog.
+ * <p>
+ * The dialog shows one page of library palettes at a time. Pages are read from disk on a
+ * background thread, and results of queries that were superseded while reading are dropped.
+ */
+public class LibraryDialogController {
+    // Number of palettes per page
+    private static final int PAGE_SIZE = 50;
+
+    // Maximum number of swatches previewed per palette
+    private static final int PREVIEW_SWATCHES = 16;
+
+    @FXML
+    private VBox dialogContent;
+
+    @FXML
+    private TextField queryField;
+
+    @FXML
+    private ListView<PaletteData> paletteList;
+
+    @FXML
+    private Button previousPageButton;
+
+    @FXML
+    private Button nextPageButton;
+
+    @FXML
+    private Label pageLabel;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "library-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PaletteLibrary library;
+    private Query query = Query.all();
+    private Page currentPage;
+
+    // Incremented for every request, so that only the latest result is shown
+    private long requestCount;
+
+    /**
+     * Initializes the controller.
+     */
+    @FXML
+    public void initialize() {
+        paletteList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        paletteList.setCellFactory(param -> new ListCell<PaletteData>() {
+            private final HBox swatches = new HBox(2);
+
+            @Override
+            protected void updateItem(PaletteData item, boolean empty) {
+                super.updateItem(item, empty);
+
+                if (empty || item == null) {
+                    setText(null);
+                    setGraphic(null);
+                } else {
+                    // Preview the first colors of the palette
+                    List<StackPane> squares = new ArrayList<>();
+                    for (int i = 0; i < Math.min(item.size(), PREVIEW_SWATCHES); i++) {
+                        StackPane square = new StackPane();
+                        square.setPrefSize(14, 14);
+                        square.setBackground(SwatchStyles.background(item.getColor(i)));
+                        squares.add(square);
+                    }
+                    swatches.getChildren().setAll(squares);
+                    setGraphic(swatches);
+
+                    String tags = item.getTags().isEmpty() ? "" : "  [" + String.join(", ", item.getTags()) + "]";
+                    setText(item.getName() + " (" + item.size() + " colors)" + tags);
+                }
+            }
+        });
+
+        queryField.textProperty().addListener((observable, oldValue, newValue) -> {
+            query = Query.parse(newValue);
+            showPage(0);
+        });
+    }
+
+    /**
+     * Sets the library to browse and shows its first page.
+     *
+     * @param library the open library
+     */
+    public void setLibrary(PaletteLibrary library) {
+        this.library = library;
+        showPage(0);
+    }
+
+    /**
+     * Handles the "Previous" button click.
+     */
+    @FXML
+    protected void onPreviousPageButtonClick() {
+        if (currentPage != null) {
+            showPage(currentPage.getPageIndex() - 1);
+        }
+    }
+
+    /**
+     * Handles the "Next" button click.
+     */
+    @FXML
+    protected void onNextPageButtonClick() {
+        if (currentPage != null) {
+            showPage(currentPage.getPageIndex() + 1);
+        }
+    }
+
+    /**
+     * Gets the palettes selected in the list.
+     *
+     * @return the selected palettes
+     */
+    public List<PaletteData> getSelectedPalettes() {
+        return new ArrayList<>(paletteList.getSelectionModel().getSelectedItems());
+    }
+
+    /**
+     * Gets all palettes of the page shown.
+     *
+     * @return the palettes of the current page
+     */
+    public List<PaletteData> getPagePalettes() {
+        return new ArrayList<>(paletteList.getItems());
+    }
+
+    /**
+     * Stops the background thread. Must be called when the dialog closes.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the root node of the dialog.
+     *
+     * @return the root VBox
+     */
+    public VBox getDialogContent() {
+        return dialogContent;
+    }
+
+    /**
+     * Gets the query field.
+     *
+     * @return the query TextField
+     */
+    public TextField getQueryField() {
+        return queryField;
+    }
+
+    /**
+     * Reads a page of the current query in the background and shows it when done.
+     *
+     * @param pageIndex the index of the page
+     */
+    private void showPage(int pageIndex) {
+        if (library == null) {
+            return;
+        }
+
+        long request = ++requestCount;
+        Query pageQuery = query;
+        pageLabel.setText("Loading...");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return library.query(pageQuery, Math.max(0, pageIndex), PAGE_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor).whenComplete((page, error) -> Platform.runLater(() -> {
+            if (request != requestCount) {
+                return;
+            }
+            if (error != null) {
+                pageLabel.setText("Error reading the library: " + error.getMessage());
+                return;
+            }
+
+            currentPage = page;
+            paletteList.getItems().setAll(page.getPalettes());
+            paletteList.scrollTo(0);
+            previousPageButton.setDisable(page.getPageIndex() == 0);
+            nextPageButton.setDisable(page.getPageIndex() >= page.getPageCount() - 1);
+            pageLabel.setText("Page " + (page.getPageIndex() + 1) + " of " + page.getPageCount()
+                    + " (" + page.getTotalCount() + " palettes)");
+        }));
+    }
+}
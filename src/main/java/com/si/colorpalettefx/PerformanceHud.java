@@ -0,0 +1,295 @@
+package com.si.colorpalettefx;
+
+import com.si.colorpalettefx.metrics.Metrics;
+import com.si.colorpalettefx.metrics.OperationStats;
+import javafx.animation.AnimationTimer;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A toggleable overlay showing frame rate, pulse duration, scene-graph size per palette tab,
+ * heap use and the timing of the last recorded operation.
+ * <p>
+ * Frames and pulses are only counted into primitive fields; the text is rebuilt twice a second
+ * into a reused buffer, so the overlay does not allocate on every frame. The node count of a tab
+ * is cached and only recounted after a child list in its scene graph has changed.
+ */
+final class PerformanceHud {
+    /**
+     * The key combination toggling the overlay.
+     */
+    static final KeyCombination TOGGLE_KEY = KeyCombination.keyCombination("Shortcut+Shift+P");
+
+    private static final long SAMPLE_INTERVAL_NANOS = 500_000_000L;
+    private static final int MAX_LISTED_TABS = 8;
+
+    private final Label label = new Label();
+    private final StringBuilder text = new StringBuilder(512);
+    private final Runnable postLayoutListener = this::onPostLayout;
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onFrame();
+        }
+    };
+
+    private Scene scene;
+    private TabPane tabPane;
+    private final Map<Tab, TabNodeCount> tabNodeCounts = new HashMap<>();
+
+    // Counters of the current sample interval
+    private long sampleStartNanos;
+    private long pulseStartNanos;
+    private int frames;
+    private int pulses;
+    private long pulseTotalNanos;
+    private long pulseMaxNanos;
+
+    /**
+     * The cached node count of a tab, invalidated by changes to any child list it has counted.
+     */
+    private static final class TabNodeCount implements ListChangeListener<Node> {
+        private Node content;
+        private int count;
+        private boolean dirty = true;
+
+        @Override
+        public void onChanged(Change<? extends Node> change) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Creates a new, hidden overlay.
+     */
+    PerformanceHud() {
+        label.setVisible(false);
+        label.setMouseTransparent(true);
+        label.setFont(Font.font("Monospaced", 12));
+        label.setTextFill(Color.WHITE);
+        label.setPadding(new Insets(6, 8, 6, 8));
+        label.setBackground(new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.7), new CornerRadii(4), null)));
+        StackPane.setAlignment(label, Pos.BOTTOM_RIGHT);
+        StackPane.setMargin(label, new Insets(10));
+    }
+
+    /**
+     * Returns the node of the overlay, to be placed on top of the window content in a StackPane.
+     *
+     * @return the overlay node
+     */
+    Node getNode() {
+        return label;
+    }
+
+    /**
+     * Installs the toggle key combination in the given scene.
+     *
+     * @param scene the scene showing the overlay
+     */
+    void install(Scene scene) {
+        this.scene = scene;
+        scene.getAccelerators().put(TOGGLE_KEY, this::toggle);
+    }
+
+    /**
+     * Sets the tab pane whose tabs are measured.
+     *
+     * @param tabPane the palette tab pane
+     */
+    void setTabPane(TabPane tabPane) {
+        this.tabPane = tabPane;
+    }
+
+    /**
+     * Shows the overlay if it is hidden, or hides it if it is shown.
+     */
+    void toggle() {
+        setShowing(!label.isVisible());
+    }
+
+    /**
+     * Shows or hides the overlay. Sampling only runs while the overlay is shown.
+     *
+     * @param showing whether the overlay should be shown
+     */
+    void setShowing(boolean showing) {
+        if (showing == label.isVisible()) {
+            return;
+        }
+
+        label.setVisible(showing);
+        if (showing) {
+            resetSample(System.nanoTime());
+            pulseStartNanos = 0;
+            scene.addPostLayoutPulseListener(postLayoutListener);
+            frameTimer.start();
+            label.setText("Measuring...");
+        } else {
+            frameTimer.stop();
+            scene.removePostLayoutPulseListener(postLayoutListener);
+        }
+    }
+
+    /**
+     * Called at the start of every pulse while the overlay is shown.
+     */
+    private void onFrame() {
+        long now = System.nanoTime();
+        pulseStartNanos = now;
+        frames++;
+
+        if (now - sampleStartNanos >= SAMPLE_INTERVAL_NANOS) {
+            updateText(now);
+            resetSample(now);
+        }
+    }
+
+    /**
+     * Called after the CSS and layout pass of every pulse while the overlay is shown.
+     */
+    private void onPostLayout() {
+        if (pulseStartNanos != 0) {
+            long pulseNanos = System.nanoTime() - pulseStartNanos;
+            pulses++;
+            pulseTotalNanos += pulseNanos;
+            pulseMaxNanos = Math.max(pulseMaxNanos, pulseNanos);
+            pulseStartNanos = 0;
+        }
+    }
+
+    /**
+     * Starts a new sample interval.
+     *
+     * @param now the start of the interval
+     */
+    private void resetSample(long now) {
+        sampleStartNanos = now;
+        frames = 0;
+        pulses = 0;
+        pulseTotalNanos = 0;
+        pulseMaxNanos = 0;
+    }
+
+    /**
+     * Rebuilds the text of the overlay from the counters of the finished sample interval.
+     *
+     * @param now the end of the interval
+     */
+    private void updateText(long now) {
+        text.setLength(0);
+
+        long elapsedNanos = now - sampleStartNanos;
+        text.append("FPS:   ").append(frames * 1_000_000_000L / Math.max(1, elapsedNanos)).append('\n');
+        text.append("Pulse: avg ");
+        appendMillis(pulses == 0 ? 0 : pulseTotalNanos / pulses);
+        text.append(" / max ");
+        appendMillis(pulseMaxNanos);
+        text.append('\n');
+
+        Runtime runtime = Runtime.getRuntime();
+        long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+        text.append("Heap:  ").append(usedBytes >> 20).append(" / ").append(runtime.maxMemory() >> 20).append(" MB\n");
+
+        OperationStats lastOperation = Metrics.lastOperation();
+        text.append("Last:  ");
+        if (lastOperation == null) {
+            text.append('-');
+        } else {
+            text.append(lastOperation.getName()).append(' ');
+            appendMillis(lastOperation.getLastNanos());
+            text.append(" (").append(lastOperation.getLastAmount()).append(')');
+        }
+
+        if (tabPane != null) {
+            List<Tab> tabs = tabPane.getTabs();
+            tabNodeCounts.keySet().removeIf(tab -> tab.getTabPane() != tabPane);
+            text.append("\nNodes: ").append(tabs.size()).append(" tabs");
+            int listed = Math.min(tabs.size(), MAX_LISTED_TABS);
+            for (int i = 0; i < listed; i++) {
+                Tab tab = tabs.get(i);
+                text.append("\n  ").append(tab.getText()).append(": ").append(countNodes(tab));
+            }
+            if (tabs.size() > listed) {
+                text.append("\n  ... ").append(tabs.size() - listed).append(" more");
+            }
+        }
+
+        label.setText(text.toString());
+    }
+
+    /**
+     * Appends a duration in milliseconds with one decimal to the text.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    private void appendMillis(long nanos) {
+        text.append(nanos / 1_000_000).append('.').append(nanos / 100_000 % 10).append(" ms");
+    }
+
+    /**
+     * Returns the number of nodes in the content of a tab, recounting only if the content has
+     * been replaced or changed since the last count.
+     *
+     * @param tab the tab
+     * @return the number of nodes
+     */
+    private int countNodes(Tab tab) {
+        TabNodeCount tabNodeCount = tabNodeCounts.computeIfAbsent(tab, key -> new TabNodeCount());
+        if (tabNodeCount.dirty || tabNodeCount.content != tab.getContent()) {
+            tabNodeCount.content = tab.getContent();
+            tabNodeCount.dirty = false;
+            tabNodeCount.count = countNodes(tab.getContent(), tabNodeCount);
+        }
+        return tabNodeCount.count;
+    }
+
+    /**
+     * Counts the nodes of the scene graph below and including the given node, and makes the
+     * given count observe every child list on the way.
+     *
+     * @param node the root of the subtree
+     * @param observer the count to invalidate when a child list changes
+     * @return the number of nodes
+     */
+    private static int countNodes(Node node, TabNodeCount observer) {
+        if (node == null) {
+            return 0;
+        }
+
+        int count = 1;
+        if (node instanceof Parent parent) {
+            ObservableList<Node> children = parent.getChildrenUnmodifiable();
+            Object previous = parent.getProperties().put(TabNodeCount.class, observer);
+            if (previous != observer) {
+                if (previous instanceof TabNodeCount previousObserver) {
+                    children.removeListener(previousObserver);
+                }
+                children.addListener(observer);
+            }
+            for (int i = 0; i < children.size(); i++) {
+                count += countNodes(children.get(i), observer);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,303 @@
+package com.si.colorpalettefx;
+
+import com.si.colorpalettefx.color.PaletteMapper;
+import com.si.colorpalettefx.model.PaletteData;
+import javafx.animation.AnimationTimer;
+import javafx.fxml.FXML;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
+import javafx.util.StringConverter;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Controller for the Recolor Image dialog, which previews an image drawn with the colors of a
+ * palette only.
+ * <p>
+ * Works like the Adjust Colors dialog: choosing a palette or toggling dithering only bumps a
+ * version number and starts an animation timer, which starts at most one recompute per pulse on
+ * a background thread and stops once the preview is up to date. Images are loaded on the same
+ * thread, and the timer also runs until the last requested image has arrived. The thread keeps a
+ * {@link PaletteMapper} per palette, so switching back to a palette skips building its lookup
+ * table, and maps into one reused pixel buffer, which is copied into the preview image on the
+ * next pulse. The next recompute only starts after that copy, so the buffer is never written
+ * while it is being read.
+ */
+public class RecolorImageDialogController {
+    @FXML
+    private GridPane dialogContent;
+
+    @FXML
+    private Label imageLabel;
+
+    @FXML
+    private ChoiceBox<PaletteData> paletteChoiceBox;
+
+    @FXML
+    private CheckBox ditherCheckBox;
+
+    @FXML
+    private ImageView previewView;
+
+    @FXML
+    private Label statusLabel;
+
+    private final AtomicReference<Preview> finishedPreview = new AtomicReference<>();
+    private final AtomicReference<SourceImage> loadedImage = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-recolor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AnimationTimer previewTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            updatePreview();
+        }
+    };
+
+    // Only used on the background thread
+    private final Map<PaletteData, PaletteMapper> mappers = new IdentityHashMap<>();
+    private int[] mappedPixels = new int[0];
+
+    private SourceImage sourceImage;
+    private WritableImage previewImage;
+    // Number of images requested and the number of the last one that arrived
+    private int requestedLoads;
+    private int arrivedLoad;
+
+    // Version of the chosen palette, dithering and image, and the version of the last started recompute
+    private long version;
+    private long startedVersion = -1;
+    private boolean computing;
+
+    /**
+     * A loaded image, or the reason it could not be loaded.
+     */
+    private static final class SourceImage {
+        private final int loadNumber;
+        private final String name;
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+        private final String error;
+
+        SourceImage(int loadNumber, String name, int[] pixels, int width, int height, String error) {
+            this.loadNumber = loadNumber;
+            this.name = name;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.error = error;
+        }
+    }
+
+    /**
+     * A mapped preview of a source image.
+     */
+    private static final class Preview {
+        private final SourceImage source;
+        private final int[] pixels;
+        private final long mapNanos;
+        private final long tableNanos;
+
+        Preview(SourceImage source, int[] pixels, long mapNanos, long tableNanos) {
+            this.source = source;
+            this.pixels = pixels;
+            this.mapNanos = mapNanos;
+            this.tableNanos = tableNanos;
+        }
+    }
+
+    /**
+     * Initializes the controller.
+     */
+    @FXML
+    public void initialize() {
+        paletteChoiceBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(PaletteData palette) {
+                return palette == null ? "" : palette.getName() + " (" + palette.size() + " colors)";
+            }
+
+            @Override
+            public PaletteData fromString(String string) {
+                return null;
+            }
+        });
+        paletteChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> invalidatePreview());
+        ditherCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> invalidatePreview());
+    }
+
+    /**
+     * Sets the palettes to choose from and starts the live preview.
+     *
+     * @param palettes the palettes, each with at least one color
+     * @param selected the palette chosen first
+     */
+    public void setPalettes(List<PaletteData> palettes, PaletteData selected) {
+        paletteChoiceBox.getItems().setAll(palettes);
+        paletteChoiceBox.setValue(selected != null ? selected : palettes.get(0));
+    }
+
+    /**
+     * Stops the live preview and its background thread. Must be called when the dialog closes.
+     */
+    public void dispose() {
+        previewTimer.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the root node of the dialog.
+     *
+     * @return the root GridPane
+     */
+    public GridPane getDialogContent() {
+        return dialogContent;
+    }
+
+    /**
+     * Handles the "Open Image" button click.
+     * Loads the chosen image on the background thread.
+     */
+    @FXML
+    protected void onOpenImageButtonClick() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Image");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Images", "*.png", "*.jpg", "*.jpeg", "*.gif", "*.bmp"));
+        File file = fileChooser.showOpenDialog(dialogContent.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        imageLabel.setText("Loading " + file.getName() + "...");
+        int loadNumber = ++requestedLoads;
+        executor.execute(() -> loadedImage.set(load(loadNumber, file)));
+        previewTimer.start();
+    }
+
+    /**
+     * Marks the preview outdated and makes sure the timer runs to recompute it.
+     */
+    private void invalidatePreview() {
+        version++;
+        previewTimer.start();
+    }
+
+    /**
+     * Called on every pulse while the timer runs: shows a loaded image or a finished preview,
+     * starts a recompute if the palette, the dithering or the image changed and no recompute is
+     * running, and stops the timer once nothing is left to load, compute or show.
+     */
+    private void updatePreview() {
+        SourceImage image = loadedImage.getAndSet(null);
+        if (image != null) {
+            arrivedLoad = image.loadNumber;
+            if (image.error != null) {
+                imageLabel.setText(image.error);
+            } else {
+                sourceImage = image;
+                previewImage = new WritableImage(image.width, image.height);
+                previewView.setImage(previewImage);
+                imageLabel.setText(image.name + " (" + image.width + " × " + image.height + ")");
+                version++;
+            }
+        }
+
+        Preview preview = finishedPreview.getAndSet(null);
+        if (preview != null) {
+            computing = false;
+            // A preview of an image replaced while it was mapped is dropped; the new image is
+            // already a newer version
+            if (preview.pixels != null && preview.source == sourceImage) {
+                previewImage.getPixelWriter().setPixels(0, 0, sourceImage.width, sourceImage.height,
+                        PixelFormat.getIntArgbInstance(), preview.pixels, 0, sourceImage.width);
+                String status = String.format("Mapped in %.0f ms", preview.mapNanos / 1e6);
+                if (preview.tableNanos > 0) {
+                    status += String.format(", lookup table built in %.0f ms", preview.tableNanos / 1e6);
+                }
+                statusLabel.setText(status);
+            }
+        }
+
+        PaletteData palette = paletteChoiceBox.getValue();
+        if (!computing && startedVersion != version && sourceImage != null && palette != null) {
+            startedVersion = version;
+            computing = true;
+            SourceImage source = sourceImage;
+            boolean dither = ditherCheckBox.isSelected();
+            executor.execute(() -> {
+                try {
+                    finishedPreview.set(map(source, palette, dither));
+                } catch (RuntimeException e) {
+                    finishedPreview.set(new Preview(source, null, 0, 0));
+                    throw e;
+                }
+            });
+        }
+
+        boolean loading = arrivedLoad < requestedLoads;
+        boolean outdated = startedVersion != version && sourceImage != null && palette != null;
+        if (!computing && !loading && !outdated) {
+            previewTimer.stop();
+        }
+    }
+
+    /**
+     * Maps an image to a palette on the background thread, building the palette's lookup
+     * table first if needed.
+     */
+    private Preview map(SourceImage source, PaletteData palette, boolean dither) {
+        long tableNanos = 0;
+        PaletteMapper mapper = mappers.get(palette);
+        if (mapper == null) {
+            long startNanos = System.nanoTime();
+            mapper = new PaletteMapper(palette.getColors());
+            mappers.put(palette, mapper);
+            tableNanos = System.nanoTime() - startNanos;
+        }
+
+        int pixelCount = source.width * source.height;
+        if (mappedPixels.length != pixelCount) {
+            mappedPixels = new int[pixelCount];
+        }
+        long startNanos = System.nanoTime();
+        mapper.map(source.pixels, mappedPixels, source.width, source.height, dither);
+        return new Preview(source, mappedPixels, System.nanoTime() - startNanos, tableNanos);
+    }
+
+    /**
+     * Loads an image file and reads its pixels.
+     */
+    private static SourceImage load(int loadNumber, File file) {
+        Image image = new Image(file.toURI().toString());
+        if (image.isError() || image.getPixelReader() == null) {
+            String reason = image.getException() != null
+                    ? image.getException().getMessage()
+                    : "unsupported format";
+            return new SourceImage(loadNumber, null, null, 0, 0, "Could not load " + file.getName() + ": " + reason);
+        }
+
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return new SourceImage(loadNumber, file.getName(), pixels, width, height, null);
+    }
+}
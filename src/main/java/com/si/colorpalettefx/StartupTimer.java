@@ -0,0 +1,47 @@
+package com.si.colorpalettefx;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the time of the application's startup phases relative to the start of the JVM.
+ */
+final class StartupTimer {
+    private final long originMillis;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    /**
+     * Creates a new timer measuring from the start of the current process, or from now if the
+     * process start time is not available on this platform.
+     */
+    StartupTimer() {
+        this.originMillis = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElseGet(System::currentTimeMillis);
+    }
+
+    /**
+     * Records that the given phase has been reached. Only the first mark of a phase is kept.
+     *
+     * @param phase the name of the phase
+     */
+    synchronized void mark(String phase) {
+        phases.putIfAbsent(phase, System.currentTimeMillis() - originMillis);
+    }
+
+    /**
+     * Returns a one-line report of all recorded phases.
+     *
+     * @return the report, e.g. {@code "Startup timing (ms since JVM start): init=120, start=310"}
+     */
+    synchronized String report() {
+        StringBuilder report = new StringBuilder("Startup timing (ms since JVM start):");
+        String separator = " ";
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            report.append(separator).append(phase.getKey()).append('=').append(phase.getValue());
+            separator = ", ";
+        }
+        return report.toString();
+    }
+}
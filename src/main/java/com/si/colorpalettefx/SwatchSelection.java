@@ -0,0 +1,121 @@
+package com.si.colorpalettefx;
+
+import javafx.scene.Node;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The selected swatches of one palette tab.
+ * <p>
+ * A plain click selects a single swatch, a shortcut-click toggles a swatch and a shift-click
+ * selects the range from the last clicked swatch. Selected swatches are shown through the
+ * {@code :selected} pseudo-class of their titled panes.
+ */
+final class SwatchSelection {
+    private final List<? extends Node> swatches;
+    private final BitSet selected = new BitSet();
+    private int anchor = -1;
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param swatches the swatch nodes of the tab, in palette order
+     */
+    SwatchSelection(List<? extends Node> swatches) {
+        this.swatches = swatches;
+    }
+
+    /**
+     * Updates the selection for a click on a swatch.
+     *
+     * @param index the index of the clicked swatch
+     * @param toggle whether the shortcut key was held down
+     * @param extend whether the shift key was held down
+     */
+    void click(int index, boolean toggle, boolean extend) {
+        if (extend && anchor >= 0) {
+            if (!toggle) {
+                clear();
+            }
+            for (int i = Math.min(anchor, index); i <= Math.max(anchor, index); i++) {
+                set(i, true);
+            }
+            return;
+        }
+
+        if (toggle) {
+            set(index, !selected.get(index));
+        } else {
+            clear();
+            set(index, true);
+        }
+        anchor = index;
+    }
+
+    /**
+     * Selects all swatches.
+     */
+    void selectAll() {
+        for (int i = 0; i < swatches.size(); i++) {
+            set(i, true);
+        }
+    }
+
+    /**
+     * Deselects all swatches.
+     */
+    void clear() {
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            swatches.get(i).pseudoClassStateChanged(SwatchStyles.SELECTED, false);
+        }
+        selected.clear();
+    }
+
+    /**
+     * Deselects all swatches and forgets the last clicked one. Called before swatches are
+     * inserted or removed, which would shift the selected indices.
+     */
+    void reset() {
+        clear();
+        anchor = -1;
+    }
+
+    /**
+     * Returns whether a swatch is selected.
+     *
+     * @param index the index of the swatch
+     * @return true if the swatch is selected
+     */
+    boolean isSelected(int index) {
+        return selected.get(index);
+    }
+
+    /**
+     * Returns the number of selected swatches.
+     *
+     * @return the selected count
+     */
+    int getSelectedCount() {
+        return selected.cardinality();
+    }
+
+    /**
+     * Returns the indices of the selected swatches.
+     *
+     * @return the selected indices, in ascending order
+     */
+    int[] getSelectedIndices() {
+        return selected.stream().toArray();
+    }
+
+    /**
+     * Selects or deselects a swatch and updates its pseudo-class.
+     */
+    private void set(int index, boolean value) {
+        if (selected.get(index) != value) {
+            selected.set(index, value);
+            swatches.get(index).pseudoClassStateChanged(SwatchStyles.SELECTED, value);
+        }
+    }
+}
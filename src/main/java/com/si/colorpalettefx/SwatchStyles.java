@@ -0,0 +1,100 @@
+package com.si.colorpalettefx;
+
+import com.si.colorpalettefx.color.PackedColors;
+import javafx.css.PseudoClass;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Border;
+import javafx.scene.layout.BorderStroke;
+import javafx.scene.layout.BorderStrokeStyle;
+import javafx.scene.layout.BorderWidths;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.paint.Color;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared, immutable styling objects for color swatches.
+ * <p>
+ * Swatches are styled through {@link Background} and {@link Border} instances instead of inline
+ * CSS strings, so creating, scrolling and hovering swatches never has to parse any CSS. Hover
+ * feedback is handled by the {@code .swatch:hover} rule in {@code color-palette.css}.
+ */
+final class SwatchStyles {
+    /**
+     * The style class applied to the titled pane wrapping every swatch.
+     */
+    static final String SWATCH_STYLE_CLASS = "swatch";
+
+    /**
+     * The pseudo-class of the swatch that was jumped to from the search results.
+     */
+    static final PseudoClass SEARCH_MATCH = PseudoClass.getPseudoClass("search-match");
+
+    /**
+     * The pseudo-class of selected swatches.
+     */
+    static final PseudoClass SELECTED = PseudoClass.getPseudoClass("selected");
+
+    /**
+     * The pseudo-class of swatches whose color cannot be printed without a visible shift.
+     */
+    static final PseudoClass OUT_OF_GAMUT = PseudoClass.getPseudoClass("out-of-gamut");
+
+    /**
+     * The border drawn around every swatch square.
+     */
+    static final Border SWATCH_BORDER = new Border(new BorderStroke(
+            Color.LIGHTGREY, BorderStrokeStyle.SOLID, CornerRadii.EMPTY, new BorderWidths(5)));
+
+    // Upper bound for the background cache, so huge palettes cannot grow it without limit
+    private static final int MAX_CACHED_BACKGROUNDS = 1 << 16;
+
+    private static final Map<Integer, Background> BACKGROUNDS = new ConcurrentHashMap<>();
+
+    private SwatchStyles() {
+    }
+
+    /**
+     * Returns a shared background filled with the given color.
+     *
+     * @param color the fill color
+     * @return the cached background for the color
+     */
+    static Background background(Color color) {
+        return background(PackedColors.toArgb(color), color);
+    }
+
+    /**
+     * Returns a shared background filled with the given packed color.
+     *
+     * @param argb the packed fill color
+     * @return the cached background for the color
+     */
+    static Background background(int argb) {
+        return background(argb, null);
+    }
+
+    /**
+     * Returns the cached background for a packed color, creating it if needed.
+     *
+     * @param argb the packed fill color
+     * @param color the fill color, or null to create it from the packed color
+     * @return the cached background for the color
+     */
+    private static Background background(int argb, Color color) {
+        Background background = BACKGROUNDS.get(argb);
+        if (background == null) {
+            Color fill = color != null ? color : PackedColors.toColor(argb);
+            background = new Background(new BackgroundFill(fill, CornerRadii.EMPTY, null));
+            if (BACKGROUNDS.size() < MAX_CACHED_BACKGROUNDS) {
+                Background existing = BACKGROUNDS.putIfAbsent(argb, background);
+                if (existing != null) {
+                    background = existing;
+                }
+            }
+        }
+        return background;
+    }
+}
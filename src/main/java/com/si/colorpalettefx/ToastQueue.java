@@ -0,0 +1,79 @@
+package com.si.colorpalettefx;
+
+import javafx.animation.FadeTransition;
+import javafx.animation.PauseTransition;
+import javafx.animation.SequentialTransition;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Shows short, non-modal notifications that fade out on their own.
+ * <p>
+ * At most {@link #MAX_VISIBLE} toasts are shown at once; further messages wait in a bounded
+ * queue, and a message equal to the one queued last is dropped, so bursts of notifications
+ * never pile up.
+ */
+final class ToastQueue {
+    /**
+     * The style class of every toast label.
+     */
+    static final String TOAST_STYLE_CLASS = "toast";
+
+    private static final int MAX_VISIBLE = 3;
+    private static final int MAX_PENDING = 20;
+    private static final Duration DISPLAY_DURATION = Duration.seconds(2.5);
+    private static final Duration FADE_DURATION = Duration.millis(300);
+
+    private final Pane container;
+    private final Deque<String> pending = new ArrayDeque<>();
+
+    /**
+     * Creates a toast queue showing its toasts in the given container.
+     *
+     * @param container the mouse-transparent pane the toasts are added to
+     */
+    ToastQueue(Pane container) {
+        this.container = container;
+    }
+
+    /**
+     * Shows a message, or queues it if enough toasts are already shown.
+     *
+     * @param message the message
+     */
+    void show(String message) {
+        if (container.getChildren().size() < MAX_VISIBLE) {
+            display(message);
+        } else if (!message.equals(pending.peekLast())) {
+            if (pending.size() == MAX_PENDING) {
+                pending.pollFirst();
+            }
+            pending.addLast(message);
+        }
+    }
+
+    /**
+     * Adds a toast and schedules its removal.
+     */
+    private void display(String message) {
+        Label toast = new Label(message);
+        toast.getStyleClass().add(TOAST_STYLE_CLASS);
+        container.getChildren().add(toast);
+
+        FadeTransition fade = new FadeTransition(FADE_DURATION, toast);
+        fade.setToValue(0);
+        SequentialTransition transition = new SequentialTransition(new PauseTransition(DISPLAY_DURATION), fade);
+        transition.setOnFinished(event -> {
+            container.getChildren().remove(toast);
+            String next = pending.pollFirst();
+            if (next != null) {
+                display(next);
+            }
+        });
+        transition.play();
+    }
+}
@@ -0,0 +1,36 @@
+package com.si.colorpalettefx.color;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Locates files in the application's cache directory, which holds precomputed data that can be
+ * rebuilt at any time.
+ */
+public final class CacheFiles {
+    /**
+     * System property overriding the cache directory.
+     */
+    public static final String CACHE_DIR_PROPERTY = "colorpalettefx.cacheDir";
+
+    private CacheFiles() {
+    }
+
+    /**
+     * Returns the path of a file in the cache directory, creating the directory if needed.
+     *
+     * @param fileName the name of the file
+     * @return the path of the file
+     * @throws IOException if the cache directory cannot be created
+     */
+    public static Path resolve(String fileName) throws IOException {
+        String configured = System.getProperty(CACHE_DIR_PROPERTY);
+        Path directory = configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".colorpalettefx", "cache");
+        Files.createDirectories(directory);
+        return directory.resolve(fileName);
+    }
+}
@@ -0,0 +1,305 @@
+package com.si.colorpalettefx.color;
+
+import javafx.scene.paint.Color;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Names colors after the closest entry of a dictionary of named colors.
+ * <p>
+ * The RGB cube is divided into 32×32×32 buckets, and a lookup table stores the dictionary
+ * entries closest to the center of every bucket. Naming a color looks up its bucket and picks
+ * the closest of those few candidates in OKLab, so it takes constant time regardless of the
+ * size of the dictionary. The table is built once, cached in the cache directory and
+ * memory-mapped on later starts.
+ */
+public final class ColorNamer {
+    /**
+     * Bits of every channel used to select a bucket.
+     */
+    static final int BUCKET_BITS = 5;
+
+    /**
+     * Number of dictionary entries stored per bucket for refinement.
+     */
+    static final int CANDIDATES_PER_BUCKET = 4;
+
+    private static final int BUCKET_COUNT = 1 << (3 * BUCKET_BITS);
+    private static final int TABLE_FILE_MAGIC = 0x43504E4C;
+    private static final int TABLE_FILE_VERSION = 1;
+    private static final int TABLE_HEADER_BYTES = 16;
+    private static final int TABLE_FILE_BYTES = TABLE_HEADER_BYTES + BUCKET_COUNT * CANDIDATES_PER_BUCKET * Short.BYTES;
+
+    // OKLab values of the color being named, per thread, so naming does not allocate
+    private static final ThreadLocal<float[]> LAB_SCRATCH = ThreadLocal.withInitial(() -> new float[3]);
+
+    private final String[] names;
+    private final int[] colors;
+    private final float[] labs;
+    private final ShortBuffer table;
+
+    /**
+     * Lazily loads the default namer on first use.
+     */
+    private static final class DefaultHolder {
+        private static final ColorNamer INSTANCE = loadDefault();
+    }
+
+    /**
+     * Creates a namer for the given dictionary, using the lookup table cached in the given file,
+     * or building and caching it if the file does not hold a table for this dictionary.
+     *
+     * @param names the names of the dictionary entries
+     * @param colors the packed colors of the dictionary entries
+     * @param tableFile the cache file of the lookup table, or null to build it in memory
+     */
+    public ColorNamer(String[] names, int[] colors, Path tableFile) {
+        if (names.length != colors.length || names.length == 0 || names.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid dictionary size: " + names.length);
+        }
+
+        this.names = names.clone();
+        this.colors = colors.clone();
+        this.labs = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            OkLab.fromArgb(colors[i], labs, i * 3);
+        }
+        this.table = loadTable(tableFile);
+    }
+
+    /**
+     * Returns the namer backed by the bundled dictionary of named colors.
+     *
+     * @return the default namer
+     */
+    public static ColorNamer getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the name of the dictionary entry closest to the given color, without allocating.
+     *
+     * @param argb the packed color
+     * @return the name of the closest entry
+     */
+    public String name(int argb) {
+        int bucket = (((argb >> 19) & 0x1F) << 10) | (((argb >> 11) & 0x1F) << 5) | ((argb >> 3) & 0x1F);
+        int base = bucket * CANDIDATES_PER_BUCKET;
+        int rgb = argb | 0xFF000000;
+
+        // Refine between the candidates of the bucket
+        float[] lab = LAB_SCRATCH.get();
+        OkLab.fromArgb(rgb, lab, 0);
+        int best = table.get(base);
+        float bestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < CANDIDATES_PER_BUCKET; i++) {
+            int candidate = table.get(base + i);
+            if (colors[candidate] == rgb) {
+                return names[candidate];
+            }
+            float distance = OkLab.distanceSquared(lab, 0, labs, candidate * 3);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = candidate;
+            }
+        }
+        return names[best];
+    }
+
+    /**
+     * Returns the name of the dictionary entry closest to the given color.
+     *
+     * @param color the color
+     * @return the name of the closest entry
+     */
+    public String name(Color color) {
+        return name(PackedColors.toArgb(color));
+    }
+
+    /**
+     * Returns the number of entries in the dictionary.
+     *
+     * @return the dictionary size
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Maps the cached lookup table, or builds and caches it if the cache is missing or outdated.
+     * Falls back to an in-memory table if the cache cannot be used.
+     *
+     * @param tableFile the cache file, or null
+     * @return the lookup table
+     */
+    private ShortBuffer loadTable(Path tableFile) {
+        int dictionaryHash = 31 * Arrays.hashCode(names) + Arrays.hashCode(colors);
+        if (tableFile == null) {
+            return ShortBuffer.wrap(buildTable());
+        }
+
+        try {
+            ShortBuffer cached = mapTable(tableFile, dictionaryHash);
+            if (cached != null) {
+                return cached;
+            }
+
+            short[] entries = buildTable();
+            writeTable(tableFile, dictionaryHash, entries);
+            cached = mapTable(tableFile, dictionaryHash);
+            return cached != null ? cached : ShortBuffer.wrap(entries);
+        } catch (IOException e) {
+            System.err.println("Color name table cache unavailable: " + e.getMessage());
+            return ShortBuffer.wrap(buildTable());
+        }
+    }
+
+    /**
+     * Builds the lookup table by finding the closest dictionary entries to every bucket center.
+     *
+     * @return the candidate entry indices, {@link #CANDIDATES_PER_BUCKET} per bucket
+     */
+    private short[] buildTable() {
+        short[] entries = new short[BUCKET_COUNT * CANDIDATES_PER_BUCKET];
+        int shift = 8 - BUCKET_BITS;
+        int half = 1 << (shift - 1);
+
+        IntStream.range(0, BUCKET_COUNT).parallel().forEach(bucket -> {
+            int red = ((bucket >> (2 * BUCKET_BITS)) << shift) + half;
+            int green = (((bucket >> BUCKET_BITS) & ((1 << BUCKET_BITS) - 1)) << shift) + half;
+            int blue = ((bucket & ((1 << BUCKET_BITS) - 1)) << shift) + half;
+            float[] center = new float[3];
+            OkLab.fromArgb(PackedColors.rgb(red, green, blue), center, 0);
+
+            // Keep the closest entries sorted by distance with an insertion step per entry
+            int[] nearest = new int[CANDIDATES_PER_BUCKET];
+            float[] distances = new float[CANDIDATES_PER_BUCKET];
+            Arrays.fill(distances, Float.MAX_VALUE);
+            for (int entry = 0; entry < colors.length; entry++) {
+                float distance = OkLab.distanceSquared(center, 0, labs, entry * 3);
+                int position = CANDIDATES_PER_BUCKET;
+                while (position > 0 && distance < distances[position - 1]) {
+                    if (position < CANDIDATES_PER_BUCKET) {
+                        distances[position] = distances[position - 1];
+                        nearest[position] = nearest[position - 1];
+                    }
+                    position--;
+                }
+                if (position < CANDIDATES_PER_BUCKET) {
+                    distances[position] = distance;
+                    nearest[position] = entry;
+                }
+            }
+
+            for (int i = 0; i < CANDIDATES_PER_BUCKET; i++) {
+                // Repeat the closest entry if the dictionary is smaller than the candidate count
+                int entry = distances[i] == Float.MAX_VALUE ? nearest[0] : nearest[i];
+                entries[bucket * CANDIDATES_PER_BUCKET + i] = (short) entry;
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Memory-maps a cached lookup table.
+     *
+     * @param tableFile the cache file
+     * @param dictionaryHash the hash of the dictionary the table must have been built for
+     * @return the mapped table, or null if the file is missing or holds another table
+     * @throws IOException if the file cannot be read
+     */
+    private ShortBuffer mapTable(Path tableFile, int dictionaryHash) throws IOException {
+        if (!Files.isRegularFile(tableFile) || Files.size(tableFile) != TABLE_FILE_BYTES) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(tableFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, TABLE_FILE_BYTES);
+            if (buffer.getInt(0) != TABLE_FILE_MAGIC || buffer.getInt(4) != TABLE_FILE_VERSION
+                    || buffer.getInt(8) != dictionaryHash || buffer.getInt(12) != CANDIDATES_PER_BUCKET) {
+                return null;
+            }
+
+            ShortBuffer mapped = buffer.position(TABLE_HEADER_BYTES).slice().asShortBuffer();
+            for (int i = 0; i < mapped.limit(); i++) {
+                short entry = mapped.get(i);
+                if (entry < 0 || entry >= names.length) {
+                    return null;
+                }
+            }
+            return mapped;
+        }
+    }
+
+    /**
+     * Writes a lookup table to the cache, replacing the file atomically.
+     *
+     * @param tableFile the cache file
+     * @param dictionaryHash the hash of the dictionary the table was built for
+     * @param entries the table entries
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeTable(Path tableFile, int dictionaryHash, short[] entries) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TABLE_FILE_BYTES);
+        buffer.putInt(TABLE_FILE_MAGIC).putInt(TABLE_FILE_VERSION).putInt(dictionaryHash).putInt(CANDIDATES_PER_BUCKET);
+        buffer.asShortBuffer().put(entries);
+
+        Path temporaryFile = tableFile.resolveSibling(tableFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, buffer.array());
+        Files.move(temporaryFile, tableFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the bundled dictionary and creates the default namer.
+     *
+     * @return the default namer
+     */
+    private static ColorNamer loadDefault() {
+        List<String> names = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        try (InputStream input = ColorNamer.class.getResourceAsStream("color-names.csv")) {
+            if (input == null) {
+                throw new IllegalStateException("Missing color name dictionary");
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                int separator = line.indexOf(',');
+                if (line.isEmpty() || line.startsWith("//") || separator < 0) {
+                    continue;
+                }
+                colors.add(PackedColors.toArgb(Color.web(line.substring(0, separator))));
+                names.add(line.substring(separator + 1).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading color name dictionary", e);
+        }
+
+        Path tableFile;
+        try {
+            tableFile = CacheFiles.resolve("color-names.lut");
+        } catch (IOException e) {
+            tableFile = null;
+        }
+        return new ColorNamer(names.toArray(new String[0]),
+                colors.stream().mapToInt(Integer::intValue).toArray(), tableFile);
+    }
+}
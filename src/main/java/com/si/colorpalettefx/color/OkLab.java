@@ -0,0 +1,119 @@
+package com.si.colorpalettefx.color;
+
+/**
+ * Conversions between packed sRGB colors and the perceptual OKLab color space.
+ * <p>
+ * Euclidean distances in OKLab approximate perceived color differences, and interpolating in
+ * OKLab gives even-looking ramps. Values are written into caller-provided arrays, so converting
+ * large palettes does not allocate per color.
+ */
+public final class OkLab {
+    // sRGB channel value to linear light, for all 256 channel values
+    private static final float[] TO_LINEAR = new float[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double channel = i / 255.0;
+            TO_LINEAR[i] = (float) (channel <= 0.04045 ? channel / 12.92 : Math.pow((channel + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private OkLab() {
+    }
+
+    /**
+     * Converts a packed color to OKLab, ignoring its alpha channel.
+     *
+     * @param argb the packed ARGB value
+     * @param lab receives L, a and b at offset, offset + 1 and offset + 2
+     * @param offset the offset in the lab array
+     */
+    public static void fromArgb(int argb, float[] lab, int offset) {
+        fromLinear(TO_LINEAR[PackedColors.red(argb)], TO_LINEAR[PackedColors.green(argb)],
+                TO_LINEAR[PackedColors.blue(argb)], lab, offset);
+    }
+
+    /**
+     * Converts a color in linear sRGB to OKLab.
+     *
+     * @param red the linear red channel
+     * @param green the linear green channel
+     * @param blue the linear blue channel
+     * @param lab receives L, a and b at offset, offset + 1 and offset + 2
+     * @param offset the offset in the lab array
+     */
+    public static void fromLinear(double red, double green, double blue, float[] lab, int offset) {
+        double l = Math.cbrt(0.4122214708 * red + 0.5363325363 * green + 0.0514459929 * blue);
+        double m = Math.cbrt(0.2119034982 * red + 0.6806995451 * green + 0.1073969566 * blue);
+        double s = Math.cbrt(0.0883024619 * red + 0.2817188376 * green + 0.6299787005 * blue);
+
+        lab[offset] = (float) (0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s);
+        lab[offset + 1] = (float) (1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s);
+        lab[offset + 2] = (float) (0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s);
+    }
+
+    /**
+     * Converts an OKLab color to an opaque packed sRGB color, clipping it to the sRGB gamut.
+     *
+     * @param lightness the L component
+     * @param a the a component
+     * @param b the b component
+     * @return the packed ARGB value
+     */
+    public static int toArgb(double lightness, double a, double b) {
+        double l = lightness + 0.3963377774 * a + 0.2158037573 * b;
+        double m = lightness - 0.1055613458 * a - 0.0638541728 * b;
+        double s = lightness - 0.0894841775 * a - 1.2914855480 * b;
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        double red = 4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s;
+        double green = -1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s;
+        double blue = -0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s;
+        return PackedColors.rgb(toChannel(red), toChannel(green), toChannel(blue));
+    }
+
+    /**
+     * Returns the linear-light value of an 8-bit sRGB channel.
+     *
+     * @param channel the channel value, 0-255
+     * @return the linear value, 0.0-1.0
+     */
+    public static float toLinear(int channel) {
+        return TO_LINEAR[channel];
+    }
+
+    /**
+     * Returns the squared distance between two OKLab colors.
+     *
+     * @param lab1 the array holding the first color
+     * @param offset1 the offset of the first color
+     * @param lab2 the array holding the second color
+     * @param offset2 the offset of the second color
+     * @return the squared Euclidean distance
+     */
+    public static float distanceSquared(float[] lab1, int offset1, float[] lab2, int offset2) {
+        float dl = lab1[offset1] - lab2[offset2];
+        float da = lab1[offset1 + 1] - lab2[offset2 + 1];
+        float db = lab1[offset1 + 2] - lab2[offset2 + 2];
+        return dl * dl + da * da + db * db;
+    }
+
+    /**
+     * Encodes a linear-light value as an 8-bit sRGB channel, clipping it to 0.0-1.0.
+     *
+     * @param linear the linear value
+     * @return the channel value, 0-255
+     */
+    public static int toChannel(double linear) {
+        if (linear <= 0) {
+            return 0;
+        }
+        if (linear >= 1) {
+            return 255;
+        }
+        double encoded = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+        return (int) Math.round(encoded * 255);
+    }
+}
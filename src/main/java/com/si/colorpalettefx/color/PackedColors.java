@@ -0,0 +1,147 @@
+package com.si.colorpalettefx.color;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Helpers for colors packed into 32-bit ARGB integers, with 8 bits per channel.
+ */
+public final class PackedColors {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private PackedColors() {
+    }
+
+    /**
+     * Packs a JavaFX color into an ARGB integer, rounding every channel to 8 bits.
+     *
+     * @param color the color to pack
+     * @return the packed ARGB value
+     */
+    public static int toArgb(Color color) {
+        return (toByte(color.getOpacity()) << 24)
+                | (toByte(color.getRed()) << 16)
+                | (toByte(color.getGreen()) << 8)
+                | toByte(color.getBlue());
+    }
+
+    /**
+     * Creates a JavaFX color from an ARGB integer.
+     *
+     * @param argb the packed ARGB value
+     * @return the color
+     */
+    public static Color toColor(int argb) {
+        return Color.rgb(red(argb), green(argb), blue(argb), alpha(argb) / 255.0);
+    }
+
+    /**
+     * Formats the RGB channels of a packed color as an upper-case hex string.
+     *
+     * @param argb the packed ARGB value
+     * @return the hex string, e.g. {@code "#FF8800"}
+     */
+    public static String toHex(int argb) {
+        char[] hex = new char[7];
+        hex[0] = '#';
+        for (int i = 0; i < 6; i++) {
+            hex[6 - i] = HEX_DIGITS[(argb >> (i * 4)) & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Formats the RGB channels of a color as an upper-case hex string.
+     *
+     * @param color the color
+     * @return the hex string, e.g. {@code "#FF8800"}
+     */
+    public static String toHex(Color color) {
+        return toHex(toArgb(color));
+    }
+
+    /**
+     * Returns the alpha channel of a packed color.
+     *
+     * @param argb the packed ARGB value
+     * @return the alpha channel, 0-255
+     */
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    /**
+     * Returns the red channel of a packed color.
+     *
+     * @param argb the packed ARGB value
+     * @return the red channel, 0-255
+     */
+    public static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the green channel of a packed color.
+     *
+     * @param argb the packed ARGB value
+     * @return the green channel, 0-255
+     */
+    public static int green(int argb) {
+        return (argb >> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the blue channel of a packed color.
+     *
+     * @param argb the packed ARGB value
+     * @return the blue channel, 0-255
+     */
+    public static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    /**
+     * Parses a color code into an ARGB integer. "#RRGGBB" codes, with or without '#', are
+     * parsed directly; all other formats go through {@link Color#web(String)}.
+     *
+     * @param code the color code, e.g. {@code "#FF8800"}
+     * @return the packed ARGB value
+     * @throws IllegalArgumentException if the code is not a valid color
+     */
+    public static int parse(String code) {
+        int start = code.startsWith("#") ? 1 : 0;
+        if (code.length() - start == 6) {
+            int rgb = 0;
+            for (int i = start; i < code.length(); i++) {
+                int digit = Character.digit(code.charAt(i), 16);
+                if (digit < 0) {
+                    return toArgb(Color.web(code));
+                }
+                rgb = (rgb << 4) | digit;
+            }
+            return 0xFF000000 | rgb;
+        }
+        return toArgb(Color.web(code));
+    }
+
+    /**
+     * Packs 8-bit channels into an opaque ARGB integer.
+     *
+     * @param red the red channel, 0-255
+     * @param green the green channel, 0-255
+     * @param blue the blue channel, 0-255
+     * @return the packed ARGB value
+     */
+    public static int rgb(int red, int green, int blue) {
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Converts a color channel in the range 0.0-1.0 to 0-255.
+     *
+     * @param channel the channel value
+     * @return the rounded 8-bit channel value
+     */
+    private static int toByte(double channel) {
+        return (int) Math.round(channel * 255);
+    }
+}
@@ -0,0 +1,217 @@
+package com.si.colorpalettefx.color;
+
+import java.util.stream.IntStream;
+
+/**
+ * Shifts the hue, saturation and lightness of whole palettes, in HSL or in OKLab.
+ * <p>
+ * Adjustments run over packed ARGB arrays, in parallel for large palettes, and keep the alpha
+ * channel of every color. In OKLab the adjustments work on lightness, chroma and hue, so that a
+ * lightness change looks the same for every hue.
+ */
+public final class PaletteAdjuster {
+    /**
+     * The color spaces adjustments can be made in.
+     */
+    public enum ColorSpace {
+        HSL("HSL"),
+        OKLAB("OKLab");
+
+        private final String displayName;
+
+        ColorSpace(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /**
+         * Returns the name shown to the user.
+         *
+         * @return the display name
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * A palette-wide adjustment.
+     */
+    public static final class Adjustment {
+        private final ColorSpace colorSpace;
+        private final double hueShift;
+        private final double saturation;
+        private final double lightness;
+
+        /**
+         * Creates an adjustment.
+         *
+         * @param colorSpace the color space to adjust in
+         * @param hueShift the hue rotation in degrees
+         * @param saturation the relative saturation (chroma in OKLab) change, -1.0 to 1.0
+         * @param lightness the lightness change, -1.0 to 1.0
+         */
+        public Adjustment(ColorSpace colorSpace, double hueShift, double saturation, double lightness) {
+            this.colorSpace = colorSpace;
+            this.hueShift = hueShift;
+            this.saturation = saturation;
+            this.lightness = lightness;
+        }
+
+        /**
+         * Returns the color space to adjust in.
+         *
+         * @return the color space
+         */
+        public ColorSpace getColorSpace() {
+            return colorSpace;
+        }
+
+        /**
+         * Returns the hue rotation.
+         *
+         * @return the hue shift in degrees
+         */
+        public double getHueShift() {
+            return hueShift;
+        }
+
+        /**
+         * Returns the relative saturation change.
+         *
+         * @return the saturation change, -1.0 to 1.0
+         */
+        public double getSaturation() {
+            return saturation;
+        }
+
+        /**
+         * Returns the lightness change.
+         *
+         * @return the lightness change, -1.0 to 1.0
+         */
+        public double getLightness() {
+            return lightness;
+        }
+
+        /**
+         * Returns whether the adjustment leaves all colors unchanged.
+         *
+         * @return true if nothing is adjusted
+         */
+        public boolean isIdentity() {
+            return hueShift % 360 == 0 && saturation == 0 && lightness == 0;
+        }
+    }
+
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private PaletteAdjuster() {
+    }
+
+    /**
+     * Adjusts all colors of an array, in parallel for large arrays.
+     *
+     * @param colors the packed colors
+     * @param adjustment the adjustment
+     * @return a new array with the adjusted colors
+     */
+    public static int[] adjust(int[] colors, Adjustment adjustment) {
+        if (adjustment.isIdentity()) {
+            return colors.clone();
+        }
+
+        int[] adjusted = new int[colors.length];
+        IntStream indices = IntStream.range(0, colors.length);
+        if (colors.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> adjusted[i] = adjust(colors[i], adjustment));
+        return adjusted;
+    }
+
+    /**
+     * Adjusts a single color.
+     *
+     * @param argb the packed color
+     * @param adjustment the adjustment
+     * @return the packed adjusted color, with the alpha channel of the input
+     */
+    public static int adjust(int argb, Adjustment adjustment) {
+        int rgb = adjustment.getColorSpace() == ColorSpace.OKLAB
+                ? adjustOkLab(argb, adjustment)
+                : adjustHsl(argb, adjustment);
+        return (argb & 0xFF000000) | (rgb & 0x00FFFFFF);
+    }
+
+    /**
+     * Adjusts a color in OKLab's lightness, chroma and hue.
+     */
+    private static int adjustOkLab(int argb, Adjustment adjustment) {
+        float[] lab = new float[3];
+        OkLab.fromArgb(argb, lab, 0);
+        double lightness = clamp(lab[0] + adjustment.getLightness());
+        double chroma = Math.hypot(lab[1], lab[2]) * (1 + adjustment.getSaturation());
+        double hue = Math.atan2(lab[2], lab[1]) + Math.toRadians(adjustment.getHueShift());
+        return OkLab.toArgb(lightness, chroma * Math.cos(hue), chroma * Math.sin(hue));
+    }
+
+    /**
+     * Adjusts a color in HSL.
+     */
+    private static int adjustHsl(int argb, Adjustment adjustment) {
+        double red = PackedColors.red(argb) / 255.0;
+        double green = PackedColors.green(argb) / 255.0;
+        double blue = PackedColors.blue(argb) / 255.0;
+        double max = Math.max(red, Math.max(green, blue));
+        double min = Math.min(red, Math.min(green, blue));
+        double delta = max - min;
+
+        double lightness = (max + min) / 2;
+        double saturation = delta == 0 ? 0 : delta / (1 - Math.abs(2 * lightness - 1));
+        double hue;
+        if (delta == 0) {
+            hue = 0;
+        } else if (max == red) {
+            hue = 60 * (((green - blue) / delta) % 6);
+        } else if (max == green) {
+            hue = 60 * ((blue - red) / delta + 2);
+        } else {
+            hue = 60 * ((red - green) / delta + 4);
+        }
+
+        hue = ((hue + adjustment.getHueShift()) % 360 + 360) % 360;
+        saturation = clamp(saturation * (1 + adjustment.getSaturation()));
+        lightness = clamp(lightness + adjustment.getLightness());
+
+        // Back to RGB through chroma and the hue sector
+        double chroma = (1 - Math.abs(2 * lightness - 1)) * saturation;
+        double x = chroma * (1 - Math.abs((hue / 60) % 2 - 1));
+        double m = lightness - chroma / 2;
+        double r;
+        double g;
+        double b;
+        switch ((int) (hue / 60)) {
+            case 0 -> { r = chroma; g = x; b = 0; }
+            case 1 -> { r = x; g = chroma; b = 0; }
+            case 2 -> { r = 0; g = chroma; b = x; }
+            case 3 -> { r = 0; g = x; b = chroma; }
+            case 4 -> { r = x; g = 0; b = chroma; }
+            default -> { r = chroma; g = 0; b = x; }
+        }
+        return PackedColors.rgb(toChannel(r + m), toChannel(g + m), toChannel(b + m));
+    }
+
+    /**
+     * Limits a value to 0.0-1.0.
+     */
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * Converts a 0.0-1.0 value to a channel value.
+     */
+    private static int toChannel(double value) {
+        return (int) Math.round(clamp(value) * 255);
+    }
+}
@@ -0,0 +1,250 @@
+package com.si.colorpalettefx.color;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Maps every pixel of an image to the nearest color of a palette, optionally with ordered
+ * dithering.
+ * <p>
+ * A mapper holds a table with the index of the nearest palette color, by distance in OKLab,
+ * for every cell of a {@value #LEVELS}³ grid over the RGB cube. Mapping a pixel is a single
+ * table lookup, and images are mapped in parallel strips of rows. The OKLab
+ * colors of the cells are computed once and shared, and building a table searches the palette
+ * sorted by lightness, outwards from the cell's lightness, so switching palettes stays fast
+ * even for large ones.
+ * <p>
+ * Ordered dithering adds a threshold from an 8×8 Bayer matrix to every pixel before the lookup,
+ * spreading the error of the nearest color over neighboring pixels in a fixed pattern. Unlike
+ * error diffusion, every pixel stays independent of the others, so rows can still be mapped in
+ * parallel and the result does not change from one preview to the next.
+ */
+public final class PaletteMapper {
+    /**
+     * Number of table cells per RGB channel.
+     */
+    static final int LEVELS = 64;
+
+    private static final int LEVEL_SHIFT = 2;
+    private static final int ROWS_PER_STRIP = 16;
+
+    // The 8×8 Bayer matrix, thresholds 0-63 in row-major order
+    private static final int[] BAYER = {
+            0, 32, 8, 40, 2, 34, 10, 42,
+            48, 16, 56, 24, 50, 18, 58, 26,
+            12, 44, 4, 36, 14, 46, 6, 38,
+            60, 28, 52, 20, 62, 30, 54, 22,
+            3, 35, 11, 43, 1, 33, 9, 41,
+            51, 19, 59, 27, 49, 17, 57, 25,
+            15, 47, 7, 39, 13, 45, 5, 37,
+            63, 31, 55, 23, 61, 29, 53, 21
+    };
+
+    private final int[] colors;
+    private final int[] table;
+    private final int ditherSpread;
+
+    /**
+     * Lazily computes the OKLab colors of the table cell centers, shared by all mappers.
+     */
+    private static final class CellColors {
+        private static final float[] LABS = cellLabs();
+    }
+
+    /**
+     * Creates a mapper to the colors of a palette and builds its lookup table in parallel.
+     *
+     * @param colors the packed palette colors, at least one; alpha is ignored
+     */
+    public PaletteMapper(int[] colors) {
+        if (colors.length == 0) {
+            throw new IllegalArgumentException("Cannot map to an empty palette");
+        }
+        this.colors = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            this.colors[i] = colors[i] | 0xFF000000;
+        }
+
+        // Palette colors in OKLab, sorted by lightness
+        float[] labs = new float[colors.length * 3];
+        Integer[] order = new Integer[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            OkLab.fromArgb(this.colors[i], labs, i * 3);
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Float.compare(labs[first * 3], labs[second * 3]));
+        int[] sortedIndices = new int[colors.length];
+        float[] sortedLabs = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            sortedIndices[i] = order[i];
+            System.arraycopy(labs, order[i] * 3, sortedLabs, i * 3, 3);
+        }
+
+        table = new int[LEVELS * LEVELS * LEVELS];
+        float[] cellLabs = CellColors.LABS;
+        IntStream.range(0, LEVELS).parallel().forEach(red -> {
+            for (int cell = red * LEVELS * LEVELS; cell < (red + 1) * LEVELS * LEVELS; cell++) {
+                table[cell] = sortedIndices[nearest(sortedLabs, cellLabs, cell * 3)];
+            }
+        });
+
+        // Spread the dither thresholds over about the spacing of the palette colors per channel
+        ditherSpread = Math.max(8, (int) (255 / Math.cbrt(colors.length)));
+    }
+
+    /**
+     * Returns the number of palette colors.
+     *
+     * @return the color count
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * Returns the index of the palette color nearest to a color.
+     *
+     * @param argb the packed color
+     * @return the palette index
+     */
+    public int indexOf(int argb) {
+        return table[key(PackedColors.red(argb), PackedColors.green(argb), PackedColors.blue(argb))];
+    }
+
+    /**
+     * Maps the pixels of an image, in parallel strips of rows. Every pixel keeps its alpha.
+     *
+     * @param source the source pixels, packed ARGB, row by row
+     * @param target receives the mapped pixels; may be the source array
+     * @param width the image width
+     * @param height the image height
+     * @param dither whether to apply ordered dithering
+     */
+    public void map(int[] source, int[] target, int width, int height, boolean dither) {
+        if (source.length < width * height || target.length < width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels");
+        }
+        int strips = (height + ROWS_PER_STRIP - 1) / ROWS_PER_STRIP;
+        IntStream.range(0, strips).parallel().forEach(strip -> {
+            int endRow = Math.min(height, (strip + 1) * ROWS_PER_STRIP);
+            for (int row = strip * ROWS_PER_STRIP; row < endRow; row++) {
+                if (dither) {
+                    mapDitheredRow(source, target, row * width, width, row);
+                } else {
+                    mapRow(source, target, row * width, width);
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps a row of pixels to their nearest palette colors.
+     */
+    private void mapRow(int[] source, int[] target, int offset, int width) {
+        for (int i = offset; i < offset + width; i++) {
+            int argb = source[i];
+            int color = colors[table[key(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF)]];
+            target[i] = (argb & 0xFF000000) | (color & 0x00FFFFFF);
+        }
+    }
+
+    /**
+     * Maps a row of pixels with the Bayer thresholds of its row added.
+     */
+    private void mapDitheredRow(int[] source, int[] target, int offset, int width, int row) {
+        int bayerRow = (row & 7) * 8;
+        for (int x = 0; x < width; x++) {
+            int argb = source[offset + x];
+            int threshold = (BAYER[bayerRow + (x & 7)] * 2 - 63) * ditherSpread / 128;
+            int color = colors[table[key(clamp((argb >> 16 & 0xFF) + threshold),
+                    clamp((argb >> 8 & 0xFF) + threshold), clamp((argb & 0xFF) + threshold))]];
+            target[offset + x] = (argb & 0xFF000000) | (color & 0x00FFFFFF);
+        }
+    }
+
+    /**
+     * Converts the table cell centers to OKLab, in parallel. Called from the static initializer
+     * of {@link CellColors}; the worker threads do not wait for that initializer because the
+     * lambda is compiled into this class, not into the holder, so the computation must stay in
+     * a method of this class.
+     *
+     * @return the OKLab colors of all cells, in table order
+     */
+    private static float[] cellLabs() {
+        float[] labs = new float[LEVELS * LEVELS * LEVELS * 3];
+        IntStream.range(0, LEVELS).parallel().forEach(red -> {
+            for (int green = 0; green < LEVELS; green++) {
+                for (int blue = 0; blue < LEVELS; blue++) {
+                    OkLab.fromArgb(PackedColors.rgb(center(red), center(green), center(blue)), labs,
+                            ((red * LEVELS + green) * LEVELS + blue) * 3);
+                }
+            }
+        });
+        return labs;
+    }
+
+    /**
+     * Finds the palette color nearest to a color, searching outwards from its lightness and
+     * stopping once the lightness difference alone exceeds the best distance.
+     *
+     * @param sortedLabs the palette colors in OKLab, sorted by lightness
+     * @param lab the array holding the color in OKLab
+     * @param offset the offset of the color's lightness
+     * @return the position of the nearest color in the sorted palette
+     */
+    private static int nearest(float[] sortedLabs, float[] lab, int offset) {
+        float lightness = lab[offset];
+        int count = sortedLabs.length / 3;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedLabs[middle * 3] < lightness) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        int below = low - 1;
+        int above = low;
+        while (below >= 0 || above < count) {
+            float belowGap = below >= 0 ? lightness - sortedLabs[below * 3] : Float.MAX_VALUE;
+            float aboveGap = above < count ? sortedLabs[above * 3] - lightness : Float.MAX_VALUE;
+            int candidate = belowGap <= aboveGap ? below-- : above++;
+            float gap = Math.min(belowGap, aboveGap);
+            if (gap * gap >= bestDistance) {
+                break;
+            }
+            float distance = OkLab.distanceSquared(sortedLabs, candidate * 3, lab, offset);
+            if (distance < bestDistance) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the table index of a color.
+     */
+    private static int key(int red, int green, int blue) {
+        return ((red >> LEVEL_SHIFT) * LEVELS + (green >> LEVEL_SHIFT)) * LEVELS + (blue >> LEVEL_SHIFT);
+    }
+
+    /**
+     * Returns the channel value at the center of a table cell.
+     */
+    private static int center(int level) {
+        return (level << LEVEL_SHIFT) + (1 << LEVEL_SHIFT >> 1);
+    }
+
+    /**
+     * Limits a channel value to 0-255.
+     */
+    private static int clamp(int channel) {
+        return Math.max(0, Math.min(255, channel));
+    }
+}
@@ -0,0 +1,645 @@
+package com.si.colorpalettefx.color;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Converts colors to CMYK for print and finds colors outside the print gamut.
+ * <p>
+ * The conversion is sampled on a {@value #GRID_SIZE}³ grid over the sRGB cube. Every grid node
+ * stores its CMYK values and its gamut distance, the OKLab distance between the node and the
+ * color it prints as. Colors are converted by tetrahedral interpolation between the four nodes
+ * of the tetrahedron around them, in constant time and without allocating. The grid is built
+ * once, cached in the cache directory and read on later starts.
+ * <p>
+ * The grid is derived from the CMYK ICC profile named by the {@value #PROFILE_PROPERTY} system
+ * property, or bundled as {@code print-profile.icc} next to this class. The JDK has no CMYK
+ * profile of its own, so without one the grid comes from an approximation: an ink-mixing
+ * model of coated offset printing with process inks, medium gray component replacement and
+ * a 300% total ink limit, with the richest black mapped to black. It is good enough to warn
+ * about colors no print can reproduce, such as saturated screen blues, greens and oranges, but
+ * not for proofing.
+ */
+public final class PrintGamut {
+    /**
+     * System property with the path of the CMYK ICC profile of the printing condition.
+     */
+    public static final String PROFILE_PROPERTY = "colorpalettefx.printProfile";
+
+    /**
+     * Number of grid nodes per sRGB channel.
+     */
+    static final int GRID_SIZE = 33;
+
+    /**
+     * Gamut distance above which a color counts as out of gamut, in OKLab units. About four
+     * times the smallest noticeable difference, so only clearly visible shifts are flagged.
+     */
+    public static final float OUT_OF_GAMUT_DISTANCE = 0.04f;
+
+    // CMYK values and gamut distance per grid node
+    private static final int NODE_VALUES = 5;
+    private static final int NODE_COUNT = GRID_SIZE * GRID_SIZE * GRID_SIZE;
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final int TABLE_FILE_MAGIC = 0x43504754;
+    private static final int TABLE_FILE_VERSION = 1;
+    private static final int TABLE_HEADER_BYTES = 24;
+    private static final int TABLE_FILE_BYTES = TABLE_HEADER_BYTES + NODE_COUNT * NODE_VALUES * Float.BYTES;
+
+    // Linear reflectance of paper covered by each process ink, per sRGB channel, and the total ink limit
+    private static final double[][] INK_REFLECTANCES = {
+            {0.02, 0.38, 0.80},
+            {0.75, 0.04, 0.26},
+            {0.95, 0.82, 0.03},
+            {0.03, 0.03, 0.03}
+    };
+    private static final double TOTAL_INK_LIMIT = 3.0;
+    private static final double[] BLACK_POINT = print(new double[]{2 / 3.0, 2 / 3.0, 2 / 3.0, 1});
+    private static final long APPROXIMATION_VERSION = 1;
+
+    private final String description;
+    private final boolean approximate;
+    private final float[] table;
+
+    /**
+     * Lazily loads the default gamut on first use.
+     */
+    private static final class DefaultHolder {
+        private static final PrintGamut INSTANCE = loadDefault();
+    }
+
+    /**
+     * The CMYK values and gamut flags of an array of colors.
+     */
+    public static final class Conversion {
+        private final float[] cmyk;
+        private final float[] distances;
+        private final int outOfGamutCount;
+
+        Conversion(float[] cmyk, float[] distances) {
+            this.cmyk = cmyk;
+            this.distances = distances;
+            int count = 0;
+            for (float distance : distances) {
+                if (distance > OUT_OF_GAMUT_DISTANCE) {
+                    count++;
+                }
+            }
+            this.outOfGamutCount = count;
+        }
+
+        /**
+         * Returns the number of converted colors.
+         *
+         * @return the color count
+         */
+        public int size() {
+            return distances.length;
+        }
+
+        /**
+         * Copies the CMYK values of a color.
+         *
+         * @param index the index of the color
+         * @param values receives cyan, magenta, yellow and black, 0.0-1.0
+         */
+        public void getCmyk(int index, float[] values) {
+            System.arraycopy(cmyk, index * 4, values, 0, 4);
+        }
+
+        /**
+         * Formats the CMYK values of a color as percentages.
+         *
+         * @param index the index of the color
+         * @return the CMYK values, e.g. {@code "C 12% M 40% Y 0% K 5%"}
+         */
+        public String format(int index) {
+            return formatCmyk(cmyk, index * 4);
+        }
+
+        /**
+         * Returns the gamut distance of a color.
+         *
+         * @param index the index of the color
+         * @return the OKLab distance to the printed color
+         */
+        public float getGamutDistance(int index) {
+            return distances[index];
+        }
+
+        /**
+         * Returns whether a color cannot be printed without a visible shift.
+         *
+         * @param index the index of the color
+         * @return true if the color is out of gamut
+         */
+        public boolean isOutOfGamut(int index) {
+            return distances[index] > OUT_OF_GAMUT_DISTANCE;
+        }
+
+        /**
+         * Returns the number of colors out of gamut.
+         *
+         * @return the out-of-gamut count
+         */
+        public int getOutOfGamutCount() {
+            return outOfGamutCount;
+        }
+    }
+
+    /**
+     * Converts the colors of sRGB grid nodes to CMYK and back. Both arrays hold 16-bit
+     * channel values.
+     */
+    private interface PrintModel {
+        void convert(int[] rgb, int[] cmyk, int[] printedRgb);
+    }
+
+    private PrintGamut(String description, boolean approximate, float[] table) {
+        this.description = description;
+        this.approximate = approximate;
+        this.table = table;
+    }
+
+    /**
+     * Returns the gamut of the configured printing condition.
+     *
+     * @return the default gamut
+     */
+    public static PrintGamut getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates the gamut of an ICC profile, using the grid cached in the given file, or building
+     * and caching it if the file does not hold a grid for this profile.
+     *
+     * @param profile the CMYK output profile
+     * @param tableFile the cache file of the grid, or null to build it in memory
+     * @return the gamut
+     */
+    public static PrintGamut fromProfile(ICC_Profile profile, Path tableFile) {
+        if (profile.getColorSpaceType() != ColorSpace.TYPE_CMYK) {
+            throw new IllegalArgumentException("Not a CMYK profile");
+        }
+        byte[] data = profile.getData();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        long sourceHash = (long) data.length << 32 | crc.getValue() & 0xFFFFFFFFL;
+        return new PrintGamut("ICC profile", false, loadTable(tableFile, sourceHash, () -> iccModel(profile)));
+    }
+
+    /**
+     * Creates the approximate gamut of coated offset printing, for when no profile is available.
+     *
+     * @param tableFile the cache file of the grid, or null to build it in memory
+     * @return the gamut
+     */
+    public static PrintGamut approximate(Path tableFile) {
+        return new PrintGamut("Approximate coated offset, no ICC profile", true,
+                loadTable(tableFile, APPROXIMATION_VERSION, () -> PrintGamut::approximateConvert));
+    }
+
+    /**
+     * Returns a description of the printing condition.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns whether the gamut comes from the built-in approximation rather than an ICC
+     * profile, so its CMYK values are only estimates.
+     *
+     * @return true if the gamut is approximate
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Converts a color to CMYK.
+     *
+     * @param argb the packed color
+     * @param cmyk receives cyan, magenta, yellow and black, 0.0-1.0, at offset to offset + 3
+     * @param offset the offset in the cmyk array
+     * @return the gamut distance, the OKLab distance between the color and its print
+     */
+    public float toCmyk(int argb, float[] cmyk, int offset) {
+        return interpolate(argb, cmyk, offset);
+    }
+
+    /**
+     * Returns whether a color can be printed without a visible shift.
+     *
+     * @param argb the packed color
+     * @return true if the color is in gamut
+     */
+    public boolean isInGamut(int argb) {
+        return interpolate(argb, null, 0) <= OUT_OF_GAMUT_DISTANCE;
+    }
+
+    /**
+     * Converts an array of colors, in parallel for large arrays.
+     *
+     * @param colors the packed colors
+     * @return the CMYK values and gamut distances
+     */
+    public Conversion convert(int[] colors) {
+        float[] cmyk = new float[colors.length * 4];
+        float[] distances = new float[colors.length];
+        IntStream indices = IntStream.range(0, colors.length);
+        if (colors.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> distances[i] = interpolate(colors[i], cmyk, i * 4));
+        return new Conversion(cmyk, distances);
+    }
+
+    /**
+     * Formats CMYK values as percentages.
+     *
+     * @param cmyk the array holding cyan, magenta, yellow and black, 0.0-1.0
+     * @param offset the offset of cyan
+     * @return the CMYK values, e.g. {@code "C 12% M 40% Y 0% K 5%"}
+     */
+    public static String formatCmyk(float[] cmyk, int offset) {
+        return "C " + Math.round(cmyk[offset] * 100) + "% M " + Math.round(cmyk[offset + 1] * 100)
+                + "% Y " + Math.round(cmyk[offset + 2] * 100) + "% K " + Math.round(cmyk[offset + 3] * 100) + "%";
+    }
+
+    /**
+     * Interpolates the grid values of a color between the four nodes of the tetrahedron
+     * around it.
+     *
+     * @param argb the packed color
+     * @param cmyk receives the CMYK values, or null
+     * @param offset the offset in the cmyk array
+     * @return the interpolated gamut distance
+     */
+    private float interpolate(int argb, float[] cmyk, int offset) {
+        float x = PackedColors.red(argb) * (GRID_SIZE - 1) / 255f;
+        float y = PackedColors.green(argb) * (GRID_SIZE - 1) / 255f;
+        float z = PackedColors.blue(argb) * (GRID_SIZE - 1) / 255f;
+        int x0 = Math.min((int) x, GRID_SIZE - 2);
+        int y0 = Math.min((int) y, GRID_SIZE - 2);
+        int z0 = Math.min((int) z, GRID_SIZE - 2);
+        float dx = x - x0;
+        float dy = y - y0;
+        float dz = z - z0;
+
+        // Node index steps along each axis
+        int stepX = GRID_SIZE * GRID_SIZE * NODE_VALUES;
+        int stepY = GRID_SIZE * NODE_VALUES;
+        int stepZ = NODE_VALUES;
+
+        // Walk from the lowest to the highest corner along the axes in order of their fractions
+        int first;
+        int second;
+        float f1;
+        float f2;
+        float f3;
+        if (dx >= dy) {
+            if (dy >= dz) {
+                first = stepX; second = stepX + stepY; f1 = dx; f2 = dy; f3 = dz;
+            } else if (dx >= dz) {
+                first = stepX; second = stepX + stepZ; f1 = dx; f2 = dz; f3 = dy;
+            } else {
+                first = stepZ; second = stepX + stepZ; f1 = dz; f2 = dx; f3 = dy;
+            }
+        } else {
+            if (dz >= dy) {
+                first = stepZ; second = stepY + stepZ; f1 = dz; f2 = dy; f3 = dx;
+            } else if (dz >= dx) {
+                first = stepY; second = stepY + stepZ; f1 = dy; f2 = dz; f3 = dx;
+            } else {
+                first = stepY; second = stepX + stepY; f1 = dy; f2 = dx; f3 = dz;
+            }
+        }
+        float w0 = 1 - f1;
+        float w1 = f1 - f2;
+        float w2 = f2 - f3;
+
+        int base = x0 * stepX + y0 * stepY + z0 * stepZ;
+        int last = base + stepX + stepY + stepZ;
+        first += base;
+        second += base;
+        if (cmyk != null) {
+            for (int i = 0; i < 4; i++) {
+                cmyk[offset + i] = w0 * table[base + i] + w1 * table[first + i] + w2 * table[second + i]
+                        + f3 * table[last + i];
+            }
+        }
+        return w0 * table[base + 4] + w1 * table[first + 4] + w2 * table[second + 4] + f3 * table[last + 4];
+    }
+
+    /**
+     * Reads the cached grid, or builds and caches it if the cache is missing or outdated.
+     * Falls back to an in-memory grid if the cache cannot be used.
+     */
+    private static float[] loadTable(Path tableFile, long sourceHash, Supplier<PrintModel> model) {
+        if (tableFile == null) {
+            return buildTable(model.get());
+        }
+
+        try {
+            float[] cached = readTable(tableFile, sourceHash);
+            if (cached != null) {
+                return cached;
+            }
+            float[] table = buildTable(model.get());
+            writeTable(tableFile, sourceHash, table);
+            return table;
+        } catch (IOException e) {
+            System.err.println("Print gamut cache unavailable: " + e.getMessage());
+            return buildTable(model.get());
+        }
+    }
+
+    /**
+     * Samples a print model at every grid node.
+     */
+    private static float[] buildTable(PrintModel model) {
+        int[] rgb = new int[NODE_COUNT * 3];
+        for (int node = 0; node < NODE_COUNT; node++) {
+            rgb[node * 3] = nodeChannel(node / (GRID_SIZE * GRID_SIZE));
+            rgb[node * 3 + 1] = nodeChannel((node / GRID_SIZE) % GRID_SIZE);
+            rgb[node * 3 + 2] = nodeChannel(node % GRID_SIZE);
+        }
+        int[] cmyk = new int[NODE_COUNT * 4];
+        int[] printedRgb = new int[NODE_COUNT * 3];
+        model.convert(rgb, cmyk, printedRgb);
+
+        float[] table = new float[NODE_COUNT * NODE_VALUES];
+        IntStream.range(0, NODE_COUNT).parallel().forEach(node -> {
+            for (int i = 0; i < 4; i++) {
+                table[node * NODE_VALUES + i] = cmyk[node * 4 + i] / 65535f;
+            }
+            float[] labs = new float[6];
+            OkLab.fromLinear(linear(rgb[node * 3]), linear(rgb[node * 3 + 1]), linear(rgb[node * 3 + 2]), labs, 0);
+            OkLab.fromLinear(linear(printedRgb[node * 3]), linear(printedRgb[node * 3 + 1]),
+                    linear(printedRgb[node * 3 + 2]), labs, 3);
+            table[node * NODE_VALUES + 4] = (float) Math.sqrt(OkLab.distanceSquared(labs, 0, labs, 3));
+        });
+        return table;
+    }
+
+    /**
+     * Returns the 16-bit sRGB channel value of a grid coordinate.
+     */
+    private static int nodeChannel(int coordinate) {
+        return Math.round(coordinate * 65535f / (GRID_SIZE - 1));
+    }
+
+    /**
+     * Converts a 16-bit sRGB channel value to linear light.
+     */
+    private static double linear(int channel) {
+        double value = channel / 65535.0;
+        return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+    }
+
+    /**
+     * Converts a linear-light value to a 16-bit sRGB channel value.
+     */
+    private static int encode(double linear) {
+        double clipped = Math.max(0, Math.min(1, linear));
+        double value = clipped <= 0.0031308 ? 12.92 * clipped : 1.055 * Math.pow(clipped, 1 / 2.4) - 0.055;
+        return (int) Math.round(value * 65535);
+    }
+
+    /**
+     * Creates a model converting all grid nodes through an ICC profile at once, with the
+     * profile's default rendering intent.
+     */
+    private static PrintModel iccModel(ICC_Profile profile) {
+        return (rgb, cmyk, printedRgb) -> {
+            ICC_Profile sRgb = ICC_Profile.getInstance(ColorSpace.CS_sRGB);
+            WritableRaster rgbRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, NODE_COUNT, 1, 3, null);
+            WritableRaster cmykRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, NODE_COUNT, 1, 4, null);
+            WritableRaster printedRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, NODE_COUNT, 1, 3, null);
+            rgbRaster.setPixels(0, 0, NODE_COUNT, 1, rgb);
+            new ColorConvertOp(new ICC_Profile[]{sRgb, profile}, null).filter(rgbRaster, cmykRaster);
+            new ColorConvertOp(new ICC_Profile[]{profile, sRgb}, null).filter(cmykRaster, printedRaster);
+            cmykRaster.getPixels(0, 0, NODE_COUNT, 1, cmyk);
+            printedRaster.getPixels(0, 0, NODE_COUNT, 1, printedRgb);
+        };
+    }
+
+    /**
+     * Converts all grid nodes with the ink-mixing approximation. Like a relative colorimetric
+     * transform with black point compensation, the paper prints as white and the richest black
+     * as black.
+     */
+    private static void approximateConvert(int[] rgb, int[] cmyk, int[] printedRgb) {
+        IntStream.range(0, NODE_COUNT).parallel().forEach(node -> {
+            double[] target = new double[3];
+            for (int channel = 0; channel < 3; channel++) {
+                double value = linear(rgb[node * 3 + channel]);
+                target[channel] = BLACK_POINT[channel] + value * (1 - BLACK_POINT[channel]);
+            }
+            int lightest = Math.max(rgb[node * 3], Math.max(rgb[node * 3 + 1], rgb[node * 3 + 2]));
+            double[] inks = separate(target, 1 - lightest / 65535.0);
+            double[] printed = print(inks);
+            for (int channel = 0; channel < 3; channel++) {
+                printed[channel] = (printed[channel] - BLACK_POINT[channel]) / (1 - BLACK_POINT[channel]);
+            }
+            for (int i = 0; i < 4; i++) {
+                cmyk[node * 4 + i] = (int) Math.round(inks[i] * 65535);
+            }
+            for (int channel = 0; channel < 3; channel++) {
+                printedRgb[node * 3 + channel] = encode(printed[channel]);
+            }
+        });
+    }
+
+    /**
+     * Returns the linear sRGB color printed with the given ink coverages, with every ink
+     * filtering the light reflected by the paper.
+     */
+    private static double[] print(double[] inks) {
+        double[] reflectance = {1, 1, 1};
+        for (int ink = 0; ink < 4; ink++) {
+            for (int channel = 0; channel < 3; channel++) {
+                reflectance[channel] *= 1 - inks[ink] * (1 - INK_REFLECTANCES[ink][channel]);
+            }
+        }
+        return reflectance;
+    }
+
+    /**
+     * Finds the ink coverages that print closest to a linear sRGB color: black from gray
+     * component replacement, then cyan, magenta and yellow by Newton's method on the
+     * logarithm of the reflectance, within the coverage and total ink limits.
+     *
+     * @param target the linear color to print
+     * @param fullBlack the black coverage that replaces the whole gray component
+     */
+    private static double[] separate(double[] target, double fullBlack) {
+        // Medium replacement first; no replacement or full replacement for colors it cannot reach
+        double[] best = null;
+        double bestError = Double.MAX_VALUE;
+        for (double black : new double[]{0.6 * fullBlack, 0, fullBlack}) {
+            double[] inks = separateColors(target, black);
+            double error = logError(target, print(inks));
+            if (error < bestError - 1e-9) {
+                best = inks;
+                bestError = error;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Solves cyan, magenta and yellow for a given black coverage.
+     */
+    private static double[] separateColors(double[] target, double black) {
+        double[] inks = {1 - Math.pow(target[0], 1 / 2.2), 1 - Math.pow(target[1], 1 / 2.2),
+                1 - Math.pow(target[2], 1 / 2.2), black};
+        double[] residual = new double[3];
+        double[][] jacobian = new double[3][3];
+        for (int iteration = 0; iteration < 30; iteration++) {
+            double[] printed = print(inks);
+            for (int channel = 0; channel < 3; channel++) {
+                residual[channel] = Math.log(Math.max(printed[channel], 1e-6)) - Math.log(Math.max(target[channel], 1e-6));
+                for (int ink = 0; ink < 3; ink++) {
+                    double absorbed = 1 - INK_REFLECTANCES[ink][channel];
+                    jacobian[channel][ink] = -absorbed / (1 - inks[ink] * absorbed);
+                }
+            }
+            double[] step = solve(jacobian, residual);
+            if (step == null) {
+                break;
+            }
+            double change = 0;
+            for (int ink = 0; ink < 3; ink++) {
+                double updated = Math.max(0, Math.min(1, inks[ink] - step[ink]));
+                change = Math.max(change, Math.abs(updated - inks[ink]));
+                inks[ink] = updated;
+            }
+            if (change < 1e-6) {
+                break;
+            }
+        }
+
+        double total = inks[0] + inks[1] + inks[2] + inks[3];
+        if (total > TOTAL_INK_LIMIT) {
+            double scale = (TOTAL_INK_LIMIT - inks[3]) / (total - inks[3]);
+            for (int ink = 0; ink < 3; ink++) {
+                inks[ink] *= scale;
+            }
+        }
+        return inks;
+    }
+
+    /**
+     * Returns the squared difference of two linear colors on a logarithmic scale.
+     */
+    private static double logError(double[] target, double[] printed) {
+        double error = 0;
+        for (int channel = 0; channel < 3; channel++) {
+            double difference = Math.log(Math.max(printed[channel], 1e-4)) - Math.log(Math.max(target[channel], 1e-4));
+            error += difference * difference;
+        }
+        return error;
+    }
+
+    /**
+     * Solves a 3×3 linear system with Cramer's rule.
+     *
+     * @return the solution, or null if the matrix is singular
+     */
+    private static double[] solve(double[][] m, double[] v) {
+        double determinant = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+        if (Math.abs(determinant) < 1e-12) {
+            return null;
+        }
+        double[] solution = new double[3];
+        for (int column = 0; column < 3; column++) {
+            double[][] replaced = {m[0].clone(), m[1].clone(), m[2].clone()};
+            for (int row = 0; row < 3; row++) {
+                replaced[row][column] = v[row];
+            }
+            solution[column] = (replaced[0][0] * (replaced[1][1] * replaced[2][2] - replaced[1][2] * replaced[2][1])
+                    - replaced[0][1] * (replaced[1][0] * replaced[2][2] - replaced[1][2] * replaced[2][0])
+                    + replaced[0][2] * (replaced[1][0] * replaced[2][1] - replaced[1][1] * replaced[2][0])) / determinant;
+        }
+        return solution;
+    }
+
+    /**
+     * Reads a cached grid.
+     *
+     * @return the grid, or null if the file is missing or holds another grid
+     */
+    private static float[] readTable(Path tableFile, long sourceHash) throws IOException {
+        if (!Files.isRegularFile(tableFile) || Files.size(tableFile) != TABLE_FILE_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tableFile));
+        if (buffer.getInt(0) != TABLE_FILE_MAGIC || buffer.getInt(4) != TABLE_FILE_VERSION
+                || buffer.getLong(8) != sourceHash || buffer.getInt(16) != GRID_SIZE) {
+            return null;
+        }
+        float[] table = new float[NODE_COUNT * NODE_VALUES];
+        buffer.position(TABLE_HEADER_BYTES).asFloatBuffer().get(table);
+        return table;
+    }
+
+    /**
+     * Writes a grid to the cache, replacing the file atomically.
+     */
+    private static void writeTable(Path tableFile, long sourceHash, float[] table) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TABLE_FILE_BYTES);
+        buffer.putInt(TABLE_FILE_MAGIC).putInt(TABLE_FILE_VERSION).putLong(sourceHash).putInt(GRID_SIZE).putInt(0);
+        buffer.asFloatBuffer().put(table);
+
+        Path temporaryFile = tableFile.resolveSibling(tableFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, buffer.array());
+        Files.move(temporaryFile, tableFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the configured profile, or falls back to the approximation.
+     *
+     * @return the default gamut
+     */
+    private static PrintGamut loadDefault() {
+        Path tableFile;
+        try {
+            tableFile = CacheFiles.resolve("print-gamut.lut");
+        } catch (IOException e) {
+            tableFile = null;
+        }
+
+        String profilePath = System.getProperty(PROFILE_PROPERTY);
+        try (InputStream input = profilePath != null
+                ? Files.newInputStream(Path.of(profilePath))
+                : PrintGamut.class.getResourceAsStream("print-profile.icc")) {
+            if (input != null) {
+                return fromProfile(ICC_Profile.getInstance(input), tableFile);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Print profile unavailable, using the approximation: " + e.getMessage());
+        }
+        return approximate(tableFile);
+    }
+}
@@ -0,0 +1,170 @@
+package com.si.colorpalettefx.color;
+
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Generates tonal ramps and multi-stop gradients by interpolating in OKLab, so that the steps
+ * look evenly spaced.
+ * <p>
+ * All generators work on packed ARGB arrays; {@link #generateRamps} turns whole palettes into
+ * ramp palettes in one parallel batch.
+ */
+public final class RampGenerator {
+    /**
+     * The shade levels of a design-system ramp, from lightest to darkest.
+     */
+    public static final int[] STANDARD_SHADES = {50, 100, 200, 300, 400, 500, 600, 700, 800, 900};
+
+    // OKLab lightness of the lightest and darkest shade
+    private static final double LIGHTEST = 0.97;
+    private static final double DARKEST = 0.25;
+    private static final int MIN_SHADE = 50;
+    private static final int MAX_SHADE = 900;
+
+    private RampGenerator() {
+    }
+
+    /**
+     * Creates a tonal ramp of a color: the hue is kept, the lightness follows the shade levels,
+     * and the chroma is reduced towards the light and dark ends to stay displayable.
+     *
+     * @param argb the base color
+     * @param shades the shade levels, 50 (lightest) to 900 (darkest)
+     * @return the packed colors of the ramp, one per shade
+     */
+    public static int[] ramp(int argb, int[] shades) {
+        float[] lab = new float[3];
+        OkLab.fromArgb(argb, lab, 0);
+        double baseLightness = Math.min(0.99, Math.max(0.01, lab[0]));
+        double chroma = Math.hypot(lab[1], lab[2]);
+        double hue = Math.atan2(lab[2], lab[1]);
+        double baseEnvelope = baseLightness * (1 - baseLightness);
+
+        int[] ramp = new int[shades.length];
+        for (int i = 0; i < shades.length; i++) {
+            double position = (double) (clampShade(shades[i]) - MIN_SHADE) / (MAX_SHADE - MIN_SHADE);
+            double lightness = LIGHTEST - position * (LIGHTEST - DARKEST);
+            double shadeChroma = chroma * Math.min(1.5, lightness * (1 - lightness) / baseEnvelope);
+            ramp[i] = OkLab.toArgb(lightness, shadeChroma * Math.cos(hue), shadeChroma * Math.sin(hue));
+        }
+        return ramp;
+    }
+
+    /**
+     * Creates a gradient through the given stops, evenly spaced in steps and interpolated in
+     * OKLab. The first and last colors of the gradient are the first and last stops.
+     *
+     * @param stops the packed colors to pass through, at least one
+     * @param steps the number of colors in the gradient, at least 2
+     * @return the packed colors of the gradient
+     */
+    public static int[] gradient(int[] stops, int steps) {
+        if (stops.length == 0 || steps < 2) {
+            throw new IllegalArgumentException("A gradient needs at least one stop and two steps");
+        }
+        if (stops.length == 1) {
+            int[] gradient = new int[steps];
+            Arrays.fill(gradient, stops[0] | 0xFF000000);
+            return gradient;
+        }
+
+        float[] labs = new float[stops.length * 3];
+        for (int i = 0; i < stops.length; i++) {
+            OkLab.fromArgb(stops[i], labs, i * 3);
+        }
+
+        int[] gradient = new int[steps];
+        int segments = stops.length - 1;
+        for (int i = 0; i < steps; i++) {
+            double position = (double) i / (steps - 1) * segments;
+            int segment = Math.min(segments - 1, (int) position);
+            double t = position - segment;
+            int from = segment * 3;
+            int to = from + 3;
+            gradient[i] = OkLab.toArgb(
+                    labs[from] + (labs[to] - labs[from]) * t,
+                    labs[from + 1] + (labs[to + 1] - labs[from + 1]) * t,
+                    labs[from + 2] + (labs[to + 2] - labs[from + 2]) * t);
+        }
+        return gradient;
+    }
+
+    /**
+     * Creates a ramp palette for every color of the given palettes, in parallel. The ramps are
+     * named "palette / color" and their colors "color shade", e.g. "Brand / Blue 500".
+     *
+     * @param palettes the palettes whose colors get ramps
+     * @param shades the shade levels of every ramp
+     * @return the ramp palettes, in the order of the palettes and their colors
+     */
+    public static List<ColorPalette> generateRamps(List<ColorPalette> palettes, int[] shades) {
+        // Flatten the palettes into primitive arrays first, so the parallel part only reads arrays
+        List<List<NamedColor>> namedColorLists = new ArrayList<>(palettes.size());
+        int colorCount = 0;
+        for (ColorPalette palette : palettes) {
+            List<NamedColor> namedColors = palette.getNamedColors();
+            namedColorLists.add(namedColors);
+            colorCount += namedColors.size();
+        }
+        String[] paletteNames = new String[colorCount];
+        String[] colorNames = new String[colorCount];
+        int[] colors = new int[colorCount];
+        int index = 0;
+        for (int paletteIndex = 0; paletteIndex < palettes.size(); paletteIndex++) {
+            String paletteName = palettes.get(paletteIndex).getName();
+            for (NamedColor namedColor : namedColorLists.get(paletteIndex)) {
+                paletteNames[index] = paletteName;
+                colorNames[index] = namedColor.getName();
+                colors[index] = PackedColors.toArgb(namedColor.getColor());
+                index++;
+            }
+        }
+
+        ColorPalette[] ramps = new ColorPalette[colorCount];
+        IntStream.range(0, ramps.length).parallel().forEach(i -> {
+            String colorName = colorNames[i];
+            String[] shadeNames = new String[shades.length];
+            for (int shade = 0; shade < shades.length; shade++) {
+                shadeNames[shade] = colorName + " " + shades[shade];
+            }
+            ramps[i] = new ColorPalette(paletteNames[i] + " / " + colorName,
+                    ramp(colors[i], shades), shadeNames);
+        });
+        return Arrays.asList(ramps);
+    }
+
+    /**
+     * Creates a gradient palette through the colors of a palette.
+     *
+     * @param palette the palette whose colors are the gradient stops
+     * @param steps the number of colors in the gradient, at least 2
+     * @return the gradient palette, named "palette Gradient"; its colors are named automatically
+     */
+    public static ColorPalette generateGradient(ColorPalette palette, int steps) {
+        int[] stops = palette.getColors().stream().mapToInt(PackedColors::toArgb).toArray();
+        int[] gradient = gradient(stops, steps);
+
+        ColorNamer namer = ColorNamer.getDefault();
+        String[] names = new String[gradient.length];
+        for (int i = 0; i < gradient.length; i++) {
+            names[i] = namer.name(gradient[i]);
+        }
+        return new ColorPalette(palette.getName() + " Gradient", gradient, names);
+    }
+
+    /**
+     * Limits a shade level to the supported range.
+     *
+     * @param shade the shade level
+     * @return the shade level within 50-900
+     */
+    private static int clampShade(int shade) {
+        return Math.max(MIN_SHADE, Math.min(MAX_SHADE, shade));
+    }
+}
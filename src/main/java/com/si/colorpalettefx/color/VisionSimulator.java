@@ -0,0 +1,332 @@
+package com.si.colorpalettefx.color;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Simulates how colors are seen with color vision deficiencies.
+ * <p>
+ * The simulation uses the full-severity matrices of Machado, Oliveira and Fernandes (2009) in
+ * linear RGB. Rather than running the conversion for every color, each deficiency is sampled
+ * once into a 33×33×33 lookup table over sRGB, and colors are simulated by trilinear
+ * interpolation between the eight surrounding samples.
+ */
+public final class VisionSimulator {
+    /**
+     * The simulated color vision deficiencies.
+     */
+    public enum Deficiency {
+        NONE("Normal Vision", null),
+        PROTANOPIA("Protanopia", new double[]{
+                0.152286, 1.052583, -0.204868,
+                0.114503, 0.786281, 0.099216,
+                -0.003882, -0.048116, 1.051998}),
+        DEUTERANOPIA("Deuteranopia", new double[]{
+                0.367322, 0.860646, -0.227968,
+                0.280085, 0.672501, 0.047413,
+                -0.011820, 0.042940, 0.968881}),
+        TRITANOPIA("Tritanopia", new double[]{
+                1.255528, -0.076749, -0.178779,
+                -0.078411, 0.930809, 0.147602,
+                0.004733, 0.691367, 0.303900});
+
+        private final String displayName;
+        private final double[] matrix;
+
+        Deficiency(String displayName, double[] matrix) {
+            this.displayName = displayName;
+            this.matrix = matrix;
+        }
+
+        /**
+         * Returns the name shown to the user.
+         *
+         * @return the display name
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Two colors of a palette that are distinguishable with normal vision, but not with the
+     * simulated deficiency.
+     */
+    public static final class ConfusablePair {
+        private final int first;
+        private final int second;
+        private final float distance;
+
+        private ConfusablePair(int first, int second, float distance) {
+            this.first = first;
+            this.second = second;
+            this.distance = distance;
+        }
+
+        /**
+         * Returns the index of the first color.
+         *
+         * @return the index of the first color
+         */
+        public int getFirst() {
+            return first;
+        }
+
+        /**
+         * Returns the index of the second color.
+         *
+         * @return the index of the second color
+         */
+        public int getSecond() {
+            return second;
+        }
+
+        /**
+         * Returns the OKLab distance between the simulated colors.
+         *
+         * @return the simulated distance
+         */
+        public float getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * The OKLab distance below which two colors are considered indistinguishable.
+     */
+    public static final float DEFAULT_CONFUSION_THRESHOLD = 0.04f;
+
+    private static final int GRID_SIZE = 33;
+    private static final double GRID_STEP = 255.0 / (GRID_SIZE - 1);
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final Map<Deficiency, float[]> TABLES = new EnumMap<>(Deficiency.class);
+
+    private VisionSimulator() {
+    }
+
+    /**
+     * Simulates a single color.
+     *
+     * @param deficiency the simulated deficiency
+     * @param argb the packed color
+     * @return the packed simulated color, with the alpha channel of the input
+     */
+    public static int simulate(Deficiency deficiency, int argb) {
+        if (deficiency == Deficiency.NONE) {
+            return argb;
+        }
+        return interpolate(table(deficiency), argb);
+    }
+
+    /**
+     * Simulates all colors of an array, in parallel for large arrays.
+     *
+     * @param deficiency the simulated deficiency
+     * @param colors the packed colors
+     * @return a new array with the packed simulated colors
+     */
+    public static int[] simulate(Deficiency deficiency, int[] colors) {
+        int[] simulated = new int[colors.length];
+        if (deficiency == Deficiency.NONE) {
+            System.arraycopy(colors, 0, simulated, 0, colors.length);
+            return simulated;
+        }
+
+        float[] table = table(deficiency);
+        IntStream indices = IntStream.range(0, colors.length);
+        if (colors.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> simulated[i] = interpolate(table, colors[i]));
+        return simulated;
+    }
+
+    /**
+     * Finds the pairs of colors that are at least the threshold apart with normal vision, but
+     * closer than the threshold once simulated. Colors are bucketed into an OKLab grid with the
+     * threshold as cell size, so only colors in neighboring cells are compared.
+     *
+     * @param deficiency the simulated deficiency
+     * @param colors the packed colors of a palette
+     * @param threshold the OKLab distance below which colors are indistinguishable
+     * @param limit the maximum number of pairs to report
+     * @return the confusable pairs, at most limit
+     */
+    public static List<ConfusablePair> findConfusablePairs(Deficiency deficiency, int[] colors, float threshold, int limit) {
+        List<ConfusablePair> pairs = new ArrayList<>();
+        int[] simulated = simulate(deficiency, colors);
+        float[] originalLabs = new float[colors.length * 3];
+        float[] simulatedLabs = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            OkLab.fromArgb(colors[i], originalLabs, i * 3);
+            OkLab.fromArgb(simulated[i], simulatedLabs, i * 3);
+        }
+
+        // Bucket the simulated colors; a pair closer than the threshold is in adjacent cells
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int i = 0; i < colors.length; i++) {
+            cells.computeIfAbsent(cellKey(simulatedLabs, i * 3, threshold, 0, 0, 0), key -> new ArrayList<>()).add(i);
+        }
+
+        float thresholdSquared = threshold * threshold;
+        for (int i = 0; i < colors.length && pairs.size() < limit; i++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        List<Integer> cell = cells.get(cellKey(simulatedLabs, i * 3, threshold, dx, dy, dz));
+                        if (cell == null) {
+                            continue;
+                        }
+                        for (int j : cell) {
+                            if (j <= i || pairs.size() >= limit) {
+                                continue;
+                            }
+                            float simulatedDistance = OkLab.distanceSquared(simulatedLabs, i * 3, simulatedLabs, j * 3);
+                            if (simulatedDistance < thresholdSquared
+                                    && OkLab.distanceSquared(originalLabs, i * 3, originalLabs, j * 3) >= thresholdSquared) {
+                                pairs.add(new ConfusablePair(i, j, (float) Math.sqrt(simulatedDistance)));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns the key of the grid cell of an OKLab color, offset by the given number of cells.
+     */
+    private static long cellKey(float[] labs, int offset, float cellSize, int dx, int dy, int dz) {
+        long x = (long) Math.floor(labs[offset] / cellSize) + dx;
+        long y = (long) Math.floor(labs[offset + 1] / cellSize) + dy;
+        long z = (long) Math.floor(labs[offset + 2] / cellSize) + dz;
+        return (x & 0x1FFFFF) << 42 | (y & 0x1FFFFF) << 21 | (z & 0x1FFFFF);
+    }
+
+    /**
+     * Returns the lookup table of a deficiency, building it on first use.
+     *
+     * @param deficiency the deficiency
+     * @return the simulated sRGB channels (0-255) of every grid point
+     */
+    private static float[] table(Deficiency deficiency) {
+        synchronized (TABLES) {
+            return TABLES.computeIfAbsent(deficiency, VisionSimulator::buildTable);
+        }
+    }
+
+    /**
+     * Samples the simulation of a deficiency at every point of the grid.
+     *
+     * @param deficiency the deficiency
+     * @return the lookup table
+     */
+    private static float[] buildTable(Deficiency deficiency) {
+        double[] matrix = deficiency.matrix;
+        float[] table = new float[GRID_SIZE * GRID_SIZE * GRID_SIZE * 3];
+        for (int r = 0; r < GRID_SIZE; r++) {
+            double red = linear(r * GRID_STEP);
+            for (int g = 0; g < GRID_SIZE; g++) {
+                double green = linear(g * GRID_STEP);
+                for (int b = 0; b < GRID_SIZE; b++) {
+                    double blue = linear(b * GRID_STEP);
+                    int index = ((r * GRID_SIZE + g) * GRID_SIZE + b) * 3;
+                    table[index] = encode(matrix[0] * red + matrix[1] * green + matrix[2] * blue);
+                    table[index + 1] = encode(matrix[3] * red + matrix[4] * green + matrix[5] * blue);
+                    table[index + 2] = encode(matrix[6] * red + matrix[7] * green + matrix[8] * blue);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Simulates a color by trilinear interpolation in a lookup table.
+     *
+     * @param table the lookup table
+     * @param argb the packed color
+     * @return the packed simulated color
+     */
+    private static int interpolate(float[] table, int argb) {
+        double r = PackedColors.red(argb) / GRID_STEP;
+        double g = PackedColors.green(argb) / GRID_STEP;
+        double b = PackedColors.blue(argb) / GRID_STEP;
+        int r0 = Math.min((int) r, GRID_SIZE - 2);
+        int g0 = Math.min((int) g, GRID_SIZE - 2);
+        int b0 = Math.min((int) b, GRID_SIZE - 2);
+        double fr = r - r0;
+        double fg = g - g0;
+        double fb = b - b0;
+
+        int red = interpolateChannel(table, r0, g0, b0, fr, fg, fb, 0);
+        int green = interpolateChannel(table, r0, g0, b0, fr, fg, fb, 1);
+        int blue = interpolateChannel(table, r0, g0, b0, fr, fg, fb, 2);
+        return (argb & 0xFF000000) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Interpolates one channel between the eight grid points surrounding a color.
+     *
+     * @param table the lookup table
+     * @param r0 the red grid index below the color
+     * @param g0 the green grid index below the color
+     * @param b0 the blue grid index below the color
+     * @param fr the position of the color between r0 and r0 + 1
+     * @param fg the position of the color between g0 and g0 + 1
+     * @param fb the position of the color between b0 and b0 + 1
+     * @param channel the channel, 0 for red, 1 for green and 2 for blue
+     * @return the interpolated channel value, 0-255
+     */
+    private static int interpolateChannel(float[] table, int r0, int g0, int b0,
+                                          double fr, double fg, double fb, int channel) {
+        double c00 = lerp(sample(table, r0, g0, b0, channel), sample(table, r0 + 1, g0, b0, channel), fr);
+        double c01 = lerp(sample(table, r0, g0, b0 + 1, channel), sample(table, r0 + 1, g0, b0 + 1, channel), fr);
+        double c10 = lerp(sample(table, r0, g0 + 1, b0, channel), sample(table, r0 + 1, g0 + 1, b0, channel), fr);
+        double c11 = lerp(sample(table, r0, g0 + 1, b0 + 1, channel), sample(table, r0 + 1, g0 + 1, b0 + 1, channel), fr);
+        double value = lerp(lerp(c00, c10, fg), lerp(c01, c11, fg), fb);
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /**
+     * Returns one channel of a grid point of a lookup table.
+     */
+    private static float sample(float[] table, int r, int g, int b, int channel) {
+        return table[((r * GRID_SIZE + g) * GRID_SIZE + b) * 3 + channel];
+    }
+
+    /**
+     * Interpolates linearly between two values.
+     */
+    private static double lerp(double from, double to, double t) {
+        return from + (to - from) * t;
+    }
+
+    /**
+     * Converts an sRGB channel value to linear light.
+     *
+     * @param channel the channel value, 0-255
+     * @return the linear value
+     */
+    private static double linear(double channel) {
+        double value = channel / 255.0;
+        return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+    }
+
+    /**
+     * Encodes a linear value as an sRGB channel value, clipping it to the gamut.
+     *
+     * @param linear the linear value
+     * @return the channel value, 0-255
+     */
+    private static float encode(double linear) {
+        double clipped = Math.max(0, Math.min(1, linear));
+        double value = clipped <= 0.0031308 ? 12.92 * clipped : 1.055 * Math.pow(clipped, 1 / 2.4) - 0.055;
+        return (float) (value * 255);
+    }
+}
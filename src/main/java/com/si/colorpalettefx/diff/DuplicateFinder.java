@@ -0,0 +1,88 @@
+package com.si.colorpalettefx.diff;
+
+import com.si.colorpalettefx.model.ColorPalette;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups palettes with the same content, regardless of their names.
+ * <p>
+ * Palettes are bucketed by their cached fingerprints in hash maps, so finding all groups takes
+ * linear time in the number of palettes. Fingerprints are 64-bit, which makes accidental
+ * collisions negligible for any realistic number of palettes.
+ */
+public final class DuplicateFinder {
+    /**
+     * A group of palettes with the same content.
+     */
+    public static final class DuplicateGroup {
+        private final List<ColorPalette> palettes;
+        private final boolean reordered;
+
+        private DuplicateGroup(List<ColorPalette> palettes, boolean reordered) {
+            this.palettes = Collections.unmodifiableList(palettes);
+            this.reordered = reordered;
+        }
+
+        /**
+         * Returns the palettes of the group, in the order they were passed in.
+         *
+         * @return the palettes, at least two
+         */
+        public List<ColorPalette> getPalettes() {
+            return palettes;
+        }
+
+        /**
+         * Returns whether the palettes share their colors in different orders. Otherwise their
+         * colors are identical, in the same order.
+         *
+         * @return true for a group of reordered palettes
+         */
+        public boolean isReordered() {
+            return reordered;
+        }
+    }
+
+    private DuplicateFinder() {
+    }
+
+    /**
+     * Finds the groups of identical palettes, followed by the groups of palettes that only
+     * differ in the order of their colors. Within the reordered groups, every set of identical
+     * palettes is represented by its first palette.
+     *
+     * @param palettes the palettes to search
+     * @return the duplicate groups
+     */
+    public static List<DuplicateGroup> findDuplicates(List<ColorPalette> palettes) {
+        Map<Long, List<ColorPalette>> byFingerprint = new LinkedHashMap<>();
+        for (ColorPalette palette : palettes) {
+            byFingerprint.computeIfAbsent(palette.getFingerprint(), key -> new ArrayList<>(1)).add(palette);
+        }
+
+        List<DuplicateGroup> groups = new ArrayList<>();
+        Map<Long, List<ColorPalette>> byUnorderedFingerprint = new HashMap<>();
+        for (List<ColorPalette> identical : byFingerprint.values()) {
+            if (identical.size() > 1) {
+                groups.add(new DuplicateGroup(identical, false));
+            }
+
+            ColorPalette first = identical.get(0);
+            byUnorderedFingerprint.computeIfAbsent(first.getUnorderedFingerprint(), key -> new ArrayList<>(1)).add(first);
+        }
+
+        for (List<ColorPalette> identical : byFingerprint.values()) {
+            List<ColorPalette> reordered = byUnorderedFingerprint.remove(identical.get(0).getUnorderedFingerprint());
+            if (reordered != null && reordered.size() > 1) {
+                groups.add(new DuplicateGroup(reordered, true));
+            }
+        }
+        return groups;
+    }
+}
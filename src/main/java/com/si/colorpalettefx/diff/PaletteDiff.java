@@ -0,0 +1,187 @@
+package com.si.colorpalettefx.diff;
+
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+import com.si.colorpalettefx.model.Fingerprints;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences between two versions of a palette, as added, removed and changed swatches.
+ * <p>
+ * Swatches are compared by a 64-bit hash of their packed color and name, and the color
+ * sequences are aligned with a Myers diff. Within a differing region, removed and added swatches
+ * are paired up in order as changed swatches.
+ */
+public final class PaletteDiff {
+    /**
+     * The kinds of swatch differences.
+     */
+    public enum ChangeType {
+        ADDED, REMOVED, CHANGED
+    }
+
+    /**
+     * A single swatch difference.
+     */
+    public static final class Change {
+        private final ChangeType type;
+        private final int oldIndex;
+        private final int newIndex;
+
+        private Change(ChangeType type, int oldIndex, int newIndex) {
+            this.type = type;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+        }
+
+        /**
+         * Returns the kind of difference.
+         *
+         * @return the change type
+         */
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * Returns the index of the swatch in the old palette.
+         *
+         * @return the old index, or -1 for added swatches
+         */
+        public int getOldIndex() {
+            return oldIndex;
+        }
+
+        /**
+         * Returns the index of the swatch in the new palette.
+         *
+         * @return the new index, or -1 for removed swatches
+         */
+        public int getNewIndex() {
+            return newIndex;
+        }
+    }
+
+    private final List<Change> changes;
+    private final int addedCount;
+    private final int removedCount;
+    private final int changedCount;
+
+    private PaletteDiff(List<Change> changes) {
+        this.changes = Collections.unmodifiableList(changes);
+        int added = 0;
+        int removed = 0;
+        int changed = 0;
+        for (Change change : changes) {
+            switch (change.getType()) {
+                case ADDED -> added++;
+                case REMOVED -> removed++;
+                case CHANGED -> changed++;
+            }
+        }
+        this.addedCount = added;
+        this.removedCount = removed;
+        this.changedCount = changed;
+    }
+
+    /**
+     * Computes the differences between two versions of a palette.
+     *
+     * @param oldPalette the old version
+     * @param newPalette the new version
+     * @return the differences, in palette order
+     */
+    public static PaletteDiff compute(ColorPalette oldPalette, ColorPalette newPalette) {
+        return compute(oldPalette.getNamedColors(), newPalette.getNamedColors());
+    }
+
+    /**
+     * Computes the differences between two versions of a palette's swatches.
+     *
+     * @param oldColors the swatches of the old version
+     * @param newColors the swatches of the new version
+     * @return the differences, in palette order
+     */
+    public static PaletteDiff compute(List<NamedColor> oldColors, List<NamedColor> newColors) {
+        List<Change> changes = new ArrayList<>();
+        for (SequenceDiff.Hunk hunk : SequenceDiff.diff(hashes(oldColors), hashes(newColors))) {
+            int oldCount = hunk.oldEnd - hunk.oldStart;
+            int newCount = hunk.newEnd - hunk.newStart;
+            int paired = Math.min(oldCount, newCount);
+            for (int i = 0; i < paired; i++) {
+                changes.add(new Change(ChangeType.CHANGED, hunk.oldStart + i, hunk.newStart + i));
+            }
+            for (int i = paired; i < oldCount; i++) {
+                changes.add(new Change(ChangeType.REMOVED, hunk.oldStart + i, -1));
+            }
+            for (int i = paired; i < newCount; i++) {
+                changes.add(new Change(ChangeType.ADDED, -1, hunk.newStart + i));
+            }
+        }
+        return new PaletteDiff(changes);
+    }
+
+    /**
+     * Returns all differences, in palette order.
+     *
+     * @return the changes
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the number of added swatches.
+     *
+     * @return the added count
+     */
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Returns the number of removed swatches.
+     *
+     * @return the removed count
+     */
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Returns the number of swatches whose color or name changed.
+     *
+     * @return the changed count
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns whether both versions are identical.
+     *
+     * @return true if there are no differences
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Hashes every swatch of a palette over its packed color and name.
+     *
+     * @param namedColors the swatches
+     * @return one hash per swatch, in the same order
+     */
+    static long[] hashes(List<NamedColor> namedColors) {
+        long[] hashes = new long[namedColors.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            NamedColor namedColor = namedColors.get(i);
+            hashes[i] = Fingerprints.swatch(PackedColors.toArgb(namedColor.getColor()), namedColor.getName());
+        }
+        return hashes;
+    }
+}
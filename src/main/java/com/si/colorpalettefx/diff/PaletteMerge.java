@@ -0,0 +1,216 @@
+package com.si.colorpalettefx.diff;
+
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of merging the local and incoming versions of a palette.
+ * <p>
+ * A three-way merge diffs both versions against their common base. Regions changed on only one
+ * side take that side's swatches; regions changed identically on both sides are taken once; and
+ * regions changed differently on both sides are conflicts, which keep the local swatches.
+ * Without a base, a two-way merge keeps every local swatch and inserts the incoming swatches
+ * the local version does not have.
+ */
+public final class PaletteMerge {
+    private final List<NamedColor> mergedColors;
+    private final int appliedCount;
+    private final int conflictCount;
+    private final boolean changed;
+
+    private PaletteMerge(List<NamedColor> mergedColors, int appliedCount, int conflictCount, boolean changed) {
+        this.mergedColors = mergedColors;
+        this.appliedCount = appliedCount;
+        this.conflictCount = conflictCount;
+        this.changed = changed;
+    }
+
+    /**
+     * Merges the incoming version of a palette into the local one, relative to their common base.
+     *
+     * @param base the version both sides started from
+     * @param local the local version
+     * @param incoming the incoming version
+     * @return the merge result
+     */
+    public static PaletteMerge threeWay(ColorPalette base, ColorPalette local, ColorPalette incoming) {
+        List<NamedColor> localColors = local.getNamedColors();
+        List<NamedColor> incomingColors = incoming.getNamedColors();
+        long[] baseHashes = PaletteDiff.hashes(base.getNamedColors());
+        long[] localHashes = PaletteDiff.hashes(localColors);
+        long[] incomingHashes = PaletteDiff.hashes(incomingColors);
+
+        List<SequenceDiff.Hunk> localHunks = SequenceDiff.diff(baseHashes, localHashes);
+        List<SequenceDiff.Hunk> incomingHunks = SequenceDiff.diff(baseHashes, incomingHashes);
+        if (incomingHunks.isEmpty()) {
+            return new PaletteMerge(localColors, 0, 0, false);
+        }
+
+        List<NamedColor> merged = new ArrayList<>(Math.max(localColors.size(), incomingColors.size()));
+        int applied = 0;
+        int conflicts = 0;
+        boolean changed = false;
+
+        // Walk the base, keeping the local index in step with it outside of hunks
+        int basePosition = 0;
+        int localPosition = 0;
+        int localIndex = 0;
+        int incomingIndex = 0;
+        while (localIndex < localHunks.size() || incomingIndex < incomingHunks.size()) {
+            SequenceDiff.Hunk nextLocal = localIndex < localHunks.size() ? localHunks.get(localIndex) : null;
+            SequenceDiff.Hunk nextIncoming = incomingIndex < incomingHunks.size() ? incomingHunks.get(incomingIndex) : null;
+            int groupStart = Math.min(nextLocal != null ? nextLocal.oldStart : Integer.MAX_VALUE,
+                    nextIncoming != null ? nextIncoming.oldStart : Integer.MAX_VALUE);
+
+            // Copy the unchanged stretch before the group
+            int unchanged = groupStart - basePosition;
+            merged.addAll(localColors.subList(localPosition, localPosition + unchanged));
+            localPosition += unchanged;
+
+            // Grow the group while hunks of either side overlap or touch it
+            int groupEnd = groupStart;
+            int firstLocal = localIndex;
+            int firstIncoming = incomingIndex;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (localIndex < localHunks.size() && localHunks.get(localIndex).oldStart <= groupEnd) {
+                    groupEnd = Math.max(groupEnd, localHunks.get(localIndex++).oldEnd);
+                    grown = true;
+                }
+                if (incomingIndex < incomingHunks.size() && incomingHunks.get(incomingIndex).oldStart <= groupEnd) {
+                    groupEnd = Math.max(groupEnd, incomingHunks.get(incomingIndex++).oldEnd);
+                    grown = true;
+                }
+            }
+
+            boolean changedLocally = firstLocal < localIndex;
+            int localStart = changedLocally ? sideStart(localHunks.get(firstLocal), groupStart) : localPosition;
+            int localEnd = changedLocally
+                    ? sideEnd(localHunks.get(localIndex - 1), groupEnd)
+                    : localPosition + groupEnd - groupStart;
+            if (firstIncoming == incomingIndex) {
+                // Only changed locally
+                merged.addAll(localColors.subList(localStart, localEnd));
+            } else {
+                int incomingStart = sideStart(incomingHunks.get(firstIncoming), groupStart);
+                int incomingEnd = sideEnd(incomingHunks.get(incomingIndex - 1), groupEnd);
+                if (!changedLocally) {
+                    // Only changed by the incoming version
+                    merged.addAll(incomingColors.subList(incomingStart, incomingEnd));
+                    applied += incomingIndex - firstIncoming;
+                    changed = true;
+                } else if (rangeEquals(localHashes, localStart, localEnd, incomingHashes, incomingStart, incomingEnd)) {
+                    // Changed identically on both sides
+                    merged.addAll(localColors.subList(localStart, localEnd));
+                } else {
+                    merged.addAll(localColors.subList(localStart, localEnd));
+                    conflicts++;
+                }
+            }
+            localPosition = localEnd;
+            basePosition = groupEnd;
+        }
+        merged.addAll(localColors.subList(localPosition, localColors.size()));
+        return new PaletteMerge(merged, applied, conflicts, changed);
+    }
+
+    /**
+     * Merges the incoming version of a palette into the local one when no common base is known.
+     * Every local swatch is kept, and incoming swatches missing locally are inserted at their
+     * position relative to the common swatches.
+     *
+     * @param local the local version
+     * @param incoming the incoming version
+     * @return the merge result
+     */
+    public static PaletteMerge twoWay(ColorPalette local, ColorPalette incoming) {
+        List<NamedColor> localColors = local.getNamedColors();
+        List<NamedColor> incomingColors = incoming.getNamedColors();
+        List<SequenceDiff.Hunk> hunks = SequenceDiff.diff(PaletteDiff.hashes(localColors),
+                PaletteDiff.hashes(incomingColors));
+
+        List<NamedColor> merged = new ArrayList<>(localColors.size() + incomingColors.size());
+        int applied = 0;
+        int localPosition = 0;
+        for (SequenceDiff.Hunk hunk : hunks) {
+            merged.addAll(localColors.subList(localPosition, hunk.oldEnd));
+            if (hunk.newEnd > hunk.newStart) {
+                merged.addAll(incomingColors.subList(hunk.newStart, hunk.newEnd));
+                applied++;
+            }
+            localPosition = hunk.oldEnd;
+        }
+        merged.addAll(localColors.subList(localPosition, localColors.size()));
+        return new PaletteMerge(merged, applied, 0, applied > 0);
+    }
+
+    /**
+     * Returns the swatches of the merged palette.
+     *
+     * @return the merged swatches
+     */
+    public List<NamedColor> getMergedColors() {
+        return new ArrayList<>(mergedColors);
+    }
+
+    /**
+     * Returns the number of incoming changes that were merged into the local version.
+     *
+     * @return the applied change count
+     */
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * Returns the number of regions changed differently on both sides, where the local swatches
+     * were kept.
+     *
+     * @return the conflict count
+     */
+    public int getConflictCount() {
+        return conflictCount;
+    }
+
+    /**
+     * Returns whether the merged palette differs from the local version.
+     *
+     * @return true if incoming changes were applied
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Maps the start of a base region to one side, given the first hunk of that side in it.
+     */
+    private static int sideStart(SequenceDiff.Hunk first, int baseStart) {
+        return first.newStart - (first.oldStart - baseStart);
+    }
+
+    /**
+     * Maps the end of a base region to one side, given the last hunk of that side in it.
+     */
+    private static int sideEnd(SequenceDiff.Hunk last, int baseEnd) {
+        return last.newEnd + (baseEnd - last.oldEnd);
+    }
+
+    /**
+     * Compares two ranges of element hashes.
+     */
+    private static boolean rangeEquals(long[] a, int aStart, int aEnd, long[] b, int bStart, int bEnd) {
+        if (aEnd - aStart != bEnd - bStart) {
+            return false;
+        }
+        for (int i = 0; i < aEnd - aStart; i++) {
+            if (a[aStart + i] != b[bStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,263 @@
+package com.si.colorpalettefx.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Myers' O((N+M)D) difference algorithm over sequences of 64-bit element hashes.
+ * <p>
+ * The common prefix and suffix are trimmed first, so the usual case of a few edits in a large
+ * palette only runs the algorithm on the edited region. The number of edits explored is capped
+ * at {@link #MAX_EDIT_DISTANCE}. A region needing more is split at anchors, as in patience diff:
+ * the longest run, in order on both sides, of elements that occur exactly once in each side.
+ * The gaps between the anchors are diffed again, and only a gap without any anchor is reported
+ * as one replacement, so a heavily edited palette still keeps its moved and untouched swatches.
+ */
+final class SequenceDiff {
+    /**
+     * The maximum number of insertions and deletions searched for before giving up on a minimal
+     * diff of the edited region.
+     */
+    static final int MAX_EDIT_DISTANCE = 1024;
+
+    /**
+     * A region where the two sequences differ: the old range [oldStart, oldEnd) was replaced by
+     * the new range [newStart, newEnd). Either range may be empty.
+     */
+    static final class Hunk {
+        final int oldStart;
+        final int oldEnd;
+        final int newStart;
+        final int newEnd;
+
+        Hunk(int oldStart, int oldEnd, int newStart, int newEnd) {
+            this.oldStart = oldStart;
+            this.oldEnd = oldEnd;
+            this.newStart = newStart;
+            this.newEnd = newEnd;
+        }
+    }
+
+    private SequenceDiff() {
+    }
+
+    /**
+     * Computes the regions where two sequences differ.
+     *
+     * @param oldHashes the element hashes of the old sequence
+     * @param newHashes the element hashes of the new sequence
+     * @return the hunks, in sequence order, separated by at least one common element
+     */
+    static List<Hunk> diff(long[] oldHashes, long[] newHashes) {
+        int oldEnd = oldHashes.length;
+        int newEnd = newHashes.length;
+        int start = 0;
+        while (start < oldEnd && start < newEnd && oldHashes[start] == newHashes[start]) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && oldHashes[oldEnd - 1] == newHashes[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        List<Hunk> hunks = new ArrayList<>();
+        if (start == oldEnd && start == newEnd) {
+            return hunks;
+        }
+
+        // Mark the elements of the middle region that are not part of the common subsequence
+        boolean[] deleted = new boolean[oldEnd - start];
+        boolean[] inserted = new boolean[newEnd - start];
+        markRegion(oldHashes, start, oldEnd, newHashes, start, newEnd, start, deleted, inserted);
+
+        // Unmarked elements pair up in order; collect the marked runs between them
+        int i = 0;
+        int j = 0;
+        while (i < deleted.length || j < inserted.length) {
+            if (i < deleted.length && j < inserted.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int hunkOldStart = i;
+            int hunkNewStart = j;
+            while (i < deleted.length && deleted[i]) {
+                i++;
+            }
+            while (j < inserted.length && inserted[j]) {
+                j++;
+            }
+            hunks.add(new Hunk(start + hunkOldStart, start + i, start + hunkNewStart, start + j));
+        }
+        return hunks;
+    }
+
+    /**
+     * Marks the deleted and inserted elements of a region, with a shortest edit script if one
+     * is found within {@link #MAX_EDIT_DISTANCE} edits, and otherwise by splitting the region at
+     * its unique anchors. The marks are indexed from {@code origin} on both sides.
+     */
+    private static void markRegion(long[] a, int aStart, int aEnd, long[] b, int bStart, int bEnd, int origin,
+                                   boolean[] deleted, boolean[] inserted) {
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            aStart++;
+            bStart++;
+        }
+        while (aEnd > aStart && bEnd > bStart && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+        }
+        if (aStart == aEnd || bStart == bEnd) {
+            Arrays.fill(deleted, aStart - origin, aEnd - origin, true);
+            Arrays.fill(inserted, bStart - origin, bEnd - origin, true);
+            return;
+        }
+        if (markEdits(a, aStart, aEnd, b, bStart, bEnd, aStart - origin, bStart - origin, deleted, inserted)) {
+            return;
+        }
+
+        int[][] anchors = uniqueAnchors(a, aStart, aEnd, b, bStart, bEnd);
+        if (anchors.length == 0) {
+            Arrays.fill(deleted, aStart - origin, aEnd - origin, true);
+            Arrays.fill(inserted, bStart - origin, bEnd - origin, true);
+            return;
+        }
+        for (int[] anchor : anchors) {
+            markRegion(a, aStart, anchor[0], b, bStart, anchor[1], origin, deleted, inserted);
+            aStart = anchor[0] + 1;
+            bStart = anchor[1] + 1;
+        }
+        markRegion(a, aStart, aEnd, b, bStart, bEnd, origin, deleted, inserted);
+    }
+
+    /**
+     * Finds the longest sequence of element pairs that are unique on both sides of a region
+     * and in the same order on both sides.
+     *
+     * @return the positions of the pairs in a and b, in sequence order
+     */
+    private static int[][] uniqueAnchors(long[] a, int aStart, int aEnd, long[] b, int bStart, int bEnd) {
+        // Position of every hash on each side, or -1 if it occurs more than once
+        Map<Long, Integer> aPositions = new HashMap<>();
+        for (int i = aStart; i < aEnd; i++) {
+            aPositions.merge(a[i], i, (previous, position) -> -1);
+        }
+        Map<Long, Integer> bPositions = new HashMap<>();
+        for (int j = bStart; j < bEnd; j++) {
+            bPositions.merge(b[j], j, (previous, position) -> -1);
+        }
+
+        int[] pairA = new int[Math.min(aEnd - aStart, bEnd - bStart)];
+        int[] pairB = new int[pairA.length];
+        int pairCount = 0;
+        for (int i = aStart; i < aEnd; i++) {
+            if (aPositions.get(a[i]) == i) {
+                Integer j = bPositions.get(a[i]);
+                if (j != null && j >= 0) {
+                    pairA[pairCount] = i;
+                    pairB[pairCount++] = j;
+                }
+            }
+        }
+
+        // Longest increasing run of b positions by patience sorting: the pair ending each pile,
+        // and the pair before every pair in the longest run through it
+        int[] pileTops = new int[pairCount];
+        int[] predecessors = new int[pairCount];
+        int pileCount = 0;
+        for (int p = 0; p < pairCount; p++) {
+            int low = 0;
+            int high = pileCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (pairB[pileTops[middle]] < pairB[p]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            predecessors[p] = low > 0 ? pileTops[low - 1] : -1;
+            pileTops[low] = p;
+            if (low == pileCount) {
+                pileCount++;
+            }
+        }
+
+        int[][] anchors = new int[pileCount][];
+        int p = pileCount > 0 ? pileTops[pileCount - 1] : -1;
+        for (int index = pileCount - 1; index >= 0; index--) {
+            anchors[index] = new int[]{pairA[p], pairB[p]};
+            p = predecessors[p];
+        }
+        return anchors;
+    }
+
+    /**
+     * Runs the greedy Myers search on a region and marks the deleted and inserted elements of a
+     * shortest edit script, at the given offsets into the mark arrays.
+     *
+     * @return false if the region needs more than {@link #MAX_EDIT_DISTANCE} edits
+     */
+    private static boolean markEdits(long[] a, int aStart, int aEnd, long[] b, int bStart, int bEnd,
+                                     int deletedOffset, int insertedOffset, boolean[] deleted, boolean[] inserted) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int maxD = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = maxD + 1;
+        int[] v = new int[2 * maxD + 3];
+
+        // The furthest x of every diagonal before each round, kept for backtracking
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= maxD; d++) {
+            int[] snapshot = new int[2 * d + 3];
+            System.arraycopy(v, offset - d - 1, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m, deletedOffset, insertedOffset, deleted, inserted);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks the trace back from the end point and marks the edit of every round.
+     */
+    private static void backtrack(List<int[]> trace, int editDistance, int n, int m,
+                                  int deletedOffset, int insertedOffset, boolean[] deleted, boolean[] inserted) {
+        int x = n;
+        int y = m;
+        for (int d = editDistance; d > 0; d--) {
+            int[] previous = trace.get(d);
+            int base = d + 1;
+            int k = x - y;
+            int previousK = k == -d || (k != d && previous[base + k - 1] < previous[base + k + 1]) ? k + 1 : k - 1;
+            int previousX = previous[base + previousK];
+            int previousY = previousX - previousK;
+
+            if (previousK == k + 1) {
+                inserted[insertedOffset + previousY] = true;
+            } else {
+                deleted[deletedOffset + previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.si.colorpalettefx.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed palette archives.
+ * <p>
+ * An archive splits the palettes into blocks of roughly {@value #BLOCK_SIZE} bytes of compact
+ * JSON, in the format of saved palette files, and deflates every block independently, in
+ * parallel on all cores. A block index at the end of the file records where every block and
+ * every palette within its block is, so a single palette can be read by inflating just its block.
+ * <pre>
+ * header:  magic "CPAR", format version, compression method
+ * blocks:  deflated JSON palette objects, back to back
+ * index:   per block its file position, sizes and CRC-32; per palette its name, block,
+ *          offset and length within the inflated block, and color count
+ * footer:  index position, magic "CPAR"
+ * </pre>
+ */
+public final class PaletteArchive implements Closeable {
+    /**
+     * The file extension of palette archives.
+     */
+    public static final String EXTENSION = "cpa";
+
+    private static final int MAGIC = 0x43504152; // "CPAR"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte DEFLATE = 1;
+    private static final int HEADER_SIZE = 9;
+    private static final int FOOTER_SIZE = 12;
+
+    // Uncompressed bytes per block; larger blocks compress better, smaller ones load faster
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final FileChannel channel;
+    private final List<Block> blocks;
+    private final List<Entry> entries;
+    private final Map<String, Entry> entriesByName = new HashMap<>();
+
+    /**
+     * The location and size of a compressed block.
+     */
+    private static final class Block {
+        private final long position;
+        private final int compressedLength;
+        private final int length;
+        private final int crc;
+
+        Block(long position, int compressedLength, int length, int crc) {
+            this.position = position;
+            this.compressedLength = compressedLength;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    /**
+     * The location of a palette within its inflated block.
+     */
+    private static final class Entry {
+        private final String name;
+        private final int block;
+        private final int offset;
+        private final int length;
+        private final int colorCount;
+
+        Entry(String name, int block, int offset, int length, int colorCount) {
+            this.name = name;
+            this.block = block;
+            this.offset = offset;
+            this.length = length;
+            this.colorCount = colorCount;
+        }
+    }
+
+    /**
+     * A block being written: its palettes as JSON, and where each palette starts.
+     */
+    private static final class PendingBlock {
+        private final List<PaletteData> palettes = new ArrayList<>();
+        private final List<int[]> bounds = new ArrayList<>();
+        private byte[] json;
+        private byte[] compressed;
+        private int crc;
+    }
+
+    private PaletteArchive(FileChannel channel, List<Block> blocks, List<Entry> entries) {
+        this.channel = channel;
+        this.blocks = blocks;
+        this.entries = entries;
+        for (Entry entry : entries) {
+            entriesByName.putIfAbsent(entry.name, entry);
+        }
+    }
+
+    /**
+     * Writes palettes to an archive, replacing the file atomically.
+     *
+     * @param file the archive file
+     * @param palettes the palettes
+     * @throws IOException if the archive cannot be written
+     */
+    public static void write(Path file, List<PaletteData> palettes) throws IOException {
+        List<PendingBlock> pendingBlocks = split(palettes);
+
+        // Encode and deflate the blocks in parallel
+        try {
+            IntStream.range(0, pendingBlocks.size()).parallel().forEach(i -> compress(pendingBlocks.get(i)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean written = false;
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1 << 16))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeByte(DEFLATE);
+
+                long position = HEADER_SIZE;
+                List<Block> blocks = new ArrayList<>(pendingBlocks.size());
+                for (PendingBlock pending : pendingBlocks) {
+                    output.write(pending.compressed);
+                    blocks.add(new Block(position, pending.compressed.length, pending.json.length, pending.crc));
+                    position += pending.compressed.length;
+                }
+
+                // The index
+                long indexPosition = position;
+                output.writeInt(blocks.size());
+                for (Block block : blocks) {
+                    output.writeLong(block.position);
+                    output.writeInt(block.compressedLength);
+                    output.writeInt(block.length);
+                    output.writeInt(block.crc);
+                }
+                output.writeInt(palettes.size());
+                for (int blockIndex = 0; blockIndex < pendingBlocks.size(); blockIndex++) {
+                    PendingBlock pending = pendingBlocks.get(blockIndex);
+                    for (int i = 0; i < pending.palettes.size(); i++) {
+                        PaletteData palette = pending.palettes.get(i);
+                        int[] bounds = pending.bounds.get(i);
+                        output.writeUTF(palette.getName() == null ? "" : palette.getName());
+                        output.writeInt(blockIndex);
+                        output.writeInt(bounds[0]);
+                        output.writeInt(bounds[1]);
+                        output.writeInt(palette.size());
+                    }
+                }
+
+                output.writeLong(indexPosition);
+                output.writeInt(MAGIC);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written = true;
+        } finally {
+            // Do not leave a partial archive behind
+            if (!written) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Opens an archive and reads its index. Blocks are only read when palettes are requested.
+     *
+     * @param file the archive file
+     * @return the open archive
+     * @throws IOException if the file is not a valid archive
+     */
+    public static PaletteArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Not a palette archive: " + file);
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexPosition = footer.getLong();
+            if (header.getInt() != MAGIC || footer.getInt() != MAGIC) {
+                throw new IOException("Not a palette archive: " + file);
+            }
+            if (header.getInt() != FORMAT_VERSION || header.get() != DEFLATE) {
+                throw new IOException("Unsupported palette archive version: " + file);
+            }
+            if (indexPosition < HEADER_SIZE || indexPosition > size - FOOTER_SIZE) {
+                throw new IOException("Damaged palette archive index: " + file);
+            }
+
+            ByteBuffer index = readFully(channel, indexPosition, (int) (size - FOOTER_SIZE - indexPosition));
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                    index.array(), index.arrayOffset(), index.remaining()));
+            int blockCount = input.readInt();
+            if (blockCount < 0) {
+                throw new IOException("Damaged palette archive index: " + file);
+            }
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                Block block = new Block(input.readLong(), input.readInt(), input.readInt(), input.readInt());
+                if (block.position < HEADER_SIZE || block.compressedLength < 0 || block.length < 0
+                        || block.position + block.compressedLength > indexPosition) {
+                    throw new IOException("Damaged palette archive index: " + file);
+                }
+                blocks.add(block);
+            }
+            int paletteCount = input.readInt();
+            if (paletteCount < 0) {
+                throw new IOException("Damaged palette archive index: " + file);
+            }
+            List<Entry> entries = new ArrayList<>(paletteCount);
+            for (int i = 0; i < paletteCount; i++) {
+                Entry entry = new Entry(input.readUTF(), input.readInt(), input.readInt(), input.readInt(), input.readInt());
+                // Entries must lie within the inflated length of their block
+                if (entry.block < 0 || entry.block >= blockCount || entry.offset < 0 || entry.length < 0
+                        || entry.offset > blocks.get(entry.block).length - entry.length) {
+                    throw new IOException("Damaged palette archive index: " + file);
+                }
+                entries.add(entry);
+            }
+            return new PaletteArchive(channel, blocks, entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether bytes start like a palette archive.
+     *
+     * @param bytes the first bytes of a file
+     * @param length the number of valid bytes
+     * @return true if the bytes start with the archive magic
+     */
+    public static boolean isArchive(byte[] bytes, int length) {
+        return length >= 4 && ByteBuffer.wrap(bytes, 0, 4).getInt() == MAGIC;
+    }
+
+    /**
+     * Returns the number of palettes in the archive.
+     *
+     * @return the palette count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the names of the palettes, in archive order.
+     *
+     * @return the palette names
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the number of colors of a palette, without reading it.
+     *
+     * @param index the index of the palette
+     * @return the color count
+     */
+    public int getColorCount(int index) {
+        return entries.get(index).colorCount;
+    }
+
+    /**
+     * Reads a palette by name, inflating only its block.
+     *
+     * @param name the palette name
+     * @return the palette, or null if there is none with the name
+     * @throws IOException if the block cannot be read
+     */
+    public PaletteData read(String name) throws IOException {
+        Entry entry = entriesByName.get(name);
+        return entry == null ? null : read(entry, inflate(entry.block));
+    }
+
+    /**
+     * Reads a palette by position, inflating only its block.
+     *
+     * @param index the index of the palette
+     * @return the palette
+     * @throws IOException if the block cannot be read
+     */
+    public PaletteData read(int index) throws IOException {
+        Entry entry = entries.get(index);
+        return read(entry, inflate(entry.block));
+    }
+
+    /**
+     * Reads all palettes, inflating and parsing the blocks in parallel.
+     *
+     * @return the palettes, in archive order
+     * @throws IOException if a block cannot be read
+     */
+    public List<PaletteData> readAll() throws IOException {
+        // Group the entries by block, keeping their positions in the archive
+        List<List<Integer>> entriesByBlock = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            entriesByBlock.add(new ArrayList<>());
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            entriesByBlock.get(entries.get(i).block).add(i);
+        }
+
+        PaletteData[] palettes = new PaletteData[entries.size()];
+        try {
+            IntStream.range(0, blocks.size()).parallel().forEach(blockIndex -> {
+                try {
+                    byte[] json = inflate(blockIndex);
+                    for (int entryIndex : entriesByBlock.get(blockIndex)) {
+                        palettes[entryIndex] = read(entries.get(entryIndex), json);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return Collections.unmodifiableList(List.of(palettes));
+    }
+
+    /**
+     * Closes the archive file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Splits palettes into blocks of about {@link #BLOCK_SIZE} bytes, estimated from their
+     * color counts. A palette is never split across blocks.
+     */
+    private static List<PendingBlock> split(List<PaletteData> palettes) {
+        List<PendingBlock> pendingBlocks = new ArrayList<>();
+        PendingBlock current = null;
+        long estimatedSize = 0;
+        for (PaletteData palette : palettes) {
+            // About 40 bytes of JSON per color
+            long paletteSize = 64 + 40L * palette.size();
+            if (current == null || (estimatedSize + paletteSize > BLOCK_SIZE && !current.palettes.isEmpty())) {
+                current = new PendingBlock();
+                pendingBlocks.add(current);
+                estimatedSize = 0;
+            }
+            current.palettes.add(palette);
+            estimatedSize += paletteSize;
+        }
+        return pendingBlocks;
+    }
+
+    /**
+     * Encodes the palettes of a block as JSON objects and deflates them.
+     */
+    private static void compress(PendingBlock pending) {
+        try {
+            ByteArrayOutputStream json = new ByteArrayOutputStream(BLOCK_SIZE + BLOCK_SIZE / 4);
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+                generator.setRootValueSeparator(null);
+                for (PaletteData palette : pending.palettes) {
+                    generator.flush();
+                    int start = json.size();
+                    PaletteJson.write(generator, palette);
+                    generator.flush();
+                    pending.bounds.add(new int[]{start, json.size() - start});
+                }
+            }
+            pending.json = json.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(pending.json);
+        pending.crc = (int) crc.getValue();
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(pending.json);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(pending.json.length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            pending.compressed = compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads and inflates a block, verifying its checksum.
+     */
+    private byte[] inflate(int blockIndex) throws IOException {
+        Block block = blocks.get(blockIndex);
+        ByteBuffer compressed = readFully(channel, block.position, block.compressedLength);
+        byte[] json = new byte[block.length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array(), 0, block.compressedLength);
+            int inflated = 0;
+            while (inflated < json.length) {
+                int length = inflater.inflate(json, inflated, json.length - inflated);
+                if (length == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                inflated += length;
+            }
+            if (inflated != json.length) {
+                throw new IOException("Damaged palette archive block " + blockIndex);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged palette archive block " + blockIndex, e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Checksum mismatch in palette archive block " + blockIndex);
+        }
+        return json;
+    }
+
+    /**
+     * Parses a palette from its inflated block.
+     */
+    private static PaletteData read(Entry entry, byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json, entry.offset, entry.length)) {
+            parser.nextToken();
+            return PaletteJson.read(parser);
+        }
+    }
+
+    /**
+     * Reads bytes at a file position into a new heap buffer, flipped for reading.
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long readPosition = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                throw new IOException("Unexpected end of palette archive at " + readPosition);
+            }
+            readPosition += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
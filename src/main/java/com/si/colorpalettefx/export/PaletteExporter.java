@@ -0,0 +1,130 @@
+package com.si.colorpalettefx.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes palettes in the {@link PaletteFormat export formats}.
+ * <p>
+ * The exporter works on immutable {@link PaletteData}, so it can run on any thread.
+ */
+public final class PaletteExporter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private PaletteExporter() {
+    }
+
+    /**
+     * Exports palettes.
+     *
+     * @param format the format
+     * @param palettes the palettes
+     * @return the exported text
+     */
+    public static String export(PaletteFormat format, List<PaletteData> palettes) {
+        return switch (format) {
+            case JSON -> toJson(palettes);
+            case CSS -> toCss(palettes);
+            case TEXT -> toText(palettes);
+            case HEX -> toHex(palettes);
+        };
+    }
+
+    /**
+     * Writes palettes in the JSON format of saved palette files.
+     */
+    private static String toJson(List<PaletteData> palettes) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            for (PaletteData palette : palettes) {
+                PaletteJson.write(generator, palette);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing JSON", e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes palettes as CSS custom properties named "--palette-color".
+     */
+    private static String toCss(List<PaletteData> palettes) {
+        StringBuilder css = new StringBuilder(":root {\n");
+        Set<String> usedNames = new HashSet<>();
+        for (PaletteData palette : palettes) {
+            String prefix = "--" + slug(palette.getName()) + "-";
+            for (int i = 0; i < palette.size(); i++) {
+                String property = prefix + slug(palette.getColorName(i));
+                String uniqueProperty = property;
+                for (int suffix = 2; !usedNames.add(uniqueProperty); suffix++) {
+                    uniqueProperty = property + "-" + suffix;
+                }
+                css.append("  ").append(uniqueProperty).append(": ").append(PackedColors.toHex(palette.getColor(i))).append(";\n");
+            }
+        }
+        return css.append("}\n").toString();
+    }
+
+    /**
+     * Writes palettes in the text format of the import dialog.
+     */
+    private static String toText(List<PaletteData> palettes) {
+        StringBuilder text = new StringBuilder();
+        for (PaletteData palette : palettes) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(palette.getName()).append('\n');
+            for (int i = 0; i < palette.size(); i++) {
+                text.append(PackedColors.toHex(palette.getColor(i))).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the hex codes of all colors, one per line.
+     */
+    private static String toHex(List<PaletteData> palettes) {
+        StringBuilder text = new StringBuilder();
+        for (PaletteData palette : palettes) {
+            for (int i = 0; i < palette.size(); i++) {
+                text.append(PackedColors.toHex(palette.getColor(i))).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Turns a name into a lower-case CSS identifier part, e.g. "Brand Blue 500" into "brand-blue-500".
+     */
+    static String slug(String name) {
+        StringBuilder slug = new StringBuilder(name == null ? 0 : name.length());
+        if (name != null) {
+            for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    slug.append(c);
+                } else if (!slug.isEmpty() && slug.charAt(slug.length() - 1) != '-') {
+                    slug.append('-');
+                }
+            }
+        }
+        if (!slug.isEmpty() && slug.charAt(slug.length() - 1) == '-') {
+            slug.setLength(slug.length() - 1);
+        }
+        return slug.isEmpty() ? "color" : slug.toString();
+    }
+}
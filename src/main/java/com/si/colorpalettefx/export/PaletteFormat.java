@@ -0,0 +1,82 @@
+package com.si.colorpalettefx.export;
+
+import java.util.Locale;
+
+/**
+ * The text formats palettes can be exported to.
+ */
+public enum PaletteFormat {
+    /**
+     * The JSON format of saved palette files.
+     */
+    JSON("json", "JSON", "application/json"),
+
+    /**
+     * CSS custom properties, one per color, named after the palette and the color.
+     */
+    CSS("css", "CSS Variables", "text/css"),
+
+    /**
+     * The text format of the import dialog: the palette name followed by one hex code per line,
+     * with palettes separated by blank lines.
+     */
+    TEXT("txt", "Palette Text", "text/plain"),
+
+    /**
+     * Hex codes only, one per line.
+     */
+    HEX("hex", "Hex List", "text/plain");
+
+    private final String id;
+    private final String displayName;
+    private final String mediaType;
+
+    PaletteFormat(String id, String displayName, String mediaType) {
+        this.id = id;
+        this.displayName = displayName;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the short identifier of the format, also used as file extension.
+     *
+     * @return the format identifier
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name shown to the user.
+     *
+     * @return the display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the media type of the format, without charset.
+     *
+     * @return the media type
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Looks up a format by its identifier or name, ignoring case.
+     *
+     * @param id the identifier, e.g. "json" or "txt"
+     * @return the format, or null if there is none
+     */
+    public static PaletteFormat fromId(String id) {
+        String lowerCaseId = id.toLowerCase(Locale.ROOT);
+        for (PaletteFormat format : values()) {
+            if (format.id.equals(lowerCaseId) || format.name().toLowerCase(Locale.ROOT).equals(lowerCaseId)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
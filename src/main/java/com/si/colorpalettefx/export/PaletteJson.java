@@ -0,0 +1,138 @@
+package com.si.colorpalettefx.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.si.colorpalettefx.color.ColorNamer;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams single palettes in the JSON format of saved palette files:
+ * {@code {"name": ..., "tags": [...], "colors": [{"name": ..., "hex": "#RRGGBB"}, ...]}}.
+ * <p>
+ * Palettes are written and read token by token with Jackson's streaming API, without building
+ * an intermediate object tree.
+ */
+public final class PaletteJson {
+    private PaletteJson() {
+    }
+
+    /**
+     * Writes a palette as a JSON object.
+     *
+     * @param generator the generator
+     * @param palette the palette
+     * @throws IOException if writing fails
+     */
+    public static void write(JsonGenerator generator, PaletteData palette) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", palette.getName());
+        if (!palette.getTags().isEmpty()) {
+            generator.writeArrayFieldStart("tags");
+            for (String tag : palette.getTags()) {
+                generator.writeString(tag);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeArrayFieldStart("colors");
+        for (int i = 0; i < palette.size(); i++) {
+            generator.writeStartObject();
+            generator.writeStringField("name", palette.getColorName(i));
+            generator.writeStringField("hex", PackedColors.toHex(palette.getColor(i)));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Reads a palette from a JSON object. The parser must be positioned at the object's start
+     * token, and is left at its end token. Unknown fields are skipped, colors without a hex
+     * code are dropped, and colors without a name get the name of the closest named color.
+     *
+     * @param parser the parser
+     * @return the palette
+     * @throws IOException if the JSON is malformed or a hex code is invalid
+     */
+    public static PaletteData read(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a palette object at " + parser.currentLocation());
+        }
+
+        String name = null;
+        List<String> tags = List.of();
+        int[] colors = new int[16];
+        String[] colorNames = new String[16];
+        int count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> name = parser.getValueAsString();
+                case "tags" -> tags = readStrings(parser);
+                case "colors" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String hex = null;
+                        String colorName = null;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String colorField = parser.currentName();
+                            parser.nextToken();
+                            if (colorField.equals("hex")) {
+                                hex = parser.getValueAsString();
+                            } else if (colorField.equals("name")) {
+                                colorName = parser.getValueAsString();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        if (hex == null) {
+                            continue;
+                        }
+                        if (count == colors.length) {
+                            colors = Arrays.copyOf(colors, count * 2);
+                            colorNames = Arrays.copyOf(colorNames, count * 2);
+                        }
+                        try {
+                            colors[count] = PackedColors.parse(hex);
+                        } catch (IllegalArgumentException e) {
+                            throw new IOException("Invalid color '" + hex + "' at " + parser.currentLocation(), e);
+                        }
+                        colorNames[count] = colorName != null ? colorName : ColorNamer.getDefault().name(colors[count]);
+                        count++;
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new PaletteData(name, Arrays.copyOf(colors, count), Arrays.copyOf(colorNames, count), tags);
+    }
+
+    /**
+     * Reads an array of strings, skipping other values.
+     */
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<String> strings = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                strings.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return strings;
+    }
+}
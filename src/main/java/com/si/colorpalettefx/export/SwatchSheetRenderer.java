@@ -0,0 +1,356 @@
+package com.si.colorpalettefx.export;
+
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.PaletteData;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Renders printable swatch sheets of palettes to PNG and SVG, without JavaFX or a display.
+ * <p>
+ * A sheet shows the palette name above a grid of swatches, each labeled with its hex code and
+ * color name. Large palettes get smaller swatches without labels, so that sheets stay within
+ * {@value #MAX_SHEET_SIZE} pixels per side. PNG sheets are rasterized in horizontal tiles in
+ * parallel: swatch fills are written straight into the tile's {@code int[]} pixels, labels are
+ * drawn with Java2D, and the finished tiles are copied into the sheet's pixel buffer.
+ */
+public final class SwatchSheetRenderer {
+    /**
+     * The sheet formats.
+     */
+    public enum SheetFormat {
+        PNG("png"),
+        SVG("svg");
+
+        private final String extension;
+
+        SheetFormat(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Returns the file extension of the format.
+         *
+         * @return the extension, without a dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int MAX_SHEET_SIZE = 8192;
+    private static final int TILE_HEIGHT = 256;
+    private static final int PADDING = 24;
+    private static final int TITLE_HEIGHT = 48;
+    private static final int GAP = 12;
+    private static final int LABEL_HEIGHT = 36;
+    private static final int MIN_LABELED_SWATCH = 96;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int BORDER = 0xFFD3D3D3;
+    private static final Color TEXT_COLOR = new Color(0x333333);
+    private static final Color SECONDARY_TEXT_COLOR = new Color(0x777777);
+    private static final String FONT_FAMILY = Font.SANS_SERIF;
+
+    private SwatchSheetRenderer() {
+    }
+
+    /**
+     * The position and size of every part of a sheet.
+     */
+    private static final class Layout {
+        private final int colorCount;
+        private final int columns;
+        private final int swatchSize;
+        private final int gap;
+        private final boolean labeled;
+        private final int cellHeight;
+        private final int width;
+        private final int height;
+
+        Layout(int colorCount) {
+            this.colorCount = colorCount;
+            if (colorCount <= 64) {
+                columns = Math.max(1, Math.min(colorCount, 8));
+                swatchSize = 160;
+            } else {
+                columns = (int) Math.ceil(Math.sqrt(colorCount));
+                swatchSize = Math.max(2, Math.min(48, (MAX_SHEET_SIZE - 2 * PADDING) / columns - 1));
+            }
+            gap = swatchSize >= MIN_LABELED_SWATCH ? GAP : swatchSize >= 8 ? 1 : 0;
+            labeled = swatchSize >= MIN_LABELED_SWATCH;
+            cellHeight = swatchSize + (labeled ? LABEL_HEIGHT : 0);
+            int rows = Math.max(1, (colorCount + columns - 1) / columns);
+            width = Math.max(2 * PADDING + columns * (swatchSize + gap) - gap, 480);
+            height = 2 * PADDING + TITLE_HEIGHT + rows * (cellHeight + gap) - gap;
+        }
+
+        int x(int index) {
+            return PADDING + (index % columns) * (swatchSize + gap);
+        }
+
+        int y(int index) {
+            return PADDING + TITLE_HEIGHT + (index / columns) * (cellHeight + gap);
+        }
+    }
+
+    /**
+     * Renders the swatch sheet of a palette.
+     *
+     * @param palette the palette
+     * @return the sheet image
+     */
+    public static BufferedImage render(PaletteData palette) {
+        Layout layout = new Layout(palette.size());
+        BufferedImage sheet = new BufferedImage(layout.width, layout.height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) sheet.getRaster().getDataBuffer()).getData();
+
+        int tileCount = (layout.height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+        IntStream.range(0, tileCount).parallel().forEach(tile -> {
+            int top = tile * TILE_HEIGHT;
+            int tileHeight = Math.min(TILE_HEIGHT, layout.height - top);
+            int[] tilePixels = renderTile(palette, layout, top, tileHeight);
+            System.arraycopy(tilePixels, 0, pixels, top * layout.width, tilePixels.length);
+        });
+        return sheet;
+    }
+
+    /**
+     * Renders the swatch sheet of a palette to a PNG file.
+     *
+     * @param palette the palette
+     * @param file the PNG file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writePng(PaletteData palette, Path file) throws IOException {
+        if (!ImageIO.write(render(palette), "png", file.toFile())) {
+            throw new IOException("No PNG encoder available");
+        }
+    }
+
+    /**
+     * Writes the swatch sheet of a palette as an SVG document.
+     *
+     * @param palette the palette
+     * @return the SVG document
+     */
+    public static String toSvg(PaletteData palette) {
+        Layout layout = new Layout(palette.size());
+        StringBuilder svg = new StringBuilder(256 + palette.size() * (layout.labeled ? 280 : 90));
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(layout.width)
+                .append("\" height=\"").append(layout.height).append("\" viewBox=\"0 0 ")
+                .append(layout.width).append(' ').append(layout.height).append("\">\n");
+        svg.append("  <rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>\n");
+        svg.append("  <text x=\"").append(PADDING).append("\" y=\"").append(PADDING + 28)
+                .append("\" font-family=\"sans-serif\" font-size=\"24\" font-weight=\"bold\" fill=\"#333333\">")
+                .append(escapeXml(palette.getName())).append("</text>\n");
+        for (int i = 0; i < palette.size(); i++) {
+            int x = layout.x(i);
+            int y = layout.y(i);
+            String hex = PackedColors.toHex(palette.getColor(i));
+            svg.append("  <rect x=\"").append(x).append("\" y=\"").append(y)
+                    .append("\" width=\"").append(layout.swatchSize).append("\" height=\"").append(layout.swatchSize)
+                    .append("\" fill=\"").append(hex).append('"');
+            if (layout.labeled) {
+                svg.append(" stroke=\"#D3D3D3\"");
+            }
+            svg.append("/>\n");
+            if (layout.labeled) {
+                svg.append("  <text x=\"").append(x).append("\" y=\"").append(y + layout.swatchSize + 15)
+                        .append("\" font-family=\"sans-serif\" font-size=\"12\" font-weight=\"bold\" fill=\"#333333\">")
+                        .append(hex).append("</text>\n");
+                svg.append("  <text x=\"").append(x).append("\" y=\"").append(y + layout.swatchSize + 30)
+                        .append("\" font-family=\"sans-serif\" font-size=\"11\" fill=\"#777777\">")
+                        .append(escapeXml(palette.getColorName(i))).append("</text>\n");
+            }
+        }
+        return svg.append("</svg>\n").toString();
+    }
+
+    /**
+     * Writes swatch sheets of many palettes into a directory, in parallel. Files are named
+     * after the palettes; names that would collide get a numeric suffix.
+     *
+     * @param palettes the palettes
+     * @param directory the output directory, created if needed
+     * @param formats the formats to write
+     * @return the written files
+     * @throws IOException if a sheet cannot be written
+     */
+    public static List<Path> writeSheets(List<PaletteData> palettes, Path directory, Set<SheetFormat> formats)
+            throws IOException {
+        Files.createDirectories(directory);
+
+        // Choose unique file names up front, so the parallel writers never collide
+        List<String> baseNames = new ArrayList<>(palettes.size());
+        Set<String> usedNames = new HashSet<>();
+        for (PaletteData palette : palettes) {
+            String baseName = PaletteExporter.slug(palette.getName());
+            String uniqueName = baseName;
+            for (int suffix = 2; !usedNames.add(uniqueName); suffix++) {
+                uniqueName = baseName + "-" + suffix;
+            }
+            baseNames.add(uniqueName);
+        }
+
+        SheetFormat[] sheetFormats = formats.toArray(new SheetFormat[0]);
+        Path[][] written = new Path[palettes.size()][sheetFormats.length];
+        try {
+            IntStream.range(0, palettes.size()).parallel().forEach(i -> {
+                for (int f = 0; f < sheetFormats.length; f++) {
+                    Path file = directory.resolve(baseNames.get(i) + "." + sheetFormats[f].getExtension());
+                    try {
+                        if (sheetFormats[f] == SheetFormat.PNG) {
+                            writePng(palettes.get(i), file);
+                        } else {
+                            Files.writeString(file, toSvg(palettes.get(i)), StandardCharsets.UTF_8);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[i][f] = file;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<Path> files = new ArrayList<>(palettes.size() * sheetFormats.length);
+        for (Path[] paletteFiles : written) {
+            files.addAll(Arrays.asList(paletteFiles));
+        }
+        return files;
+    }
+
+    /**
+     * Renders one horizontal tile of a sheet.
+     *
+     * @param palette the palette
+     * @param layout the sheet layout
+     * @param top the first sheet row of the tile
+     * @param tileHeight the number of rows of the tile
+     * @return the pixels of the tile, row by row
+     */
+    private static int[] renderTile(PaletteData palette, Layout layout, int top, int tileHeight) {
+        BufferedImage tile = new BufferedImage(layout.width, tileHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+        int width = layout.width;
+        Arrays.fill(pixels, BACKGROUND);
+
+        // Only the rows of cells overlapping the tile
+        int firstRow = Math.max(0, (top - PADDING - TITLE_HEIGHT) / (layout.cellHeight + layout.gap));
+        int lastRow = Math.max(0, (top + tileHeight - PADDING - TITLE_HEIGHT) / (layout.cellHeight + layout.gap));
+        int firstIndex = Math.min(layout.colorCount, firstRow * layout.columns);
+        int endIndex = Math.min(layout.colorCount, (lastRow + 1) * layout.columns);
+
+        for (int i = firstIndex; i < endIndex; i++) {
+            int x = layout.x(i);
+            int y = layout.y(i) - top;
+            int from = Math.max(0, y);
+            int to = Math.min(tileHeight, y + layout.swatchSize);
+            int color = palette.getColor(i) | 0xFF000000;
+            for (int row = from; row < to; row++) {
+                int offset = row * width + x;
+                Arrays.fill(pixels, offset, offset + layout.swatchSize, color);
+                if (layout.labeled && (row == y || row == y + layout.swatchSize - 1)) {
+                    Arrays.fill(pixels, offset, offset + layout.swatchSize, BORDER);
+                } else if (layout.labeled) {
+                    pixels[offset] = BORDER;
+                    pixels[offset + layout.swatchSize - 1] = BORDER;
+                }
+            }
+        }
+
+        boolean hasTitle = top < PADDING + TITLE_HEIGHT;
+        if (!layout.labeled && !hasTitle) {
+            return pixels;
+        }
+
+        Graphics2D graphics = tile.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.translate(0, -top);
+            if (hasTitle) {
+                graphics.setColor(TEXT_COLOR);
+                graphics.setFont(new Font(FONT_FAMILY, Font.BOLD, 24));
+                graphics.drawString(palette.getName() == null ? "" : palette.getName(), PADDING, PADDING + 28);
+            }
+            if (layout.labeled) {
+                Font hexFont = new Font(FONT_FAMILY, Font.BOLD, 12);
+                Font nameFont = new Font(FONT_FAMILY, Font.PLAIN, 11);
+                FontMetrics nameMetrics = graphics.getFontMetrics(nameFont);
+                for (int i = firstIndex; i < endIndex; i++) {
+                    int x = layout.x(i);
+                    int labelTop = layout.y(i) + layout.swatchSize;
+                    graphics.setColor(TEXT_COLOR);
+                    graphics.setFont(hexFont);
+                    graphics.drawString(PackedColors.toHex(palette.getColor(i)), x, labelTop + 15);
+                    graphics.setColor(SECONDARY_TEXT_COLOR);
+                    graphics.setFont(nameFont);
+                    graphics.drawString(fit(palette.getColorName(i), nameMetrics, layout.swatchSize), x, labelTop + 30);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return pixels;
+    }
+
+    /**
+     * Shortens text with an ellipsis so that it fits a width.
+     */
+    private static String fit(String text, FontMetrics metrics, int width) {
+        if (text == null) {
+            return "";
+        }
+        if (metrics.stringWidth(text) <= width) {
+            return text;
+        }
+        int end = text.length();
+        while (end > 0 && metrics.stringWidth(text.substring(0, end) + "…") > width) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    /**
+     * Escapes text for XML content.
+     */
+    private static String escapeXml(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                default -> {
+                    if (c >= 0x20 || c == '\t' || c == '\n') {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+}
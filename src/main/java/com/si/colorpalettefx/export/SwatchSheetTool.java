@@ -0,0 +1,95 @@
+package com.si.colorpalettefx.export;
+
+import com.si.colorpalettefx.export.SwatchSheetRenderer.SheetFormat;
+import com.si.colorpalettefx.importer.ImportReport;
+import com.si.colorpalettefx.importer.PaletteImporter;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command line entry point that writes swatch sheets without starting the user interface, e.g.
+ * on a build server:
+ * <pre>
+ * java -m com.si.colorpalettefx/com.si.colorpalettefx.export.SwatchSheetTool \
+ *     [--format png|svg|both] [--out directory] palette-file...
+ * </pre>
+ * Palette files can be in any format the importer detects. Sheets go to the current directory
+ * unless {@code --out} is given.
+ */
+public final class SwatchSheetTool {
+    private SwatchSheetTool() {
+    }
+
+    /**
+     * Writes swatch sheets of the palettes in the given files.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        Set<SheetFormat> formats = EnumSet.of(SheetFormat.PNG);
+        Path outputDirectory = Path.of(".");
+        List<Path> inputFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format" -> {
+                    String format = i + 1 < args.length ? args[++i] : "";
+                    switch (format) {
+                        case "png" -> formats = EnumSet.of(SheetFormat.PNG);
+                        case "svg" -> formats = EnumSet.of(SheetFormat.SVG);
+                        case "both" -> formats = EnumSet.allOf(SheetFormat.class);
+                        default -> exitWithUsage("Unknown format: " + format);
+                    }
+                }
+                case "--out" -> {
+                    if (i + 1 >= args.length) {
+                        exitWithUsage("Missing output directory");
+                    }
+                    outputDirectory = Path.of(args[++i]);
+                }
+                default -> inputFiles.add(Path.of(args[i]));
+            }
+        }
+        if (inputFiles.isEmpty()) {
+            exitWithUsage("No palette files given");
+        }
+
+        List<PaletteData> palettes = new ArrayList<>();
+        for (Path file : inputFiles) {
+            try {
+                ImportReport report = PaletteImporter.importFile(file);
+                report.getProblems().forEach(problem -> System.err.println(file + ": " + problem));
+                palettes.addAll(report.getPalettes());
+            } catch (IOException e) {
+                System.err.println(file + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Path> written = SwatchSheetRenderer.writeSheets(palettes, outputDirectory, formats);
+            System.out.printf("Wrote %d sheets of %d palettes to %s in %d ms%n", written.size(), palettes.size(),
+                    outputDirectory.toAbsolutePath().normalize(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.err.println("Could not write sheets: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints an error and the usage, and exits.
+     */
+    private static void exitWithUsage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: SwatchSheetTool [--format png|svg|both] [--out directory] palette-file...");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,139 @@
+package com.si.colorpalettefx.importer;
+
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of importing a file: the palettes read, the formats they were in, and every
+ * problem found along the way.
+ */
+public final class ImportReport {
+    /**
+     * A problem found while importing, such as an invalid color or a malformed entry.
+     */
+    public static final class Problem {
+        private final int paletteIndex;
+        private final String paletteName;
+        private final String message;
+
+        Problem(int paletteIndex, String paletteName, String message) {
+            this.paletteIndex = paletteIndex;
+            this.paletteName = paletteName;
+            this.message = message;
+        }
+
+        /**
+         * Returns the position of the affected palette in the file.
+         *
+         * @return the palette index, or -1 if the problem concerns the whole file
+         */
+        public int getPaletteIndex() {
+            return paletteIndex;
+        }
+
+        /**
+         * Returns the name of the affected palette.
+         *
+         * @return the palette name, or null if unknown
+         */
+        public String getPaletteName() {
+            return paletteName;
+        }
+
+        /**
+         * Returns a description of the problem.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            if (paletteIndex < 0) {
+                return message;
+            }
+            return "Palette " + (paletteIndex + 1) + (paletteName != null ? " '" + paletteName + "'" : "") + ": " + message;
+        }
+    }
+
+    private final List<PaletteData> palettes;
+    private final Map<SourceFormat, Integer> formatCounts;
+    private final List<Problem> problems;
+    private final int invalidColorCount;
+
+    ImportReport(List<PaletteData> palettes, Map<SourceFormat, Integer> formatCounts, List<Problem> problems,
+                 int invalidColorCount) {
+        this.palettes = Collections.unmodifiableList(palettes);
+        this.formatCounts = Collections.unmodifiableMap(new EnumMap<>(formatCounts));
+        this.problems = Collections.unmodifiableList(problems);
+        this.invalidColorCount = invalidColorCount;
+    }
+
+    /**
+     * Returns the imported palettes, in file order.
+     *
+     * @return the palettes
+     */
+    public List<PaletteData> getPalettes() {
+        return palettes;
+    }
+
+    /**
+     * Returns the number of palettes read in a format.
+     *
+     * @param format the format
+     * @return the palette count
+     */
+    public int getPaletteCount(SourceFormat format) {
+        return formatCounts.getOrDefault(format, 0);
+    }
+
+    /**
+     * Returns the formats palettes were read in, with their palette counts.
+     *
+     * @return the palette count per format
+     */
+    public Map<SourceFormat, Integer> getFormatCounts() {
+        return formatCounts;
+    }
+
+    /**
+     * Returns the problems found, in file order.
+     *
+     * @return the problems
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns the number of colors that were skipped because they were invalid.
+     *
+     * @return the invalid color count
+     */
+    public int getInvalidColorCount() {
+        return invalidColorCount;
+    }
+
+    /**
+     * Returns a one-line description of the formats read, e.g. "3 Palette JSON, 1 Legacy JSON".
+     *
+     * @return the format summary
+     */
+    public String getFormatSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<SourceFormat, Integer> entry : formatCounts.entrySet()) {
+            if (!summary.isEmpty()) {
+                summary.append(", ");
+            }
+            summary.append(entry.getValue()).append(' ').append(entry.getKey().getDisplayName());
+        }
+        return summary.toString();
+    }
+}
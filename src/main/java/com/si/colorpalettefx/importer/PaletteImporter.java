@@ -0,0 +1,430 @@
+package com.si.colorpalettefx.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.si.colorpalettefx.color.ColorNamer;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.export.PaletteArchive;
+import com.si.colorpalettefx.metrics.LegacyConversionEvent;
+import com.si.colorpalettefx.metrics.Metrics;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Imports palettes from files in any supported {@link SourceFormat}.
+ * <p>
+ * The format is detected from the first bytes of the file: palette archives by their magic
+ * number, JSON by a leading '[' or '{', and anything else is read as palette text. JSON is read
+ * with a streaming parser in a single pass, and every palette object is classified on its own,
+ * so files mixing the current and the legacy format are imported together. Parsing only
+ * collects the raw color codes; validating and naming the colors then runs in parallel per
+ * palette. Problems never abort the import: they are collected in the {@link ImportReport}.
+ */
+public final class PaletteImporter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Number of leading bytes examined to detect the format
+    private static final int SNIFF_LENGTH = 64;
+
+    private PaletteImporter() {
+    }
+
+    /**
+     * A palette as read from the file, before its colors are validated.
+     */
+    private static final class RawPalette {
+        private final int index;
+        private final SourceFormat format;
+        private final String name;
+        private final List<String> tags;
+        private final List<String> codes;
+        private final List<String> colorNames;
+
+        RawPalette(int index, SourceFormat format, String name, List<String> tags, List<String> codes,
+                   List<String> colorNames) {
+            this.index = index;
+            this.format = format;
+            this.name = name;
+            this.tags = tags;
+            this.codes = codes;
+            this.colorNames = colorNames;
+        }
+    }
+
+    /**
+     * A converted palette and the problems found in it.
+     */
+    private static final class Conversion {
+        private final PaletteData palette;
+        private final List<ImportReport.Problem> problems;
+
+        Conversion(PaletteData palette, List<ImportReport.Problem> problems) {
+            this.palette = palette;
+            this.problems = problems;
+        }
+    }
+
+    /**
+     * Imports all palettes from a file.
+     *
+     * @param file the file
+     * @return the import report with the palettes
+     * @throws IOException if the file cannot be read at all
+     */
+    public static ImportReport importFile(Path file) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            input.mark(SNIFF_LENGTH);
+            byte[] head = input.readNBytes(SNIFF_LENGTH);
+            input.reset();
+
+            if (PaletteArchive.isArchive(head, head.length)) {
+                return importArchive(file);
+            }
+            return importStream(input, head);
+        }
+    }
+
+    /**
+     * Imports all palettes from a stream of JSON or palette text.
+     *
+     * @param input the stream, read to its end but not closed
+     * @return the import report with the palettes
+     * @throws IOException if the stream cannot be read at all
+     */
+    public static ImportReport importStream(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 1 << 16);
+        buffered.mark(SNIFF_LENGTH);
+        byte[] head = buffered.readNBytes(SNIFF_LENGTH);
+        buffered.reset();
+        return importStream(buffered, head);
+    }
+
+    /**
+     * Imports JSON or palette text, chosen by the first bytes.
+     */
+    private static ImportReport importStream(InputStream input, byte[] head) throws IOException {
+        List<RawPalette> rawPalettes = new ArrayList<>();
+        List<ImportReport.Problem> problems = new ArrayList<>();
+        if (isJson(head)) {
+            readJson(input, rawPalettes, problems);
+        } else {
+            readText(input, rawPalettes, problems);
+        }
+        return convert(rawPalettes, problems);
+    }
+
+    /**
+     * Reads a palette archive. Archives only contain valid colors, so nothing needs converting.
+     */
+    private static ImportReport importArchive(Path file) throws IOException {
+        try (PaletteArchive archive = PaletteArchive.open(file)) {
+            List<PaletteData> palettes = new ArrayList<>(archive.readAll());
+            Map<SourceFormat, Integer> formatCounts = new EnumMap<>(SourceFormat.class);
+            formatCounts.put(SourceFormat.ARCHIVE, palettes.size());
+            return new ImportReport(palettes, formatCounts, new ArrayList<>(), 0);
+        }
+    }
+
+    /**
+     * Checks whether the first non-whitespace character, after an optional byte order mark,
+     * starts a JSON array or object.
+     */
+    private static boolean isJson(byte[] head) {
+        int start = head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF ? 3 : 0;
+        for (int i = start; i < head.length; i++) {
+            byte b = head[i];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b == '[' || b == '{';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the palette objects of a JSON document: a single palette object or an array of them.
+     * A malformed document keeps the palettes read before the error.
+     */
+    private static void readJson(InputStream input, List<RawPalette> rawPalettes, List<ImportReport.Problem> problems)
+            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                readJsonPalette(parser, 0, rawPalettes, problems);
+            } else if (token == JsonToken.START_ARRAY) {
+                int index = 0;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    if (token == JsonToken.START_OBJECT) {
+                        readJsonPalette(parser, index, rawPalettes, problems);
+                    } else {
+                        problems.add(new ImportReport.Problem(index, null, "Not a palette object"));
+                        parser.skipChildren();
+                    }
+                    index++;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            problems.add(new ImportReport.Problem(-1, null, "The file is malformed at line "
+                    + e.getLocation().getLineNr() + ": " + e.getOriginalMessage()
+                    + (rawPalettes.isEmpty() ? "" : " (the palettes before it were imported)")));
+        }
+    }
+
+    /**
+     * Reads one palette object, in the current or the legacy format.
+     */
+    private static void readJsonPalette(JsonParser parser, int index, List<RawPalette> rawPalettes,
+                                        List<ImportReport.Problem> problems) throws IOException {
+        String name = null;
+        List<String> tags = List.of();
+        List<String> codes = new ArrayList<>();
+        List<String> colorNames = new ArrayList<>();
+        List<String> hexCodes = List.of();
+        boolean namedColors = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> name = value.isScalarValue() ? parser.getValueAsString() : skip(parser);
+                case "tags" -> tags = readStrings(parser);
+                case "colors" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    // Objects with a hex code in the current format, plain strings in the legacy one
+                    while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (value == JsonToken.START_OBJECT) {
+                            namedColors = true;
+                            readNamedColor(parser, codes, colorNames);
+                        } else if (value == JsonToken.VALUE_STRING) {
+                            codes.add(parser.getText());
+                            colorNames.add(null);
+                        } else {
+                            codes.add(null);
+                            colorNames.add(null);
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                case "colorHexCodes" -> hexCodes = readStrings(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (name == null || name.isBlank()) {
+            problems.add(new ImportReport.Problem(index, null, "Skipped a palette without a name"));
+            return;
+        }
+
+        // Legacy files use colorHexCodes when colors is missing or empty
+        if (codes.isEmpty() && !hexCodes.isEmpty()) {
+            codes = hexCodes;
+            colorNames = Arrays.asList(new String[hexCodes.size()]);
+        }
+        SourceFormat format = namedColors || !tags.isEmpty() || codes.isEmpty()
+                ? SourceFormat.CURRENT_JSON
+                : SourceFormat.LEGACY_JSON;
+        rawPalettes.add(new RawPalette(index, format, name, tags, codes, colorNames));
+    }
+
+    /**
+     * Reads a color object of the current format.
+     */
+    private static void readNamedColor(JsonParser parser, List<String> codes, List<String> colorNames) throws IOException {
+        String hex = null;
+        String colorName = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("hex") && value.isScalarValue()) {
+                hex = parser.getValueAsString();
+            } else if (field.equals("name") && value.isScalarValue()) {
+                colorName = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        codes.add(hex);
+        colorNames.add(colorName);
+    }
+
+    /**
+     * Reads an array of strings, skipping other values.
+     */
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<String> strings = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                strings.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Skips a structured value.
+     *
+     * @return always null
+     */
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Reads palette text: a palette name followed by one color per line, optionally followed
+     * by the color's name, with palettes separated by blank lines.
+     */
+    private static void readText(InputStream input, List<RawPalette> rawPalettes, List<ImportReport.Problem> problems)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String name = null;
+        List<String> codes = new ArrayList<>();
+        List<String> colorNames = new ArrayList<>();
+        String line;
+        int index = 0;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            if (first && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            first = false;
+            line = line.strip();
+
+            if (line.isEmpty()) {
+                if (name != null) {
+                    addTextPalette(rawPalettes, problems, index++, name, codes, colorNames);
+                    name = null;
+                    codes = new ArrayList<>();
+                    colorNames = new ArrayList<>();
+                }
+            } else if (name == null) {
+                name = line;
+            } else {
+                int separator = 0;
+                while (separator < line.length() && !Character.isWhitespace(line.charAt(separator))) {
+                    separator++;
+                }
+                codes.add(line.substring(0, separator));
+                String colorName = line.substring(separator).strip();
+                colorNames.add(colorName.isEmpty() ? null : colorName);
+            }
+        }
+        if (name != null) {
+            addTextPalette(rawPalettes, problems, index, name, codes, colorNames);
+        }
+    }
+
+    /**
+     * Adds a palette read from text, reporting palettes without colors.
+     */
+    private static void addTextPalette(List<RawPalette> rawPalettes, List<ImportReport.Problem> problems,
+                                       int index, String name, List<String> codes, List<String> colorNames) {
+        if (codes.isEmpty()) {
+            problems.add(new ImportReport.Problem(index, name, "Skipped a palette without colors"));
+            return;
+        }
+        rawPalettes.add(new RawPalette(index, SourceFormat.TEXT, name, List.of(), codes, colorNames));
+    }
+
+    /**
+     * Validates and names the colors of all palettes in parallel, and builds the report.
+     */
+    private static ImportReport convert(List<RawPalette> rawPalettes, List<ImportReport.Problem> readProblems) {
+        long startNanos = System.nanoTime();
+        LegacyConversionEvent conversionEvent = new LegacyConversionEvent();
+        conversionEvent.begin();
+
+        Conversion[] conversions = new Conversion[rawPalettes.size()];
+        IntStream.range(0, conversions.length).parallel()
+                .forEach(i -> conversions[i] = convert(rawPalettes.get(i)));
+
+        List<PaletteData> palettes = new ArrayList<>(conversions.length);
+        List<ImportReport.Problem> problems = new ArrayList<>(readProblems);
+        Map<SourceFormat, Integer> formatCounts = new EnumMap<>(SourceFormat.class);
+        int invalidColorCount = 0;
+        int legacyColorCount = 0;
+        int legacyInvalidColorCount = 0;
+        for (int i = 0; i < conversions.length; i++) {
+            RawPalette rawPalette = rawPalettes.get(i);
+            Conversion conversion = conversions[i];
+            palettes.add(conversion.palette);
+            problems.addAll(conversion.problems);
+            formatCounts.merge(rawPalette.format, 1, Integer::sum);
+            int invalid = rawPalette.codes.size() - conversion.palette.size();
+            invalidColorCount += invalid;
+            if (rawPalette.format == SourceFormat.LEGACY_JSON) {
+                legacyColorCount += conversion.palette.size();
+                legacyInvalidColorCount += invalid;
+            }
+        }
+
+        // Problems of the whole file first, then by palette
+        problems.sort((first, second) -> Integer.compare(first.getPaletteIndex(), second.getPaletteIndex()));
+
+        int legacyPaletteCount = formatCounts.getOrDefault(SourceFormat.LEGACY_JSON, 0);
+        if (legacyPaletteCount > 0) {
+            conversionEvent.end();
+            conversionEvent.paletteCount = legacyPaletteCount;
+            conversionEvent.colorCount = legacyColorCount;
+            conversionEvent.invalidColorCount = legacyInvalidColorCount;
+            conversionEvent.commit();
+            Metrics.record(Metrics.LEGACY_CONVERSION, System.nanoTime() - startNanos, legacyColorCount);
+        }
+        return new ImportReport(palettes, formatCounts, problems, invalidColorCount);
+    }
+
+    /**
+     * Validates and names the colors of one palette. Invalid colors are skipped and reported.
+     */
+    private static Conversion convert(RawPalette rawPalette) {
+        List<ImportReport.Problem> problems = new ArrayList<>();
+        int[] colors = new int[rawPalette.codes.size()];
+        String[] colorNames = new String[colors.length];
+        int count = 0;
+        for (int i = 0; i < colors.length; i++) {
+            String code = rawPalette.codes.get(i);
+            if (code == null) {
+                problems.add(new ImportReport.Problem(rawPalette.index, rawPalette.name,
+                        "Color " + (i + 1) + " has no hex code"));
+                continue;
+            }
+            try {
+                colors[count] = PackedColors.parse(code.strip());
+            } catch (IllegalArgumentException e) {
+                problems.add(new ImportReport.Problem(rawPalette.index, rawPalette.name,
+                        "Invalid color '" + code + "'"));
+                continue;
+            }
+            String colorName = rawPalette.colorNames.get(i);
+            colorNames[count] = colorName != null ? colorName : ColorNamer.getDefault().name(colors[count]);
+            count++;
+        }
+        PaletteData palette = new PaletteData(rawPalette.name, Arrays.copyOf(colors, count),
+                Arrays.copyOf(colorNames, count), rawPalette.tags);
+        return new Conversion(palette, problems);
+    }
+}
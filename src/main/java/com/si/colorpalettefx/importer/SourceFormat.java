@@ -0,0 +1,42 @@
+package com.si.colorpalettefx.importer;
+
+/**
+ * The formats palettes can be imported from.
+ */
+public enum SourceFormat {
+    /**
+     * The JSON format of saved palette files, with named colors.
+     */
+    CURRENT_JSON("Palette JSON"),
+
+    /**
+     * The legacy JSON format, with hex codes in "colors" or "colorHexCodes".
+     */
+    LEGACY_JSON("Legacy JSON"),
+
+    /**
+     * The text format of the import dialog: a palette name followed by one color per line,
+     * with palettes separated by blank lines.
+     */
+    TEXT("Palette Text"),
+
+    /**
+     * Compressed palette archives.
+     */
+    ARCHIVE("Palette Archive");
+
+    private final String displayName;
+
+    SourceFormat(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the name shown to the user.
+     *
+     * @return the display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,905 @@
+package com.si.colorpalettefx.library;
+
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.PaletteData;
+import javafx.scene.paint.Color;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * An embedded, file-backed palette library.
+ * <p>
+ * Palettes are stored in an append-only log file; every change appends a checksummed record,
+ * and a damaged tail left by a crash is cut off when the library is opened. Only a small index
+ * is kept in memory: the file position of every palette, and which palettes carry each tag and
+ * have swatches in each color bucket. Palettes themselves are read from disk when a
+ * {@link Page} of query results is requested, so libraries can be far larger than the heap.
+ * Space taken by replaced and removed palettes is reclaimed by {@link #compact()}.
+ * <p>
+ * The library can be read from any number of threads while one thread writes.
+ */
+public final class PaletteLibrary implements Closeable {
+    /**
+     * The name of the log file inside the library directory.
+     */
+    public static final String FILE_NAME = "palettes.cpl";
+
+    private static final int MAGIC = 0x43504C42; // "CPLB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    // Colors are bucketed by the upper 4 bits of every channel
+    private static final int BUCKET_COUNT = 4096;
+
+    // Compact on close once more than this share of the file is garbage
+    private static final double COMPACT_GARBAGE_RATIO = 0.5;
+    private static final long MIN_COMPACT_GARBAGE = 1 << 20;
+
+    private final Path file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private long fileSize;
+    private long garbageBytes;
+
+    // The index: palettes by name and by ordinal, and the ordinals per tag and per color bucket.
+    // Ordinals are handed out in increasing order as palettes are stored, so ordinal order is
+    // library order and every posting list stays sorted.
+    private final Map<String, Entry> entries = new HashMap<>();
+    private Entry[] byOrdinal = new Entry[16];
+    private int nextOrdinal;
+    private final Map<String, Postings> tagIndex = new HashMap<>();
+    private final Postings[] bucketIndex = new Postings[BUCKET_COUNT];
+
+    /**
+     * What the index knows about a stored palette.
+     */
+    private static final class Entry {
+        private final String name;
+        private final int ordinal;
+        private final long position;
+        private final int length;
+        private final List<String> tags;
+
+        Entry(String name, int ordinal, long position, int length, List<String> tags) {
+            this.name = name;
+            this.ordinal = ordinal;
+            this.position = position;
+            this.length = length;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * A sorted list of palette ordinals.
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[2];
+        private int size;
+
+        /**
+         * Appends an ordinal, ignoring it if it is the same as the last one.
+         */
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        /**
+         * Removes an ordinal if it is in the list.
+         */
+        void remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+
+        int get(int index) {
+            return ordinals[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Which palettes to return from {@link #query}. All given criteria must match.
+     */
+    public static final class Query {
+        private final String nameText;
+        private final String tag;
+        private final Integer color;
+
+        /**
+         * Creates a query.
+         *
+         * @param nameText text the palette name must contain, ignoring case, or null for any name
+         * @param tag a tag the palette must have, ignoring case, or null for any tags
+         * @param color a packed color the palette must have a similar swatch for, or null for any colors;
+         *     a swatch is similar when it lies in the same or a neighboring color bucket, so within
+         *     about 1/8 of the range on every channel
+         */
+        public Query(String nameText, String tag, Integer color) {
+            this.nameText = nameText == null || nameText.isBlank() ? null : nameText.trim().toLowerCase(Locale.ROOT);
+            this.tag = tag == null || tag.isBlank() ? null : tag.trim().toLowerCase(Locale.ROOT);
+            this.color = color;
+        }
+
+        /**
+         * Returns a query matching every palette.
+         *
+         * @return the query
+         */
+        public static Query all() {
+            return new Query(null, null, null);
+        }
+
+        /**
+         * Parses query text: words starting with "tag:" select a tag, words starting with '#'
+         * a color, and all other words must appear in the palette name.
+         *
+         * @param text the query text
+         * @return the query
+         */
+        public static Query parse(String text) {
+            List<String> nameWords = new ArrayList<>();
+            String tag = null;
+            Integer color = null;
+            for (String word : text.trim().split("\\s+")) {
+                if (word.regionMatches(true, 0, "tag:", 0, 4) && word.length() > 4) {
+                    tag = word.substring(4);
+                } else if (word.startsWith("#") && word.length() > 1) {
+                    try {
+                        color = PackedColors.toArgb(Color.web(word));
+                    } catch (IllegalArgumentException e) {
+                        nameWords.add(word);
+                    }
+                } else if (!word.isEmpty()) {
+                    nameWords.add(word);
+                }
+            }
+            return new Query(String.join(" ", nameWords), tag, color);
+        }
+    }
+
+    /**
+     * One page of query results, read from disk.
+     */
+    public static final class Page {
+        private final List<PaletteData> palettes;
+        private final int pageIndex;
+        private final int pageSize;
+        private final int totalCount;
+
+        Page(List<PaletteData> palettes, int pageIndex, int pageSize, int totalCount) {
+            this.palettes = palettes;
+            this.pageIndex = pageIndex;
+            this.pageSize = pageSize;
+            this.totalCount = totalCount;
+        }
+
+        /**
+         * Returns the palettes on this page.
+         *
+         * @return the palettes, unmodifiable
+         */
+        public List<PaletteData> getPalettes() {
+            return palettes;
+        }
+
+        /**
+         * Returns the index of this page.
+         *
+         * @return the page index, starting at 0
+         */
+        public int getPageIndex() {
+            return pageIndex;
+        }
+
+        /**
+         * Returns the number of palettes per page.
+         *
+         * @return the page size
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * Returns the number of palettes matching the query on all pages.
+         *
+         * @return the total match count
+         */
+        public int getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns the number of pages of matching palettes.
+         *
+         * @return the page count, at least 1
+         */
+        public int getPageCount() {
+            return Math.max(1, (totalCount + pageSize - 1) / pageSize);
+        }
+    }
+
+    private PaletteLibrary(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the library in a directory, creating it if needed, and reads its index.
+     *
+     * @param directory the library directory
+     * @return the open library
+     * @throws IOException if the library cannot be read or created
+     */
+    public static PaletteLibrary open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        PaletteLibrary library = new PaletteLibrary(directory.resolve(FILE_NAME));
+        library.load();
+        return library;
+    }
+
+    /**
+     * Returns the number of palettes in the library.
+     *
+     * @return the palette count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the library has a palette with the given name.
+     *
+     * @param name the palette name
+     * @return true if there is such a palette
+     */
+    public boolean contains(String name) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all tags used in the library.
+     *
+     * @return the tags in lower case, sorted
+     */
+    public List<String> getTags() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(new TreeSet<>(tagIndex.keySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a palette from disk.
+     *
+     * @param name the palette name
+     * @return the palette, or null if there is none with the name
+     * @throws IOException if the palette cannot be read
+     */
+    public PaletteData get(String name) throws IOException {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(name);
+            return entry == null ? null : read(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of the palettes matching a query, in library order.
+     *
+     * @param query the query
+     * @param pageIndex the index of the page, starting at 0; clamped to the last page
+     * @param pageSize the number of palettes per page
+     * @return the page
+     * @throws IOException if the palettes cannot be read
+     */
+    public Page query(Query query, int pageIndex, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Entry> matches = match(query);
+            int pageCount = Math.max(1, (matches.size() + pageSize - 1) / pageSize);
+            int page = Math.max(0, Math.min(pageIndex, pageCount - 1));
+            int from = page * pageSize;
+            int to = Math.min(matches.size(), from + pageSize);
+            List<PaletteData> palettes = new ArrayList<>(to - from);
+            for (Entry entry : matches.subList(from, to)) {
+                palettes.add(read(entry));
+            }
+            return new Page(Collections.unmodifiableList(palettes), page, pageSize, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a palette, replacing the palette with the same name.
+     *
+     * @param palette the palette
+     * @throws IOException if the palette cannot be written
+     */
+    public void put(PaletteData palette) throws IOException {
+        putAll(List.of(palette));
+    }
+
+    /**
+     * Stores palettes with a single write, replacing palettes with the same names.
+     *
+     * @param palettes the palettes
+     * @throws IOException if the palettes cannot be written
+     */
+    public void putAll(List<PaletteData> palettes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<int[]> recordBounds = new ArrayList<>(palettes.size());
+        for (PaletteData palette : palettes) {
+            int start = bytes.size();
+            writeRecord(bytes, PUT, encode(palette));
+            recordBounds.add(new int[]{start, bytes.size() - start});
+        }
+
+        lock.writeLock().lock();
+        try {
+            long position = append(bytes.toByteArray());
+            for (int i = 0; i < palettes.size(); i++) {
+                PaletteData palette = palettes.get(i);
+                int[] bounds = recordBounds.get(i);
+                index(palette, position + bounds[0], bounds[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a palette.
+     *
+     * @param name the palette name
+     * @return true if the palette was in the library
+     * @throws IOException if the removal cannot be written
+     */
+    public boolean remove(String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        new DataOutputStream(payload).writeUTF(name);
+        writeRecord(bytes, DELETE, payload.toByteArray());
+
+        lock.writeLock().lock();
+        try {
+            if (!entries.containsKey(name)) {
+                return false;
+            }
+            append(bytes.toByteArray());
+            garbageBytes += bytes.size();
+            unindex(name);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log file with only the current palettes, reclaiming the space of replaced
+     * and removed ones.
+     *
+     * @throws IOException if the library cannot be rewritten
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+            List<Entry> live = liveEntries();
+            long[] positions = new long[live.size()];
+            try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                output.write(header());
+                long position = HEADER_SIZE;
+                for (int i = 0; i < live.size(); i++) {
+                    Entry entry = live.get(i);
+                    ByteBuffer record = ByteBuffer.allocate(entry.length);
+                    readFully(entry.position, record);
+                    record.flip();
+                    while (record.hasRemaining()) {
+                        output.write(record);
+                    }
+                    positions[i] = position;
+                    position += entry.length;
+                }
+                output.force(true);
+            }
+
+            // Some platforms cannot replace an open file; whether or not the move succeeds,
+            // reopen whichever file is now in place so the library stays usable
+            channel.close();
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            } finally {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                fileSize = channel.size();
+            }
+
+            // Renumber the palettes so ordinals freed by replaced and removed palettes are reclaimed
+            clearIndex();
+            for (int i = 0; i < live.size(); i++) {
+                Entry entry = live.get(i);
+                index(read(positions[i], entry.length), positions[i], entry.length);
+            }
+            garbageBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes all changes to disk, compacting the file first if it is mostly garbage, and
+     * closes the library.
+     *
+     * @throws IOException if the library cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            if (garbageBytes >= MIN_COMPACT_GARBAGE && garbageBytes > fileSize * COMPACT_GARBAGE_RATIO) {
+                compact();
+            }
+            channel.force(true);
+            channel.close();
+            channel = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the log file and rebuilds the index from it, cutting off a damaged tail.
+     */
+    private void load() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            channel.write(header());
+            fileSize = HEADER_SIZE;
+            return;
+        }
+
+        long validSize = HEADER_SIZE;
+        InputStream input = Channels.newInputStream(channel.position(0));
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Not a palette library: " + file);
+        }
+
+        long size = channel.size();
+        CRC32 crc = new CRC32();
+        while (validSize + RECORD_HEADER_SIZE <= size) {
+            int length = data.readInt();
+            int checksum = data.readInt();
+            if (length <= 0 || validSize + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            int recordLength = RECORD_HEADER_SIZE + length;
+            if (payload[0] == PUT) {
+                index(decode(payload), validSize, recordLength);
+            } else if (payload[0] == DELETE) {
+                garbageBytes += recordLength;
+                unindex(new DataInputStream(new ByteArrayInputStream(payload, 1, length - 1)).readUTF());
+            } else {
+                break;
+            }
+            validSize += recordLength;
+        }
+
+        if (validSize < size) {
+            // A write was interrupted; drop the partial record
+            channel.truncate(validSize);
+        }
+        fileSize = validSize;
+    }
+
+    /**
+     * Adds a palette stored at a file position to the index, replacing the palette with the
+     * same name.
+     */
+    private void index(PaletteData palette, long position, int length) throws IOException {
+        unindex(palette.getName());
+        if (nextOrdinal == byOrdinal.length) {
+            byOrdinal = Arrays.copyOf(byOrdinal, nextOrdinal * 2);
+        }
+        Entry entry = new Entry(palette.getName(), nextOrdinal++, position, length, palette.getTags());
+        entries.put(entry.name, entry);
+        byOrdinal[entry.ordinal] = entry;
+        for (String tag : entry.tags) {
+            tagIndex.computeIfAbsent(tag.toLowerCase(Locale.ROOT), key -> new Postings()).add(entry.ordinal);
+        }
+        for (short bucket : buckets(palette)) {
+            if (bucketIndex[bucket] == null) {
+                bucketIndex[bucket] = new Postings();
+            }
+            bucketIndex[bucket].add(entry.ordinal);
+        }
+    }
+
+    /**
+     * Removes the palette with the given name from the index, counting its record as garbage.
+     * Its color buckets are not kept in memory, so they are read back from its record.
+     */
+    private void unindex(String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return;
+        }
+        short[] buckets = buckets(read(entry));
+        entries.remove(name);
+        byOrdinal[entry.ordinal] = null;
+        garbageBytes += entry.length;
+        for (String tag : entry.tags) {
+            String key = tag.toLowerCase(Locale.ROOT);
+            Postings postings = tagIndex.get(key);
+            if (postings != null) {
+                postings.remove(entry.ordinal);
+                if (postings.size() == 0) {
+                    tagIndex.remove(key);
+                }
+            }
+        }
+        for (short bucket : buckets) {
+            Postings postings = bucketIndex[bucket];
+            if (postings != null) {
+                postings.remove(entry.ordinal);
+                if (postings.size() == 0) {
+                    bucketIndex[bucket] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Empties the index and restarts the ordinals.
+     */
+    private void clearIndex() {
+        entries.clear();
+        Arrays.fill(byOrdinal, null);
+        nextOrdinal = 0;
+        tagIndex.clear();
+        Arrays.fill(bucketIndex, null);
+    }
+
+    /**
+     * Returns the indexed entries in library order.
+     */
+    private List<Entry> liveEntries() {
+        List<Entry> live = new ArrayList<>(entries.size());
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (byOrdinal[ordinal] != null) {
+                live.add(byOrdinal[ordinal]);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Finds the entries matching a query, in library order.
+     */
+    private List<Entry> match(Query query) {
+        Postings tagged = null;
+        if (query.tag != null) {
+            tagged = tagIndex.get(query.tag);
+            if (tagged == null) {
+                return List.of();
+            }
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        if (query.color == null) {
+            if (tagged == null) {
+                for (Entry entry : liveEntries()) {
+                    if (matchesName(entry, query)) {
+                        matches.add(entry);
+                    }
+                }
+            } else {
+                for (int i = 0; i < tagged.size(); i++) {
+                    Entry entry = byOrdinal[tagged.get(i)];
+                    if (matchesName(entry, query)) {
+                        matches.add(entry);
+                    }
+                }
+            }
+            return matches;
+        }
+
+        List<Postings> nearby = nearbyBuckets(query.color);
+        int nearbySize = 0;
+        for (Postings postings : nearby) {
+            nearbySize += postings.size();
+        }
+
+        // Walk the smaller side and probe the other
+        if (tagged != null && tagged.size() <= nearbySize) {
+            for (int i = 0; i < tagged.size(); i++) {
+                int ordinal = tagged.get(i);
+                if (containsAny(nearby, ordinal) && matchesName(byOrdinal[ordinal], query)) {
+                    matches.add(byOrdinal[ordinal]);
+                }
+            }
+            return matches;
+        }
+
+        BitSet colored = new BitSet(nextOrdinal);
+        for (Postings postings : nearby) {
+            for (int i = 0; i < postings.size(); i++) {
+                colored.set(postings.get(i));
+            }
+        }
+        for (int ordinal = colored.nextSetBit(0); ordinal >= 0; ordinal = colored.nextSetBit(ordinal + 1)) {
+            if ((tagged == null || tagged.contains(ordinal)) && matchesName(byOrdinal[ordinal], query)) {
+                matches.add(byOrdinal[ordinal]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the non-empty posting lists of the bucket of a color and its neighbors, so that
+     * colors just across a bucket boundary are still found.
+     */
+    private List<Postings> nearbyBuckets(int argb) {
+        int red = PackedColors.red(argb) >> 4;
+        int green = PackedColors.green(argb) >> 4;
+        int blue = PackedColors.blue(argb) >> 4;
+        List<Postings> nearby = new ArrayList<>(27);
+        for (int r = Math.max(0, red - 1); r <= Math.min(15, red + 1); r++) {
+            for (int g = Math.max(0, green - 1); g <= Math.min(15, green + 1); g++) {
+                for (int b = Math.max(0, blue - 1); b <= Math.min(15, blue + 1); b++) {
+                    Postings postings = bucketIndex[r << 8 | g << 4 | b];
+                    if (postings != null) {
+                        nearby.add(postings);
+                    }
+                }
+            }
+        }
+        return nearby;
+    }
+
+    /**
+     * Checks whether any of the posting lists contains an ordinal.
+     */
+    private static boolean containsAny(List<Postings> postingLists, int ordinal) {
+        for (Postings postings : postingLists) {
+            if (postings.contains(ordinal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the name criterion of a query.
+     */
+    private static boolean matchesName(Entry entry, Query query) {
+        return query.nameText == null || entry.name.toLowerCase(Locale.ROOT).contains(query.nameText);
+    }
+
+    /**
+     * Appends bytes to the log file.
+     *
+     * @return the file position the bytes were written at
+     */
+    private long append(byte[] bytes) throws IOException {
+        if (channel == null) {
+            throw new IOException("The library is closed");
+        }
+        long position = fileSize;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long writePosition = position;
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        fileSize = writePosition;
+        return position;
+    }
+
+    /**
+     * Reads the palette of an index entry.
+     */
+    private PaletteData read(Entry entry) throws IOException {
+        return read(entry.position, entry.length);
+    }
+
+    /**
+     * Reads the palette of the record at a file position.
+     */
+    private PaletteData read(long position, int length) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(position, record);
+        byte[] payload = new byte[length - RECORD_HEADER_SIZE];
+        record.position(RECORD_HEADER_SIZE);
+        record.get(payload);
+        return decode(payload);
+    }
+
+    /**
+     * Fills a buffer from the log file.
+     */
+    private void readFully(long position, ByteBuffer buffer) throws IOException {
+        if (channel == null) {
+            throw new IOException("The library is closed");
+        }
+        long readPosition = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                throw new IOException("Unexpected end of library file at " + readPosition);
+            }
+            readPosition += read;
+        }
+    }
+
+    /**
+     * Returns the file header.
+     */
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Writes a record: its payload length, the CRC-32 of the payload, and the payload starting
+     * with the record kind.
+     */
+    private static void writeRecord(ByteArrayOutputStream output, byte kind, byte[] body) throws IOException {
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = kind;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(payload.length);
+        data.writeInt((int) crc.getValue());
+        data.write(payload);
+    }
+
+    /**
+     * Encodes a palette as a record body.
+     */
+    private static byte[] encode(PaletteData palette) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + palette.size() * 16);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF(palette.getName());
+        data.writeShort(palette.getTags().size());
+        for (String tag : palette.getTags()) {
+            data.writeUTF(tag);
+        }
+        data.writeInt(palette.size());
+        for (int i = 0; i < palette.size(); i++) {
+            data.writeInt(palette.getColor(i));
+        }
+        for (int i = 0; i < palette.size(); i++) {
+            String colorName = palette.getColorName(i);
+            data.writeUTF(colorName == null ? "" : colorName);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a palette from a record payload, including the leading record kind.
+     */
+    private static PaletteData decode(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+        String name = data.readUTF();
+        int tagCount = data.readUnsignedShort();
+        List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(data.readUTF());
+        }
+        int colorCount = data.readInt();
+        int[] colors = new int[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            colors[i] = data.readInt();
+        }
+        String[] colorNames = new String[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            colorNames[i] = data.readUTF();
+        }
+        return new PaletteData(name, colors, colorNames, tags);
+    }
+
+    /**
+     * Returns the distinct color buckets of a palette's swatches.
+     */
+    private static short[] buckets(PaletteData palette) {
+        BitSet buckets = new BitSet(BUCKET_COUNT);
+        for (int i = 0; i < palette.size(); i++) {
+            buckets.set(bucket(palette.getColor(i)));
+        }
+        short[] result = new short[buckets.cardinality()];
+        int next = 0;
+        for (int bucket = buckets.nextSetBit(0); bucket >= 0; bucket = buckets.nextSetBit(bucket + 1)) {
+            result[next++] = (short) bucket;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the color bucket of a packed color.
+     */
+    private static int bucket(int argb) {
+        return (PackedColors.red(argb) >> 4) << 8 | (PackedColors.green(argb) >> 4) << 4 | PackedColors.blue(argb) >> 4;
+    }
+}
@@ -0,0 +1,24 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when palettes in the legacy format are converted to the current model.
+ */
+@Name("com.si.colorpalettefx.LegacyConversion")
+@Label("Legacy Conversion")
+@Category("ColorPaletteFX")
+@Description("Legacy palettes converted to the current format")
+public class LegacyConversionEvent extends jdk.jfr.Event {
+    @Label("Palettes")
+    public int paletteCount;
+
+    @Label("Colors")
+    public int colorCount;
+
+    @Label("Invalid Colors")
+    public int invalidColorCount;
+}
@@ -0,0 +1,83 @@
+package com.si.colorpalettefx.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small in-process registry of operation statistics.
+ * <p>
+ * Complements the JFR events in this package: the events describe every single execution in a
+ * recording, while the registry keeps running totals that the application can display itself.
+ */
+public final class Metrics {
+    /** Loading palettes from a JSON file; the amount is the number of palettes. */
+    public static final String PALETTE_LOAD = "palette.load";
+
+    /** Saving palettes to a JSON file; the amount is the number of palettes. */
+    public static final String PALETTE_SAVE = "palette.save";
+
+    /** Converting legacy palettes; the amount is the number of colors. */
+    public static final String LEGACY_CONVERSION = "palette.legacyConversion";
+
+    /** Importing a palette from text; the amount is the number of lines. */
+    public static final String TEXT_IMPORT = "palette.textImport";
+
+    /** Building and laying out the view of a palette; the amount is the number of nodes. */
+    public static final String PALETTE_RENDER = "palette.render";
+
+    /** Applying an edit to a palette; the amount is the number of colors. */
+    public static final String PALETTE_EDIT = "palette.edit";
+
+    /** Searching palettes and colors; the amount is the number of hits. */
+    public static final String PALETTE_SEARCH = "palette.search";
+
+    private static final Map<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+
+    private static volatile OperationStats lastOperation;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the statistics of the operation with the given name, creating them if needed.
+     *
+     * @param name the name of the operation
+     * @return the statistics of the operation
+     */
+    public static OperationStats operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, OperationStats::new);
+    }
+
+    /**
+     * Records one execution of an operation.
+     *
+     * @param name the name of the operation
+     * @param durationNanos the duration of the execution in nanoseconds
+     * @param amount the size of the execution
+     */
+    public static void record(String name, long durationNanos, long amount) {
+        OperationStats stats = operation(name);
+        stats.record(durationNanos, amount);
+        lastOperation = stats;
+    }
+
+    /**
+     * Returns the statistics of the most recently recorded operation.
+     *
+     * @return the statistics of the last operation, or null if nothing was recorded yet
+     */
+    public static OperationStats lastOperation() {
+        return lastOperation;
+    }
+
+    /**
+     * Returns the statistics of all operations recorded so far.
+     *
+     * @return an unmodifiable view of the statistics
+     */
+    public static Collection<OperationStats> operations() {
+        return Collections.unmodifiableCollection(OPERATIONS.values());
+    }
+}
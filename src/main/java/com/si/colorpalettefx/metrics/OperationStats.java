@@ -0,0 +1,114 @@
+package com.si.colorpalettefx.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated timing and size statistics of one kind of operation. All methods are thread-safe.
+ */
+public final class OperationStats {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder totalAmount = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile long lastAmount;
+
+    /**
+     * Creates new, empty statistics for the operation with the given name.
+     *
+     * @param name the name of the operation
+     */
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one execution of the operation.
+     *
+     * @param durationNanos the duration of the execution in nanoseconds
+     * @param amount the size of the execution, e.g. the number of colors processed
+     */
+    void record(long durationNanos, long amount) {
+        count.increment();
+        totalNanos.add(durationNanos);
+        totalAmount.add(amount);
+        maxNanos.accumulateAndGet(durationNanos, Math::max);
+        lastNanos = durationNanos;
+        lastAmount = amount;
+    }
+
+    /**
+     * Returns the name of the operation.
+     *
+     * @return the name of the operation
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of recorded executions.
+     *
+     * @return the number of recorded executions
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the total duration of all recorded executions.
+     *
+     * @return the total duration in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns the mean duration of the recorded executions.
+     *
+     * @return the mean duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long executions = count.sum();
+        return executions == 0 ? 0 : totalNanos.sum() / executions;
+    }
+
+    /**
+     * Returns the longest duration of the recorded executions.
+     *
+     * @return the longest duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the sum of the sizes of all recorded executions.
+     *
+     * @return the total amount
+     */
+    public long getTotalAmount() {
+        return totalAmount.sum();
+    }
+
+    /**
+     * Returns the duration of the most recent execution.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * Returns the size of the most recent execution.
+     *
+     * @return the amount of the most recent execution
+     */
+    public long getLastAmount() {
+        return lastAmount;
+    }
+}
@@ -0,0 +1,24 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when an edit is applied to a palette.
+ */
+@Name("com.si.colorpalettefx.PaletteEdit")
+@Label("Palette Edit")
+@Category("ColorPaletteFX")
+@Description("Edit applied to an existing palette")
+public class PaletteEditEvent extends jdk.jfr.Event {
+    @Label("Palette")
+    public String palette;
+
+    @Label("Colors Before")
+    public int colorCountBefore;
+
+    @Label("Colors After")
+    public int colorCountAfter;
+}
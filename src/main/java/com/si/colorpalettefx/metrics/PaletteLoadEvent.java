@@ -0,0 +1,32 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when palettes are loaded from a file.
+ */
+@Name("com.si.colorpalettefx.PaletteLoad")
+@Label("Palette Load")
+@Category("ColorPaletteFX")
+@Description("Palettes read from a file")
+public class PaletteLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Legacy Format")
+    public boolean legacy;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Palettes Read")
+    public int paletteCount;
+
+    @Label("Palettes Added")
+    public int addedCount;
+}
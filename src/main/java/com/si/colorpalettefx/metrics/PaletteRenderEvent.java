@@ -0,0 +1,30 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted when the view of a palette has been built and laid out. The duration of
+ * the event covers building the nodes; the CSS and layout pass is reported separately.
+ */
+@Name("com.si.colorpalettefx.PaletteRender")
+@Label("Palette Render")
+@Category("ColorPaletteFX")
+@Description("Swatch grid built for a palette")
+public class PaletteRenderEvent extends jdk.jfr.Event {
+    @Label("Palette")
+    public String palette;
+
+    @Label("Swatches")
+    public int swatchCount;
+
+    @Label("Nodes")
+    public int nodeCount;
+
+    @Label("Layout Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long layoutNanos;
+}
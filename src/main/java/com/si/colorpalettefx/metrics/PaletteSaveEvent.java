@@ -0,0 +1,26 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when palettes are saved to a file.
+ */
+@Name("com.si.colorpalettefx.PaletteSave")
+@Label("Palette Save")
+@Category("ColorPaletteFX")
+@Description("Palettes written to a file")
+public class PaletteSaveEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Palettes")
+    public int paletteCount;
+}
@@ -0,0 +1,24 @@
+package com.si.colorpalettefx.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when a palette is imported from text.
+ */
+@Name("com.si.colorpalettefx.TextImport")
+@Label("Text Import")
+@Category("ColorPaletteFX")
+@Description("Palette parsed from pasted text")
+public class TextImportEvent extends jdk.jfr.Event {
+    @Label("Lines")
+    public int lineCount;
+
+    @Label("Colors")
+    public int colorCount;
+
+    @Label("Errors")
+    public int errorCount;
+}
@@ -1,7 +1,10 @@
 package com.si.colorpalettefx.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.si.colorpalettefx.color.ColorNamer;
+import com.si.colorpalettefx.color.PackedColors;
 import javafx.scene.paint.Color;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -11,24 +14,34 @@ import java.util.stream.Collectors;
 
 /**
  * Represents a color palette with a name and a list of colors.
+ * <p>
+ * Every palette caches 64-bit fingerprints of its colors and their names, which identify
+ * palettes with the same content regardless of their names. The cache is invalidated whenever
+ * the colors change.
  */
 public class ColorPalette {
     private String name;
     @JsonIgnore
     private List<NamedColor> namedColors;
 
+    // Free-form labels used to organize and find palettes
+    private List<String> tags = List.of();
+
+    // Number of changes to the colors of this palette
+    private long edits;
+
+    // Cached fingerprints, valid while the edit count matches the one they were computed at
+    private long fingerprint;
+    private long unorderedFingerprint;
+    private long fingerprintEdits = -1;
+
     /**
-     * Represents a color with a name.
+     * Represents a color with a name. Named colors are immutable, so a palette only changes
+     * through its own methods and can be shared between palettes.
      */
-    public static class NamedColor {
-        private Color color;
-        private String name;
-
-        /**
-         * Default constructor for Jackson deserialization
-         */
-        public NamedColor() {
-        }
+    public static final class NamedColor {
+        private final Color color;
+        private final String name;
 
         /**
          * Creates a new named color with the given color and name.
@@ -50,15 +63,6 @@ public class ColorPalette {
             return color;
         }
 
-        /**
-         * Sets the color.
-         *
-         * @param color the new color
-         */
-        public void setColor(Color color) {
-            this.color = color;
-        }
-
         /**
          * Returns the name of the color.
          *
@@ -67,15 +71,6 @@ public class ColorPalette {
         public String getName() {
             return name;
         }
-
-        /**
-         * Sets the name of the color.
-         *
-         * @param name the new name of the color
-         */
-        public void setName(String name) {
-            this.name = name;
-        }
     }
 
     /**
@@ -105,15 +100,41 @@ public class ColorPalette {
         this.name = name;
         this.namedColors = new ArrayList<>();
         for (Color color : colors) {
-            // Default the color name to its hex code
-            String colorName = String.format("#%02X%02X%02X",
-                (int) (color.getRed() * 255),
-                (int) (color.getGreen() * 255),
-                (int) (color.getBlue() * 255));
-            this.namedColors.add(new NamedColor(color, colorName));
+            // Default the color name to the closest named color
+            this.namedColors.add(new NamedColor(color, ColorNamer.getDefault().name(color)));
+        }
+    }
+
+    /**
+     * Creates a new color palette from packed colors and their names.
+     *
+     * @param name the name of the palette
+     * @param colors the packed ARGB colors of the palette
+     * @param colorNames the names of the colors, in the same order
+     */
+    public ColorPalette(String name, int[] colors, String[] colorNames) {
+        if (colors.length != colorNames.length) {
+            throw new IllegalArgumentException("Expected " + colors.length + " color names, got " + colorNames.length);
+        }
+        this.name = name;
+        this.namedColors = new ArrayList<>(colors.length);
+        for (int i = 0; i < colors.length; i++) {
+            this.namedColors.add(new NamedColor(PackedColors.toColor(colors[i]), colorNames[i]));
         }
     }
 
+    /**
+     * Creates a copy of the given palette. The immutable named colors are shared, and later
+     * changes to either palette do not affect the other.
+     *
+     * @param palette the palette to copy
+     */
+    public ColorPalette(ColorPalette palette) {
+        this.name = palette.name;
+        this.tags = palette.tags;
+        this.namedColors = new ArrayList<>(palette.namedColors);
+    }
+
     /**
      * Returns the name of the palette.
      *
@@ -132,6 +153,45 @@ public class ColorPalette {
         this.name = name;
     }
 
+    /**
+     * Returns the tags of the palette. Tags are not part of the fingerprints.
+     *
+     * @return the tags, unmodifiable
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Sets the tags of the palette. Blank tags are dropped, and each tag is kept only once.
+     *
+     * @param tags the new tags
+     */
+    public void setTags(List<String> tags) {
+        this.tags = normalizeTags(tags);
+    }
+
+    /**
+     * Trims tags and removes blank and repeated ones, keeping their order.
+     *
+     * @param tags the tags, may be null
+     * @return the normalized tags, unmodifiable
+     */
+    public static List<String> normalizeTags(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        List<String> normalized = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            String trimmed = tag == null ? "" : tag.trim();
+            if (!trimmed.isEmpty() && !normalized.contains(trimmed)) {
+                normalized.add(trimmed);
+            }
+        }
+        return List.copyOf(normalized);
+    }
+
     /**
      * Returns the list of colors in the palette.
      *
@@ -158,14 +218,11 @@ public class ColorPalette {
      * @param colors the new list of colors in the palette
      */
     public void setColors(List<Color> colors) {
+        edits++;
         this.namedColors.clear();
         for (Color color : colors) {
-            // Default the color name to its hex code
-            String colorName = String.format("#%02X%02X%02X",
-                (int) (color.getRed() * 255),
-                (int) (color.getGreen() * 255),
-                (int) (color.getBlue() * 255));
-            this.namedColors.add(new NamedColor(color, colorName));
+            // Default the color name to the closest named color
+            this.namedColors.add(new NamedColor(color, ColorNamer.getDefault().name(color)));
         }
     }
 
@@ -175,22 +232,53 @@ public class ColorPalette {
      * @param namedColors the new list of named colors in the palette
      */
     public void setNamedColors(List<NamedColor> namedColors) {
+        edits++;
         this.namedColors.clear();
         this.namedColors.addAll(namedColors);
     }
 
+    /**
+     * Replaces a named color of the palette.
+     *
+     * @param index the index of the color
+     * @param namedColor the new named color
+     */
+    public void setNamedColor(int index, NamedColor namedColor) {
+        edits++;
+        namedColors.set(index, namedColor);
+    }
+
+    /**
+     * Inserts named colors into the palette.
+     *
+     * @param index the index to insert the first color at
+     * @param namedColors the named colors to insert, in order
+     */
+    public void addNamedColors(int index, List<NamedColor> namedColors) {
+        edits++;
+        this.namedColors.addAll(index, namedColors);
+    }
+
+    /**
+     * Removes a range of named colors from the palette.
+     *
+     * @param fromIndex the index of the first color to remove
+     * @param toIndex the index after the last color to remove
+     */
+    public void removeNamedColors(int fromIndex, int toIndex) {
+        edits++;
+        namedColors.subList(fromIndex, toIndex).clear();
+    }
+
     /**
      * Adds a color to the palette.
      *
      * @param color the color to add
      */
     public void addColor(Color color) {
-        // Default the color name to its hex code
-        String colorName = String.format("#%02X%02X%02X",
-            (int) (color.getRed() * 255),
-            (int) (color.getGreen() * 255),
-            (int) (color.getBlue() * 255));
-        namedColors.add(new NamedColor(color, colorName));
+        edits++;
+        // Default the color name to the closest named color
+        namedColors.add(new NamedColor(color, ColorNamer.getDefault().name(color)));
     }
 
     /**
@@ -200,6 +288,7 @@ public class ColorPalette {
      * @param name the name of the color
      */
     public void addColor(Color color, String name) {
+        edits++;
         namedColors.add(new NamedColor(color, name));
     }
 
@@ -210,6 +299,7 @@ public class ColorPalette {
      * @return true if the color was removed, false otherwise
      */
     public boolean removeColor(Color color) {
+        edits++;
         return namedColors.removeIf(nc -> nc.getColor().equals(color));
     }
 
@@ -222,6 +312,48 @@ public class ColorPalette {
         return namedColors.size();
     }
 
+    /**
+     * Returns the fingerprint of the colors and color names of the palette, in order. The name
+     * of the palette is not part of the fingerprint.
+     *
+     * @return the content fingerprint
+     */
+    @JsonIgnore
+    public long getFingerprint() {
+        updateFingerprints();
+        return fingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of the colors and color names of the palette regardless of their
+     * order. The name of the palette is not part of the fingerprint.
+     *
+     * @return the order-insensitive content fingerprint
+     */
+    @JsonIgnore
+    public long getUnorderedFingerprint() {
+        updateFingerprints();
+        return unorderedFingerprint;
+    }
+
+    /**
+     * Recomputes the cached fingerprints if the colors changed since they were computed.
+     */
+    private void updateFingerprints() {
+        if (fingerprintEdits == edits) {
+            return;
+        }
+
+        long[] swatchHashes = new long[namedColors.size()];
+        for (int i = 0; i < swatchHashes.length; i++) {
+            NamedColor namedColor = namedColors.get(i);
+            swatchHashes[i] = Fingerprints.swatch(PackedColors.toArgb(namedColor.getColor()), namedColor.getName());
+        }
+        fingerprint = Fingerprints.ordered(swatchHashes);
+        unorderedFingerprint = Fingerprints.unordered(swatchHashes);
+        fingerprintEdits = edits;
+    }
+
     /**
      * Returns the list of color data for JSON serialization.
      *
@@ -246,6 +378,7 @@ public class ColorPalette {
      */
     @JsonProperty("colors")
     public void setColorData(List<Map<String, String>> colorData) {
+        edits++;
         this.namedColors.clear();
         if (colorData != null) {
             colorData.forEach(data -> {
@@ -253,8 +386,8 @@ public class ColorPalette {
                 String name = data.get("name");
                 if (hex != null) {
                     Color color = Color.web(hex);
-                    // If name is null, use hex as the name
-                    this.namedColors.add(new NamedColor(color, name != null ? name : hex));
+                    // If name is null, use the closest named color as the name
+                    this.namedColors.add(new NamedColor(color, name != null ? name : ColorNamer.getDefault().name(color)));
                 }
             });
         }
@@ -267,9 +400,6 @@ public class ColorPalette {
      * @return the hex string representation of the color
      */
     private String toHexString(Color color) {
-        return String.format("#%02X%02X%02X",
-                (int) (color.getRed() * 255),
-                (int) (color.getGreen() * 255),
-                (int) (color.getBlue() * 255));
+        return PackedColors.toHex(color);
     }
 }
@@ -0,0 +1,77 @@
+package com.si.colorpalettefx.model;
+
+/**
+ * 64-bit hashing of swatches and swatch sequences.
+ * <p>
+ * Swatch hashes are FNV-1a over the packed color and the name, finished with an avalanche step
+ * so that similar colors spread over all bits. Sequence fingerprints combine them either in
+ * order, or by addition so that the order of the swatches does not matter.
+ */
+public final class Fingerprints {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Hashes a swatch.
+     *
+     * @param argb the packed color
+     * @param name the name, or null
+     * @return the hash
+     */
+    public static long swatch(int argb, String name) {
+        long hash = (FNV_OFFSET ^ (argb & 0xFFFFFFFFL)) * FNV_PRIME;
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                hash = (hash ^ name.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Combines swatch hashes in order.
+     *
+     * @param swatchHashes the swatch hashes
+     * @return the fingerprint of the sequence
+     */
+    public static long ordered(long[] swatchHashes) {
+        long hash = FNV_OFFSET;
+        for (long swatchHash : swatchHashes) {
+            hash = (hash ^ swatchHash) * FNV_PRIME;
+        }
+        return mix(hash ^ swatchHashes.length);
+    }
+
+    /**
+     * Combines swatch hashes regardless of their order. Swatches that occur several times count
+     * as often as they occur.
+     *
+     * @param swatchHashes the swatch hashes
+     * @return the fingerprint of the multiset of swatches
+     */
+    public static long unordered(long[] swatchHashes) {
+        long sum = 0;
+        for (long swatchHash : swatchHashes) {
+            sum += swatchHash;
+        }
+        return mix(sum ^ mix(swatchHashes.length));
+    }
+
+    /**
+     * Spreads the bits of a hash (the MurmurHash3 finalizer).
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
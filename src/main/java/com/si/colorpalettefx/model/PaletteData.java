@@ -0,0 +1,156 @@
+package com.si.colorpalettefx.model;
+
+import com.si.colorpalettefx.color.PackedColors;
+
+import java.util.List;
+
+/**
+ * An immutable copy of a palette with packed colors, safe to share with background threads.
+ */
+public final class PaletteData {
+    private final String name;
+    private final int[] colors;
+    private final String[] colorNames;
+    private final List<String> tags;
+    private final long fingerprint;
+
+    /**
+     * Creates palette data from packed colors and their names. The arrays are not copied and
+     * must not be changed afterwards.
+     *
+     * @param name the name of the palette
+     * @param colors the packed ARGB colors
+     * @param colorNames the names of the colors, in the same order
+     */
+    public PaletteData(String name, int[] colors, String[] colorNames) {
+        this(name, colors, colorNames, List.of());
+    }
+
+    /**
+     * Creates tagged palette data from packed colors and their names. The arrays are not copied
+     * and must not be changed afterwards.
+     *
+     * @param name the name of the palette
+     * @param colors the packed ARGB colors
+     * @param colorNames the names of the colors, in the same order
+     * @param tags the tags of the palette
+     */
+    public PaletteData(String name, int[] colors, String[] colorNames, List<String> tags) {
+        this(name, colors, colorNames, ColorPalette.normalizeTags(tags), fingerprint(colors, colorNames));
+    }
+
+    private PaletteData(String name, int[] colors, String[] colorNames, List<String> tags, long fingerprint) {
+        if (colors.length != colorNames.length) {
+            throw new IllegalArgumentException("Expected " + colors.length + " color names, got " + colorNames.length);
+        }
+        this.name = name;
+        this.colors = colors;
+        this.colorNames = colorNames;
+        this.tags = tags;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Copies the current content of a palette.
+     *
+     * @param palette the palette
+     * @return the palette data
+     */
+    public static PaletteData of(ColorPalette palette) {
+        List<ColorPalette.NamedColor> namedColors = palette.getNamedColors();
+        int[] colors = new int[namedColors.size()];
+        String[] colorNames = new String[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = PackedColors.toArgb(namedColors.get(i).getColor());
+            colorNames[i] = namedColors.get(i).getName();
+        }
+        return new PaletteData(palette.getName(), colors, colorNames, palette.getTags(), palette.getFingerprint());
+    }
+
+    /**
+     * Computes the content fingerprint the same way {@link ColorPalette#getFingerprint()} does.
+     */
+    private static long fingerprint(int[] colors, String[] colorNames) {
+        long[] swatchHashes = new long[Math.min(colors.length, colorNames.length)];
+        for (int i = 0; i < swatchHashes.length; i++) {
+            swatchHashes[i] = Fingerprints.swatch(colors[i], colorNames[i]);
+        }
+        return Fingerprints.ordered(swatchHashes);
+    }
+
+    /**
+     * Returns the name of the palette.
+     *
+     * @return the palette name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the tags of the palette.
+     *
+     * @return the tags, unmodifiable
+     */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Returns the number of colors.
+     *
+     * @return the color count
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * Returns a packed color.
+     *
+     * @param index the index of the color
+     * @return the packed ARGB color
+     */
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    /**
+     * Returns the name of a color.
+     *
+     * @param index the index of the color
+     * @return the color name
+     */
+    public String getColorName(int index) {
+        return colorNames[index];
+    }
+
+    /**
+     * Returns a copy of the packed colors.
+     *
+     * @return the packed ARGB colors
+     */
+    public int[] getColors() {
+        return colors.clone();
+    }
+
+    /**
+     * Returns the content fingerprint of the colors and color names.
+     *
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Creates a new, independent palette with this content.
+     *
+     * @return the palette
+     */
+    public ColorPalette toColorPalette() {
+        ColorPalette palette = new ColorPalette(name, colors, colorNames);
+        palette.setTags(tags);
+        return palette;
+    }
+}
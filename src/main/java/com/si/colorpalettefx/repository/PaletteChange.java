@@ -0,0 +1,79 @@
+package com.si.colorpalettefx.repository;
+
+import com.si.colorpalettefx.model.PaletteData;
+
+/**
+ * A change of one palette between two versions of a {@link PaletteRepository}.
+ */
+public final class PaletteChange {
+    /**
+     * The kinds of changes.
+     */
+    public enum Type {
+        /**
+         * A palette was added.
+         */
+        ADDED,
+
+        /**
+         * The content or tags of a palette changed; its name stayed the same.
+         */
+        CHANGED,
+
+        /**
+         * A palette was removed.
+         */
+        REMOVED
+    }
+
+    private final Type type;
+    private final PaletteData previous;
+    private final PaletteData palette;
+
+    PaletteChange(Type type, PaletteData previous, PaletteData palette) {
+        this.type = type;
+        this.previous = previous;
+        this.palette = palette;
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the change type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the changed palette.
+     *
+     * @return the palette name
+     */
+    public String getName() {
+        return palette != null ? palette.getName() : previous.getName();
+    }
+
+    /**
+     * Returns the palette before the change.
+     *
+     * @return the previous palette, or null if the palette was added
+     */
+    public PaletteData getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Returns the palette after the change.
+     *
+     * @return the palette, or null if the palette was removed
+     */
+    public PaletteData getPalette() {
+        return palette;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + getName();
+    }
+}
@@ -0,0 +1,129 @@
+package com.si.colorpalettefx.repository;
+
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.repository.PaletteRepository.Snapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All palette changes between two versions of a {@link PaletteRepository}, delivered to
+ * subscribers of its change stream. Any number of repository versions can be combined into one
+ * batch: the batch describes the net difference between its first and last snapshot.
+ * <p>
+ * Palettes are compared by identity, since every write stores new {@link PaletteData}. A
+ * palette replaced by one with the same name is reported as changed; a renamed palette is
+ * reported as removed under its old name and added under its new one.
+ */
+public final class PaletteChangeBatch {
+    private final Snapshot from;
+    private final Snapshot to;
+    private final List<PaletteChange> changes;
+
+    private PaletteChangeBatch(Snapshot from, Snapshot to, List<PaletteChange> changes) {
+        this.from = from;
+        this.to = to;
+        this.changes = changes;
+    }
+
+    /**
+     * Computes the changes between two snapshots.
+     *
+     * @param from the earlier snapshot
+     * @param to the later snapshot
+     * @return the changes
+     */
+    static PaletteChangeBatch between(Snapshot from, Snapshot to) {
+        Set<PaletteData> before = Collections.newSetFromMap(new IdentityHashMap<>(from.size() * 2));
+        before.addAll(from.getPalettes());
+        Set<PaletteData> after = Collections.newSetFromMap(new IdentityHashMap<>(to.size() * 2));
+        after.addAll(to.getPalettes());
+
+        // Palettes that are gone, by name, so that replacements can be paired with them
+        Map<String, ArrayDeque<PaletteData>> removedByName = new HashMap<>();
+        for (PaletteData palette : from.getPalettes()) {
+            if (!after.contains(palette)) {
+                removedByName.computeIfAbsent(palette.getName(), name -> new ArrayDeque<>()).add(palette);
+            }
+        }
+
+        List<PaletteChange> changes = new ArrayList<>();
+        for (PaletteData palette : to.getPalettes()) {
+            if (!before.contains(palette)) {
+                ArrayDeque<PaletteData> replaced = removedByName.get(palette.getName());
+                PaletteData previous = replaced == null ? null : replaced.poll();
+                changes.add(previous == null
+                        ? new PaletteChange(PaletteChange.Type.ADDED, null, palette)
+                        : new PaletteChange(PaletteChange.Type.CHANGED, previous, palette));
+            }
+        }
+        for (PaletteData palette : from.getPalettes()) {
+            ArrayDeque<PaletteData> removed = removedByName.get(palette.getName());
+            if (removed != null && removed.peek() == palette) {
+                changes.add(new PaletteChange(PaletteChange.Type.REMOVED, removed.poll(), null));
+            }
+        }
+        return new PaletteChangeBatch(from, to, Collections.unmodifiableList(changes));
+    }
+
+    /**
+     * Returns the version the changes start from.
+     *
+     * @return the earlier version
+     */
+    public long getFromVersion() {
+        return from.getVersion();
+    }
+
+    /**
+     * Returns the version the changes lead to.
+     *
+     * @return the later version
+     */
+    public long getToVersion() {
+        return to.getVersion();
+    }
+
+    /**
+     * Returns the number of repository versions combined in this batch.
+     *
+     * @return the version count
+     */
+    public long getVersionCount() {
+        return to.getVersion() - from.getVersion();
+    }
+
+    /**
+     * Returns the repository snapshot after the changes.
+     *
+     * @return the later snapshot
+     */
+    public Snapshot getSnapshot() {
+        return to;
+    }
+
+    /**
+     * Returns the changes: added and changed palettes in repository order, then removed ones.
+     *
+     * @return the changes, unmodifiable
+     */
+    public List<PaletteChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns whether the palettes are the same in both versions, e.g. because a change was
+     * undone by a later one.
+     *
+     * @return true if nothing changed
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+}
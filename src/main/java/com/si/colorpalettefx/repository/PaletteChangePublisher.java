@@ -0,0 +1,204 @@
+package com.si.colorpalettefx.repository;
+
+import com.si.colorpalettefx.repository.PaletteRepository.Snapshot;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The change stream of a {@link PaletteRepository}: publishes a {@link PaletteChangeBatch} to
+ * every subscriber after repository writes.
+ * <p>
+ * Every subscriber is served on its own executor, one signal at a time, and receives batches
+ * only as far as it requested them. Writers never wait for subscribers: a write only records
+ * the new snapshot as the latest one of each subscription and schedules a delivery. While a
+ * subscriber has no outstanding demand or is still busy with its last batch, further writes
+ * are merged, and its next batch describes all of them at once. A slow subscriber, such as one
+ * writing to disk, therefore receives fewer, larger batches and never holds back writers or
+ * other subscribers, and pending changes take no memory beyond two snapshots.
+ * <p>
+ * Subscribers only receive changes made after they subscribed; the current state is available
+ * from {@link PaletteRepository#getSnapshot()} when they need it.
+ */
+public final class PaletteChangePublisher implements Flow.Publisher<PaletteChangeBatch> {
+    private final PaletteRepository repository;
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    PaletteChangePublisher(PaletteRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * A subscription, delivering merged changes from the last delivered snapshot to the latest one.
+     */
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super PaletteChangeBatch> subscriber;
+        private final Executor executor;
+        private final AtomicReference<Snapshot> latest;
+        private final AtomicLong demand = new AtomicLong();
+
+        // Number of deliveries scheduled while one is running; only one runs at a time
+        private final AtomicInteger pendingRuns = new AtomicInteger();
+
+        // Only used by the running delivery
+        private Snapshot delivered;
+        private boolean subscribed;
+
+        private volatile boolean cancelled;
+        private volatile Throwable requestError;
+
+        ChangeSubscription(Flow.Subscriber<? super PaletteChangeBatch> subscriber, Executor executor, Snapshot start) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.latest = new AtomicReference<>(start);
+            this.delivered = start;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("Requested " + n + " batches, must be positive");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Records a newer snapshot and schedules its delivery. Snapshots from racing writers
+         * may arrive out of order, so only a higher version replaces the latest one.
+         */
+        void offer(Snapshot snapshot) {
+            latest.accumulateAndGet(snapshot, (current, offered) ->
+                    offered.getVersion() > current.getVersion() ? offered : current);
+            schedule();
+        }
+
+        /**
+         * Runs a delivery on the executor unless one is already running, in which case that one
+         * runs once more.
+         */
+        void schedule() {
+            if (pendingRuns.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    cancel();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    deliver();
+                } catch (RuntimeException | Error e) {
+                    // Subscribers must not throw; one that does is dropped
+                    cancel();
+                    System.err.println("Palette change subscriber failed: " + e);
+                }
+                missed = pendingRuns.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Sends the subscription, a pending error, or a batch with all changes not yet delivered.
+         */
+        private void deliver() {
+            if (cancelled) {
+                return;
+            }
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            Throwable error = requestError;
+            if (error != null) {
+                cancel();
+                subscriber.onError(error);
+                return;
+            }
+
+            while (!cancelled && demand.get() > 0) {
+                Snapshot target = latest.get();
+                if (target.getVersion() <= delivered.getVersion()) {
+                    return;
+                }
+                PaletteChangeBatch batch = PaletteChangeBatch.between(delivered, target);
+                delivered = target;
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(batch);
+            }
+        }
+    }
+
+    /**
+     * Subscribes to the changes, delivered on the common fork-join pool. Subscribers that block,
+     * e.g. on I/O, should use {@link #subscribe(Flow.Subscriber, Executor)} with an executor of
+     * their own.
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super PaletteChangeBatch> subscriber) {
+        subscribe(subscriber, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Subscribes to the changes, delivered on the given executor. Signals to the subscriber never
+     * overlap, even if the executor runs tasks in parallel.
+     *
+     * @param subscriber the subscriber
+     * @param executor the executor running the subscriber's signals
+     */
+    public void subscribe(Flow.Subscriber<? super PaletteChangeBatch> subscriber, Executor executor) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Objects.requireNonNull(executor, "executor");
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, executor, repository.getSnapshot());
+        subscriptions.add(subscription);
+
+        // Writes between reading the start snapshot and registering would otherwise be missed
+        subscription.offer(repository.getSnapshot());
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     *
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Hands a new snapshot to all subscriptions. Never blocks.
+     *
+     * @param snapshot the snapshot written last
+     */
+    void publish(Snapshot snapshot) {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.offer(snapshot);
+        }
+    }
+}
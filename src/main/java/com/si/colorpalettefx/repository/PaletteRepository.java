@@ -0,0 +1,220 @@
+package com.si.colorpalettefx.repository;
+
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The palettes shared by all windows and background tasks of the application.
+ * <p>
+ * The repository holds immutable, versioned {@link Snapshot snapshots} of {@link PaletteData}
+ * behind an atomic reference. Reading is a single volatile read and never blocks, so indexers,
+ * exporters and the palette server can work on a consistent state from any thread. Writes copy
+ * the palette list, apply the change and publish the result with a compare-and-set, retrying
+ * when another writer got there first; every successful write increments the version by one.
+ * <p>
+ * Code that needs to react to writes subscribes to the {@link #getChanges() change stream}
+ * instead of polling for new versions.
+ */
+public final class PaletteRepository {
+    private static final PaletteRepository DEFAULT = new PaletteRepository();
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, List.of()));
+    private final PaletteChangePublisher changes = new PaletteChangePublisher(this);
+
+    /**
+     * The palettes of the repository at one version. Snapshots never change.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<PaletteData> palettes;
+        private volatile Map<String, PaletteData> palettesByName;
+
+        private Snapshot(long version, List<PaletteData> palettes) {
+            this.version = version;
+            this.palettes = palettes;
+        }
+
+        /**
+         * Returns the version of the snapshot. Later snapshots have higher versions.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the palettes, in the order they were added.
+         *
+         * @return the palettes, unmodifiable
+         */
+        public List<PaletteData> getPalettes() {
+            return palettes;
+        }
+
+        /**
+         * Returns the number of palettes.
+         *
+         * @return the palette count
+         */
+        public int size() {
+            return palettes.size();
+        }
+
+        /**
+         * Looks up a palette by name. If several palettes share the name, the first one is returned.
+         *
+         * @param name the palette name
+         * @return the palette, or null if there is none
+         */
+        public PaletteData get(String name) {
+            Map<String, PaletteData> byName = palettesByName;
+            if (byName == null) {
+                // Built on first use; racing threads build equal maps
+                byName = new HashMap<>(palettes.size() * 2);
+                for (PaletteData palette : palettes) {
+                    byName.putIfAbsent(palette.getName(), palette);
+                }
+                palettesByName = byName;
+            }
+            return byName.get(name);
+        }
+    }
+
+    /**
+     * Creates an empty repository. Most code should use the shared {@link #getDefault()} instance.
+     */
+    public PaletteRepository() {
+    }
+
+    /**
+     * Returns the repository shared by the whole application.
+     *
+     * @return the default repository
+     */
+    public static PaletteRepository getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the current snapshot. Never blocks.
+     *
+     * @return the current snapshot
+     */
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Returns the stream of changes made by writes to this repository.
+     *
+     * @return the change publisher
+     */
+    public PaletteChangePublisher getChanges() {
+        return changes;
+    }
+
+    /**
+     * Changes the palettes atomically. The change is applied to a copy of the current palette
+     * list and may be applied more than once if other writers interfere, so it must not have
+     * side effects.
+     *
+     * @param change the change, modifying the given list
+     * @return the snapshot with the change applied
+     */
+    public Snapshot update(Consumer<List<PaletteData>> change) {
+        while (true) {
+            Snapshot expected = current.get();
+            Snapshot updated = apply(expected, change);
+            if (updated == expected) {
+                return updated;
+            }
+            if (current.compareAndSet(expected, updated)) {
+                changes.publish(updated);
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Adds a palette, replacing the first palette with the same name.
+     *
+     * @param palette the palette
+     * @return the snapshot with the palette
+     */
+    public Snapshot put(PaletteData palette) {
+        return update(palettes -> {
+            for (int i = 0; i < palettes.size(); i++) {
+                if (palettes.get(i).getName().equals(palette.getName())) {
+                    palettes.set(i, palette);
+                    return;
+                }
+            }
+            palettes.add(palette);
+        });
+    }
+
+    /**
+     * Removes all palettes with the given name.
+     *
+     * @param name the palette name
+     * @return the snapshot without the palettes
+     */
+    public Snapshot remove(String name) {
+        return update(palettes -> palettes.removeIf(palette -> palette.getName().equals(name)));
+    }
+
+    /**
+     * Replaces all palettes.
+     *
+     * @param palettes the new palettes
+     * @return the snapshot with the new palettes
+     */
+    public Snapshot replaceAll(List<PaletteData> palettes) {
+        return update(existing -> {
+            existing.clear();
+            existing.addAll(palettes);
+        });
+    }
+
+    /**
+     * Applies a change to a copy of a snapshot's palettes.
+     *
+     * @return the new snapshot, or the given one if the change left the palettes unchanged
+     */
+    private static Snapshot apply(Snapshot snapshot, Consumer<List<PaletteData>> change) {
+        List<PaletteData> palettes = new ArrayList<>(snapshot.palettes);
+        change.accept(palettes);
+        if (sameElements(palettes, snapshot.palettes)) {
+            return snapshot;
+        }
+        for (PaletteData palette : palettes) {
+            if (palette == null) {
+                throw new NullPointerException("Palettes must not be null");
+            }
+        }
+        return new Snapshot(snapshot.version + 1, Collections.unmodifiableList(palettes));
+    }
+
+    /**
+     * Compares two lists by the identity of their elements.
+     */
+    private static boolean sameElements(List<PaletteData> first, List<PaletteData> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (first.get(i) != second.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
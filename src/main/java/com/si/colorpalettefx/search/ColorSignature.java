@@ -0,0 +1,475 @@
+package com.si.colorpalettefx.search;
+
+import com.si.colorpalettefx.color.OkLab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact description of the colors of a palette, for comparing palettes by their colors
+ * regardless of order, names and size.
+ * <p>
+ * Colors are quantized on a grid in OKLab, and the fullest grid cells become the clusters of
+ * the signature: their mean color and their share of the palette. The colors of the remaining
+ * cells are merged into the nearest cluster, so that palettes of any size are described by at
+ * most {@value #MAX_CLUSTERS} clusters. Two signatures are compared with the earth mover's
+ * distance, the least total distance colors have to move in OKLab to turn one palette's color
+ * distribution into the other's.
+ * <p>
+ * For candidate retrieval, a signature also holds a histogram over a coarse OKLab grid, with
+ * every color spread over its eight surrounding grid points, so that similar colors produce
+ * similar histograms. The histogram is stored sparsely and scaled to unit length.
+ */
+final class ColorSignature {
+    /**
+     * Maximum number of clusters of a signature.
+     */
+    static final int MAX_CLUSTERS = 10;
+
+    /**
+     * Number of grid points per axis of the histogram.
+     */
+    static final int HISTOGRAM_GRID = 6;
+
+    /**
+     * Number of dimensions of the histogram.
+     */
+    static final int HISTOGRAM_SIZE = HISTOGRAM_GRID * HISTOGRAM_GRID * HISTOGRAM_GRID;
+
+    // Cells per axis of the cluster grid, and the range of a and b covered by both grids
+    private static final int CLUSTER_GRID = 10;
+    private static final float CHROMA_RANGE = 0.32f;
+
+    private static final double EPSILON = 1e-9;
+
+    private final float[] centroids;
+    private final float[] weights;
+    // Directions the clusters are projected onto for the lower bound: the axes and the
+    // diagonals of the OKLab grid, of unit length
+    private static final float[][] DIRECTIONS = directions();
+
+    // Cluster positions along each direction in ascending order, and the cumulative weights up to each
+    private final float[][] projectedPositions = new float[DIRECTIONS.length][];
+    private final float[][] projectedCumulative = new float[DIRECTIONS.length][];
+    private final int[] histogramBins;
+    private final float[] histogramValues;
+
+    private ColorSignature(float[] centroids, float[] weights, int[] histogramBins, float[] histogramValues) {
+        this.centroids = centroids;
+        this.weights = weights;
+        this.histogramBins = histogramBins;
+        this.histogramValues = histogramValues;
+
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            float[] projected = new float[weights.length];
+            Integer[] order = new Integer[weights.length];
+            for (int i = 0; i < order.length; i++) {
+                for (int axis = 0; axis < 3; axis++) {
+                    projected[i] += centroids[i * 3 + axis] * DIRECTIONS[direction][axis];
+                }
+                order[i] = i;
+            }
+            Arrays.sort(order, (first, second) -> Float.compare(projected[first], projected[second]));
+            projectedPositions[direction] = new float[order.length];
+            projectedCumulative[direction] = new float[order.length];
+            float cumulative = 0;
+            for (int i = 0; i < order.length; i++) {
+                cumulative += weights[order[i]];
+                projectedPositions[direction][i] = projected[order[i]];
+                projectedCumulative[direction][i] = cumulative;
+            }
+        }
+    }
+
+    /**
+     * Returns the projection directions: the 3 axes, the 6 face diagonals and the 4 body
+     * diagonals of a cube, of unit length.
+     */
+    private static float[][] directions() {
+        List<float[]> directions = new ArrayList<>();
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    // One of every pair of opposite directions
+                    int first = x != 0 ? x : y != 0 ? y : z;
+                    if (first == 1) {
+                        float length = (float) Math.sqrt(x * x + y * y + z * z);
+                        directions.add(new float[]{x / length, y / length, z / length});
+                    }
+                }
+            }
+        }
+        return directions.toArray(new float[0][]);
+    }
+
+    /**
+     * Computes the signature of a palette.
+     *
+     * @param colors the packed colors of the palette
+     * @return the signature, empty for an empty palette
+     */
+    static ColorSignature of(int[] colors) {
+        float[] labs = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            OkLab.fromArgb(colors[i], labs, i * 3);
+        }
+
+        // Count and color sum per cluster grid cell
+        Map<Integer, float[]> cells = new HashMap<>();
+        for (int i = 0; i < colors.length; i++) {
+            int cell = (cell(labs[i * 3], 0, 1) * CLUSTER_GRID + cell(labs[i * 3 + 1], -CHROMA_RANGE, CHROMA_RANGE))
+                    * CLUSTER_GRID + cell(labs[i * 3 + 2], -CHROMA_RANGE, CHROMA_RANGE);
+            float[] sums = cells.computeIfAbsent(cell, key -> new float[4]);
+            sums[0]++;
+            for (int axis = 0; axis < 3; axis++) {
+                sums[axis + 1] += labs[i * 3 + axis];
+            }
+        }
+
+        // The fullest cells become clusters, the others are merged into the nearest cluster
+        float[][] sorted = cells.values().toArray(new float[0][]);
+        Arrays.sort(sorted, (first, second) -> Float.compare(second[0], first[0]));
+        int clusterCount = Math.min(MAX_CLUSTERS, sorted.length);
+        float[] clusterSums = new float[clusterCount * 4];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            System.arraycopy(sorted[cluster], 0, clusterSums, cluster * 4, 4);
+        }
+        for (int cell = clusterCount; cell < sorted.length; cell++) {
+            float[] sums = sorted[cell];
+            int nearest = 0;
+            float nearestDistance = Float.MAX_VALUE;
+            for (int cluster = 0; cluster < clusterCount; cluster++) {
+                float distance = 0;
+                for (int axis = 0; axis < 3; axis++) {
+                    float difference = sums[axis + 1] / sums[0] - sorted[cluster][axis + 1] / sorted[cluster][0];
+                    distance += difference * difference;
+                }
+                if (distance < nearestDistance) {
+                    nearest = cluster;
+                    nearestDistance = distance;
+                }
+            }
+            for (int i = 0; i < 4; i++) {
+                clusterSums[nearest * 4 + i] += sums[i];
+            }
+        }
+
+        float[] centroids = new float[clusterCount * 3];
+        float[] weights = new float[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            float count = clusterSums[cluster * 4];
+            weights[cluster] = count / colors.length;
+            for (int axis = 0; axis < 3; axis++) {
+                centroids[cluster * 3 + axis] = clusterSums[cluster * 4 + axis + 1] / count;
+            }
+        }
+
+        return histogram(labs, colors.length, centroids, weights);
+    }
+
+    /**
+     * Spreads every color over the histogram grid points around it and creates the signature.
+     */
+    private static ColorSignature histogram(float[] labs, int count, float[] centroids, float[] weights) {
+        float[] histogram = new float[HISTOGRAM_SIZE];
+        for (int i = 0; i < count; i++) {
+            float x = position(labs[i * 3], 0, 1);
+            float y = position(labs[i * 3 + 1], -CHROMA_RANGE, CHROMA_RANGE);
+            float z = position(labs[i * 3 + 2], -CHROMA_RANGE, CHROMA_RANGE);
+            int x0 = Math.min((int) x, HISTOGRAM_GRID - 2);
+            int y0 = Math.min((int) y, HISTOGRAM_GRID - 2);
+            int z0 = Math.min((int) z, HISTOGRAM_GRID - 2);
+            float dx = x - x0;
+            float dy = y - y0;
+            float dz = z - z0;
+            for (int corner = 0; corner < 8; corner++) {
+                int cx = corner >> 2;
+                int cy = (corner >> 1) & 1;
+                int cz = corner & 1;
+                float weight = (cx == 1 ? dx : 1 - dx) * (cy == 1 ? dy : 1 - dy) * (cz == 1 ? dz : 1 - dz);
+                histogram[((x0 + cx) * HISTOGRAM_GRID + y0 + cy) * HISTOGRAM_GRID + z0 + cz] += weight;
+            }
+        }
+
+        int nonZero = 0;
+        double squaredLength = 0;
+        for (float value : histogram) {
+            if (value > 0) {
+                nonZero++;
+                squaredLength += (double) value * value;
+            }
+        }
+        int[] bins = new int[nonZero];
+        float[] values = new float[nonZero];
+        float scale = squaredLength > 0 ? (float) (1 / Math.sqrt(squaredLength)) : 0;
+        for (int bin = 0, i = 0; bin < HISTOGRAM_SIZE; bin++) {
+            if (histogram[bin] > 0) {
+                bins[i] = bin;
+                values[i++] = histogram[bin] * scale;
+            }
+        }
+        return new ColorSignature(centroids, weights, bins, values);
+    }
+
+    /**
+     * Returns the cluster grid cell of a coordinate.
+     */
+    private static int cell(float value, float min, float max) {
+        return Math.max(0, Math.min(CLUSTER_GRID - 1, (int) ((value - min) / (max - min) * CLUSTER_GRID)));
+    }
+
+    /**
+     * Returns the position of a coordinate on the histogram grid, 0 to grid size - 1.
+     */
+    private static float position(float value, float min, float max) {
+        return Math.max(0, Math.min(HISTOGRAM_GRID - 1, (value - min) / (max - min) * (HISTOGRAM_GRID - 1)));
+    }
+
+    /**
+     * Returns whether the signature describes no colors.
+     *
+     * @return true for the signature of an empty palette
+     */
+    boolean isEmpty() {
+        return weights.length == 0;
+    }
+
+    /**
+     * Returns the number of non-zero histogram bins.
+     *
+     * @return the number of bins
+     */
+    int getHistogramBinCount() {
+        return histogramBins.length;
+    }
+
+    /**
+     * Returns a non-zero histogram bin.
+     *
+     * @param index the position among the non-zero bins
+     * @return the bin, 0 to {@link #HISTOGRAM_SIZE} - 1
+     */
+    int getHistogramBin(int index) {
+        return histogramBins[index];
+    }
+
+    /**
+     * Returns the value of a non-zero histogram bin.
+     *
+     * @param index the position among the non-zero bins
+     * @return the value of the bin in the unit-length histogram
+     */
+    float getHistogramValue(int index) {
+        return histogramValues[index];
+    }
+
+    /**
+     * Returns a lower bound of the earth mover's distance: the largest earth mover's distance
+     * between the two color distributions projected onto one of several directions. No color
+     * moves further along a direction than it moves in OKLab, so none of the projected
+     * distances exceeds the full distance.
+     *
+     * @param other the other signature
+     * @return the lower bound
+     */
+    double lowerBound(ColorSignature other) {
+        double bound = 0;
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            bound = Math.max(bound, projectedDistance(other, direction));
+        }
+        return bound;
+    }
+
+    /**
+     * Returns the earth mover's distance along one direction: the area between the cumulative
+     * distributions of the two projected signatures.
+     */
+    private double projectedDistance(ColorSignature other, int direction) {
+        float[] positions = projectedPositions[direction];
+        float[] cumulative = projectedCumulative[direction];
+        float[] otherPositions = other.projectedPositions[direction];
+        float[] otherCumulative = other.projectedCumulative[direction];
+
+        double distance = 0;
+        double mass = 0;
+        double otherMass = 0;
+        double previous = 0;
+        int i = 0;
+        int j = 0;
+        while (i < positions.length || j < otherPositions.length) {
+            double position;
+            if (j >= otherPositions.length || (i < positions.length && positions[i] <= otherPositions[j])) {
+                position = positions[i];
+            } else {
+                position = otherPositions[j];
+            }
+            if (i > 0 || j > 0) {
+                distance += Math.abs(mass - otherMass) * (position - previous);
+            }
+            while (i < positions.length && positions[i] == position) {
+                mass = cumulative[i++];
+            }
+            while (j < otherPositions.length && otherPositions[j] == position) {
+                otherMass = otherCumulative[j++];
+            }
+            previous = position;
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the earth mover's distance between two signatures, computed exactly as a minimum
+     * cost flow from the clusters of this signature to those of the other. The flow is found
+     * with successive shortest paths, using Dijkstra's algorithm on costs reduced by node
+     * potentials.
+     *
+     * @param other the other signature
+     * @return the distance in OKLab units, 0 for identical distributions
+     */
+    double distance(ColorSignature other) {
+        int n = weights.length;
+        int m = other.weights.length;
+        double[] cost = new double[n * m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double sum = 0;
+                for (int axis = 0; axis < 3; axis++) {
+                    double difference = centroids[i * 3 + axis] - other.centroids[j * 3 + axis];
+                    sum += difference * difference;
+                }
+                cost[i * m + j] = Math.sqrt(sum);
+            }
+        }
+
+        // Nodes: the source, this signature's clusters, the other's clusters, the sink
+        int source = 0;
+        int sink = n + m + 1;
+        int nodeCount = n + m + 2;
+        double[] supply = new double[n];
+        double[] demand = new double[m];
+        for (int i = 0; i < n; i++) {
+            supply[i] = weights[i];
+        }
+        for (int j = 0; j < m; j++) {
+            demand[j] = other.weights[j];
+        }
+        double[] flow = new double[n * m];
+        double[] potential = new double[nodeCount];
+        double[] pathDistance = new double[nodeCount];
+        int[] predecessor = new int[nodeCount];
+        boolean[] settled = new boolean[nodeCount];
+
+        double remaining = Math.min(sum(supply), sum(demand));
+        for (int round = 0; remaining > EPSILON && round < 2 * (n * m + n + m); round++) {
+            Arrays.fill(pathDistance, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessor, -1);
+            Arrays.fill(settled, false);
+            pathDistance[source] = 0;
+            while (true) {
+                int node = -1;
+                for (int candidate = 0; candidate < nodeCount; candidate++) {
+                    if (!settled[candidate] && pathDistance[candidate] < Double.POSITIVE_INFINITY
+                            && (node < 0 || pathDistance[candidate] < pathDistance[node])) {
+                        node = candidate;
+                    }
+                }
+                if (node < 0 || node == sink) {
+                    break;
+                }
+                settled[node] = true;
+
+                // Relax the residual edges leaving the node, with costs reduced by the potentials
+                if (node == source) {
+                    for (int i = 0; i < n; i++) {
+                        if (supply[i] > EPSILON) {
+                            relax(node, 1 + i, 0, potential, pathDistance, predecessor);
+                        }
+                    }
+                } else if (node <= n) {
+                    int i = node - 1;
+                    for (int j = 0; j < m; j++) {
+                        relax(node, 1 + n + j, cost[i * m + j], potential, pathDistance, predecessor);
+                    }
+                    if (supply[i] < weights[i] - EPSILON) {
+                        relax(node, source, 0, potential, pathDistance, predecessor);
+                    }
+                } else {
+                    int j = node - 1 - n;
+                    for (int i = 0; i < n; i++) {
+                        if (flow[i * m + j] > EPSILON) {
+                            relax(node, 1 + i, -cost[i * m + j], potential, pathDistance, predecessor);
+                        }
+                    }
+                    if (demand[j] > EPSILON) {
+                        relax(node, sink, 0, potential, pathDistance, predecessor);
+                    }
+                }
+            }
+            if (pathDistance[sink] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                potential[node] += Math.min(pathDistance[node], pathDistance[sink]);
+            }
+
+            // The path runs source, cluster, other cluster, (cluster, other cluster)..., sink
+            double amount = remaining;
+            for (int node = sink; node != source; node = predecessor[node]) {
+                int previous = predecessor[node];
+                if (previous == source) {
+                    amount = Math.min(amount, supply[node - 1]);
+                } else if (node == sink) {
+                    amount = Math.min(amount, demand[previous - 1 - n]);
+                } else if (previous > n) {
+                    amount = Math.min(amount, flow[(node - 1) * m + previous - 1 - n]);
+                }
+            }
+            for (int node = sink; node != source; node = predecessor[node]) {
+                int previous = predecessor[node];
+                if (previous == source) {
+                    supply[node - 1] -= amount;
+                } else if (node == sink) {
+                    demand[previous - 1 - n] -= amount;
+                } else if (previous > n) {
+                    flow[(node - 1) * m + previous - 1 - n] -= amount;
+                } else {
+                    flow[(previous - 1) * m + node - 1 - n] += amount;
+                }
+            }
+            remaining -= amount;
+        }
+
+        double total = 0;
+        for (int i = 0; i < flow.length; i++) {
+            total += flow[i] * cost[i];
+        }
+        return total;
+    }
+
+    /**
+     * Shortens the path to a node through an edge, if the edge's reduced cost allows it.
+     */
+    private static void relax(int from, int to, double cost, double[] potential, double[] pathDistance,
+                              int[] predecessor) {
+        double reducedCost = Math.max(0, cost + potential[from] - potential[to]);
+        double candidate = pathDistance[from] + reducedCost;
+        if (candidate < pathDistance[to]) {
+            pathDistance[to] = candidate;
+            predecessor[to] = from;
+        }
+    }
+
+    /**
+     * Returns the sum of an array.
+     */
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
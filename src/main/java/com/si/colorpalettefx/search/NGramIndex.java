@@ -0,0 +1,124 @@
+package com.si.colorpalettefx.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * An inverted index from character trigrams to the ids of the entries containing them, used to
+ * find candidates for substring matches.
+ */
+final class NGramIndex {
+    /**
+     * The length of the indexed n-grams, and so the shortest supported query.
+     */
+    static final int N = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /**
+     * Adds the id of an entry under every trigram of the given text.
+     *
+     * @param text the text of the entry
+     * @param id the entry id, not smaller than any id added before
+     */
+    void add(String text, int id) {
+        for (int i = 0; i + N <= text.length(); i++) {
+            postings.computeIfAbsent(gram(text, i), key -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Visits the ids of all entries containing every trigram of the query, in ascending order,
+     * until the visitor returns false. Candidates still have to be verified by the caller.
+     *
+     * @param query the query, at least {@link #N} characters long
+     * @param visitor receives the candidate ids and returns whether to continue
+     */
+    void visitCandidates(String query, IntPredicate visitor) {
+        int gramCount = query.length() - N + 1;
+        if (gramCount < 1) {
+            return;
+        }
+
+        Postings[] lists = new Postings[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(gram(query, i));
+            if (lists[i] == null) {
+                return;
+            }
+        }
+
+        // Drive the intersection from the rarest trigram
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        int[] positions = new int[gramCount];
+        Postings smallest = lists[0];
+        candidates:
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.get(i);
+            for (int list = 1; list < gramCount; list++) {
+                if (!advanceTo(lists[list], positions, list, id)) {
+                    continue candidates;
+                }
+            }
+            if (!visitor.test(id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Advances the position in a postings list to the first id not smaller than the given one.
+     *
+     * @param list the postings list
+     * @param positions the current positions of all lists
+     * @param listIndex the index of the list in the positions
+     * @param id the id to look for
+     * @return true if the list contains the id
+     */
+    private static boolean advanceTo(Postings list, int[] positions, int listIndex, int id) {
+        int position = positions[listIndex];
+        if (position < list.size() && list.get(position) < id) {
+            // Gallop ahead until the id is passed, then binary search the last step
+            int low = position;
+            int high = position + 1;
+            int step = 1;
+            while (high < list.size() && list.get(high) < id) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            position = low + 1;
+            high = Math.min(high, list.size());
+            while (position < high) {
+                int middle = (position + high) >>> 1;
+                if (list.get(middle) < id) {
+                    position = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+        }
+        positions[listIndex] = position;
+        return position < list.size() && list.get(position) == id;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Packs the trigram starting at the given position into a key.
+     *
+     * @param text the text
+     * @param start the start of the trigram
+     * @return the packed trigram
+     */
+    private static Long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
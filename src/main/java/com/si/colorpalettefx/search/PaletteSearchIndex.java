@@ -0,0 +1,362 @@
+package com.si.colorpalettefx.search;
+
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An incrementally updated search index over palette names, color names and hex codes.
+ * <p>
+ * Every palette and every color is an entry with an id. Words, full names and hex codes are
+ * kept in a {@link PrefixTrie} for prefix matches, and the trigrams of the same texts in an
+ * {@link NGramIndex} for substring matches. Removed entries are only marked as dead and skipped
+ * during searches; the index is rebuilt once dead entries outnumber the live ones. Renames and
+ * edits of single colors only replace the affected entries, so editing a few swatches of a
+ * large palette does not re-index the whole palette.
+ * <p>
+ * The index is not thread-safe; it is updated and queried on the JavaFX application thread.
+ */
+public final class PaletteSearchIndex {
+    private static final int MIN_DEAD_ENTRIES_FOR_REBUILD = 4096;
+
+    /**
+     * An indexed palette or color.
+     */
+    private static final class Entry {
+        private final ColorPalette palette;
+        // Shifted as colors are inserted and removed before this one
+        private int colorIndex;
+        private final String name;
+        private final String hex;
+        private final String normalizedName;
+        private final String normalizedHex;
+
+        private Entry(ColorPalette palette, int colorIndex, String name, String hex) {
+            this.palette = palette;
+            this.colorIndex = colorIndex;
+            this.name = name;
+            this.hex = hex;
+            this.normalizedName = normalize(name);
+            this.normalizedHex = hex != null ? normalize(hex) : null;
+        }
+
+        private boolean contains(String query) {
+            return normalizedName.contains(query) || (normalizedHex != null && normalizedHex.contains(query));
+        }
+    }
+
+    /**
+     * The entries of an indexed palette.
+     */
+    private static final class PaletteEntries {
+        // The first id assigned to the palette, which orders palettes in a rebuild
+        private final int order;
+        private int nameId;
+        // Ids of the color entries, in color order
+        private int[] colorIds;
+        private int colorCount;
+
+        private PaletteEntries(int order, int nameId, int[] colorIds) {
+            this.order = order;
+            this.nameId = nameId;
+            this.colorIds = colorIds;
+            this.colorCount = colorIds.length;
+        }
+    }
+
+    private final PrefixTrie trie = new PrefixTrie();
+    private final NGramIndex ngrams = new NGramIndex();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<ColorPalette, PaletteEntries> paletteEntries = new IdentityHashMap<>();
+    private int deadEntries;
+
+    /**
+     * Adds a palette and all of its colors to the index, replacing its entries if it is already
+     * indexed.
+     *
+     * @param palette the palette to add
+     */
+    public void add(ColorPalette palette) {
+        if (paletteEntries.containsKey(palette)) {
+            remove(palette);
+        }
+
+        List<NamedColor> namedColors = palette.getNamedColors();
+        int nameId = index(new Entry(palette, -1, palette.getName(), null));
+        int[] colorIds = new int[namedColors.size()];
+        for (int i = 0; i < colorIds.length; i++) {
+            colorIds[i] = index(colorEntry(palette, i, namedColors.get(i)));
+        }
+        paletteEntries.put(palette, new PaletteEntries(nameId, nameId, colorIds));
+    }
+
+    /**
+     * Removes a palette and all of its colors from the index. Call this before replacing the
+     * colors of a palette and {@link #add} afterwards, or keep the index up to date with
+     * {@link #rename}, {@link #setColor}, {@link #addColors} and {@link #removeColors}.
+     *
+     * @param palette the palette to remove
+     */
+    public void remove(ColorPalette palette) {
+        PaletteEntries indexed = paletteEntries.remove(palette);
+        if (indexed == null) {
+            return;
+        }
+
+        entries.set(indexed.nameId, null);
+        for (int i = 0; i < indexed.colorCount; i++) {
+            entries.set(indexed.colorIds[i], null);
+        }
+        deadEntries += indexed.colorCount + 1;
+        rebuildIfMostlyDead();
+    }
+
+    /**
+     * Updates the name of an indexed palette after it was renamed.
+     *
+     * @param palette the renamed palette
+     */
+    public void rename(ColorPalette palette) {
+        PaletteEntries indexed = paletteEntries.get(palette);
+        if (indexed == null) {
+            return;
+        }
+
+        entries.set(indexed.nameId, null);
+        deadEntries++;
+        indexed.nameId = index(new Entry(palette, -1, palette.getName(), null));
+        rebuildIfMostlyDead();
+    }
+
+    /**
+     * Updates a color of an indexed palette after it was replaced.
+     *
+     * @param palette the palette
+     * @param index the index of the color
+     * @param namedColor the new named color
+     */
+    public void setColor(ColorPalette palette, int index, NamedColor namedColor) {
+        PaletteEntries indexed = paletteEntries.get(palette);
+        if (indexed == null) {
+            return;
+        }
+
+        entries.set(indexed.colorIds[index], null);
+        deadEntries++;
+        indexed.colorIds[index] = index(colorEntry(palette, index, namedColor));
+        rebuildIfMostlyDead();
+    }
+
+    /**
+     * Adds colors to an indexed palette after they were inserted into it.
+     *
+     * @param palette the palette
+     * @param index the index of the first inserted color
+     * @param namedColors the inserted named colors, in order
+     */
+    public void addColors(ColorPalette palette, int index, List<NamedColor> namedColors) {
+        PaletteEntries indexed = paletteEntries.get(palette);
+        if (indexed == null) {
+            return;
+        }
+
+        int count = namedColors.size();
+        if (indexed.colorCount + count > indexed.colorIds.length) {
+            indexed.colorIds = Arrays.copyOf(indexed.colorIds,
+                    Math.max(indexed.colorCount + count, indexed.colorIds.length + (indexed.colorIds.length >> 1)));
+        }
+        System.arraycopy(indexed.colorIds, index, indexed.colorIds, index + count, indexed.colorCount - index);
+        indexed.colorCount += count;
+        for (int i = 0; i < count; i++) {
+            indexed.colorIds[index + i] = index(colorEntry(palette, index + i, namedColors.get(i)));
+        }
+        renumberColors(indexed, index + count);
+    }
+
+    /**
+     * Removes a range of colors from an indexed palette after they were removed from it.
+     *
+     * @param palette the palette
+     * @param fromIndex the index of the first removed color
+     * @param toIndex the index after the last removed color
+     */
+    public void removeColors(ColorPalette palette, int fromIndex, int toIndex) {
+        PaletteEntries indexed = paletteEntries.get(palette);
+        if (indexed == null) {
+            return;
+        }
+
+        for (int i = fromIndex; i < toIndex; i++) {
+            entries.set(indexed.colorIds[i], null);
+        }
+        System.arraycopy(indexed.colorIds, toIndex, indexed.colorIds, fromIndex, indexed.colorCount - toIndex);
+        indexed.colorCount -= toIndex - fromIndex;
+        deadEntries += toIndex - fromIndex;
+        renumberColors(indexed, fromIndex);
+        rebuildIfMostlyDead();
+    }
+
+    /**
+     * Searches for palettes and colors matching the query. Prefix matches of words, names and
+     * hex codes come first, followed by matches anywhere in a name or hex code.
+     *
+     * @param query the search text; a leading '#' is ignored
+     * @param limit the maximum number of hits
+     * @return the hits, at most limit
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<SearchHit> hits = new ArrayList<>();
+        String trimmedQuery = normalize(query).trim();
+        String normalizedQuery = trimmedQuery.startsWith("#") ? trimmedQuery.substring(1) : trimmedQuery;
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return hits;
+        }
+
+        // Ids of the hits so far, to avoid duplicates; limit is expected to be small
+        int[] hitIds = new int[limit];
+
+        trie.visitPrefix(normalizedQuery, id -> collect(id, hits, hitIds, limit));
+        if (hits.size() < limit && normalizedQuery.length() >= NGramIndex.N) {
+            ngrams.visitCandidates(normalizedQuery, id -> {
+                Entry entry = entries.get(id);
+                return entry == null || !entry.contains(normalizedQuery) || collect(id, hits, hitIds, limit);
+            });
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of indexed palettes.
+     *
+     * @return the number of palettes
+     */
+    public int getPaletteCount() {
+        return paletteEntries.size();
+    }
+
+    /**
+     * Removes all palettes from the index.
+     */
+    public void clear() {
+        trie.clear();
+        ngrams.clear();
+        entries.clear();
+        paletteEntries.clear();
+        deadEntries = 0;
+    }
+
+    /**
+     * Adds a hit for the given entry unless it is dead or already a hit.
+     *
+     * @return whether more hits are wanted
+     */
+    private boolean collect(int id, List<SearchHit> hits, int[] hitIds, int limit) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return true;
+        }
+        for (int i = 0; i < hits.size(); i++) {
+            if (hitIds[i] == id) {
+                return true;
+            }
+        }
+
+        hitIds[hits.size()] = id;
+        hits.add(new SearchHit(entry.palette, entry.colorIndex, entry.name, entry.hex));
+        return hits.size() < limit;
+    }
+
+    /**
+     * Creates the entry of a color.
+     */
+    private static Entry colorEntry(ColorPalette palette, int colorIndex, NamedColor namedColor) {
+        String hex = PackedColors.toHex(namedColor.getColor());
+        String name = namedColor.getName() != null ? namedColor.getName() : hex;
+        return new Entry(palette, colorIndex, name, hex);
+    }
+
+    /**
+     * Updates the color indices of the color entries of a palette from the given position on,
+     * after colors were inserted or removed before them.
+     */
+    private void renumberColors(PaletteEntries indexed, int fromIndex) {
+        for (int i = fromIndex; i < indexed.colorCount; i++) {
+            entries.get(indexed.colorIds[i]).colorIndex = i;
+        }
+    }
+
+    /**
+     * Rebuilds the index if dead entries outnumber the live ones.
+     */
+    private void rebuildIfMostlyDead() {
+        if (deadEntries >= MIN_DEAD_ENTRIES_FOR_REBUILD && deadEntries > entries.size() - deadEntries) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Assigns the next id to an entry and indexes its texts.
+     *
+     * @param entry the entry to index
+     * @return the id of the entry
+     */
+    private int index(Entry entry) {
+        int id = entries.size();
+        entries.add(entry);
+
+        String name = entry.normalizedName;
+        trie.add(name, id);
+        int wordStart = -1;
+        for (int i = 0; i <= name.length(); i++) {
+            boolean wordChar = i < name.length() && Character.isLetterOrDigit(name.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                // Whole names are already in the trie
+                if (wordStart > 0 || i < name.length()) {
+                    trie.add(name.substring(wordStart, i), id);
+                }
+                wordStart = -1;
+            }
+        }
+        ngrams.add(name, id);
+
+        if (entry.normalizedHex != null) {
+            // Index hex codes without the leading '#', which queries ignore as well
+            String hex = entry.normalizedHex.substring(1);
+            trie.add(hex, id);
+            ngrams.add(hex, id);
+        }
+        return id;
+    }
+
+    /**
+     * Rebuilds the index from the live palettes, dropping all dead entries. The palettes must
+     * match their entries, so every change has to be passed to the index as soon as it is made.
+     */
+    private void rebuild() {
+        List<ColorPalette> palettes = new ArrayList<>(paletteEntries.keySet());
+        palettes.sort((a, b) -> Integer.compare(paletteEntries.get(a).order, paletteEntries.get(b).order));
+        clear();
+        for (ColorPalette palette : palettes) {
+            add(palette);
+        }
+    }
+
+    /**
+     * Normalizes a text for case-insensitive matching.
+     *
+     * @param text the text
+     * @return the normalized text
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
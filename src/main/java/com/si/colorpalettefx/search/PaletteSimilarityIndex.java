@@ -0,0 +1,478 @@
+package com.si.colorpalettefx.search;
+
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.repository.PaletteChange;
+import com.si.colorpalettefx.repository.PaletteChangeBatch;
+import com.si.colorpalettefx.repository.PaletteRepository;
+import com.si.colorpalettefx.repository.PaletteRepository.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds palettes with similar colors among many thousands of palettes.
+ * <p>
+ * Every palette is described by a {@link ColorSignature}. Candidates for a query are retrieved
+ * with locality-sensitive hashing: the signature histograms are hashed with random hyperplanes
+ * in {@value #BANDS} bands of {@value #BITS_PER_BAND} bits, and palettes sharing any band with
+ * the query become candidates. Similar histograms share a band with high probability, dissimilar
+ * ones rarely do. If exact band matches turn up too few candidates, the buckets one bit away
+ * are probed as well. The candidates are then ranked by exact earth mover's distance in the
+ * order of a cheap lower bound, until the bound rules out the remaining candidates or a fixed
+ * number of distances has been computed.
+ * <p>
+ * Removed palettes are only marked as dead and skipped during queries; the index is rebuilt
+ * from the stored signatures once dead entries outnumber the live ones. The index is
+ * thread-safe: queries may run while it is updated, e.g. from the change stream of a
+ * {@link PaletteRepository} with {@link #follow(PaletteRepository)}.
+ */
+public final class PaletteSimilarityIndex {
+    /**
+     * Number of hash bands.
+     */
+    static final int BANDS = 20;
+
+    /**
+     * Number of hyperplane bits per band.
+     */
+    static final int BITS_PER_BAND = 16;
+
+    private static final int MIN_DEAD_ENTRIES_FOR_REBUILD = 4096;
+
+    // Candidates wanted per requested result before probing neighboring buckets, and exact
+    // distances computed at most per requested result
+    private static final int PROBE_CANDIDATES_PER_RESULT = 16;
+    private static final int RANKED_CANDIDATES_PER_RESULT = 16;
+    private static final int MIN_RANKED_CANDIDATES = 64;
+
+    private static final long HYPERPLANE_SEED = 0x5EED_C0105L;
+
+    private final float[][] hyperplanes = new float[BANDS * BITS_PER_BAND][];
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<PaletteData, Integer> entryIds = new IdentityHashMap<>();
+    private final Map<Integer, Postings> buckets = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int deadEntries;
+
+    /**
+     * Lazily creates the default index on first use.
+     */
+    private static final class DefaultHolder {
+        private static final PaletteSimilarityIndex INSTANCE = createDefault();
+    }
+
+    /**
+     * An indexed palette.
+     */
+    private static final class Entry {
+        private final PaletteData palette;
+        private final ColorSignature signature;
+        private final int[] bandKeys;
+
+        private Entry(PaletteData palette, ColorSignature signature, int[] bandKeys) {
+            this.palette = palette;
+            this.signature = signature;
+            this.bandKeys = bandKeys;
+        }
+    }
+
+    /**
+     * A palette found by a similarity query.
+     */
+    public static final class SimilarPalette {
+        private final PaletteData palette;
+        private final double distance;
+
+        private SimilarPalette(PaletteData palette, double distance) {
+            this.palette = palette;
+            this.distance = distance;
+        }
+
+        /**
+         * Returns the palette.
+         *
+         * @return the similar palette
+         */
+        public PaletteData getPalette() {
+            return palette;
+        }
+
+        /**
+         * Returns the earth mover's distance between the colors of the query and the palette.
+         *
+         * @return the distance in OKLab units, 0 for the same colors
+         */
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Keeps the index in line with a repository: indexes its current palettes, then applies
+     * every batch of changes.
+     */
+    private final class ChangeFollower implements Flow.Subscriber<PaletteChangeBatch> {
+        private final PaletteRepository repository;
+        private Flow.Subscription subscription;
+        private long indexedVersion;
+
+        ChangeFollower(PaletteRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            Snapshot snapshot = repository.getSnapshot();
+            replaceAll(snapshot.getPalettes());
+            indexedVersion = snapshot.getVersion();
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(PaletteChangeBatch batch) {
+            if (batch.getFromVersion() == indexedVersion) {
+                for (PaletteChange change : batch.getChanges()) {
+                    if (change.getPrevious() != null) {
+                        remove(change.getPrevious());
+                    }
+                    if (change.getPalette() != null) {
+                        add(change.getPalette());
+                    }
+                }
+            } else {
+                // The first batch may overlap the snapshot indexed on subscribing
+                replaceAll(batch.getSnapshot().getPalettes());
+            }
+            indexedVersion = batch.getToVersion();
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("Similarity index stopped following changes: " + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Creates an empty index.
+     */
+    public PaletteSimilarityIndex() {
+        SplittableRandom random = new SplittableRandom(HYPERPLANE_SEED);
+        for (int i = 0; i < hyperplanes.length; i++) {
+            hyperplanes[i] = new float[ColorSignature.HISTOGRAM_SIZE];
+            for (int dimension = 0; dimension < ColorSignature.HISTOGRAM_SIZE; dimension++) {
+                hyperplanes[i][dimension] = (float) random.nextGaussian();
+            }
+        }
+    }
+
+    /**
+     * Returns the index following the palettes of the default repository.
+     *
+     * @return the default index
+     */
+    public static PaletteSimilarityIndex getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Indexes the palettes of a repository and keeps following its changes on a background
+     * thread of its own.
+     *
+     * @param repository the repository to follow
+     */
+    public void follow(PaletteRepository repository) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "palette-similarity");
+            thread.setDaemon(true);
+            return thread;
+        });
+        repository.getChanges().subscribe(new ChangeFollower(repository), executor);
+    }
+
+    /**
+     * Adds a palette. Palettes without colors are ignored.
+     *
+     * @param palette the palette to add
+     */
+    public void add(PaletteData palette) {
+        ColorSignature signature = ColorSignature.of(palette.getColors());
+        if (signature.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(palette, signature, bandKeys(signature));
+
+        lock.writeLock().lock();
+        try {
+            if (!entryIds.containsKey(palette)) {
+                index(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a palette.
+     *
+     * @param palette the palette to remove, the same instance that was added
+     */
+    public void remove(PaletteData palette) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(palette);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the indexed palettes, keeping the entries of palettes that stay. Signatures of
+     * new palettes are computed in parallel.
+     *
+     * @param palettes the palettes to index
+     */
+    public void replaceAll(List<PaletteData> palettes) {
+        Set<PaletteData> wanted = Collections.newSetFromMap(new IdentityHashMap<>(palettes.size() * 2));
+        wanted.addAll(palettes);
+
+        List<PaletteData> added;
+        lock.readLock().lock();
+        try {
+            added = palettes.stream().filter(palette -> !entryIds.containsKey(palette)).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Entry> addedEntries = added.parallelStream()
+                .map(palette -> {
+                    ColorSignature signature = ColorSignature.of(palette.getColors());
+                    return signature.isEmpty() ? null : new Entry(palette, signature, bandKeys(signature));
+                })
+                .toList();
+
+        lock.writeLock().lock();
+        try {
+            for (PaletteData palette : new ArrayList<>(entryIds.keySet())) {
+                if (!wanted.contains(palette)) {
+                    removeEntry(palette);
+                }
+            }
+            for (Entry entry : addedEntries) {
+                if (entry != null && !entryIds.containsKey(entry.palette)) {
+                    index(entry);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed palettes.
+     *
+     * @return the number of palettes
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the palettes most similar to an indexed or other palette, leaving out the palette
+     * itself.
+     *
+     * @param palette the palette to compare with
+     * @param limit the maximum number of results
+     * @return the similar palettes, most similar first
+     */
+    public List<SimilarPalette> findSimilar(PaletteData palette, int limit) {
+        return findSimilar(palette.getColors(), palette, limit);
+    }
+
+    /**
+     * Finds the palettes with colors most similar to the given colors.
+     *
+     * @param colors the packed colors to compare with
+     * @param limit the maximum number of results
+     * @return the similar palettes, most similar first
+     */
+    public List<SimilarPalette> findSimilar(int[] colors, int limit) {
+        return findSimilar(colors, null, limit);
+    }
+
+    /**
+     * Retrieves candidates by their band hashes, keeps those with the most similar histograms
+     * and ranks them by earth mover's distance.
+     */
+    private List<SimilarPalette> findSimilar(int[] colors, PaletteData excluded, int limit) {
+        ColorSignature query = ColorSignature.of(colors);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int[] queryKeys = bandKeys(query);
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = new BitSet(entries.size());
+            for (int key : queryKeys) {
+                collect(key, candidates);
+            }
+            if (candidates.cardinality() < limit * PROBE_CANDIDATES_PER_RESULT) {
+                for (int key : queryKeys) {
+                    for (int bit = 0; bit < BITS_PER_BAND; bit++) {
+                        collect(key ^ (1 << bit), candidates);
+                    }
+                }
+            }
+
+            // Lower bounds of all live candidates, to compute exact distances nearest first
+            int[] ids = new int[candidates.cardinality()];
+            double[] bounds = new double[ids.length];
+            int count = 0;
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.palette != excluded) {
+                    ids[count] = id;
+                    bounds[count++] = query.lowerBound(entry.signature);
+                }
+            }
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (first, second) -> Double.compare(bounds[first], bounds[second]));
+
+            // Stop once the bound exceeds the worst result kept, or after the maximum number of
+            // exact distances
+            int maxRanked = Math.max(MIN_RANKED_CANDIDATES, limit * RANKED_CANDIDATES_PER_RESULT);
+            int rankedCount = 0;
+            PriorityQueue<SimilarPalette> results = new PriorityQueue<>(
+                    (first, second) -> Double.compare(second.distance, first.distance));
+            for (int i : order) {
+                if ((results.size() == limit && bounds[i] >= results.peek().distance) || rankedCount++ == maxRanked) {
+                    break;
+                }
+                Entry entry = entries.get(ids[i]);
+                results.add(new SimilarPalette(entry.palette, query.distance(entry.signature)));
+                if (results.size() > limit) {
+                    results.poll();
+                }
+            }
+
+            List<SimilarPalette> sorted = new ArrayList<>(results);
+            sorted.sort((first, second) -> Double.compare(first.distance, second.distance));
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the entries of a bucket to the candidates.
+     */
+    private void collect(int key, BitSet candidates) {
+        Postings postings = buckets.get(key);
+        if (postings != null) {
+            for (int i = 0; i < postings.size(); i++) {
+                candidates.set(postings.get(i));
+            }
+        }
+    }
+
+    /**
+     * Hashes a signature histogram: one bit per hyperplane for the side the histogram lies on,
+     * combined with the band number into one bucket key per band.
+     */
+    private int[] bandKeys(ColorSignature signature) {
+        int[] keys = new int[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            int bits = 0;
+            for (int bit = 0; bit < BITS_PER_BAND; bit++) {
+                float[] hyperplane = hyperplanes[band * BITS_PER_BAND + bit];
+                float dot = 0;
+                for (int i = 0; i < signature.getHistogramBinCount(); i++) {
+                    dot += hyperplane[signature.getHistogramBin(i)] * signature.getHistogramValue(i);
+                }
+                if (dot > 0) {
+                    bits |= 1 << bit;
+                }
+            }
+            keys[band] = band << BITS_PER_BAND | bits;
+        }
+        return keys;
+    }
+
+    /**
+     * Assigns the next id to an entry and adds it to its buckets.
+     */
+    private void index(Entry entry) {
+        int id = entries.size();
+        entries.add(entry);
+        entryIds.put(entry.palette, id);
+        for (int key : entry.bandKeys) {
+            buckets.computeIfAbsent(key, bucket -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Marks the entry of a palette as dead, rebuilding the index if too many are.
+     */
+    private void removeEntry(PaletteData palette) {
+        Integer id = entryIds.remove(palette);
+        if (id == null) {
+            return;
+        }
+        entries.set(id, null);
+        deadEntries++;
+
+        if (deadEntries >= MIN_DEAD_ENTRIES_FOR_REBUILD && deadEntries > entries.size() - deadEntries) {
+            List<Entry> live = new ArrayList<>(entries.size() - deadEntries);
+            for (Entry entry : entries) {
+                if (entry != null) {
+                    live.add(entry);
+                }
+            }
+            entries.clear();
+            entryIds.clear();
+            buckets.clear();
+            deadEntries = 0;
+            for (Entry entry : live) {
+                index(entry);
+            }
+        }
+    }
+
+    /**
+     * Creates the default index and starts following the default repository.
+     *
+     * @return the default index
+     */
+    private static PaletteSimilarityIndex createDefault() {
+        PaletteSimilarityIndex index = new PaletteSimilarityIndex();
+        index.follow(PaletteRepository.getDefault());
+        return index;
+    }
+}
@@ -0,0 +1,48 @@
+package com.si.colorpalettefx.search;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of entry ids in ascending order.
+ * <p>
+ * Entry ids are handed out in increasing order, so appending keeps the list sorted without any
+ * extra work, and two lists can be intersected with a simple merge.
+ */
+final class Postings {
+    private int[] ids = new int[2];
+    private int size;
+
+    /**
+     * Appends an id, ignoring it if it is the same as the last one.
+     *
+     * @param id the id to append, not smaller than the last appended id
+     */
+    void add(int id) {
+        if (size > 0 && ids[size - 1] == id) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * Returns the id at the given position.
+     *
+     * @param index the position
+     * @return the id
+     */
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Returns the number of ids.
+     *
+     * @return the number of ids
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,127 @@
+package com.si.colorpalettefx.search;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A character trie mapping keys to the ids of the entries containing them, supporting
+ * enumeration of all ids whose keys start with a given prefix.
+ */
+final class PrefixTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * A node of the trie. Children are kept in arrays sorted by their character.
+     */
+    private static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private Postings postings;
+
+        /**
+         * Returns the child for the given character.
+         *
+         * @param c the character
+         * @return the child, or null if there is none
+         */
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, 0, childCount, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * Returns the child for the given character, creating it if needed.
+         *
+         * @param c the character
+         * @return the child
+         */
+        private Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, 0, childCount, c);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node child = new Node();
+            keys[insertAt] = c;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+    }
+
+    private Node root = new Node();
+
+    /**
+     * Adds the id of an entry under the given key.
+     *
+     * @param key the key
+     * @param id the entry id, not smaller than any id added before
+     */
+    void add(String key, int id) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        if (node.postings == null) {
+            node.postings = new Postings();
+        }
+        node.postings.add(id);
+    }
+
+    /**
+     * Visits the ids of all keys starting with the given prefix, shortest keys first along each
+     * branch and branches in character order, until the visitor returns false.
+     *
+     * @param prefix the prefix
+     * @param visitor receives the ids and returns whether to continue
+     */
+    void visitPrefix(String prefix, IntPredicate visitor) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node != null) {
+            visit(node, visitor);
+        }
+    }
+
+    /**
+     * Visits the ids of the given node and its descendants.
+     *
+     * @param node the node
+     * @param visitor receives the ids and returns whether to continue
+     * @return false if the visitor asked to stop
+     */
+    private boolean visit(Node node, IntPredicate visitor) {
+        if (node.postings != null) {
+            for (int i = 0; i < node.postings.size(); i++) {
+                if (!visitor.test(node.postings.get(i))) {
+                    return false;
+                }
+            }
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            if (!visit(node.children[i], visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all keys.
+     */
+    void clear() {
+        root = new Node();
+    }
+}
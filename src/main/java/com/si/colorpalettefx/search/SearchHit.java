@@ -0,0 +1,81 @@
+package com.si.colorpalettefx.search;
+
+import com.si.colorpalettefx.model.ColorPalette;
+
+/**
+ * A search result: either a palette, or a single color within a palette.
+ */
+public final class SearchHit {
+    private final ColorPalette palette;
+    private final int colorIndex;
+    private final String name;
+    private final String hex;
+
+    /**
+     * Creates a new search hit.
+     *
+     * @param palette the palette containing the match
+     * @param colorIndex the index of the matching color, or -1 if the palette name matched
+     * @param name the matching palette or color name
+     * @param hex the hex code of the matching color, or null for palette hits
+     */
+    SearchHit(ColorPalette palette, int colorIndex, String name, String hex) {
+        this.palette = palette;
+        this.colorIndex = colorIndex;
+        this.name = name;
+        this.hex = hex;
+    }
+
+    /**
+     * Returns the palette containing the match.
+     *
+     * @return the palette
+     */
+    public ColorPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     * Returns the index of the matching color within the palette.
+     *
+     * @return the color index, or -1 if the palette name matched
+     */
+    public int getColorIndex() {
+        return colorIndex;
+    }
+
+    /**
+     * Returns whether the palette itself, rather than one of its colors, matched.
+     *
+     * @return true for palette hits
+     */
+    public boolean isPaletteHit() {
+        return colorIndex < 0;
+    }
+
+    /**
+     * Returns the matching palette or color name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the hex code of the matching color.
+     *
+     * @return the hex code, or null for palette hits
+     */
+    public String getHex() {
+        return hex;
+    }
+
+    @Override
+    public String toString() {
+        if (isPaletteHit()) {
+            return "Palette: " + name;
+        }
+        return palette.getName() + " › " + name + (name.equalsIgnoreCase(hex) ? "" : " (" + hex + ")");
+    }
+}
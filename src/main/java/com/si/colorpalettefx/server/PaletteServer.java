@@ -0,0 +1,300 @@
+package com.si.colorpalettefx.server;
+
+import com.si.colorpalettefx.export.PaletteExporter;
+import com.si.colorpalettefx.export.PaletteFormat;
+import com.si.colorpalettefx.model.Fingerprints;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.repository.PaletteRepository;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A local HTTP server publishing the open palettes to other tools.
+ * <p>
+ * The server only listens on the loopback address and handles every request on its own virtual
+ * thread. It never touches the JavaFX thread: requests are answered from the latest snapshot of
+ * a {@link PaletteRepository}. Encoded responses are cached per snapshot version, and every
+ * response carries an ETag derived from the palette fingerprints, so unchanged palettes are
+ * answered with 304 Not Modified.
+ * <ul>
+ *     <li>{@code GET /palettes} serves all palettes</li>
+ *     <li>{@code GET /palettes/{name}} serves one palette</li>
+ * </ul>
+ * Both accept a {@code format} query parameter with a {@link PaletteFormat} identifier, JSON by
+ * default.
+ */
+public final class PaletteServer {
+    /**
+     * The system property overriding the default port.
+     */
+    public static final String PORT_PROPERTY = "colorpalettefx.serverPort";
+
+    /**
+     * The port used unless overridden by {@link #PORT_PROPERTY}.
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    private static final String CONTEXT_PATH = "/palettes";
+    private static final int BACKLOG = 1024;
+
+    private final PaletteRepository repository;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * The palettes served at one point in time, with their encoded responses.
+     */
+    private static final class Snapshot {
+        private final PaletteRepository.Snapshot repositorySnapshot;
+        private final long version;
+        private final List<PaletteData> palettes;
+        private final long fingerprint;
+        private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+        Snapshot(PaletteRepository.Snapshot repositorySnapshot) {
+            this.repositorySnapshot = repositorySnapshot;
+            this.version = repositorySnapshot.getVersion();
+            this.palettes = repositorySnapshot.getPalettes();
+            long[] hashes = new long[palettes.size()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = fingerprint(palettes.get(i));
+            }
+            this.fingerprint = Fingerprints.ordered(hashes);
+        }
+
+        /**
+         * Returns the encoded response for one or all palettes, encoding it on first use.
+         */
+        byte[] response(PaletteFormat format, PaletteData palette) {
+            String key = format.getId() + (palette == null ? "" : "/" + palette.getName());
+            return responses.computeIfAbsent(key, ignored -> PaletteExporter
+                    .export(format, palette == null ? palettes : List.of(palette))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Returns the fingerprint of everything served of a palette: its swatches, its name and
+         * its tags.
+         */
+        static long fingerprint(PaletteData palette) {
+            List<String> tags = palette.getTags();
+            long[] hashes = new long[2 + tags.size()];
+            hashes[0] = palette.getFingerprint();
+            hashes[1] = Fingerprints.swatch(0, palette.getName());
+            for (int i = 0; i < tags.size(); i++) {
+                // A different color than the name's, so a tag never hashes like a name
+                hashes[2 + i] = Fingerprints.swatch(1, tags.get(i));
+            }
+            return Fingerprints.ordered(hashes);
+        }
+    }
+
+    /**
+     * Creates a server for the palettes of a repository.
+     *
+     * @param repository the repository to serve
+     */
+    public PaletteServer(PaletteRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Starts the server on the port given by {@link #PORT_PROPERTY}, or the default port.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        start(Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT));
+    }
+
+    /**
+     * Starts the server on the given port of the loopback address.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        httpServer.createContext(CONTEXT_PATH, this::handle);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+    }
+
+    /**
+     * Stops the server if it is running.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns whether the server is running.
+     *
+     * @return true if the server is running
+     */
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Returns the URL of the palettes served by the running server.
+     *
+     * @return the URL, or null if the server is not running
+     */
+    public synchronized String getUrl() {
+        if (server == null) {
+            return null;
+        }
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + CONTEXT_PATH;
+    }
+
+    /**
+     * Returns the response cache for the current repository snapshot, replacing the cache of an
+     * older snapshot.
+     */
+    private Snapshot currentSnapshot() {
+        PaletteRepository.Snapshot repositorySnapshot = repository.getSnapshot();
+        Snapshot cached = snapshot.get();
+        if (cached != null && cached.version == repositorySnapshot.getVersion()) {
+            return cached;
+        }
+        Snapshot created = new Snapshot(repositorySnapshot);
+        snapshot.compareAndSet(cached, created);
+        return created;
+    }
+
+    /**
+     * Handles a request to the palette context.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            PaletteFormat format = PaletteFormat.JSON;
+            String formatId = queryParameter(exchange.getRequestURI().getRawQuery(), "format");
+            if (formatId != null) {
+                format = PaletteFormat.fromId(formatId);
+                if (format == null) {
+                    sendError(exchange, 400, "Unknown format: " + formatId);
+                    return;
+                }
+            }
+
+            // Answer the whole request from one snapshot
+            Snapshot current = currentSnapshot();
+            String path = exchange.getRequestURI().getPath();
+            PaletteData palette = null;
+            long fingerprint = current.fingerprint;
+            if (path.startsWith(CONTEXT_PATH + "/") && path.length() > CONTEXT_PATH.length() + 1) {
+                String name = path.substring(CONTEXT_PATH.length() + 1);
+                palette = current.repositorySnapshot.get(name);
+                if (palette == null) {
+                    sendError(exchange, 404, "No palette named " + name);
+                    return;
+                }
+                fingerprint = Snapshot.fingerprint(palette);
+            } else if (!path.equals(CONTEXT_PATH) && !path.equals(CONTEXT_PATH + "/")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+
+            String etag = "\"" + Long.toHexString(fingerprint) + "-" + format.getId() + "\"";
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "no-cache");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = current.response(format, palette);
+            headers.set("Content-Type", format.getMediaType() + "; charset=utf-8");
+            if (head) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Sends a plain text error response.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Returns whether an If-None-Match header matches the current ETag.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the decoded value of a query parameter.
+     */
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String key = separator < 0 ? parameter : parameter.substring(0, separator);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+}
@@ -1,12 +1,12 @@
 module com.si.colorpalettefx {
     requires javafx.controls;
     requires javafx.fxml;
-    requires javafx.web;
+    requires javafx.swing;
     requires java.desktop;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
-    requires org.controlsfx.controls;
     requires org.kordamp.ikonli.javafx;
-    requires eu.hansolo.tilesfx;
     requires com.fasterxml.jackson.databind;
     requires com.fasterxml.jackson.core;
 
@@ -14,4 +14,13 @@ module com.si.colorpalettefx {
     opens com.si.colorpalettefx.model to com.fasterxml.jackson.databind;
     exports com.si.colorpalettefx;
     exports com.si.colorpalettefx.model;
+    exports com.si.colorpalettefx.metrics;
+    exports com.si.colorpalettefx.color;
+    exports com.si.colorpalettefx.search;
+    exports com.si.colorpalettefx.diff;
+    exports com.si.colorpalettefx.export;
+    exports com.si.colorpalettefx.importer;
+    exports com.si.colorpalettefx.library;
+    exports com.si.colorpalettefx.repository;
+    exports com.si.colorpalettefx.server;
 }
@@ -0,0 +1,112 @@
+package com.si.colorpalettefx.color;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lookup table and image mapping of {@link PaletteMapper}.
+ */
+class PaletteMapperTest {
+    private static final int[] PRIMARIES = {
+            0xFF000000, 0xFFFFFFFF, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFF00, 0xFF00FFFF, 0xFFFF00FF
+    };
+
+    @Test
+    void tableMatchesBruteForceAtCellCenters() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] colors = new int[200];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        PaletteMapper mapper = new PaletteMapper(colors);
+        assertEquals(colors.length, mapper.size());
+
+        float[] labs = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            OkLab.fromArgb(colors[i], labs, i * 3);
+        }
+        float[] lab = new float[3];
+        for (int sample = 0; sample < 2000; sample++) {
+            int red = random.nextInt(PaletteMapper.LEVELS) * 4 + 2;
+            int green = random.nextInt(PaletteMapper.LEVELS) * 4 + 2;
+            int blue = random.nextInt(PaletteMapper.LEVELS) * 4 + 2;
+            OkLab.fromArgb(PackedColors.rgb(red, green, blue), lab, 0);
+
+            float best = Float.MAX_VALUE;
+            for (int i = 0; i < colors.length; i++) {
+                float dl = labs[i * 3] - lab[0];
+                float da = labs[i * 3 + 1] - lab[1];
+                float db = labs[i * 3 + 2] - lab[2];
+                best = Math.min(best, dl * dl + da * da + db * db);
+            }
+            int found = mapper.indexOf(PackedColors.rgb(red, green, blue));
+            float dl = labs[found * 3] - lab[0];
+            float da = labs[found * 3 + 1] - lab[1];
+            float db = labs[found * 3 + 2] - lab[2];
+            assertEquals(best, dl * dl + da * da + db * db, 1e-6f);
+        }
+    }
+
+    @Test
+    void paletteColorsMapToThemselves() {
+        PaletteMapper mapper = new PaletteMapper(PRIMARIES);
+        for (int i = 0; i < PRIMARIES.length; i++) {
+            assertEquals(i, mapper.indexOf(PRIMARIES[i]));
+        }
+    }
+
+    @Test
+    void mappingKeepsAlphaAndUsesOnlyPaletteColors() {
+        int width = 37;
+        int height = 41;
+        SplittableRandom random = new SplittableRandom(11);
+        int[] source = new int[width * height];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt();
+        }
+        PaletteMapper mapper = new PaletteMapper(PRIMARIES);
+
+        for (boolean dither : new boolean[] {false, true}) {
+            int[] target = new int[source.length];
+            mapper.map(source, target, width, height, dither);
+            for (int i = 0; i < source.length; i++) {
+                assertEquals(source[i] >>> 24, target[i] >>> 24);
+                int rgb = target[i] | 0xFF000000;
+                boolean inPalette = false;
+                for (int color : PRIMARIES) {
+                    inPalette |= color == rgb;
+                }
+                assertTrue(inPalette, "pixel " + i + " is " + PackedColors.toHex(target[i]));
+            }
+        }
+    }
+
+    @Test
+    void ditheringMixesColorsOfMidTones() {
+        int width = 64;
+        int height = 64;
+        int[] source = new int[width * height];
+        Arrays.fill(source, 0xFF808080);
+        int[] target = new int[source.length];
+        new PaletteMapper(new int[] {0xFF000000, 0xFFFFFFFF}).map(source, target, width, height, true);
+
+        int white = 0;
+        for (int pixel : target) {
+            if (pixel == 0xFFFFFFFF) {
+                white++;
+            }
+        }
+        assertTrue(white > 0 && white < target.length, "white pixels: " + white);
+    }
+
+    @Test
+    void emptyPaletteIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PaletteMapper(new int[0]));
+    }
+}
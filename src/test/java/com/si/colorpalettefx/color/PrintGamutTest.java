@@ -0,0 +1,93 @@
+package com.si.colorpalettefx.color;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the CMYK conversion and gamut check of {@link PrintGamut}.
+ */
+class PrintGamutTest {
+    private static final PrintGamut GAMUT = PrintGamut.approximate(null);
+
+    @Test
+    void paperAndNeutralsAreInGamut() {
+        float[] cmyk = new float[4];
+        GAMUT.toCmyk(0xFFFFFFFF, cmyk, 0);
+        assertEquals("C 0% M 0% Y 0% K 0%", PrintGamut.formatCmyk(cmyk, 0));
+
+        for (int gray = 0; gray <= 255; gray += 17) {
+            assertTrue(GAMUT.isInGamut(PackedColors.rgb(gray, gray, gray)), "gray " + gray);
+        }
+        GAMUT.toCmyk(0xFF000000, cmyk, 0);
+        assertEquals(1f, cmyk[3], 0.01f);
+    }
+
+    @Test
+    void saturatedScreenColorsAreOutOfGamut() {
+        int[] colors = {0xFF0000FF, 0xFF00FF00, 0xFFFF8000, 0xFF336699, 0xFFC8A070};
+        PrintGamut.Conversion conversion = GAMUT.convert(colors);
+
+        assertTrue(conversion.isOutOfGamut(0));
+        assertTrue(conversion.isOutOfGamut(1));
+        assertTrue(conversion.isOutOfGamut(2));
+        assertFalse(conversion.isOutOfGamut(3));
+        assertFalse(conversion.isOutOfGamut(4));
+        assertEquals(3, conversion.getOutOfGamutCount());
+    }
+
+    @Test
+    void interpolationMatchesSingleConversions() {
+        // Enough colors to take the parallel path
+        int[] colors = randomColors(20_000);
+        PrintGamut.Conversion conversion = GAMUT.convert(colors);
+
+        float[] cmyk = new float[4];
+        float[] converted = new float[4];
+        for (int i = 0; i < colors.length; i += 97) {
+            float distance = GAMUT.toCmyk(colors[i], cmyk, 0);
+            conversion.getCmyk(i, converted);
+            assertEquals(distance, conversion.getGamutDistance(i), 0f);
+            for (int channel = 0; channel < 4; channel++) {
+                assertEquals(cmyk[channel], converted[channel], 0f);
+                assertTrue(cmyk[channel] >= 0 && cmyk[channel] <= 1);
+            }
+        }
+    }
+
+    @Test
+    void cachedTableIsReused(@TempDir Path directory) throws Exception {
+        Path tableFile = directory.resolve("print-gamut.lut");
+        PrintGamut built = PrintGamut.approximate(tableFile);
+        assertTrue(Files.isRegularFile(tableFile));
+
+        long modified = Files.getLastModifiedTime(tableFile).toMillis();
+        PrintGamut loaded = PrintGamut.approximate(tableFile);
+        assertEquals(modified, Files.getLastModifiedTime(tableFile).toMillis());
+
+        float[] first = new float[4];
+        float[] second = new float[4];
+        for (int argb : new int[]{0xFF123456, 0xFFFEDCBA, 0xFF00AEEF}) {
+            assertEquals(built.toCmyk(argb, first, 0), loaded.toCmyk(argb, second, 0), 0f);
+            for (int channel = 0; channel < 4; channel++) {
+                assertEquals(first[channel], second[channel], 0f);
+            }
+        }
+    }
+
+    private static int[] randomColors(int count) {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(1 << 24);
+        }
+        return colors;
+    }
+}
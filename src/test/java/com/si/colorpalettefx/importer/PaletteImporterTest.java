@@ -0,0 +1,123 @@
+package com.si.colorpalettefx.importer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import com.si.colorpalettefx.testing.SyntheticPalettes.LegacyStyle;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests importing current and legacy palette files, including generated files with millions of
+ * swatches. The large files only run with the soak profile, {@code mvn -Psoak test}; the
+ * default run covers a large import through {@code HeapBudgetTest}.
+ */
+class PaletteImporterTest {
+    private static final int COLORS_PER_PALETTE = 500;
+
+    private final SyntheticPalettes generator = new SyntheticPalettes(42);
+
+    @Test
+    @Tag("soak")
+    void importsLargeCurrentFile(@TempDir Path directory) throws Exception {
+        int paletteCount = SyntheticPalettes.paletteCount(COLORS_PER_PALETTE);
+        Path file = directory.resolve("current.json");
+        generator.writeCurrentJson(file, paletteCount, COLORS_PER_PALETTE);
+
+        ImportReport report = PaletteImporter.importFile(file);
+
+        assertEquals(List.of(), report.getProblems());
+        assertEquals(paletteCount, report.getPaletteCount(SourceFormat.CURRENT_JSON));
+        for (int i = 0; i < paletteCount; i++) {
+            PaletteData expected = generator.palette(i, COLORS_PER_PALETTE);
+            PaletteData actual = report.getPalettes().get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getTags(), actual.getTags());
+            assertEquals(expected.getFingerprint(), actual.getFingerprint(), "fingerprint of " + expected.getName());
+        }
+    }
+
+    @Test
+    @Tag("soak")
+    void importsLargeLegacyFileWithColorStrings(@TempDir Path directory) throws Exception {
+        assertImportsLegacy(directory.resolve("legacy.json"), LegacyStyle.COLOR_STRINGS);
+    }
+
+    @Test
+    @Tag("soak")
+    void importsLargeLegacyFileWithHexCodes(@TempDir Path directory) throws Exception {
+        assertImportsLegacy(directory.resolve("legacy.json"), LegacyStyle.COLOR_HEX_CODES);
+    }
+
+    @Test
+    void classifiesEveryPaletteOfMixedFiles() throws Exception {
+        String json = "["
+                + "{\"name\": \"Current\", \"colors\": [{\"name\": \"Red\", \"hex\": \"#FF0000\"}]},"
+                + "{\"name\": \"Legacy\", \"colors\": [\"#00FF00\", \"not a color\", \"0000ff\"]},"
+                + "{\"name\": \"Hex Codes\", \"colorHexCodes\": [\"#123456\"]},"
+                + "{\"colors\": [\"#FFFFFF\"]}"
+                + "]";
+
+        ImportReport report = PaletteImporter.importStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, report.getPaletteCount(SourceFormat.CURRENT_JSON));
+        assertEquals(2, report.getPaletteCount(SourceFormat.LEGACY_JSON));
+        assertEquals(3, report.getPalettes().size());
+        assertEquals(1, report.getInvalidColorCount());
+        assertArrayEquals(new int[]{0xFF00FF00, 0xFF0000FF}, report.getPalettes().get(1).getColors());
+        assertTrue(report.getProblems().stream().anyMatch(problem -> problem.getPaletteIndex() == 3),
+                "the palette without a name must be reported");
+    }
+
+    @Test
+    void agreesWithJacksonMapping(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("palettes.json");
+        generator.writeCurrentJson(file, 50, 200);
+
+        List<ColorPalette> mapped = new ObjectMapper().readValue(file.toFile(), new TypeReference<>() {
+        });
+        ImportReport report = PaletteImporter.importFile(file);
+
+        assertEquals(mapped.size(), report.getPalettes().size());
+        for (int i = 0; i < mapped.size(); i++) {
+            assertEquals(mapped.get(i).getName(), report.getPalettes().get(i).getName());
+            assertEquals(mapped.get(i).getTags(), report.getPalettes().get(i).getTags());
+            assertEquals(mapped.get(i).getFingerprint(), report.getPalettes().get(i).getFingerprint());
+        }
+    }
+
+    /**
+     * Writes and imports a large legacy file, and checks that every color survived and got a name.
+     */
+    private void assertImportsLegacy(Path file, LegacyStyle style) throws Exception {
+        int paletteCount = SyntheticPalettes.paletteCount(COLORS_PER_PALETTE);
+        generator.writeLegacyJson(file, paletteCount, COLORS_PER_PALETTE, style);
+
+        ImportReport report = PaletteImporter.importFile(file);
+
+        assertEquals(List.of(), report.getProblems());
+        assertEquals(paletteCount, report.getPaletteCount(SourceFormat.LEGACY_JSON));
+        for (int i = 0; i < paletteCount; i++) {
+            PaletteData expected = generator.palette(i, COLORS_PER_PALETTE);
+            PaletteData actual = report.getPalettes().get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertArrayEquals(expected.getColors(), actual.getColors(), "colors of " + expected.getName());
+            for (int j = 0; j < actual.size(); j++) {
+                assertNotNull(actual.getColorName(j));
+            }
+        }
+    }
+}
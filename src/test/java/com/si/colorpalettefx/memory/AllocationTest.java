@@ -0,0 +1,124 @@
+package com.si.colorpalettefx.memory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.si.colorpalettefx.color.ColorNamer;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.export.PaletteJson;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.testing.MemoryProbe;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bytes allocated per color by hot paths, so that allocation-rate regressions fail
+ * the build. Every path is warmed up first, so that the measured run is compiled code.
+ */
+class AllocationTest {
+    private static final int COLOR_COUNT = 200_000;
+    private static final int WARM_UP_RUNS = 5;
+
+    private final PaletteData palette = new SyntheticPalettes(3).palette(0, COLOR_COUNT);
+
+    @Test
+    void parsingHexCodesDoesNotAllocate() {
+        String[] codes = new String[4096];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = PackedColors.toHex(palette.getColor(i));
+        }
+
+        // The synthetic colors are opaque, so parsing their codes gives them back exactly
+        int expectedChecksum = 0;
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            expectedChecksum += palette.getColor(i & (codes.length - 1));
+        }
+        int expected = expectedChecksum;
+
+        double bytesPerColor = bytesPerColor(() -> {
+            int checksum = 0;
+            for (int i = 0; i < COLOR_COUNT; i++) {
+                checksum += PackedColors.parse(codes[i & (codes.length - 1)]);
+            }
+            assertEquals(expected, checksum);
+        });
+
+        assertBudget("parsing hex codes", bytesPerColor, 1);
+    }
+
+    @Test
+    void namingColorsDoesNotAllocate() {
+        ColorNamer namer = ColorNamer.getDefault();
+
+        double bytesPerColor = bytesPerColor(() -> {
+            int totalLength = 0;
+            for (int i = 0; i < COLOR_COUNT; i++) {
+                totalLength += namer.name(palette.getColor(i)).length();
+            }
+            assertTrue(totalLength > 0);
+        });
+
+        assertBudget("naming colors", bytesPerColor, 1);
+    }
+
+    @Test
+    void writingJsonAllocatesOnlyHexStrings() {
+        JsonFactory factory = new JsonFactory();
+
+        double bytesPerColor = bytesPerColor(() -> {
+            try (JsonGenerator generator = factory.createGenerator(OutputStream.nullOutputStream())) {
+                PaletteJson.write(generator, palette);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // The hex string of every color and the buffer it is formatted in
+        assertBudget("writing JSON", bytesPerColor, 96);
+    }
+
+    @Test
+    void copyingPalettesAllocatesOnlyArrays() {
+        ColorPalette colorPalette = palette.toColorPalette();
+
+        double bytesPerColor = bytesPerColor(() -> assertEquals(COLOR_COUNT, PaletteData.of(colorPalette).size()));
+
+        // Packed colors, name references and the copy of the named color list
+        assertBudget("copying palettes", bytesPerColor, 16);
+    }
+
+    @Test
+    void cachedFingerprintsDoNotAllocate() {
+        ColorPalette colorPalette = palette.toColorPalette();
+        long fingerprint = colorPalette.getFingerprint();
+
+        double bytesPerColor = bytesPerColor(() -> assertEquals(fingerprint, colorPalette.getFingerprint()));
+
+        assertBudget("cached fingerprints", bytesPerColor, 0.01);
+    }
+
+    /**
+     * Warms up an action, then returns the bytes it allocates per color of the test palette.
+     */
+    private static double bytesPerColor(Runnable action) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            action.run();
+        }
+        return (double) MemoryProbe.allocatedBy(action) / COLOR_COUNT;
+    }
+
+    /**
+     * Fails if the bytes allocated per color exceed a budget.
+     */
+    private static void assertBudget(String what, double bytesPerColor, double budget) {
+        assertTrue(bytesPerColor <= budget, () -> String.format(
+                "%s allocates %.2f bytes per color, over the budget of %s", what, bytesPerColor, budget));
+    }
+}
@@ -0,0 +1,85 @@
+package com.si.colorpalettefx.memory;
+
+import com.si.colorpalettefx.importer.ImportReport;
+import com.si.colorpalettefx.importer.PaletteImporter;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.testing.MemoryProbe;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that loaded palette models stay within a heap budget per swatch, so that memory
+ * regressions in the model or the importer fail the build.
+ * <p>
+ * The budgets leave a quarter to a third of headroom over the sizes measured with
+ * compressed object pointers.
+ */
+class HeapBudgetTest {
+    // Packed color, name reference and a short name string
+    private static final long PALETTE_DATA_BYTES_PER_SWATCH = 96;
+
+    // Named color, JavaFX color and list slot; the names are shared with the palette data
+    private static final long COLOR_PALETTE_BYTES_PER_SWATCH = 80;
+
+    private static final int COLORS_PER_PALETTE = 1000;
+
+    private final SyntheticPalettes generator = new SyntheticPalettes(7);
+
+    @Test
+    void importedPalettesStayWithinBudget(@TempDir Path directory) throws Exception {
+        int paletteCount = SyntheticPalettes.paletteCount(COLORS_PER_PALETTE);
+        Path file = directory.resolve("library.json");
+        generator.writeCurrentJson(file, paletteCount, COLORS_PER_PALETTE);
+
+        MemoryProbe.Retained<List<PaletteData>> retained = MemoryProbe.retained(() -> importPalettes(file));
+
+        assertEquals(paletteCount, retained.getValue().size());
+        assertWithinBudget("imported palette data", retained.getBytes(), PALETTE_DATA_BYTES_PER_SWATCH,
+                (long) paletteCount * COLORS_PER_PALETTE);
+    }
+
+    @Test
+    void colorPalettesStayWithinBudget() {
+        int paletteCount = SyntheticPalettes.paletteCount(COLORS_PER_PALETTE);
+        List<PaletteData> palettes = generator.palettes(paletteCount, COLORS_PER_PALETTE);
+
+        MemoryProbe.Retained<List<ColorPalette>> retained = MemoryProbe.retained(() -> palettes.stream()
+                .map(PaletteData::toColorPalette)
+                .toList());
+
+        assertEquals(paletteCount, retained.getValue().size());
+        assertWithinBudget("color palettes", retained.getBytes(), COLOR_PALETTE_BYTES_PER_SWATCH,
+                (long) paletteCount * COLORS_PER_PALETTE);
+    }
+
+    /**
+     * Fails if a retained size exceeds the budget for the given number of swatches.
+     */
+    static void assertWithinBudget(String what, long retainedBytes, long bytesPerSwatch, long swatchCount) {
+        double actualPerSwatch = (double) retainedBytes / swatchCount;
+        assertTrue(retainedBytes <= bytesPerSwatch * swatchCount, () -> String.format(
+                "%s retain %.1f bytes per swatch, over the budget of %d (%d swatches, %d MB)",
+                what, actualPerSwatch, bytesPerSwatch, swatchCount, retainedBytes >> 20));
+    }
+
+    /**
+     * Imports the palettes of a file, failing on any problem.
+     */
+    private static List<PaletteData> importPalettes(Path file) {
+        try {
+            ImportReport report = PaletteImporter.importFile(file);
+            assertEquals(List.of(), report.getProblems());
+            return report.getPalettes();
+        } catch (Exception e) {
+            throw new AssertionError("Import failed", e);
+        }
+    }
+}
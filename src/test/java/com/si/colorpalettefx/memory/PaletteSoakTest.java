@@ -0,0 +1,129 @@
+package com.si.colorpalettefx.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.colorpalettefx.export.PaletteArchive;
+import com.si.colorpalettefx.importer.ImportReport;
+import com.si.colorpalettefx.importer.PaletteImporter;
+import com.si.colorpalettefx.model.ColorPalette;
+import com.si.colorpalettefx.model.ColorPalette.NamedColor;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.testing.MemoryProbe;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads, edits and saves a large library over and over, and checks that the heap left after
+ * every round does not grow. Runs only with the soak profile: {@code mvn -Psoak test}.
+ * <p>
+ * The duration is set with the {@value #SECONDS_PROPERTY} system property, the library size
+ * with {@value SyntheticPalettes#SWATCHES_PROPERTY}.
+ */
+@Tag("soak")
+class PaletteSoakTest {
+    /**
+     * System property with the duration of the soak in seconds.
+     */
+    static final String SECONDS_PROPERTY = "colorpalettefx.soak.seconds";
+
+    private static final int COLORS_PER_PALETTE = 500;
+
+    // Rounds before the heap baseline is taken, so caches and compiled code are in place
+    private static final int WARM_UP_ROUNDS = 2;
+
+    // Allowed growth of the heap left after a round over the baseline
+    private static final long ALLOWED_GROWTH_BYTES = 32L << 20;
+
+    @Test
+    void repeatedLoadEditSaveDoesNotLeak(@TempDir Path directory) throws Exception {
+        int paletteCount = SyntheticPalettes.paletteCount(COLORS_PER_PALETTE);
+        long deadline = System.nanoTime() + Long.getLong(SECONDS_PROPERTY, 120) * 1_000_000_000L;
+        Path jsonFile = directory.resolve("library.json");
+        Path archiveFile = directory.resolve("library." + PaletteArchive.EXTENSION);
+        new SyntheticPalettes(11).writeCurrentJson(jsonFile, paletteCount, COLORS_PER_PALETTE);
+
+        ObjectMapper mapper = new ObjectMapper();
+        Random random = new Random(11);
+        Path current = jsonFile;
+        long baseline = -1;
+        long maxRetained = 0;
+        int round = 0;
+        while (round < WARM_UP_ROUNDS + 2 || System.nanoTime() < deadline) {
+            // Load
+            ImportReport report = PaletteImporter.importFile(current);
+            assertEquals(List.of(), report.getProblems());
+            assertEquals(paletteCount, report.getPalettes().size());
+            List<ColorPalette> palettes = new ArrayList<>(paletteCount);
+            for (PaletteData data : report.getPalettes()) {
+                palettes.add(data.toColorPalette());
+            }
+
+            // Edit
+            for (ColorPalette palette : palettes) {
+                edit(palette, random);
+            }
+            List<Long> fingerprints = palettes.stream().map(ColorPalette::getFingerprint).toList();
+
+            // Save, alternating between JSON and archives like users switching formats
+            if (round % 2 == 0) {
+                List<PaletteData> data = palettes.stream().map(PaletteData::of).toList();
+                PaletteArchive.write(archiveFile, data);
+                current = archiveFile;
+            } else {
+                mapper.writeValue(jsonFile.toFile(), palettes);
+                current = jsonFile;
+            }
+            List<Long> savedFingerprints = PaletteImporter.importFile(current).getPalettes().stream()
+                    .map(PaletteData::getFingerprint)
+                    .toList();
+            assertEquals(fingerprints, savedFingerprints, "saved palettes of round " + round);
+
+            palettes = null;
+            report = null;
+            long retained = MemoryProbe.usedHeapAfterGc();
+            round++;
+            if (round == WARM_UP_ROUNDS) {
+                baseline = retained;
+            } else if (round > WARM_UP_ROUNDS) {
+                maxRetained = Math.max(maxRetained, retained);
+            }
+        }
+
+        long baselineBytes = baseline;
+        long growth = maxRetained - baselineBytes;
+        int rounds = round;
+        assertTrue(growth <= ALLOWED_GROWTH_BYTES, () -> String.format(
+                "Heap after a round grew by %d MB over %d rounds (baseline %d MB)",
+                growth >> 20, rounds, baselineBytes >> 20));
+    }
+
+    /**
+     * Makes a few typical edits: renames, replaced and removed colors, a new color and new
+     * order, always keeping the size of the palette.
+     */
+    private static void edit(ColorPalette palette, Random random) {
+        List<NamedColor> namedColors = palette.getNamedColors();
+        for (int i = 0; i < 3; i++) {
+            int renamed = random.nextInt(namedColors.size());
+            namedColors.set(renamed, new NamedColor(namedColors.get(renamed).getColor(), "Edited " + random.nextInt(1000)));
+        }
+        int replaced = random.nextInt(namedColors.size());
+        NamedColor original = namedColors.get(replaced);
+        namedColors.set(replaced, new NamedColor(original.getColor().brighter(), original.getName()));
+        NamedColor removed = namedColors.remove(random.nextInt(namedColors.size()));
+        Collections.rotate(namedColors, random.nextInt(namedColors.size()));
+        palette.setNamedColors(namedColors);
+        palette.addColor(removed.getColor().invert(), removed.getName());
+        palette.setTags(random.nextBoolean() ? List.of("soak") : List.of());
+    }
+}
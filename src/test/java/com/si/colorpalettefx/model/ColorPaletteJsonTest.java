@@ -0,0 +1,87 @@
+package com.si.colorpalettefx.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests the Jackson mapping of {@link ColorPalette}, which saved palette files rely on.
+ */
+class ColorPaletteJsonTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void writesColorsAsNamedHexCodes() throws Exception {
+        ColorPalette palette = new ColorPalette("Primaries");
+        palette.addColor(Color.RED, "Red");
+        palette.addColor(Color.web("#0000FF"), "Blue");
+
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(palette));
+
+        assertEquals("Primaries", json.get("name").asText());
+        assertEquals(2, json.get("colors").size());
+        assertEquals("#FF0000", json.get("colors").get(0).get("hex").asText());
+        assertEquals("Red", json.get("colors").get(0).get("name").asText());
+        assertEquals("#0000FF", json.get("colors").get(1).get("hex").asText());
+        assertFalse(json.has("namedColors"), "named colors must only be written as colors");
+        assertFalse(json.has("fingerprint"), "fingerprints must not be written");
+        assertFalse(json.has("tags"), "empty tags must be omitted");
+    }
+
+    @Test
+    void roundTripKeepsContentAndTags() throws Exception {
+        ColorPalette palette = new SyntheticPalettes(1).palette(7, 64).toColorPalette();
+        palette.setTags(List.of("brand", "web"));
+
+        ColorPalette read = mapper.readValue(mapper.writeValueAsString(palette), ColorPalette.class);
+
+        assertEquals(palette.getName(), read.getName());
+        assertEquals(palette.getTags(), read.getTags());
+        assertEquals(palette.getFingerprint(), read.getFingerprint());
+    }
+
+    @Test
+    void namesUnnamedColorsAndDropsColorsWithoutHex() throws Exception {
+        String json = "{\"name\": \"Partial\", \"colors\": ["
+                + "{\"hex\": \"#FF0000\"},"
+                + "{\"name\": \"No Hex\"},"
+                + "{\"name\": \"Teal\", \"hex\": \"#008080\"}]}";
+
+        ColorPalette palette = mapper.readValue(json, ColorPalette.class);
+
+        assertEquals(2, palette.size());
+        assertNotNull(palette.getNamedColors().get(0).getName());
+        assertFalse(palette.getNamedColors().get(0).getName().isBlank());
+        assertEquals("Teal", palette.getNamedColors().get(1).getName());
+    }
+
+    @Test
+    void largeLibraryRoundTripKeepsFingerprints() throws Exception {
+        int colorsPerPalette = 1000;
+        int paletteCount = Math.max(1, SyntheticPalettes.swatchCount(1_000_000) / 5 / colorsPerPalette);
+        List<ColorPalette> palettes = new SyntheticPalettes(2).palettes(paletteCount, colorsPerPalette).stream()
+                .map(PaletteData::toColorPalette)
+                .toList();
+
+        byte[] json = mapper.writeValueAsBytes(palettes);
+        List<ColorPalette> read = mapper.readValue(json, new TypeReference<>() {
+        });
+
+        assertEquals(palettes.size(), read.size());
+        for (int i = 0; i < palettes.size(); i++) {
+            assertEquals(palettes.get(i).getName(), read.get(i).getName());
+            assertEquals(palettes.get(i).getTags(), read.get(i).getTags());
+            assertEquals(palettes.get(i).getFingerprint(), read.get(i).getFingerprint(),
+                    "fingerprint of " + palettes.get(i).getName());
+        }
+    }
+}
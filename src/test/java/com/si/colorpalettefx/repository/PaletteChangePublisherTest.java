@@ -0,0 +1,187 @@
+package com.si.colorpalettefx.repository;
+
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the change stream of {@link PaletteRepository}.
+ */
+class PaletteChangePublisherTest {
+    private final SyntheticPalettes generator = new SyntheticPalettes(5);
+
+    /**
+     * Records batches, requesting one at a time after an optional delay per batch.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<PaletteChangeBatch> {
+        private final long delayMillis;
+        private final List<PaletteChangeBatch> batches = new ArrayList<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private volatile long deliveredVersion;
+
+        RecordingSubscriber(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(PaletteChangeBatch batch) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(batch);
+            deliveredVersion = batch.getToVersion();
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void awaitVersion(long version) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (deliveredVersion < version && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(version, deliveredVersion, "delivered version");
+        }
+    }
+
+    @Test
+    void reportsAddedChangedAndRemovedPalettes() throws Exception {
+        PaletteRepository repository = new PaletteRepository();
+        PaletteData first = generator.palette(0, 10);
+        PaletteData second = generator.palette(1, 10);
+        repository.replaceAll(List.of(first, second));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        repository.getChanges().subscribe(subscriber);
+        PaletteData changed = new PaletteData(first.getName(), generator.palette(2, 5).getColors(), new String[5]);
+        PaletteData added = generator.palette(3, 10);
+        repository.update(palettes -> {
+            palettes.set(0, changed);
+            palettes.remove(second);
+            palettes.add(added);
+        });
+        subscriber.awaitVersion(2);
+
+        List<PaletteChange> changes = subscriber.batches.get(0).getChanges();
+        assertEquals(3, changes.size());
+        assertEquals(PaletteChange.Type.CHANGED, changes.get(0).getType());
+        assertEquals(first, changes.get(0).getPrevious());
+        assertEquals(changed, changes.get(0).getPalette());
+        assertEquals(PaletteChange.Type.ADDED, changes.get(1).getType());
+        assertEquals(added, changes.get(1).getPalette());
+        assertEquals(PaletteChange.Type.REMOVED, changes.get(2).getType());
+        assertEquals(second.getName(), changes.get(2).getName());
+    }
+
+    @Test
+    void slowSubscribersGetMergedBatchesWithoutStallingWriters() throws Exception {
+        PaletteRepository repository = new PaletteRepository();
+        RecordingSubscriber slow = new RecordingSubscriber(50);
+        RecordingSubscriber fast = new RecordingSubscriber(0);
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        try {
+            repository.getChanges().subscribe(slow, slowExecutor);
+            repository.getChanges().subscribe(fast);
+
+            int writes = 1000;
+            long start = System.nanoTime();
+            for (int i = 0; i < writes; i++) {
+                repository.put(generator.palette(i % 50, 20));
+            }
+            long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            slow.awaitVersion(writes);
+            fast.awaitVersion(writes);
+
+            assertTrue(writeMillis < 50L * writes / 10, "writers waited for the slow subscriber: " + writeMillis + " ms");
+            assertTrue(slow.batches.size() < writes / 10, "slow subscriber got " + slow.batches.size() + " batches");
+            long versions = slow.batches.stream().mapToLong(PaletteChangeBatch::getVersionCount).sum();
+            assertEquals(writes, versions);
+            assertEquals(repository.getSnapshot(), slow.batches.get(slow.batches.size() - 1).getSnapshot());
+        } finally {
+            slowExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deliversNothingWithoutDemand() throws Exception {
+        PaletteRepository repository = new PaletteRepository();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        List<PaletteChangeBatch> batches = new ArrayList<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        repository.getChanges().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                subscribed.countDown();
+            }
+
+            @Override
+            public void onNext(PaletteChangeBatch batch) {
+                batches.add(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }, Runnable::run);
+        assertTrue(subscribed.await(1, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            repository.put(generator.palette(i, 5));
+        }
+        assertEquals(0, batches.size());
+
+        subscription[0].request(1);
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).getChanges().size());
+    }
+
+    @Test
+    void rejectsNonPositiveRequests() throws Exception {
+        PaletteRepository repository = new PaletteRepository();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(0);
+            }
+        };
+
+        repository.getChanges().subscribe(subscriber);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error.get(10, TimeUnit.SECONDS));
+        assertEquals(0, repository.getChanges().getSubscriberCount());
+    }
+}
@@ -0,0 +1,139 @@
+package com.si.colorpalettefx.search;
+
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.model.PaletteData;
+import com.si.colorpalettefx.repository.PaletteRepository;
+import com.si.colorpalettefx.search.PaletteSimilarityIndex.SimilarPalette;
+import com.si.colorpalettefx.testing.SyntheticPalettes;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link PaletteSimilarityIndex} and the earth mover's distance of {@link ColorSignature}.
+ */
+class PaletteSimilarityIndexTest {
+    private final SyntheticPalettes generator = new SyntheticPalettes(11);
+
+    @Test
+    void distanceMovesColorMass() {
+        ColorSignature blackAndWhite = ColorSignature.of(new int[]{0xFF000000, 0xFFFFFFFF});
+        ColorSignature black = ColorSignature.of(new int[]{0xFF000000, 0xFF000000});
+        ColorSignature whiteAndBlack = ColorSignature.of(new int[]{0xFFFFFFFF, 0xFF000000});
+
+        // Half of the colors move from white to black, one unit of OKLab lightness
+        assertEquals(0.5, blackAndWhite.distance(black), 1e-4);
+        assertEquals(0.5, black.distance(blackAndWhite), 1e-4);
+        assertEquals(0, blackAndWhite.distance(whiteAndBlack), 1e-9);
+    }
+
+    @Test
+    void lowerBoundNeverExceedsDistance() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 500; i++) {
+            ColorSignature first = ColorSignature.of(randomColors(random));
+            ColorSignature second = ColorSignature.of(randomColors(random));
+            double distance = first.distance(second);
+            assertTrue(first.lowerBound(second) <= distance + 1e-6);
+            assertEquals(distance, second.distance(first), 1e-6);
+        }
+    }
+
+    @Test
+    void findsSlightlyChangedPalettes() {
+        List<PaletteData> palettes = generator.palettes(3000, 12);
+        PaletteSimilarityIndex index = new PaletteSimilarityIndex();
+        index.replaceAll(palettes);
+        assertEquals(palettes.size(), index.size());
+
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 3000; i += 150) {
+            int[] colors = palettes.get(i).getColors();
+            for (int c = 0; c < colors.length; c++) {
+                int shift = random.nextInt(-4, 5);
+                colors[c] = PackedColors.rgb(clamp(PackedColors.red(colors[c]) + shift),
+                        clamp(PackedColors.green(colors[c]) - shift), clamp(PackedColors.blue(colors[c]) + shift));
+            }
+
+            List<SimilarPalette> similar = index.findSimilar(colors, 5);
+            assertEquals(5, similar.size());
+            assertSame(palettes.get(i), similar.get(0).getPalette());
+            for (int rank = 1; rank < similar.size(); rank++) {
+                assertTrue(similar.get(rank - 1).getDistance() <= similar.get(rank).getDistance());
+            }
+        }
+    }
+
+    @Test
+    void leavesOutQueryAndRemovedPalettes() {
+        PaletteData palette = generator.palette(1, 8);
+        PaletteData copy = renamed(palette, "Copy");
+        PaletteSimilarityIndex index = new PaletteSimilarityIndex();
+        index.replaceAll(List.of(palette, copy, generator.palette(2, 8)));
+
+        List<SimilarPalette> similar = index.findSimilar(palette, 10);
+        assertEquals(2, similar.size());
+        assertSame(copy, similar.get(0).getPalette());
+        assertEquals(0, similar.get(0).getDistance(), 1e-9);
+
+        index.remove(copy);
+        assertEquals(2, index.size());
+        assertFalse(index.findSimilar(palette, 10).stream().anyMatch(result -> result.getPalette() == copy));
+    }
+
+    @Test
+    void followsRepositoryChanges() throws InterruptedException {
+        PaletteRepository repository = new PaletteRepository();
+        repository.put(generator.palette(1, 10));
+        PaletteSimilarityIndex index = new PaletteSimilarityIndex();
+        index.follow(repository);
+        awaitTrue(() -> index.size() == 1);
+
+        for (int i = 2; i <= 50; i++) {
+            repository.put(generator.palette(i, 10));
+        }
+        awaitTrue(() -> index.size() == 50);
+
+        PaletteData changed = generator.palette(51, 10);
+        repository.put(renamed(changed, "Synthetic 7"));
+        repository.remove("Synthetic 8");
+        awaitTrue(() -> index.size() == 49);
+        List<SimilarPalette> similar = index.findSimilar(changed.getColors(), 1);
+        assertEquals("Synthetic 7", similar.get(0).getPalette().getName());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static PaletteData renamed(PaletteData palette, String name) {
+        String[] colorNames = new String[palette.size()];
+        for (int i = 0; i < colorNames.length; i++) {
+            colorNames[i] = palette.getColorName(i);
+        }
+        return new PaletteData(name, palette.getColors(), colorNames);
+    }
+
+    private static int[] randomColors(SplittableRandom random) {
+        int[] colors = new int[1 + random.nextInt(30)];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(1 << 24);
+        }
+        return colors;
+    }
+
+    private static int clamp(int channel) {
+        return Math.max(0, Math.min(255, channel));
+    }
+}
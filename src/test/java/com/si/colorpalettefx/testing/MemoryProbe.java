@@ -0,0 +1,109 @@
+package com.si.colorpalettefx.testing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Measures retained heap and allocated bytes, for heap-budget and allocation tests.
+ * <p>
+ * Retained heap is the difference in used heap after full collections, so it is only
+ * meaningful for structures of many megabytes. Allocations are counted per thread by the JVM,
+ * so measured code must not hand work to other threads.
+ */
+public final class MemoryProbe {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private MemoryProbe() {
+    }
+
+    /**
+     * The retained size of a structure, and the structure itself.
+     *
+     * @param <T> the type of the structure
+     */
+    public static final class Retained<T> {
+        private final T value;
+        private final long bytes;
+
+        Retained(T value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the measured structure.
+         *
+         * @return the structure
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the heap retained by the structure.
+         *
+         * @return the retained bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Builds a structure and measures the heap it retains.
+     *
+     * @param builder builds the structure
+     * @param <T> the type of the structure
+     * @return the structure and its retained size
+     */
+    public static <T> Retained<T> retained(Supplier<T> builder) {
+        long before = usedHeapAfterGc();
+        T value = builder.get();
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(value);
+        return new Retained<>(value, after - before);
+    }
+
+    /**
+     * Returns the used heap after collecting garbage until the usage settles.
+     *
+     * @return the used heap in bytes
+     */
+    public static long usedHeapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = MEMORY.getHeapMemoryUsage().getUsed();
+            if (current >= used - (used >> 8)) {
+                return Math.min(used, current);
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far.
+     *
+     * @return the allocated bytes
+     */
+    public static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Runs an action and measures the bytes it allocates on the current thread.
+     *
+     * @param action the action
+     * @return the allocated bytes
+     */
+    public static long allocatedBy(Runnable action) {
+        long before = allocatedBytes();
+        action.run();
+        return allocatedBytes() - before;
+    }
+}
@@ -0,0 +1,194 @@
+package com.si.colorpalettefx.testing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.si.colorpalettefx.color.PackedColors;
+import com.si.colorpalettefx.export.PaletteJson;
+import com.si.colorpalettefx.model.PaletteData;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of synthetic palettes and palette files of any size.
+ * <p>
+ * Every palette is derived from the seed and its index alone, so tests can write files with
+ * millions of swatches palette by palette, and later regenerate any single palette to check
+ * what was read back, without ever holding the whole library in memory. Palettes look like real
+ * ones: a few hue families with lightness ramps, some repeated colors and named swatches.
+ */
+public final class SyntheticPalettes {
+    /**
+     * System property with the number of swatches of the large generated libraries.
+     */
+    public static final String SWATCHES_PROPERTY = "colorpalettefx.test.swatches";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String[] ADJECTIVES = {
+            "Deep", "Pale", "Warm", "Cool", "Dusty", "Bright", "Muted", "Soft", "Dark", "Vivid"
+    };
+    private static final String[] NOUNS = {
+            "Ocean", "Forest", "Ember", "Sand", "Slate", "Berry", "Moss", "Sky", "Clay", "Rose"
+    };
+    private static final String[] TAGS = {"brand", "print", "web", "dark", "pastel", "seasonal"};
+
+    /**
+     * The legacy layouts of palette objects.
+     */
+    public enum LegacyStyle {
+        /**
+         * Hex codes as plain strings in the colors array.
+         */
+        COLOR_STRINGS,
+
+        /**
+         * Hex codes in a separate colorHexCodes array.
+         */
+        COLOR_HEX_CODES
+    }
+
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed all palettes are derived from
+     */
+    public SyntheticPalettes(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of swatches of large libraries, from the {@value #SWATCHES_PROPERTY}
+     * system property.
+     *
+     * @param defaultCount the count to use if the property is not set
+     * @return the swatch count
+     */
+    public static int swatchCount(int defaultCount) {
+        return Integer.getInteger(SWATCHES_PROPERTY, defaultCount);
+    }
+
+    /**
+     * Returns the number of palettes of large libraries: {@link #swatchCount(int)} swatches,
+     * one million by default, split into palettes of the given size.
+     *
+     * @param colorsPerPalette the number of colors of every palette
+     * @return the palette count, at least 1
+     */
+    public static int paletteCount(int colorsPerPalette) {
+        return Math.max(1, swatchCount(1_000_000) / colorsPerPalette);
+    }
+
+    /**
+     * Generates a palette. The same seed, index and size always give the same palette.
+     *
+     * @param index the index of the palette
+     * @param colorCount the number of colors
+     * @return the palette
+     */
+    public PaletteData palette(int index, int colorCount) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        int[] colors = new int[colorCount];
+        String[] colorNames = new String[colorCount];
+        int families = 1 + random.nextInt(6);
+        for (int i = 0; i < colorCount; i++) {
+            if (i > 0 && random.nextInt(50) == 0) {
+                // Real palettes repeat colors now and then
+                colors[i] = colors[random.nextInt(i)];
+            } else {
+                float hue = (float) ((i % families) * 360.0 / families + random.nextDouble(-15, 15));
+                float saturation = (float) random.nextDouble(0.2, 1.0);
+                float brightness = (float) (0.15 + 0.8 * ((i / families) % 9) / 8.0);
+                colors[i] = 0xFF000000 | Color.HSBtoRGB((hue + 360) % 360 / 360f, saturation, brightness);
+            }
+            colorNames[i] = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+        }
+
+        List<String> tags = new ArrayList<>(2);
+        if (random.nextInt(3) == 0) {
+            tags.add(TAGS[random.nextInt(TAGS.length)]);
+            tags.add(TAGS[random.nextInt(TAGS.length)]);
+        }
+        return new PaletteData("Synthetic " + index, colors, colorNames, tags);
+    }
+
+    /**
+     * Generates many palettes of the same size.
+     *
+     * @param paletteCount the number of palettes
+     * @param colorsPerPalette the number of colors of every palette
+     * @return the palettes
+     */
+    public List<PaletteData> palettes(int paletteCount, int colorsPerPalette) {
+        List<PaletteData> palettes = new ArrayList<>(paletteCount);
+        for (int i = 0; i < paletteCount; i++) {
+            palettes.add(palette(i, colorsPerPalette));
+        }
+        return palettes;
+    }
+
+    /**
+     * Writes a file in the current JSON format, generating one palette at a time.
+     *
+     * @param file the file
+     * @param paletteCount the number of palettes
+     * @param colorsPerPalette the number of colors of every palette
+     * @return the size of the file in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public long writeCurrentJson(Path file, int paletteCount, int colorsPerPalette) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (int i = 0; i < paletteCount; i++) {
+                PaletteJson.write(generator, palette(i, colorsPerPalette));
+            }
+            generator.writeEndArray();
+        }
+        return Files.size(file);
+    }
+
+    /**
+     * Writes a file in the legacy JSON format, without color names and tags, generating one
+     * palette at a time.
+     *
+     * @param file the file
+     * @param paletteCount the number of palettes
+     * @param colorsPerPalette the number of colors of every palette
+     * @param style the layout of the palette objects
+     * @return the size of the file in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public long writeLegacyJson(Path file, int paletteCount, int colorsPerPalette, LegacyStyle style)
+            throws IOException {
+        try (OutputStream output = Files.newOutputStream(file);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (int i = 0; i < paletteCount; i++) {
+                PaletteData palette = palette(i, colorsPerPalette);
+                generator.writeStartObject();
+                generator.writeStringField("name", palette.getName());
+                generator.writeArrayFieldStart(style == LegacyStyle.COLOR_STRINGS ? "colors" : "colorHexCodes");
+                for (int j = 0; j < palette.size(); j++) {
+                    // Legacy files were written by hand as often as not
+                    String hex = PackedColors.toHex(palette.getColor(j));
+                    generator.writeString(j % 2 == 0 ? hex.toLowerCase(Locale.ROOT) : hex);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        return Files.size(file);
+    }
+}